@@ -0,0 +1,63 @@
+package awedoctime.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import awedoctime.Document;
+import awedoctime.RopeDocument;
+
+/**
+ * Builds the paragraphs of a SyntheticDocument by appending them one at a
+ * time, both to the top level of a document and into a section, where
+ * every appended paragraph goes into the contents of the last section.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AppendBenchmark {
+
+    @Benchmark
+    public Document appendSequential(SyntheticDocument state) {
+        Document document = Document.empty();
+        for (String text : state.texts) {
+            document = document.append(Document.paragraph(text));
+        }
+        return document;
+    }
+
+    @Benchmark
+    public Document appendNested(SyntheticDocument state) {
+        Document document = Document.section("Section", Document.empty());
+        for (String text : state.texts) {
+            document = document.append(Document.paragraph(text));
+        }
+        return document;
+    }
+
+    @Benchmark
+    public Document appendSequentialRope(SyntheticDocument state) {
+        Document document = RopeDocument.empty();
+        for (String text : state.texts) {
+            document = document.append(RopeDocument.paragraph(text));
+        }
+        return document;
+    }
+
+    @Benchmark
+    public Document appendNestedRope(SyntheticDocument state) {
+        Document document = RopeDocument.section("Section", RopeDocument.empty());
+        for (String text : state.texts) {
+            document = document.append(RopeDocument.paragraph(text));
+        }
+        return document;
+    }
+}
@@ -0,0 +1,49 @@
+package awedoctime.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import awedoctime.Document;
+
+/**
+ * Observers of a SyntheticDocument that do not render it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+
+    @Benchmark
+    public int bodyWordCount(SyntheticDocument state) {
+        return state.document.bodyWordCount();
+    }
+
+    @Benchmark
+    public Document tableOfContents(SyntheticDocument state) {
+        return state.document.tableOfContents();
+    }
+
+    @Benchmark
+    public int hashCode(SyntheticDocument state) {
+        return state.document.hashCode();
+    }
+
+    @Benchmark
+    public boolean equalsEqual(SyntheticDocument state) {
+        return state.document.equals(state.copy);
+    }
+
+    @Benchmark
+    public boolean equalsDifferent(SyntheticDocument state) {
+        return state.document.equals(state.different);
+    }
+}
@@ -0,0 +1,79 @@
+package awedoctime.benchmarks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import awedoctime.Document;
+import awedoctime.Document.ConversionException;
+import awedoctime.ParallelRenderer;
+import awedoctime.RenderCache;
+
+/**
+ * Conversions of a SyntheticDocument to every output format, on one
+ * thread and with ParallelRenderer, and to HTML after a paragraph is
+ * appended, with and without a RenderCache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+    private static final ParallelRenderer PARALLEL = new ParallelRenderer(ForkJoinPool.commonPool(), 4096);
+    private static final RenderCache CACHE = new RenderCache(1 << 26);
+
+    @Benchmark
+    public String toLaTeX(SyntheticDocument state) throws ConversionException {
+        return state.document.toLaTeX();
+    }
+
+    @Benchmark
+    public String toMarkdown(SyntheticDocument state) throws ConversionException {
+        return state.document.toMarkdown();
+    }
+
+    @Benchmark
+    public String toHTML(SyntheticDocument state) throws ConversionException {
+        return state.document.toHTML();
+    }
+
+    // ParallelRenderer on the common pool, with a threshold low enough to
+    // split the smaller documents too
+
+    @Benchmark
+    public String toLaTeXParallel(SyntheticDocument state) throws ConversionException {
+        return PARALLEL.toLaTeX(state.document);
+    }
+
+    @Benchmark
+    public String toMarkdownParallel(SyntheticDocument state) throws ConversionException {
+        return PARALLEL.toMarkdown(state.document);
+    }
+
+    @Benchmark
+    public String toHTMLParallel(SyntheticDocument state) throws ConversionException {
+        return PARALLEL.toHTML(state.document);
+    }
+
+    // a new version of the document, which shares all but its last
+    // top-level items with the previous one, rendered from scratch and with
+    // the cache
+
+    @Benchmark
+    public String toHTMLAppended(SyntheticDocument state) throws ConversionException {
+        return state.document.append(Document.paragraph("appended")).toHTML();
+    }
+
+    @Benchmark
+    public String toHTMLAppendedCached(SyntheticDocument state) throws ConversionException {
+        return CACHE.toHTML(state.document.append(Document.paragraph("appended")));
+    }
+}
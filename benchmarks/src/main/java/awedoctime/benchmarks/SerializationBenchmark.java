@@ -0,0 +1,111 @@
+package awedoctime.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import awedoctime.Document;
+import awedoctime.Document.ConversionException;
+import awedoctime.DocumentReader;
+import awedoctime.DocumentStore;
+import awedoctime.DocumentWriter;
+import awedoctime.MarkdownParser;
+
+/**
+ * Persisting a SyntheticDocument between pipeline stages: the binary
+ * format of DocumentWriter and DocumentReader against Markdown encoded as
+ * UTF-8, and opening the same format as a memory-mapped DocumentStore.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @State(Scope.Thread)
+    public static class Encoded {
+        byte[] binary;
+        byte[] binaryWithCounts;
+        byte[] markdown;
+        Path store;
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        @Setup(Level.Trial)
+        public void setUp(SyntheticDocument state) throws IOException, ConversionException {
+            markdown = state.document.toMarkdown().getBytes(StandardCharsets.UTF_8);
+            binary = write(state.document, out, false, false);
+            binaryWithCounts = write(state.document, out, true, true);
+            store = Files.createTempFile("serialization", ".adoc");
+            store.toFile().deleteOnExit();
+            DocumentStore.write(store, Collections.nCopies(100, state.document));
+        }
+    }
+
+    static byte[] write(Document document, ByteArrayOutputStream out, boolean wordCounts, boolean hashes)
+            throws IOException {
+        out.reset();
+        DocumentWriter writer = new DocumentWriter(out, wordCounts, hashes);
+        writer.write(document);
+        writer.close();
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public int writeBinary(SyntheticDocument state, Encoded encoded) throws IOException {
+        return write(state.document, encoded.out, false, false).length;
+    }
+
+    @Benchmark
+    public int writeBinaryWithCountsAndHashes(SyntheticDocument state, Encoded encoded) throws IOException {
+        return write(state.document, encoded.out, true, true).length;
+    }
+
+    @Benchmark
+    public int writeMarkdown(SyntheticDocument state) throws ConversionException {
+        return state.document.toMarkdown().getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    @Benchmark
+    public Document readBinary(Encoded encoded) throws IOException {
+        return new DocumentReader(new ByteArrayInputStream(encoded.binary)).read();
+    }
+
+    @Benchmark
+    public Document readBinaryWithCountsAndHashes(Encoded encoded) throws IOException {
+        return new DocumentReader(new ByteArrayInputStream(encoded.binaryWithCounts)).read();
+    }
+
+    @Benchmark
+    public Document readMarkdown(Encoded encoded) throws IOException {
+        return MarkdownParser.parse(new InputStreamReader(new ByteArrayInputStream(encoded.markdown),
+                StandardCharsets.UTF_8));
+    }
+
+    // maps a store of 100 copies of the document and reads the first text
+    // and the word count of the last one, without decoding the rest
+    @Benchmark
+    public int openStore(Encoded encoded) throws IOException {
+        DocumentStore store = DocumentStore.open(encoded.store);
+        Document last = store.get(store.size() - 1);
+        return last.getText().length() + last.bodyWordCount();
+    }
+}
@@ -0,0 +1,140 @@
+package awedoctime.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import awedoctime.Document;
+import awedoctime.DocumentBuilder;
+import awedoctime.DocumentStore;
+import awedoctime.FlatDocument;
+
+/**
+ * A synthetic document shared by the benchmarks, parameterized by its
+ * number of paragraphs, the number of words in each paragraph, how deep
+ * its sections are nested and how it is represented.
+ * <p>
+ * With nesting 0 the document is a flat chain of paragraphs. Otherwise the
+ * paragraphs are spread over top-level sections that each contain a chain
+ * of nesting sections, one inside the other, with PARAGRAPHSPERSECTION
+ * paragraphs in the innermost one.
+ */
+@State(Scope.Benchmark)
+public class SyntheticDocument {
+    static final int PARAGRAPHSPERSECTION = 10;
+
+    @Param({ "100", "10000" })
+    public int paragraphs;
+
+    @Param({ "5", "50" })
+    public int wordsPerParagraph;
+
+    // LaTeX supports at most 3 levels of sections
+    @Param({ "0", "3" })
+    public int nesting;
+
+    // linked Paragraph/Section chains, FlatDocument, or StoredDocument
+    // mapped from a DocumentStore in a temporary file
+    @Param({ "linked", "flat", "stored" })
+    public String representation;
+
+    /** The document */
+    public Document document;
+    /** A document built separately with the same contents as document */
+    public Document copy;
+    /** A document that differs from document only in its last paragraph */
+    public Document different;
+    /** The text of every paragraph of document, in order */
+    public String[] texts;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        texts = new String[paragraphs];
+        for (int i = 0; i < paragraphs; i++) {
+            texts[i] = text(i, wordsPerParagraph);
+        }
+        document = represent(build(texts, nesting));
+        copy = represent(build(texts.clone(), nesting));
+        String[] changed = texts.clone();
+        changed[paragraphs - 1] = "changed " + changed[paragraphs - 1];
+        different = represent(build(changed, nesting));
+        if (representation.equals("stored")) {
+            Path file = Files.createTempFile("synthetic", ".adoc");
+            file.toFile().deleteOnExit();
+            DocumentStore.write(file, Arrays.asList(document, copy, different));
+            DocumentStore store = DocumentStore.open(file);
+            document = store.get(0);
+            copy = store.get(1);
+            different = store.get(2);
+        }
+    }
+
+    private Document represent(Document linked) {
+        return representation.equals("flat") ? FlatDocument.of(linked) : linked;
+    }
+
+    /**
+     * @return a paragraph text of words words, with some characters that
+     *         every format has to escape
+     */
+    static String text(int index, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            switch ((index + i) % 8) {
+            case 0:
+                sb.append("50%");
+                break;
+            case 1:
+                sb.append("<b>");
+                break;
+            case 2:
+                sb.append("under_score");
+                break;
+            default:
+                sb.append("word").append(i);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the document with the paragraphs texts nested as described
+     *         in the class comment
+     */
+    static Document build(String[] texts, int nesting) {
+        DocumentBuilder builder = new DocumentBuilder();
+        for (int i = 0; i < texts.length; i++) {
+            boolean first = i % PARAGRAPHSPERSECTION == 0;
+            if (nesting > 0 && first) {
+                if (i > 0) {
+                    endSections(builder, nesting);
+                }
+                for (int level = 0; level < nesting; level++) {
+                    builder.beginSection("Section " + i + " level " + level);
+                }
+            }
+            // a copy, so that equals compares the characters of equal texts
+            builder.addParagraph(new String(texts[i]));
+        }
+        if (nesting > 0 && texts.length > 0) {
+            endSections(builder, nesting);
+        }
+        return builder.build();
+    }
+
+    private static void endSections(DocumentBuilder builder, int count) {
+        for (int level = 0; level < count; level++) {
+            builder.endSection();
+        }
+    }
+}
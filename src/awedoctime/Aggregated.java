@@ -0,0 +1,54 @@
+package awedoctime;
+
+/**
+ * The implementations of Document in this package, which keep, or work out
+ * once, the aggregates Fingerprint, Depth, RenderedSize, Outline and
+ * DocumentViews hand out, and which DocumentCursor walks in their own
+ * representation.
+ * <p>
+ * Those classes ask an Aggregated document for its aggregates, and fall
+ * back on what any other implementation of Document shows through
+ * getText and getNextItemOfSameHeirarchy. A new representation must
+ * implement this interface and must also be added to DocumentCursor,
+ * which walks every Aggregated document in its own representation and
+ * fails on one it does not know.
+ */
+interface Aggregated extends Document {
+
+    /**
+     * @return the structural fingerprint of this document, see Fingerprint
+     */
+    long fingerprint();
+
+    /**
+     * @return the greatest number of sections nested in one another in this
+     *         document, see Depth
+     */
+    int maxDepth();
+
+    /**
+     * @return the HTML levels of this document, see Depth
+     */
+    int htmlLevels();
+
+    /**
+     * @return the exact length of this document rendered in every format,
+     *         see RenderedSize
+     */
+    RenderedSize renderedSize();
+
+    /**
+     * @return the outline of the sections of this document, see Outline
+     */
+    Outline outline();
+
+    /**
+     * @param from index of the first top-level item of the slice, from 0
+     * @param to index just after the last top-level item of the slice
+     * @return the top-level items [from, to) of this, sharing its nodes; see
+     *         DocumentViews
+     * @throws IndexOutOfBoundsException if from is negative, to is less
+     *         than from or this has fewer than to top-level items
+     */
+    Document slice(int from, int to);
+}
@@ -0,0 +1,262 @@
+package awedoctime;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import awedoctime.Document.ConversionException;
+
+/**
+ * Converts every document of a directory to one output format, each on its
+ * own thread, at most a fixed number at a time. Files ending in ".md" are
+ * parsed as Markdown by MarkdownParser, and files ending in ".adoc" are read
+ * as the binary format by DocumentReader (their first document); other
+ * files are ignored. Every converted document is streamed in UTF-8, by a
+ * ChannelRenderer, to a file of the same name, with the extension of the
+ * format, in the output directory. Two documents that would be written to
+ * the same file, such as "a.md" and "a.adoc", are refused before any
+ * document is converted.
+ * <p>
+ * Each document gets a virtual thread when the Java runtime has them (Java
+ * 21 and later), and otherwise a thread of a pool of as many platform
+ * threads as documents may be converted at a time.
+ */
+public final class BatchConverter {
+    private final OutputFormat format;
+    private final int concurrency;
+
+    // Rep invariant:
+    //      concurrency > 0
+    // Abstraction function:
+    //      represents converting directories to format, at most concurrency
+    //      documents at a time
+
+    /**
+     * Make a converter
+     * @param format the format to convert documents to
+     * @param concurrency the greatest number of documents to convert at a
+     *        time, at least 1
+     * @throws IllegalArgumentException if concurrency < 1
+     */
+    public BatchConverter(OutputFormat format, int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1: " + concurrency);
+        }
+        this.format = format;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Converts every document of input to the format of this converter
+     * @param input directory of ".md" and ".adoc" documents
+     * @param output directory to write the converted documents to, which
+     *        is created if it does not exist; must not be input
+     * @return a summary of the conversion, in which a document that could
+     *         not be read, converted or written counts as a failure
+     * @throws IOException if input cannot be listed or output created
+     * @throws IllegalArgumentException if output is input, or if two
+     *         documents of input differ only in their extension and would
+     *         be written to the same file; nothing is converted then
+     * @throws InterruptedException if the calling thread is interrupted
+     *         while documents are being converted
+     */
+    public Summary convert(Path input, Path output) throws IOException, InterruptedException {
+        Files.createDirectories(output);
+        if (Files.isSameFile(input, output)) {
+            throw new IllegalArgumentException("output directory is the input directory: " + output);
+        }
+        List<Path> documents = new ArrayList<Path>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(input, "*.{md,adoc}")) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file)) {
+                    documents.add(file);
+                }
+            }
+        }
+        Collections.sort(documents);
+        List<Path> targets = new ArrayList<Path>();
+        Map<String, Path> sources = new HashMap<String, Path>();
+        for (Path document : documents) {
+            String name = outputName(document);
+            Path other = sources.put(name, document);
+            if (other != null) {
+                throw new IllegalArgumentException(other.getFileName() + " and " + document.getFileName()
+                        + " would both be converted to " + name);
+            }
+            targets.add(output.resolve(name));
+        }
+
+        long[] latencies = new long[documents.size()];
+        List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+        Semaphore permits = new Semaphore(concurrency);
+        long start = System.nanoTime();
+        ExecutorService executor = newExecutor(concurrency);
+        try {
+            for (int i = 0; i < documents.size(); i++) {
+                Path document = documents.get(i);
+                Path target = targets.get(i);
+                int index = i;
+                permits.acquire();
+                executor.execute(() -> {
+                    long documentStart = System.nanoTime();
+                    try {
+                        convertFile(document, target);
+                    } catch (IOException | ConversionException | RuntimeException e) {
+                        failures.add(document + ": " + e);
+                    } finally {
+                        latencies[index] = System.nanoTime() - documentStart;
+                        permits.release();
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        return new Summary(latencies, System.nanoTime() - start, failures);
+    }
+
+    /**
+     * Reads the document in file, converts it and writes it to target; when
+     * it cannot be converted, target is not written
+     */
+    private void convertFile(Path file, Path target) throws IOException, ConversionException {
+        Document document = read(file);
+        DocumentRenderer.checkDepth(document, format, 1);
+        ChannelRenderer renderer = new ChannelRenderer(ByteBuffer.allocate(ChannelRenderer.DEFAULT_CAPACITY));
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            renderer.render(document, format, out);
+        } catch (ConversionException ce) {
+            Files.deleteIfExists(target);
+            throw ce;
+        }
+    }
+
+    private static Document read(Path file) throws IOException {
+        if (file.getFileName().toString().endsWith(".md")) {
+            try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                return MarkdownParser.parse(in);
+            }
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            Document document = new DocumentReader(in).read();
+            return document == null ? new Empty() : document;
+        }
+    }
+
+    /**
+     * @return the name of file with its extension replaced by that of the
+     *         format of this converter
+     */
+    private String outputName(Path file) {
+        String name = file.getFileName().toString();
+        String base = name.substring(0, name.lastIndexOf('.'));
+        switch (format) {
+        case LATEX:
+            return base + ".tex";
+        case MARKDOWN:
+            return base + ".md";
+        default:
+            return base + ".html";
+        }
+    }
+
+    /**
+     * @return an executor with a virtual thread per task if the runtime has
+     *         them, and otherwise a pool of concurrency threads
+     */
+    private static ExecutorService newExecutor(int concurrency) {
+        try {
+            Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtual.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(concurrency);
+        }
+    }
+
+    /**
+     * Throughput and latency of a batch conversion
+     */
+    public static final class Summary {
+        private final long[] latencies;
+        private final long elapsed;
+        private final List<String> failures;
+
+        // Rep invariant:
+        //      latencies is sorted, elapsed >= 0
+        // Abstraction function:
+        //      represents the conversion of latencies.length documents in
+        //      elapsed nanoseconds, the i-th fastest taking latencies[i]
+        //      nanoseconds, of which those of failures failed
+        private Summary(long[] latencies, long elapsed, List<String> failures) {
+            this.latencies = latencies.clone();
+            Arrays.sort(this.latencies);
+            this.elapsed = elapsed;
+            this.failures = Collections.unmodifiableList(new ArrayList<String>(failures));
+        }
+
+        /**
+         * @return the number of documents converted or failed
+         */
+        public int documents() {
+            return latencies.length;
+        }
+
+        /**
+         * @return a message for every document that failed, naming it
+         */
+        public List<String> failures() {
+            return failures;
+        }
+
+        /**
+         * @return documents per second over the whole batch
+         */
+        public double documentsPerSecond() {
+            return elapsed == 0 ? 0 : latencies.length * 1e9 / elapsed;
+        }
+
+        /**
+         * @param percent between 0 and 100
+         * @return the time in milliseconds within which percent of the
+         *         documents were read, converted and written, by the
+         *         nearest rank; 0 if there were none
+         */
+        public double latencyMillis(double percent) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percent / 100 * latencies.length);
+            return latencies[Math.max(rank, 1) - 1] / 1e6;
+        }
+
+        /**
+         * @return one line with the number of documents and failures,
+         *         throughput, and p50 and p99 latency
+         */
+        @Override
+        public String toString() {
+            return String.format("%d documents, %d failed, %.1f docs/s, p50 %.3f ms, p99 %.3f ms",
+                    documents(), failures.size(), documentsPerSecond(), latencyMillis(50), latencyMillis(99));
+        }
+    }
+}
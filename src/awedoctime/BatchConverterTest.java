@@ -0,0 +1,109 @@
+package awedoctime;
+
+import static awedoctime.Document.paragraph;
+import static awedoctime.Document.section;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import awedoctime.Document.ConversionException;
+
+public class BatchConverterTest {
+
+    // Methods: convert, Summary
+    // Partition:
+    // Input Markdown, binary, other files; convertible or not to the format
+    // Concurrency 1, more than the number of documents
+    // Output directory existing, to create, same as input; two inputs
+    //          with the same output file
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path input;
+
+    private static Document document(int i) {
+        return paragraph("intro " + i).append(section("Part #" + i, paragraph("text & more")));
+    }
+
+    @Before public void writeInput() throws IOException, ConversionException {
+        input = folder.newFolder("in").toPath();
+        for (int i = 0; i < 20; i++) {
+            Files.write(input.resolve("doc" + i + ".md"), document(i).toMarkdown().getBytes(StandardCharsets.UTF_8));
+        }
+        Path file = input.resolve("stored.adoc");
+        DocumentStore.write(file, Collections.singletonList(document(20)));
+        Files.write(input.resolve("deep.md"), "# 1\n## 2\n### 3\n#### 4".getBytes(StandardCharsets.UTF_8));
+        Files.write(input.resolve("notes.txt"), "ignored".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test public void testConvertToLaTeX() throws IOException, InterruptedException, ConversionException {
+        Path output = folder.getRoot().toPath().resolve("out");
+        BatchConverter.Summary summary = new BatchConverter(OutputFormat.LATEX, 4).convert(input, output);
+
+        assertEquals(22, summary.documents());
+        assertEquals(1, summary.failures().size());
+        assertTrue(summary.failures().get(0).contains("deep.md"));
+        assertFalse(Files.exists(output.resolve("deep.tex")));
+        assertFalse(Files.exists(output.resolve("notes.tex")));
+        for (int i = 0; i < 20; i++) {
+            assertEquals(document(i).toLaTeX(),
+                    new String(Files.readAllBytes(output.resolve("doc" + i + ".tex")), StandardCharsets.UTF_8));
+        }
+        assertEquals(document(20).toLaTeX(),
+                new String(Files.readAllBytes(output.resolve("stored.tex")), StandardCharsets.UTF_8));
+        assertTrue(summary.latencyMillis(50) <= summary.latencyMillis(99));
+        assertTrue(summary.toString().startsWith("22 documents, 1 failed"));
+    }
+
+    @Test public void testConvertOneAtATime() throws IOException, InterruptedException, ConversionException {
+        Path output = folder.newFolder("out").toPath();
+        BatchConverter.Summary summary = new BatchConverter(OutputFormat.HTML, 1).convert(input, output);
+
+        assertEquals(Collections.emptyList(), summary.failures());
+        assertEquals(document(7).toHTML(),
+                new String(Files.readAllBytes(output.resolve("doc7.html")), StandardCharsets.UTF_8));
+    }
+
+    @Test public void testEmptyDirectory() throws IOException, InterruptedException {
+        BatchConverter.Summary summary = new BatchConverter(OutputFormat.MARKDOWN, 2)
+                .convert(folder.newFolder("empty").toPath(), folder.getRoot().toPath().resolve("out"));
+
+        assertEquals(0, summary.documents());
+        assertEquals(0, summary.latencyMillis(99), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOutputIsInput() throws IOException, InterruptedException {
+        new BatchConverter(OutputFormat.MARKDOWN, 2).convert(input, input);
+    }
+
+    @Test public void testSameOutputName() throws IOException, InterruptedException {
+        DocumentStore.write(input.resolve("doc3.adoc"), Collections.singletonList(document(30)));
+        Path output = folder.getRoot().toPath().resolve("out");
+        try {
+            new BatchConverter(OutputFormat.LATEX, 4).convert(input, output);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException iae) {
+            assertTrue(iae.getMessage(), iae.getMessage().contains("doc3.adoc and doc3.md"));
+            assertTrue(iae.getMessage(), iae.getMessage().contains("doc3.tex"));
+        }
+        try (DirectoryStream<Path> written = Files.newDirectoryStream(output)) {
+            assertFalse(written.iterator().hasNext());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoConcurrency() {
+        new BatchConverter(OutputFormat.MARKDOWN, 0);
+    }
+}
@@ -0,0 +1,48 @@
+package awedoctime;
+
+/**
+ * Constants of the binary encoding of documents written by DocumentWriter
+ * and read by DocumentReader. A stream is
+ * <pre>
+ *     stream   = MAGIC, VERSION (1 byte), flags (1 byte), document*, [index]
+ *     document = item*, END, [fingerprint if HASHES]
+ *     item     = PARAGRAPH, text, [words if WORDCOUNTS]
+ *              | SECTION, text, [words if WORDCOUNTS], [fingerprint if HASHES],
+ *                [size if SIZES], item*, END_SECTION
+ *     text     = byte length as a varint, UTF-8 bytes
+ *     index    = INDEX, offset*, count (8 bytes), MAGIC
+ * </pre>
+ * where words is the word count of a paragraph, or of the contents of a
+ * section, as a varint, fingerprint is the Fingerprint of the document
+ * or of the contents of a section, as 8 big-endian bytes, and size is the
+ * number of bytes of the items of a section, as a varint. The index, which
+ * DocumentStore writes and reads from the end of a file, holds the byte
+ * offset in the stream of the first item of every document, as 8
+ * big-endian bytes, and then their count. Varints are unsigned LEB128: 7
+ * bits per byte, least significant first, with the high bit set on every
+ * byte but the last.
+ */
+final class BinaryFormat {
+    /** First bytes of every stream */
+    static final byte[] MAGIC = { 'A', 'D', 'O', 'C' };
+    /** The version of the format described above */
+    static final int VERSION = 1;
+
+    /** Flag: word counts follow the text of paragraphs and sections */
+    static final int WORDCOUNTS = 1;
+    /** Flag: fingerprints follow sections and documents */
+    static final int HASHES = 2;
+    /** Flag: the size of their items follows the header of sections */
+    static final int SIZES = 4;
+    /** Every flag */
+    static final int ALL = WORDCOUNTS | HASHES | SIZES;
+
+    static final int END = 0;
+    static final int PARAGRAPH = 1;
+    static final int SECTION = 2;
+    static final int END_SECTION = 3;
+    static final int INDEX = 4;
+
+    private BinaryFormat() {
+    }
+}
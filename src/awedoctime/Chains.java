@@ -0,0 +1,102 @@
+package awedoctime;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Operations that rebuild a chain of Paragraphs and Sections linked through
+ * their rest, done with loops instead of one recursive call per item so
+ * that long chains cannot overflow the Java stack. Recursion only happens
+ * into the contents of a section, so it is bounded by section nesting.
+ */
+class Chains {
+
+    private Chains() {
+    }
+
+    /**
+     * Returns a document which has the contents of chain followed by the
+     * contents of other, with the same result Paragraph.append and
+     * Section.append have always had: every item of chain is copied, and
+     * leading paragraphs of other go to the contents of the last section of
+     * chain if it ends with one.
+     * @param chain a Paragraph or Section
+     * @param other document to append
+     * @return concatenation of chain and other
+     */
+    static Document append(Document chain, Document other) {
+        List<Document> prefix = new ArrayList<Document>();
+        Document node = chain;
+        Document tail;
+        while (true) {
+            Document rest = node.getNextItemOfSameHeirarchy();
+            if (rest instanceof Paragraph || rest instanceof Section) {
+                prefix.add(node);
+                node = rest;
+            } else if (!rest.isEmpty()) {
+                // a RopeDocument appends in its own way
+                prefix.add(node);
+                tail = rest.append(other);
+                break;
+            } else if (node instanceof Paragraph) {
+                tail = new Paragraph(node.getText(), other);
+                break;
+            } else {
+                Section section = (Section) node;
+                if (other.startsWithParagraph()) {
+                    tail = new Section(section.getText(),
+                            section.getContents().append(other.getLeadingParagraphs()),
+                            other.getBody());
+                } else {
+                    tail = new Section(section.getText(), section.getContents(), other);
+                }
+                break;
+            }
+        }
+        return rebuild(prefix, tail);
+    }
+
+    /**
+     * @param chain a Paragraph or Section
+     * @return the paragraphs at the start of chain, up to the first section
+     */
+    static Document leadingParagraphs(Document chain) {
+        List<Document> prefix = new ArrayList<Document>();
+        Document node = chain;
+        while (node instanceof Paragraph) {
+            prefix.add(node);
+            node = node.getNextItemOfSameHeirarchy();
+        }
+        return rebuild(prefix, node.getLeadingParagraphs());
+    }
+
+    /**
+     * @param chain a Paragraph or Section
+     * @return chain without the paragraphs at its start
+     */
+    static Document body(Document chain) {
+        Document node = chain;
+        while (node instanceof Paragraph) {
+            node = node.getNextItemOfSameHeirarchy();
+        }
+        return node.getBody();
+    }
+
+    /**
+     * @param prefix Paragraphs and Sections, in order
+     * @param tail the document that follows the last of them
+     * @return copies of the items of prefix, linked in order and followed by tail
+     */
+    private static Document rebuild(List<Document> prefix, Document tail) {
+        Document result = tail;
+        for (int i = prefix.size() - 1; i >= 0; i--) {
+            Document item = prefix.get(i);
+            if (item instanceof Paragraph) {
+                result = new Paragraph(item.getText(), result);
+            } else {
+                result = new Section(item.getText(), ((Section) item).getContents(), result);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,184 @@
+package awedoctime;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+import awedoctime.Document.ConversionException;
+
+/**
+ * Renders documents straight into UTF-8 bytes written to a channel, such as
+ * a FileChannel or a SocketChannel, without building the output as a
+ * String or going through a Writer. Rendered chars are encoded into a
+ * ByteBuffer, which is written to the channel whenever it fills, so the
+ * memory a rendering takes beyond the document is that buffer, whatever
+ * the size of the output.
+ * <p>
+ * The buffer is reused from one rendering to the next and may be a direct
+ * ByteBuffer, which channels write without copying. A ChannelRenderer is
+ * not safe to share between threads; use one per thread.
+ */
+public final class ChannelRenderer {
+    /** The capacity of the buffer of a ChannelRenderer made without one */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private final ByteBuffer buffer;
+
+    // Rep invariant:
+    //      buffer.capacity() >= 4, enough for any char or surrogate pair
+    // Abstraction function:
+    //      represents rendering through buffer
+
+    /**
+     * Make a renderer with a direct buffer of DEFAULT_CAPACITY bytes
+     */
+    public ChannelRenderer() {
+        this(ByteBuffer.allocateDirect(DEFAULT_CAPACITY));
+    }
+
+    /**
+     * Make a renderer that encodes into buffer
+     * @param buffer buffer of at least 4 bytes, heap or direct, which this
+     *        uses from now on; its contents and position are overwritten
+     * @throws IllegalArgumentException if buffer has fewer than 4 bytes
+     */
+    public ChannelRenderer(ByteBuffer buffer) {
+        if (buffer.capacity() < 4) {
+            throw new IllegalArgumentException("buffer must hold at least 4 bytes: " + buffer.capacity());
+        }
+        this.buffer = buffer;
+    }
+
+    /**
+     * Writes document in format to channel, encoded in UTF-8, with the same
+     * text as document.toLaTeX(), toMarkdown() or toHTML() returns. An
+     * unpaired surrogate is written as '?', as the UTF-8 encoder of Java
+     * does.
+     * @param document document to render
+     * @param format format to render document in
+     * @param channel destination of the rendered bytes; it is not closed
+     * @return the number of bytes written to channel
+     * @throws ConversionException if the document cannot be converted,
+     *         which is found before anything is written to channel
+     * @throws IOException if channel throws
+     */
+    public long render(Document document, OutputFormat format, WritableByteChannel channel)
+            throws ConversionException, IOException {
+        DocumentRenderer.checkDepth(document, format, 1);
+        Sink sink = new Sink(channel);
+        DocumentRenderer.renderStart(format, sink);
+        DocumentRenderer.render(document, format, 1, sink);
+        DocumentRenderer.renderEnd(format, sink);
+        sink.close();
+        return sink.written;
+    }
+
+    /**
+     * An Appendable that encodes into buffer and writes it to a channel as
+     * it fills
+     */
+    private final class Sink implements Appendable {
+        private final WritableByteChannel channel;
+        private long written;
+        private char highSurrogate;
+
+        // Rep invariant:
+        //      highSurrogate is 0 or the high surrogate of a pair whose
+        //      low surrogate has yet to be appended
+        // Abstraction function:
+        //      represents the chars appended so far, written (bytes) to
+        //      channel and then the bytes [0, buffer.position()) of buffer,
+        //      followed by highSurrogate if it is not 0
+
+        private Sink(WritableByteChannel channel) {
+            this.channel = channel;
+            buffer.clear();
+        }
+
+        @Override
+        public Appendable append(CharSequence text) throws IOException {
+            return append(text, 0, text.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence text, int start, int end) throws IOException {
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                if (c < 0x80 && highSurrogate == 0 && buffer.hasRemaining()) {
+                    buffer.put((byte) c);
+                } else {
+                    append(c);
+                }
+            }
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            if (highSurrogate != 0) {
+                char high = highSurrogate;
+                highSurrogate = 0;
+                if (Character.isLowSurrogate(c)) {
+                    encode(Character.toCodePoint(high, c));
+                    return this;
+                }
+                encode('?');
+            }
+            if (Character.isHighSurrogate(c)) {
+                highSurrogate = c;
+            } else if (Character.isLowSurrogate(c)) {
+                encode('?');
+            } else {
+                encode(c);
+            }
+            return this;
+        }
+
+        /**
+         * Puts the UTF-8 bytes of codePoint in buffer, writing it out first
+         * if they do not fit
+         */
+        private void encode(int codePoint) throws IOException {
+            if (buffer.remaining() < 4) {
+                drain();
+            }
+            if (codePoint < 0x80) {
+                buffer.put((byte) codePoint);
+            } else if (codePoint < 0x800) {
+                buffer.put((byte) (0xC0 | codePoint >> 6));
+                buffer.put((byte) (0x80 | codePoint & 0x3F));
+            } else if (codePoint < 0x10000) {
+                buffer.put((byte) (0xE0 | codePoint >> 12));
+                buffer.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint & 0x3F));
+            } else {
+                buffer.put((byte) (0xF0 | codePoint >> 18));
+                buffer.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint & 0x3F));
+            }
+        }
+
+        /**
+         * Writes the whole of buffer to channel and empties it
+         */
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Writes out what is left, ending an unpaired high surrogate
+         */
+        private void close() throws IOException {
+            if (highSurrogate != 0) {
+                highSurrogate = 0;
+                encode('?');
+            }
+            drain();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package awedoctime;
+
+import static awedoctime.Document.empty;
+import static awedoctime.Document.paragraph;
+import static awedoctime.Document.section;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import awedoctime.Document.ConversionException;
+
+public class ChannelRendererTest {
+
+    // Methods: render
+    // Partition:
+    // Document empty, nested sections, text with escapes, non-ASCII of 2,
+    //          3 and 4 bytes, unpaired surrogates, larger than the buffer
+    // Buffer heap, direct, of 4 bytes (drained for every char)
+    // Channel writing everything at once, a byte at a time, FileChannel
+    //
+    // The bytes must be those of toLaTeX, toMarkdown or toHTML in UTF-8
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final Document CHAIN = paragraph("intro & more \\ *bold* <p> caf\u00e9 \u20ac \ud83d\ude00")
+            .append(paragraph("lone \ud83d high, lone \ude00 low, at the end \ud83d"))
+            .append(section("s1 #1. \u00e9", paragraph("p1 one").append(section("s2", paragraph("p2 #2")))))
+            .append(section("s3", empty()));
+
+    /**
+     * A channel that writes at most one byte per call
+     */
+    private static final class TrickleChannel implements WritableByteChannel {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        @Override
+        public int write(ByteBuffer src) {
+            if (!src.hasRemaining()) {
+                return 0;
+            }
+            bytes.write(src.get());
+            return 1;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * @return document in format as returned by toLaTeX, toMarkdown or
+     *         toHTML, in UTF-8
+     */
+    private static byte[] expected(Document document, OutputFormat format) throws ConversionException {
+        String text = format == OutputFormat.LATEX ? document.toLaTeX()
+                : format == OutputFormat.MARKDOWN ? document.toMarkdown() : document.toHTML();
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Asserts that renderer writes document in every format as expected
+     */
+    private static void assertRenders(Document document, ChannelRenderer renderer)
+            throws ConversionException, IOException {
+        for (OutputFormat format : OutputFormat.values()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            long written = renderer.render(document, format, Channels.newChannel(bytes));
+            byte[] expected = expected(document, format);
+
+            assertArrayEquals(format.toString(), expected, bytes.toByteArray());
+            assertEquals(expected.length, written);
+            assertEquals(RenderedSize.of(document).utf8Length(format), written);
+        }
+    }
+
+    //*************************************render Tests*************************************\\
+
+    @Test public void testBuffers() throws ConversionException, IOException {
+        ChannelRenderer[] renderers = { new ChannelRenderer(), new ChannelRenderer(ByteBuffer.allocate(64)),
+                new ChannelRenderer(ByteBuffer.allocate(4)), new ChannelRenderer(ByteBuffer.allocateDirect(5)) };
+        for (ChannelRenderer renderer : renderers) {
+            assertRenders(empty(), renderer);
+            assertRenders(CHAIN, renderer);
+            assertRenders(FlatDocument.of(CHAIN), renderer);
+        }
+    }
+
+    @Test public void testLargerThanBuffer() throws ConversionException, IOException {
+        DocumentBuilder builder = new DocumentBuilder();
+        for (int i = 0; i < 20000; i++) {
+            builder.addParagraph("paragraph \u00e9 & " + i);
+        }
+        assertRenders(builder.build(), new ChannelRenderer(ByteBuffer.allocate(1000)));
+    }
+
+    @Test public void testTrickleChannel() throws ConversionException, IOException {
+        TrickleChannel channel = new TrickleChannel();
+        new ChannelRenderer(ByteBuffer.allocate(16)).render(CHAIN, OutputFormat.HTML, channel);
+
+        assertArrayEquals(expected(CHAIN, OutputFormat.HTML), channel.bytes.toByteArray());
+    }
+
+    @Test public void testFileChannel() throws ConversionException, IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, new byte[100000]);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            new ChannelRenderer().render(CHAIN, OutputFormat.MARKDOWN, channel);
+        }
+        assertTrue(Arrays.equals(expected(CHAIN, OutputFormat.MARKDOWN), Files.readAllBytes(file)));
+    }
+
+    @Test public void testConversionFailureWritesNothing() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Document deep = section("1", section("2", section("3", section("4", empty()))));
+        try {
+            new ChannelRenderer().render(deep, OutputFormat.LATEX, Channels.newChannel(bytes));
+            fail("expected ConversionException");
+        } catch (ConversionException ce) {
+            // expected
+        }
+        assertEquals(0, bytes.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBufferTooSmall() {
+        new ChannelRenderer(ByteBuffer.allocate(3));
+    }
+}
@@ -0,0 +1,143 @@
+package awedoctime;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The nesting depth of the sections of documents, which tells whether a
+ * document can be converted to a format before any of it is rendered.
+ * <p>
+ * The depth of a document is the greatest number of sections nested in one
+ * another in it, 0 when it has no section. LaTeX and Markdown render a
+ * section at the level of its nesting, so they need as many levels as the
+ * depth. HTML renders whatever follows a paragraph one level deeper, so it
+ * needs the HTML levels of a document: the greatest level at which a
+ * section is rendered when the document is rendered at level 1, 0 when it
+ * has no section.
+ * <p>
+ * Paragraph, Section and RopeDocument cache both when they are built, so
+ * they are always available in constant time; FlatDocument,
+ * StoredDocument and SliceDocument compute them once, when first needed.
+ */
+public final class Depth {
+
+    private Depth() {
+    }
+
+    /**
+     * @param document any document
+     * @return the greatest number of sections nested in one another in
+     *         document, in constant time except the first time it is taken
+     *         of a FlatDocument, StoredDocument or SliceDocument; for
+     *         another implementation of Document, only a lower bound, as
+     *         the contents of its sections cannot be seen
+     */
+    public static int of(Document document) {
+        if (document instanceof Aggregated) {
+            return ((Aggregated) document).maxDepth();
+        }
+        return walk(document, false);
+    }
+
+    /**
+     * @param document as for of(Document)
+     * @param format format to convert document to
+     * @return the number of levels of sections format needs to express
+     *         document, in the same time as of(Document)
+     */
+    public static int levels(Document document, OutputFormat format) {
+        if (format != OutputFormat.HTML) {
+            return of(document);
+        }
+        if (document instanceof Aggregated) {
+            return ((Aggregated) document).htmlLevels();
+        }
+        return walk(document, true);
+    }
+
+    /**
+     * @param document as for of(Document)
+     * @param format format to convert document to
+     * @return whether or not document can be converted to format, that is
+     *         whether or not its conversion does not throw
+     *         ConversionException
+     */
+    public static boolean canConvert(Document document, OutputFormat format) {
+        return levels(document, format) <= format.maxLevels();
+    }
+
+    /**
+     * @param restLevels the HTML levels of the rest of a paragraph
+     * @return the HTML levels of a paragraph followed by a rest with
+     *         restLevels HTML levels
+     */
+    static int paragraphHTMLLevels(int restLevels) {
+        return restLevels == 0 ? 0 : restLevels + 1;
+    }
+
+    /**
+     * @param contentsLevels the depth or HTML levels of the contents of a
+     *        section
+     * @param restLevels the depth or HTML levels of its rest
+     * @return the depth or HTML levels of the section followed by its rest
+     */
+    static int sectionLevels(int contentsLevels, int restLevels) {
+        return Math.max(1 + contentsLevels, restLevels);
+    }
+
+    /**
+     * Finds the depth or HTML levels of a document of another
+     * implementation of Document from its top-level items, up to the first
+     * one of this package. The contents of its sections cannot be seen
+     * through Document, so they count as empty, and the result is a lower
+     * bound.
+     * @param html true for the HTML levels, false for the depth
+     */
+    private static int walk(Document document, boolean html) {
+        List<Document> items = new ArrayList<Document>();
+        Document item = document;
+        while (!(item instanceof Aggregated) && !item.isEmpty()) {
+            items.add(item);
+            item = item.getNextItemOfSameHeirarchy();
+        }
+        int levels = item instanceof Aggregated ? (html ? levels(item, OutputFormat.HTML) : of(item)) : 0;
+        for (int i = items.size() - 1; i >= 0; i--) {
+            if (!items.get(i).startsWithParagraph()) {
+                levels = sectionLevels(0, levels);
+            } else if (html) {
+                levels = paragraphHTMLLevels(levels);
+            }
+        }
+        return levels;
+    }
+
+    /**
+     * Walks document once to find its depth and HTML levels
+     * @param document a document DocumentCursor can walk
+     * @return the depth of document in the high 32 bits and its HTML levels
+     *         in the low 32 bits
+     */
+    static long measure(Document document) {
+        int depth = 0;
+        int htmlLevels = 0;
+        // levels[d] is the HTML level of the next item at depth d, as in DocumentRenderer.renderHTML
+        int[] levels = new int[8];
+        levels[0] = 1;
+        DocumentCursor cursor = new DocumentCursor(document);
+        for (int event = cursor.next(); event != DocumentCursor.END; event = cursor.next()) {
+            int d = cursor.depth();
+            if (event == DocumentCursor.PARAGRAPH) {
+                levels[d]++;
+            } else if (event == DocumentCursor.START_SECTION) {
+                depth = Math.max(depth, d + 1);
+                htmlLevels = Math.max(htmlLevels, levels[d]);
+                if (d + 1 == levels.length) {
+                    levels = Arrays.copyOf(levels, 2 * levels.length);
+                }
+                levels[d + 1] = levels[d] + 1;
+            }
+        }
+        return ((long) depth << 32) | htmlLevels;
+    }
+}
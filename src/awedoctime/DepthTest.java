@@ -0,0 +1,153 @@
+package awedoctime;
+
+import static awedoctime.Document.empty;
+import static awedoctime.Document.paragraph;
+import static awedoctime.Document.section;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import awedoctime.Document.ConversionException;
+
+public class DepthTest {
+
+    // Methods: Depth.of, Depth.levels, Depth.canConvert, maxDepth and
+    //          canConvert of every implementation, DocumentRenderer.checkDepth
+    // Partition:
+    // Document empty, paragraphs only, nested sections, sections after
+    //          leading paragraphs (deeper in HTML), sections at the limit of
+    //          a format and one deeper
+    // Implementation Paragraph/Section chain, RopeDocument, FlatDocument
+    //          and its views, StoredDocument and its views, SliceDocument
+    //
+    // canConvert must be true exactly when converting does not throw
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final Document CHAIN = paragraph("p0")
+            .append(section("s1", paragraph("p1").append(section("s2", paragraph("p2")))))
+            .append(section("s3", empty()));
+
+    /**
+     * @return depth sections nested in one another, after paragraphs
+     *         leading paragraphs
+     */
+    private static Document nested(int depth, int paragraphs) {
+        Document document = paragraph("deepest");
+        for (int i = depth; i > 0; i--) {
+            document = section("s" + i, document);
+        }
+        for (int i = 0; i < paragraphs; i++) {
+            document = paragraph("p" + i).append(document);
+        }
+        return document;
+    }
+
+    /**
+     * @return whether or not document converts to format without throwing
+     */
+    private static boolean converts(Document document, OutputFormat format) {
+        try {
+            if (format == OutputFormat.LATEX) {
+                document.toLaTeX();
+            } else if (format == OutputFormat.MARKDOWN) {
+                document.toMarkdown();
+            } else {
+                document.toHTML();
+            }
+            return true;
+        } catch (ConversionException ce) {
+            return false;
+        }
+    }
+
+    /**
+     * Asserts that every implementation of document has the given depth and
+     * HTML levels, and can be converted exactly to the formats it converts to
+     */
+    private void assertDepth(Document document, int depth, int htmlLevels) throws IOException {
+        for (Document implementation : DocumentFixtures.implementations(document, folder)) {
+            String name = implementation.getClass().getSimpleName();
+            assertEquals(name, depth, Depth.of(implementation));
+            assertEquals(name, depth, Depth.levels(implementation, OutputFormat.LATEX));
+            assertEquals(name, htmlLevels, Depth.levels(implementation, OutputFormat.HTML));
+            for (OutputFormat format : OutputFormat.values()) {
+                assertEquals(name + " " + format, converts(implementation, format),
+                        Depth.canConvert(implementation, format));
+            }
+        }
+        long measures = Depth.measure(document);
+        assertEquals(depth, (int) (measures >>> 32));
+        assertEquals(htmlLevels, (int) measures);
+    }
+
+    //*************************************Depth Tests*************************************\\
+
+    @Test public void testNoSections() throws IOException {
+        assertDepth(empty(), 0, 0);
+        assertDepth(paragraph("a").append(paragraph("b")).append(paragraph("c")), 0, 0);
+    }
+
+    @Test public void testNested() throws IOException {
+        assertDepth(CHAIN, 2, 4);
+        assertDepth(section("a", empty()).append(section("b", section("c", empty()))), 2, 2);
+        assertDepth(nested(3, 0), 3, 3);
+        assertDepth(nested(4, 0), 4, 4);
+        assertDepth(nested(6, 0), 6, 6);
+        assertDepth(nested(7, 0), 7, 7);
+    }
+
+    @Test public void testLeadingParagraphs() throws IOException {
+        assertDepth(nested(1, 5), 1, 6);
+        assertDepth(nested(1, 6), 1, 7);
+        assertDepth(nested(2, 3).append(section("last", empty())), 2, 5);
+        assertDepth(section("s", nested(1, 2)), 2, 4);
+    }
+
+    @Test public void testBodyOfRope() {
+        RopeDocument rope = (RopeDocument) RopeDocument.of(nested(2, 3)).append(RopeDocument.of(nested(3, 0)));
+
+        assertEquals(3, rope.maxDepth());
+        assertEquals(6, Depth.levels(rope, OutputFormat.HTML));
+        assertEquals(3, Depth.levels(rope.getBody(), OutputFormat.HTML));
+    }
+
+    //*************************************canConvert Tests*************************************\\
+
+    @Test public void testCanConvert() {
+        assertTrue(new Empty().canConvert(OutputFormat.LATEX));
+        assertTrue(((Paragraph) CHAIN).canConvert(OutputFormat.HTML));
+        assertFalse(((Section) nested(4, 0)).canConvert(OutputFormat.LATEX));
+        assertTrue(((Section) nested(4, 0)).canConvert(OutputFormat.MARKDOWN));
+        assertFalse(((Paragraph) nested(1, 6)).canConvert(OutputFormat.HTML));
+        assertTrue(((Paragraph) nested(1, 6)).canConvert(OutputFormat.MARKDOWN));
+        assertFalse(FlatDocument.of(nested(7, 0)).canConvert(OutputFormat.MARKDOWN));
+        assertEquals(7, FlatDocument.of(nested(7, 0)).maxDepth());
+    }
+
+    @Test public void testFailsBeforeWriting() throws IOException {
+        StringBuilder out = new StringBuilder();
+        try {
+            DocumentRenderer.renderLaTeX(paragraph("first").append(nested(4, 0)), out);
+            fail("expected ConversionException");
+        } catch (ConversionException ce) {
+            assertEquals("Cannot create a LaTeX with more than 3 nested levels", ce.getMessage());
+        }
+        assertEquals("", out.toString());
+    }
+
+    @Test public void testCheckDepthAtLevel() throws ConversionException {
+        DocumentRenderer.checkDepth(nested(2, 0), OutputFormat.LATEX, 2);
+        DocumentRenderer.checkDepth(paragraph("no sections"), OutputFormat.LATEX, 10);
+        try {
+            DocumentRenderer.checkDepth(nested(2, 0), OutputFormat.LATEX, 3);
+            fail("expected ConversionException");
+        } catch (ConversionException ce) {
+            // expected
+        }
+    }
+}
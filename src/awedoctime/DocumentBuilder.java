@@ -0,0 +1,160 @@
+package awedoctime;
+
+import java.util.Arrays;
+
+/**
+ * A mutable builder for documents, for importers that produce a document
+ * one paragraph or section at a time. It records what it is given in
+ * growable arrays and builds the Paragraph/Section chains in a single pass
+ * from the end, so building a document of n items takes O(n) time instead
+ * of the O(n^2) of appending them one by one.
+ * <p>
+ * The result is the same as appending: a paragraph added after a section
+ * has been ended goes to the contents of that section (and of the last
+ * section nested in it), exactly as Document.append places it.
+ */
+public final class DocumentBuilder {
+    private static final byte PARAGRAPH = 0;
+    private static final byte START_SECTION = 1;
+    private static final byte END_SECTION = 2;
+
+    private byte[] kinds = new byte[16];
+    private String[] texts = new String[16];
+    private int count = 0;
+    private int openSections = 0;
+    private int pendingEnds = 0;
+
+    // Rep invariant:
+    //      0 <= count <= kinds.length == texts.length
+    //      kinds[0..count) is a well nested sequence of events in which every
+    //      START_SECTION has a text, and which has openSections +
+    //      pendingEnds more START_SECTION than END_SECTION
+    //      openSections >= 0, pendingEnds >= 0
+    // Abstraction function:
+    //      represents the document made of the events kinds[0..count) with
+    //      texts[0..count), followed by pendingEnds ends of sections that
+    //      have been ended but are kept open for the paragraphs that follow
+    //      them, inside openSections sections still to be ended
+
+    /**
+     * Make a new builder for an empty document
+     */
+    public DocumentBuilder() {
+    }
+
+    /**
+     * Adds a paragraph at the end of the document
+     * @param text paragraph containing English-language characters
+     *              and punctuation, may not contain newlines
+     * @return this builder
+     */
+    public DocumentBuilder addParagraph(String text) {
+        add(PARAGRAPH, text);
+        return this;
+    }
+
+    /**
+     * Starts a section at the end of the document; everything added until
+     * the matching endSection goes to its contents
+     * @param heading heading containing English-language characters
+     *                and punctuation, may not contain newlines
+     * @return this builder
+     */
+    public DocumentBuilder beginSection(String heading) {
+        while (pendingEnds > 0) {
+            add(END_SECTION, null);
+            pendingEnds--;
+        }
+        add(START_SECTION, heading);
+        openSections++;
+        return this;
+    }
+
+    /**
+     * Ends the last section that was begun and not ended yet
+     * @return this builder
+     * @throws IllegalStateException if there is no such section
+     */
+    public DocumentBuilder endSection() {
+        if (openSections == 0) {
+            throw new IllegalStateException("no section to end");
+        }
+        openSections--;
+        pendingEnds++;
+        return this;
+    }
+
+    /**
+     * Adds the contents of document at the end of the document, as append
+     * would: its leading paragraphs go where addParagraph would put them and
+     * its sections follow
+     * @param document a Paragraph, Section, Empty or RopeDocument, possibly
+     *                 nesting any of these
+     * @return this builder
+     */
+    public DocumentBuilder addDocument(Document document) {
+        DocumentCursor cursor = new DocumentCursor(document);
+        for (int event = cursor.next(); event != DocumentCursor.END; event = cursor.next()) {
+            if (event == DocumentCursor.PARAGRAPH) {
+                addParagraph(cursor.text());
+            } else if (event == DocumentCursor.START_SECTION) {
+                beginSection(cursor.text());
+            } else {
+                endSection();
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return the document built so far; the builder can keep being used
+     *         and does not change the documents it has built
+     * @throws IllegalStateException if a section has been begun and not ended
+     */
+    public Document build() {
+        if (openSections > 0) {
+            throw new IllegalStateException(openSections + " sections have not been ended");
+        }
+        Document empty = new Empty();
+        // tails[d] is the document that follows the section being built at depth d
+        Document[] tails = new Document[8];
+        int depth = 0;
+        Document tail = empty;
+        for (int i = 0; i < pendingEnds; i++) {
+            tails = push(tails, depth++, tail);
+            tail = empty;
+        }
+        for (int i = count - 1; i >= 0; i--) {
+            if (kinds[i] == PARAGRAPH) {
+                tail = new Paragraph(texts[i], tail);
+            } else if (kinds[i] == END_SECTION) {
+                tails = push(tails, depth++, tail);
+                tail = empty;
+            } else {
+                Document contents = tail;
+                tail = tails[--depth];
+                tails[depth] = null;
+                tail = new Section(texts[i], contents, tail);
+            }
+        }
+        return tail;
+    }
+
+    private void add(byte kind, String text) {
+        if (count == kinds.length) {
+            kinds = Arrays.copyOf(kinds, 2 * count);
+            texts = Arrays.copyOf(texts, 2 * count);
+        }
+        kinds[count] = kind;
+        texts[count] = text;
+        count++;
+    }
+
+    private static Document[] push(Document[] stack, int index, Document document) {
+        if (index == stack.length) {
+            stack = Arrays.copyOf(stack, 2 * index);
+        }
+        stack[index] = document;
+        return stack;
+    }
+}
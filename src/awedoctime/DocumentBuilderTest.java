@@ -0,0 +1,128 @@
+package awedoctime;
+
+import static awedoctime.Document.empty;
+import static awedoctime.Document.paragraph;
+import static awedoctime.Document.section;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class DocumentBuilderTest {
+
+    // Methods: addParagraph, beginSection, endSection, addDocument, build
+    // Partition:
+    // Document empty, paragraphs only, nested sections, paragraphs after
+    //          an ended section, sections left open
+    // addDocument of a chain, of a RopeDocument
+    //
+    // Every built document must equal the same document built with append
+
+    //*************************************build Tests*************************************\\
+
+    @Test public void testEmpty() {
+        assertEquals(empty(), new DocumentBuilder().build());
+    }
+
+    @Test public void testParagraphs() {
+        Document built = new DocumentBuilder().addParagraph("a").addParagraph("b").build();
+
+        assertEquals(paragraph("a").append(paragraph("b")), built);
+        assertEquals(2, built.bodyWordCount());
+    }
+
+    @Test public void testNestedSections() {
+        Document built = new DocumentBuilder()
+                .addParagraph("intro")
+                .beginSection("s1").addParagraph("p1")
+                    .beginSection("s2").addParagraph("p2").endSection()
+                    .beginSection("s3").endSection()
+                .endSection()
+                .beginSection("s4").addParagraph("p4").endSection()
+                .build();
+        Document appended = paragraph("intro")
+                .append(section("s1", paragraph("p1").append(section("s2", paragraph("p2"))).append(section("s3", empty()))))
+                .append(section("s4", paragraph("p4")));
+
+        assertEquals(appended, built);
+        assertEquals(appended.toString(), built.toString());
+        assertEquals(appended.tableOfContents(), built.tableOfContents());
+    }
+
+    @Test public void testParagraphAfterEndedSectionIsAppendedToIt() {
+        Document built = new DocumentBuilder()
+                .beginSection("s1").beginSection("s2").addParagraph("p2").endSection().endSection()
+                .addParagraph("after")
+                .beginSection("s3").endSection()
+                .build();
+        Document appended = section("s1", section("s2", paragraph("p2")))
+                .append(paragraph("after"))
+                .append(section("s3", empty()));
+
+        assertEquals(appended, built);
+    }
+
+    @Test public void testBuilderCanBeReused() {
+        DocumentBuilder builder = new DocumentBuilder().beginSection("s").endSection();
+        Document first = builder.build();
+        Document second = builder.addParagraph("p").build();
+
+        assertEquals(section("s", empty()), first);
+        assertEquals(section("s", paragraph("p")), second);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testOpenSection() {
+        new DocumentBuilder().beginSection("s").build();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testEndWithoutBegin() {
+        new DocumentBuilder().addParagraph("p").endSection();
+    }
+
+    //*************************************addDocument Tests*************************************\\
+
+    @Test public void testAddDocument() {
+        Document first = paragraph("a").append(section("s", paragraph("b")));
+        Document second = RopeDocument.of(paragraph("c").append(section("t", section("u", empty()))));
+        Document built = new DocumentBuilder().addDocument(first).addDocument(second).build();
+
+        assertEquals(first.append(second), built);
+    }
+
+    @Test public void testAddDocumentInsideSection() {
+        Document built = new DocumentBuilder()
+                .beginSection("outer").addDocument(paragraph("a").append(section("inner", empty()))).endSection()
+                .build();
+
+        assertEquals(section("outer", paragraph("a").append(section("inner", empty()))), built);
+    }
+
+    //*************************************stress Tests*************************************\\
+
+    @Test public void testHundredThousandSections() {
+        DocumentBuilder builder = new DocumentBuilder();
+        for (int i = 0; i < 100000; i++) {
+            builder.beginSection("Section " + i).addParagraph("body " + i).addParagraph("more").endSection();
+        }
+        Document built = builder.build();
+
+        assertEquals(300000, built.bodyWordCount());
+        assertEquals("Section 0", built.getText());
+    }
+
+    @Test public void testDeepNesting() {
+        DocumentBuilder builder = new DocumentBuilder();
+        for (int i = 0; i < 10000; i++) {
+            builder.beginSection("level " + i);
+        }
+        builder.addParagraph("deepest");
+        for (int i = 0; i < 10000; i++) {
+            builder.endSection();
+        }
+        Document built = builder.build();
+
+        assertEquals(1, built.bodyWordCount());
+        assertEquals("level 0", built.getText());
+    }
+}
@@ -0,0 +1,466 @@
+package awedoctime;
+
+import java.util.Arrays;
+
+/**
+ * Walks a document as a sequence of events without recursion: the pending
+ * work lives on an explicit stack held in arrays, so the Java stack used by
+ * a traversal is O(1) in the length of the document. The explicit stack
+ * holds at most two entries per level of section nesting (plus one per
+ * level of a RopeDocument tree, which is balanced), whatever the number of
+ * paragraphs and sections in each level.
+ * <p>
+ * printDocument, the renderers and equals of every Document implementation
+ * are all built on it.
+ * <p>
+ * The implementations of this package are walked in their own
+ * representation, so each of them needs a branch in next(). Any other implementation of Document is walked through
+ * getText and getNextItemOfSameHeirarchy as far as its paragraphs go, but
+ * the contents of its sections cannot be seen, so a cursor either stops
+ * there or, when made opaque, hands the whole document out as one OPAQUE
+ * event.
+ */
+class DocumentCursor {
+    /** No more events */
+    static final int END = 0;
+    /** A paragraph; text() is its text */
+    static final int PARAGRAPH = 1;
+    /** The start of a section; text() is its heading */
+    static final int START_SECTION = 2;
+    /** The end of a section, after all of its contents; text() is its heading */
+    static final int END_SECTION = 3;
+    /**
+     * A document of another implementation of Document, with everything
+     * after it at its level, which the cursor does not look into; only an
+     * opaque cursor has this event, and document() is that document
+     */
+    static final int OPAQUE = 4;
+
+    private static final byte VISIT = 0;
+    private static final byte CLOSE = 1;
+    // nodes [positions, limits) of a FlatDocument
+    private static final byte FLAT = 2;
+    // items [offsets, ends) of a StoredDocument
+    private static final byte STORED = 3;
+    // the next limits items of the chain of a SliceDocument
+    private static final byte CHAIN = 4;
+
+    // Rep invariant:
+    //      0 <= top < nodes.length, nodes.length == actions.length
+    //          == positions.length == limits.length == offsets.length
+    //          == ends.length
+    //      nodes[0..top] are Documents, RopeDocument.Nodes, Sections (when
+    //      the matching action is CLOSE), FlatDocuments (when it is FLAT,
+    //      or CLOSE with the section at positions[i]) or StoredDocuments
+    //      (when it is STORED, or CLOSE with the section at offsets[i]),
+    //      or Paragraphs and Sections with limits[i] items left to walk
+    //      (when it is CHAIN)
+    //      depth >= 0
+    //      flatNode >= 0 exactly when the current event is a node of a
+    //      FlatDocument, and storedItem >= 0 exactly when it is an item of
+    //      a StoredDocument; node is then that document
+    //      when the current event is START_SECTION, closeTop is the index
+    //      of the CLOSE entry of its section, and the entries above it are
+    //      its contents
+    // Abstraction function:
+    //      represents the position just after the current event in the
+    //      pre-order walk of a document, where nodes[0..top] is the work
+    //      left to do, last entry first
+    private Object[] nodes = new Object[16];
+    private byte[] actions = new byte[16];
+    private int[] positions = new int[16];
+    private int[] limits = new int[16];
+    private long[] offsets = new long[16];
+    private long[] ends = new long[16];
+    private int top = -1;
+    private int depth = 0;
+
+    private int event = END;
+    private int eventDepth = 0;
+    private Document node;
+    private int flatNode = -1;
+    private long storedItem = -1;
+    private int closeTop = -1;
+    private TextView view;
+    private final boolean opaque;
+
+    /**
+     * Make a cursor positioned before the first event of document
+     * @param document any document
+     */
+    DocumentCursor(Document document) {
+        this(document, false);
+    }
+
+    /**
+     * Make a cursor positioned before the first event of document
+     * @param document any document
+     * @param opaque whether to hand out the documents of other
+     *        implementations of Document as OPAQUE events instead of
+     *        walking their paragraphs
+     */
+    DocumentCursor(Document document, boolean opaque) {
+        this.opaque = opaque;
+        push(document, VISIT);
+    }
+
+    /**
+     * Moves to the next event
+     * @return the new event: PARAGRAPH, START_SECTION, END_SECTION, OPAQUE
+     *         for an opaque cursor, or END once the whole document has been
+     *         visited
+     * @throws IllegalArgumentException if the cursor is not opaque and
+     *         reaches a section of another implementation of Document
+     */
+    int next() {
+        while (top >= 0) {
+            Object current = nodes[top];
+            byte action = actions[top];
+            if (action == FLAT) {
+                if (positions[top] < limits[top]) {
+                    return nextFlat((FlatDocument) current);
+                }
+                nodes[top] = null;
+                top--;
+                continue;
+            }
+            if (action == STORED) {
+                if (offsets[top] < ends[top]) {
+                    return nextStored((StoredDocument) current);
+                }
+                nodes[top] = null;
+                top--;
+                continue;
+            }
+            if (action == CHAIN) {
+                if (limits[top] > 0) {
+                    return nextChained((Document) current);
+                }
+                nodes[top] = null;
+                top--;
+                continue;
+            }
+            nodes[top] = null;
+            top--;
+            if (action == CLOSE) {
+                depth--;
+                if (current instanceof FlatDocument) {
+                    return setFlatEvent(END_SECTION, (FlatDocument) current, positions[top + 1]);
+                }
+                if (current instanceof StoredDocument) {
+                    return setStoredEvent(END_SECTION, (StoredDocument) current, offsets[top + 1]);
+                }
+                return setEvent(END_SECTION, (Document) current);
+            }
+            if (current instanceof RopeDocument.Node) {
+                RopeDocument.Node ropeNode = (RopeDocument.Node) current;
+                if (ropeNode.isLeaf()) {
+                    push(ropeNode.item(), VISIT);
+                } else {
+                    push(ropeNode.right(), VISIT);
+                    push(ropeNode.left(), VISIT);
+                }
+            } else if (current instanceof Paragraph) {
+                Paragraph paragraph = (Paragraph) current;
+                push(paragraph.getNextItemOfSameHeirarchy(), VISIT);
+                return setEvent(PARAGRAPH, paragraph);
+            } else if (current instanceof Section) {
+                Section section = (Section) current;
+                push(section.getNextItemOfSameHeirarchy(), VISIT);
+                push(section, CLOSE);
+                closeTop = top;
+                push(section.getContents(), VISIT);
+                setEvent(START_SECTION, section);
+                depth++;
+                return START_SECTION;
+            } else if (current instanceof RopeDocument) {
+                RopeDocument.Node root = ((RopeDocument) current).root();
+                if (root != null) {
+                    push(root, VISIT);
+                }
+            } else if (current instanceof FlatDocument) {
+                FlatDocument flat = (FlatDocument) current;
+                push(flat, FLAT);
+                positions[top] = flat.start();
+                limits[top] = flat.end();
+            } else if (current instanceof StoredDocument) {
+                StoredDocument stored = (StoredDocument) current;
+                if (!stored.isEmpty()) {
+                    push(stored, STORED);
+                    offsets[top] = stored.start();
+                    ends[top] = stored.end();
+                }
+            } else if (current instanceof SliceDocument) {
+                SliceDocument slice = (SliceDocument) current;
+                push(slice.tail(), VISIT);
+                push(slice.first(), CHAIN);
+                limits[top] = slice.count();
+            } else if (current instanceof Empty) {
+                continue;
+            } else if (!(current instanceof Aggregated)) {
+                Document other = (Document) current;
+                if (other.isEmpty()) {
+                    continue;
+                }
+                if (opaque) {
+                    return setEvent(OPAQUE, other);
+                }
+                if (!other.startsWithParagraph()) {
+                    throw new IllegalArgumentException("cannot walk the sections of " + current.getClass().getName());
+                }
+                push(other.getNextItemOfSameHeirarchy(), VISIT);
+                return setEvent(PARAGRAPH, other);
+            } else {
+                throw new AssertionError("DocumentCursor cannot walk " + current.getClass().getName());
+            }
+        }
+        return setEvent(END, null);
+    }
+
+    /**
+     * Moves to the node of flat at positions[top], straight from its arrays
+     */
+    private int nextFlat(FlatDocument flat) {
+        int i = positions[top];
+        int next = i + flat.size(i);
+        positions[top] = next;
+        if (flat.isParagraph(i)) {
+            return setFlatEvent(PARAGRAPH, flat, i);
+        }
+        push(flat, CLOSE);
+        positions[top] = i;
+        closeTop = top;
+        if (next > i + 1) {
+            push(flat, FLAT);
+            positions[top] = i + 1;
+            limits[top] = next;
+        }
+        setFlatEvent(START_SECTION, flat, i);
+        depth++;
+        return START_SECTION;
+    }
+
+    /**
+     * Moves to the item of stored at offsets[top], skipping over it in the
+     * file unless it is a section
+     */
+    private int nextStored(StoredDocument stored) {
+        long item = offsets[top];
+        offsets[top] = stored.skip(item);
+        if (stored.isParagraph(item)) {
+            return setStoredEvent(PARAGRAPH, stored, item);
+        }
+        push(stored, CLOSE);
+        offsets[top] = item;
+        closeTop = top;
+        // the contents are walked as positions in the same file, without a StoredDocument of their own
+        long contentsStart = stored.contentsStart(item);
+        long contentsEnd = stored.contentsEnd(item);
+        if (contentsStart < contentsEnd) {
+            push(stored, STORED);
+            offsets[top] = contentsStart;
+            ends[top] = contentsEnd;
+        }
+        setStoredEvent(START_SECTION, stored, item);
+        depth++;
+        return START_SECTION;
+    }
+
+    /**
+     * Moves to item, the next of the items of a SliceDocument at top, without
+     * going on to what follows them in their chain
+     */
+    private int nextChained(Document item) {
+        nodes[top] = item.getNextItemOfSameHeirarchy();
+        limits[top]--;
+        if (item instanceof Paragraph) {
+            return setEvent(PARAGRAPH, item);
+        }
+        Section section = (Section) item;
+        push(section, CLOSE);
+        closeTop = top;
+        push(section.getContents(), VISIT);
+        setEvent(START_SECTION, section);
+        depth++;
+        return START_SECTION;
+    }
+
+    /**
+     * @return the current event
+     */
+    int event() {
+        return event;
+    }
+
+    /**
+     * @return the number of sections enclosing the current event; the
+     *         START_SECTION and END_SECTION events of a top-level section
+     *         are at depth 0 and its contents at depth 1
+     */
+    int depth() {
+        return eventDepth;
+    }
+
+    /**
+     * @return the document of the current OPAQUE event
+     */
+    Document document() {
+        return node;
+    }
+
+    /**
+     * @return the text of the current paragraph or the heading of the
+     *         current section
+     */
+    String text() {
+        if (flatNode >= 0) {
+            return ((FlatDocument) node).text(flatNode);
+        }
+        if (storedItem >= 0) {
+            return ((StoredDocument) node).text(storedItem);
+        }
+        return node.getText();
+    }
+
+    /**
+     * @return the same text as text(), but, for the nodes of a FlatDocument
+     *         and the items of a StoredDocument, as a view this cursor reuses
+     *         for every event instead of a new String; the view changes at
+     *         the next event
+     */
+    CharSequence textView() {
+        if (flatNode >= 0 || storedItem >= 0) {
+            if (view == null) {
+                view = new TextView();
+            }
+            if (flatNode >= 0) {
+                return ((FlatDocument) node).text(flatNode, view);
+            }
+            return ((StoredDocument) node).text(storedItem, view);
+        }
+        return node.getText();
+    }
+
+    /**
+     * @return the contents of the section of the current START_SECTION or
+     *         END_SECTION event
+     */
+    Document contents() {
+        if (flatNode >= 0) {
+            return ((FlatDocument) node).contents(flatNode);
+        }
+        if (storedItem >= 0) {
+            return ((StoredDocument) node).contents(storedItem);
+        }
+        return ((Section) node).getContents();
+    }
+
+    /**
+     * @return whether or not contents() returns the same node every time it
+     *         is called for the section of the current event, rather than
+     *         a new view of a FlatDocument or StoredDocument, which is never
+     *         found by identity
+     */
+    boolean sharesContents() {
+        return flatNode < 0 && storedItem < 0;
+    }
+
+    /**
+     * @return the section of the current START_SECTION or END_SECTION event
+     *         alone, without what follows it, sharing its contents
+     */
+    Document section() {
+        if (flatNode >= 0) {
+            return ((FlatDocument) node).item(flatNode);
+        }
+        if (storedItem >= 0) {
+            return ((StoredDocument) node).item(storedItem);
+        }
+        Section section = (Section) node;
+        if (section.getNextItemOfSameHeirarchy().isEmpty()) {
+            return section;
+        }
+        return new Section(section.getText(), section.getContents());
+    }
+
+    /**
+     * Skips the contents of the section of the current START_SECTION event,
+     * so that the next event is its END_SECTION
+     * @throws IllegalStateException if the current event is not
+     *         START_SECTION
+     */
+    void skipContents() {
+        if (event != START_SECTION) {
+            throw new IllegalStateException("not at the start of a section");
+        }
+        while (top > closeTop) {
+            nodes[top] = null;
+            top--;
+        }
+    }
+
+    private int setEvent(int newEvent, Document newNode) {
+        event = newEvent;
+        eventDepth = depth;
+        node = newNode;
+        flatNode = -1;
+        storedItem = -1;
+        return newEvent;
+    }
+
+    private int setFlatEvent(int newEvent, FlatDocument flat, int i) {
+        setEvent(newEvent, flat);
+        flatNode = i;
+        return newEvent;
+    }
+
+    private int setStoredEvent(int newEvent, StoredDocument stored, long item) {
+        setEvent(newEvent, stored);
+        storedItem = item;
+        return newEvent;
+    }
+
+    private void push(Object work, byte action) {
+        if (work instanceof Empty) {
+            return;
+        }
+        top++;
+        if (top == nodes.length) {
+            nodes = Arrays.copyOf(nodes, 2 * nodes.length);
+            actions = Arrays.copyOf(actions, 2 * actions.length);
+            positions = Arrays.copyOf(positions, 2 * positions.length);
+            limits = Arrays.copyOf(limits, 2 * limits.length);
+            offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+            ends = Arrays.copyOf(ends, 2 * ends.length);
+        }
+        nodes[top] = work;
+        actions[top] = action;
+    }
+
+    /**
+     * @return whether or not first and second have the same paragraphs and
+     *         sections in the same structure, whatever their implementation
+     *         in this package; documents of other implementations in them
+     *         are compared with their own equals
+     */
+    static boolean sameContents(Document first, Document second) {
+        DocumentCursor mine = new DocumentCursor(first, true);
+        DocumentCursor theirs = new DocumentCursor(second, true);
+        while (true) {
+            int event = mine.next();
+            if (event != theirs.next()) {
+                return false;
+            }
+            if (event == END) {
+                return true;
+            }
+            if (event == OPAQUE) {
+                if (!mine.document().equals(theirs.document())) {
+                    return false;
+                }
+            } else if (event != END_SECTION && !mine.text().equals(theirs.text())) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package awedoctime;
+
+import static awedoctime.Document.empty;
+import static awedoctime.Document.paragraph;
+import static awedoctime.Document.section;
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Proxy;
+
+import org.junit.Test;
+
+import awedoctime.Document.ConversionException;
+
+public class DocumentCursorTest {
+
+    // Methods: next, depth, text, skipContents, sameContents
+    // Partition:
+    // Document empty, paragraphs only, nested sections, RopeDocument contents,
+    //          Aggregated implementation the cursor does not know
+    //
+    // Stress: every operation on documents of 1,000,000 paragraphs, both as one
+    //         flat chain and inside a section, and on 100,000 sibling sections,
+    //         must not overflow the Java stack
+
+    private static final int MILLION = 1000000;
+
+    /**
+     * @return a chain of count paragraphs "word number i", built without append
+     */
+    private static Document longChain(int count) {
+        Document document = new Empty();
+        for (int i = count - 1; i >= 0; i--) {
+            document = new Paragraph("word number " + i, document);
+        }
+        return document;
+    }
+
+    //*************************************next Tests*************************************\\
+
+    @Test public void testEmpty() {
+        DocumentCursor cursor = new DocumentCursor(empty());
+        assertEquals(DocumentCursor.END, cursor.next());
+        assertEquals(DocumentCursor.END, cursor.next());
+    }
+
+    @Test public void testEventsAndDepths() {
+        Document document = paragraph("p0")
+                .append(section("s1", paragraph("p1").append(section("s2", paragraph("p2")))))
+                .append(section("s3", empty()));
+        DocumentCursor cursor = new DocumentCursor(document);
+
+        int[] events = { DocumentCursor.PARAGRAPH, DocumentCursor.START_SECTION, DocumentCursor.PARAGRAPH,
+                DocumentCursor.START_SECTION, DocumentCursor.PARAGRAPH, DocumentCursor.END_SECTION,
+                DocumentCursor.END_SECTION, DocumentCursor.START_SECTION, DocumentCursor.END_SECTION };
+        int[] depths = { 0, 0, 1, 1, 2, 1, 0, 0, 0 };
+        String[] texts = { "p0", "s1", "p1", "s2", "p2", "s2", "s1", "s3", "s3" };
+        for (int i = 0; i < events.length; i++) {
+            assertEquals(events[i], cursor.next());
+            assertEquals(depths[i], cursor.depth());
+            assertEquals(texts[i], cursor.text());
+        }
+        assertEquals(DocumentCursor.END, cursor.next());
+    }
+
+    @Test public void testRopeDocumentWalksLikeChain() {
+        Document chain = paragraph("a").append(section("s", paragraph("b"))).append(section("t", empty()));
+        Document rope = RopeDocument.of(chain);
+        Document mixed = new Paragraph("a", RopeDocument.section("s", paragraph("b")).append(section("t", empty())));
+
+        assertTrue(DocumentCursor.sameContents(chain, rope));
+        assertTrue(DocumentCursor.sameContents(rope, mixed));
+        assertFalse(DocumentCursor.sameContents(chain, chain.append(paragraph("c"))));
+    }
+
+    @Test public void testUnknownAggregated() {
+        Document hidden = paragraph("hidden text");
+        Document unknown = (Document) Proxy.newProxyInstance(DocumentCursorTest.class.getClassLoader(),
+                new Class<?>[] { Aggregated.class }, (proxy, method, args) -> method.invoke(hidden, args));
+        DocumentCursor cursor = new DocumentCursor(new Paragraph("visible", unknown));
+
+        assertEquals(DocumentCursor.PARAGRAPH, cursor.next());
+        assertEquals("visible", cursor.text());
+        try {
+            cursor.next();
+            fail("expected AssertionError");
+        } catch (AssertionError ae) {
+            assertTrue(ae.getMessage().contains("Proxy"));
+        }
+    }
+
+    //*************************************stress Tests*************************************\\
+
+    @Test public void testMillionParagraphs() throws ConversionException {
+        Document document = longChain(MILLION);
+        Document same = longChain(MILLION);
+
+        assertEquals(3 * MILLION, document.bodyWordCount());
+        assertEquals(document, same);
+        assertEquals(document.hashCode(), same.hashCode());
+        assertTrue(document.toString().endsWith("word number 999999\nEmpty\n"));
+        assertTrue(document.toMarkdown().endsWith("\n\nword number 999999"));
+        assertTrue(document.toLaTeX().endsWith("\n\nword number 999999\n\\end{document}"));
+        assertTrue(document.toHTML().startsWith(DocumentRenderer.HTMLSTART + "\n<p>word number 0</p>"));
+
+        Document appended = document.append(paragraph("last"));
+        assertEquals(3 * MILLION + 1, appended.bodyWordCount());
+        assertNotEquals(document, appended);
+        assertEquals(appended, appended.getLeadingParagraphs());
+        assertEquals(empty(), appended.getBody());
+    }
+
+    @Test public void testMillionParagraphsInSection() throws ConversionException {
+        Document document = section("Long section", longChain(MILLION));
+        Document same = section("Long section", longChain(MILLION));
+
+        assertEquals(3 * MILLION, document.bodyWordCount());
+        assertEquals(document, same);
+        assertEquals(document.hashCode(), same.hashCode());
+        assertTrue(document.toMarkdown().startsWith("\n# Long section\n\nword number 0"));
+        assertTrue(document.toString().endsWith("word number 999999\nEmpty\nEmpty\n"));
+
+        Document appended = document.append(paragraph("last"));
+        assertEquals(3 * MILLION + 1, appended.bodyWordCount());
+    }
+
+    @Test public void testManySiblingSections() throws ConversionException {
+        Document document = new Empty();
+        for (int i = 99999; i >= 0; i--) {
+            document = new Section("Section " + i, new Paragraph("body " + i), document);
+        }
+        Document same = new Empty();
+        for (int i = 99999; i >= 0; i--) {
+            same = new Section("Section " + i, new Paragraph("body " + i), same);
+        }
+
+        assertEquals(200000, document.bodyWordCount());
+        assertEquals(document, same);
+        assertEquals(document.hashCode(), same.hashCode());
+        assertTrue(document.toHTML().endsWith("<h1>Section 99999\n<p>body 99999</p></h1>" + DocumentRenderer.HTMLEND));
+        assertTrue(document.append(paragraph("tail")).toMarkdown().endsWith("# Section 99999\n\nbody 99999\n\ntail"));
+    }
+
+    //*************************************skipContents Tests*************************************\\
+
+    @Test public void testSkipContents() {
+        Document chain = paragraph("p0").append(section("s1", paragraph("p1").append(section("s2", paragraph("p2")))))
+                .append(section("s3", paragraph("p3")));
+        Document[] documents = { chain, RopeDocument.of(chain), FlatDocument.of(chain) };
+        for (Document document : documents) {
+            DocumentCursor cursor = new DocumentCursor(document);
+            assertEquals(DocumentCursor.PARAGRAPH, cursor.next());
+            assertEquals(DocumentCursor.START_SECTION, cursor.next());
+            cursor.skipContents();
+            assertEquals(DocumentCursor.END_SECTION, cursor.next());
+            assertEquals("s1", cursor.text());
+            assertEquals(DocumentCursor.START_SECTION, cursor.next());
+            cursor.skipContents();
+            assertEquals(DocumentCursor.END_SECTION, cursor.next());
+            assertEquals(0, cursor.depth());
+            assertEquals("s3", cursor.text());
+            assertEquals(DocumentCursor.END, cursor.next());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSkipContentsNotAtSection() {
+        DocumentCursor cursor = new DocumentCursor(paragraph("p"));
+        cursor.next();
+        cursor.skipContents();
+    }
+}
@@ -0,0 +1,45 @@
+package awedoctime;
+
+import static awedoctime.Document.section;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Documents shared by the tests. Every test that must hold for each
+ * implementation of Document takes its implementations from here, so a
+ * new representation is added to all of them at once.
+ */
+final class DocumentFixtures {
+
+    private DocumentFixtures() {
+    }
+
+    /**
+     * @param document a document of this package
+     * @param folder folder to write the file of a DocumentStore in
+     * @return document as every implementation of Document, in this order:
+     *         document itself, a RopeDocument, a FlatDocument, a view of
+     *         the contents of a section of a FlatDocument, a
+     *         StoredDocument, a view of the contents of a section of a
+     *         StoredDocument, and a SliceDocument of all of its items
+     */
+    static List<Document> implementations(Document document, TemporaryFolder folder) throws IOException {
+        Path file = folder.newFile().toPath();
+        DocumentStore.write(file, Arrays.asList(document, section("wrapper", document)));
+        DocumentStore store = DocumentStore.open(file);
+        FlatDocument flatWrapped = FlatDocument.of(section("wrapper", document));
+        StoredDocument storedWrapped = store.get(1);
+        int items = 0;
+        for (Document item = document; !item.isEmpty(); item = item.getNextItemOfSameHeirarchy()) {
+            items++;
+        }
+        return Arrays.asList(document, RopeDocument.of(document), FlatDocument.of(document),
+                flatWrapped.contents(flatWrapped.start()), store.get(0),
+                storedWrapped.contents(storedWrapped.start()), DocumentViews.slice(document, 0, items));
+    }
+}
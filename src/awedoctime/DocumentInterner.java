@@ -0,0 +1,184 @@
+package awedoctime;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An optional factory that hash-conses documents: every document it returns
+ * is shared with any structurally equal document it returned before, so
+ * repeated paragraphs and section subtrees are stored once and equals on
+ * them is a reference comparison.
+ * <p>
+ * Documents are looked up by their Fingerprint. The table holds them through
+ * weak references, so interning never keeps a document alive, and it holds
+ * at most a fixed number of them, dropping the least recently used first.
+ * A document that has been dropped is simply built again the next time.
+ * An interner is safe to share between threads.
+ */
+public final class DocumentInterner {
+    private final int maximumSize;
+    private final Empty empty = new Empty();
+    private final Map<Long, Entry> table;
+    private final ReferenceQueue<Document> cleared = new ReferenceQueue<Document>();
+
+    // Rep invariant:
+    //      maximumSize > 0, table.size() <= maximumSize
+    //      every entry of table is keyed by the Fingerprint of its document,
+    //      which is a Paragraph, Section or RopeDocument whose own rest and
+    //      contents were interned before it
+    // Abstraction function:
+    //      represents the set of documents held by the entries of table
+    //      that have not been cleared by the garbage collector
+
+    private static final class Entry extends WeakReference<Document> {
+        private final long fingerprint;
+
+        private Entry(Document document, long fingerprint, ReferenceQueue<Document> queue) {
+            super(document, queue);
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    /**
+     * Make a new interner
+     * @param maximumSize the largest number of documents to keep track of,
+     *                    must be positive
+     */
+    public DocumentInterner(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.table = new LinkedHashMap<Long, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > DocumentInterner.this.maximumSize;
+            }
+        };
+    }
+
+    /**
+     * @return the empty document shared by everything this interner builds
+     */
+    public Document empty() {
+        return empty;
+    }
+
+    /**
+     * @param text paragraph containing English-language characters
+     *              and punctuation, may not contain newlines
+     * @return a document containing a single paragraph, shared with every
+     *         equal document this interner returns
+     */
+    public Document paragraph(String text) {
+        return lookup(new Paragraph(text, empty));
+    }
+
+    /**
+     * @param heading heading containing English-language characters
+     *                and punctuation, may not contain newlines
+     * @param content contents of the section
+     * @return a document containing a single section, shared with every
+     *         equal document this interner returns; its contents are
+     *         interned too
+     */
+    public Document section(String heading, Document content) {
+        return lookup(new Section(heading, intern(content), empty));
+    }
+
+    /**
+     * Returns the document this interner already holds that is equal to
+     * document, or else interns document. The rest and the contents of every
+     * paragraph and section of a Paragraph/Section chain are interned as
+     * well, so equal suffixes and subtrees end up shared; a RopeDocument is
+     * interned as a whole.
+     * @param document a Paragraph, Section, Empty or RopeDocument
+     * @return a document equal to document
+     */
+    public Document intern(Document document) {
+        if (document.isEmpty()) {
+            return empty;
+        }
+        if (!(document instanceof Paragraph) && !(document instanceof Section)) {
+            return lookup(document);
+        }
+        List<Document> items = new ArrayList<Document>();
+        Document tail = document;
+        while (tail instanceof Paragraph || tail instanceof Section) {
+            items.add(tail);
+            tail = tail.getNextItemOfSameHeirarchy();
+        }
+        Document result = tail.isEmpty() ? empty : lookup(tail);
+        for (int i = items.size() - 1; i >= 0; i--) {
+            Document item = items.get(i);
+            if (item instanceof Paragraph) {
+                result = lookup(new Paragraph(item.getText(), result));
+            } else {
+                Document contents = intern(((Section) item).getContents());
+                result = lookup(new Section(item.getText(), contents, result));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of documents this interner currently keeps track
+     *         of, including some that may have been garbage collected
+     */
+    public synchronized int size() {
+        expungeCleared();
+        return table.size();
+    }
+
+    /**
+     * @param document a document whose rest and contents are already interned
+     * @return the held document equal to document, or document itself after
+     *         adding it to the table
+     */
+    private synchronized Document lookup(Document document) {
+        expungeCleared();
+        long fingerprint = Fingerprint.of(document);
+        Entry entry = table.get(fingerprint);
+        Document held = entry == null ? null : entry.get();
+        if (held != null && sameNode(held, document)) {
+            return held;
+        }
+        // replaces an entry that was cleared, that was built from rest or
+        // contents that have since been dropped, or that collided
+        table.put(fingerprint, new Entry(document, fingerprint, cleared));
+        return document;
+    }
+
+    /**
+     * @return whether or not held and document are equal, comparing the rest
+     *         and contents of paragraphs and sections by reference, which is
+     *         enough because both were built from interned parts
+     */
+    private static boolean sameNode(Document held, Document document) {
+        if (held instanceof Paragraph && document instanceof Paragraph) {
+            return held.getText().equals(document.getText())
+                    && held.getNextItemOfSameHeirarchy() == document.getNextItemOfSameHeirarchy();
+        }
+        if (held instanceof Section && document instanceof Section) {
+            return held.getText().equals(document.getText())
+                    && ((Section) held).getContents() == ((Section) document).getContents()
+                    && held.getNextItemOfSameHeirarchy() == document.getNextItemOfSameHeirarchy();
+        }
+        return held instanceof RopeDocument && held.equals(document);
+    }
+
+    private void expungeCleared() {
+        for (Object reference = cleared.poll(); reference != null; reference = cleared.poll()) {
+            Entry entry = (Entry) reference;
+            if (table.get(entry.fingerprint) == entry) {
+                table.remove(entry.fingerprint);
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package awedoctime;
+
+import static awedoctime.Document.paragraph;
+import static awedoctime.Document.section;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class DocumentInternerTest {
+
+    // Methods: paragraph, section, intern, size
+    // Partition:
+    // Document empty, paragraphs only, nested sections, RopeDocument
+    // Interner that has room for every document, that has to drop documents
+    //
+    // Every interned document must equal the document it came from
+
+    //*************************************paragraph and section Tests*************************************\\
+
+    @Test public void testEqualParagraphsAreShared() {
+        DocumentInterner interner = new DocumentInterner(100);
+
+        assertSame(interner.paragraph("boilerplate"), interner.paragraph("boilerplate"));
+        assertNotSame(interner.paragraph("boilerplate"), interner.paragraph("other"));
+        assertEquals(paragraph("boilerplate"), interner.paragraph("boilerplate"));
+        assertSame(interner.empty(), interner.paragraph("boilerplate").getNextItemOfSameHeirarchy());
+    }
+
+    @Test public void testEqualSectionsAreShared() {
+        DocumentInterner interner = new DocumentInterner(100);
+        Document first = interner.section("Disclaimer", paragraph("a").append(paragraph("b")));
+        Document second = interner.section("Disclaimer", paragraph("a").append(paragraph("b")));
+
+        assertSame(first, second);
+        assertNotSame(first, interner.section("Disclaimer", paragraph("a")));
+        assertEquals(section("Disclaimer", paragraph("a").append(paragraph("b"))), first);
+    }
+
+    //*************************************intern Tests*************************************\\
+
+    @Test public void testInternSharesSuffixesAndSubtrees() {
+        DocumentInterner interner = new DocumentInterner(100);
+        Document template = section("Terms", paragraph("no warranty"));
+        Document first = paragraph("first").append(template);
+        Document second = paragraph("second").append(template);
+
+        Document internedFirst = interner.intern(first);
+        Document internedSecond = interner.intern(second);
+
+        assertEquals(first, internedFirst);
+        assertEquals(second, internedSecond);
+        assertSame(internedFirst.getNextItemOfSameHeirarchy(), internedSecond.getNextItemOfSameHeirarchy());
+        assertSame(internedFirst.getNextItemOfSameHeirarchy(), interner.section("Terms", paragraph("no warranty")));
+        assertSame(internedFirst, interner.intern(paragraph("first").append(section("Terms", paragraph("no warranty")))));
+    }
+
+    @Test public void testInternEmptyAndRope() {
+        DocumentInterner interner = new DocumentInterner(100);
+        Document rope = RopeDocument.of(paragraph("a").append(section("s", paragraph("b"))));
+
+        assertSame(interner.empty(), interner.intern(Document.empty()));
+        assertSame(interner.empty(), interner.intern(RopeDocument.empty()));
+        assertSame(rope, interner.intern(rope));
+        assertSame(rope, interner.intern(RopeDocument.of(paragraph("a").append(section("s", paragraph("b"))))));
+    }
+
+    //*************************************size Tests*************************************\\
+
+    @Test public void testBounded() {
+        DocumentInterner interner = new DocumentInterner(10);
+        for (int i = 0; i < 1000; i++) {
+            Document document = interner.paragraph("paragraph " + i);
+            assertEquals(paragraph("paragraph " + i), document);
+        }
+        assertTrue(interner.size() <= 10);
+        assertSame(interner.paragraph("paragraph 999"), interner.paragraph("paragraph 999"));
+    }
+
+    @Test public void testLongChain() {
+        DocumentInterner interner = new DocumentInterner(1000000);
+        Document chain = new Empty();
+        for (int i = 0; i < 100000; i++) {
+            chain = new Paragraph("paragraph " + (i % 10), chain);
+        }
+        Document interned = interner.intern(chain);
+
+        assertEquals(chain, interned);
+        assertSame(interned, interner.intern(chain));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoRoom() {
+        new DocumentInterner(0);
+    }
+}
@@ -0,0 +1,265 @@
+package awedoctime;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads documents written by DocumentWriter, one at a time, from a stream in
+ * the binary format of BinaryFormat. UTF-8 text is decoded straight into
+ * the text arena of the FlatDocument being built, without making a String
+ * per paragraph, and a document is only read as far as it goes, so a stream
+ * of many documents is never held in memory at once.
+ */
+public final class DocumentReader implements Closeable {
+    private static final int BUFFERSIZE = 8192;
+
+    private final InputStream in;
+    private byte[] buffer = new byte[BUFFERSIZE];
+    private int position = 0;
+    private int limit = 0;
+    private char[] chars = new char[256];
+    private int flags = -1;
+
+    // Rep invariant:
+    //      0 <= position <= limit <= buffer.length
+    //      flags == -1 until the header has been read
+    // Abstraction function:
+    //      represents the rest of the stream, buffer[position, limit)
+    //      followed by what is still to be read from in
+
+    /**
+     * Make a reader
+     * @param in stream written by a DocumentWriter
+     */
+    public DocumentReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads the next document of the stream
+     * @return the document, or null if the stream has no more documents
+     * @throws IOException if the stream throws, is not in the binary format,
+     *         has a version this reader does not know, ends in the middle of
+     *         a document, or holds a fingerprint that does not match the
+     *         document it follows or a word count its paragraph cannot have
+     */
+    public FlatDocument read() throws IOException {
+        if (flags < 0) {
+            readHeader();
+        }
+        if (!fill(1) || buffer[position] == BinaryFormat.INDEX) {
+            // the index of a DocumentStore file follows its last document
+            return null;
+        }
+        boolean wordCounts = (flags & BinaryFormat.WORDCOUNTS) != 0;
+        boolean hashes = (flags & BinaryFormat.HASHES) != 0;
+        boolean sizes = (flags & BinaryFormat.SIZES) != 0;
+        FlatDocument.Builder builder = new FlatDocument.Builder();
+        // sectionSeen[d] is whether a section has started at depth d in the innermost open section
+        boolean[] sectionSeen = new boolean[8];
+        while (true) {
+            int tag = readByte();
+            int depth = builder.openSections();
+            if (depth + 1 >= sectionSeen.length) {
+                sectionSeen = Arrays.copyOf(sectionSeen, 2 * sectionSeen.length);
+            }
+            if (tag == BinaryFormat.PARAGRAPH) {
+                if (sectionSeen[depth]) {
+                    throw new IOException("paragraph after a section at the same level");
+                }
+                int length = readText();
+                int words = -1;
+                if (wordCounts) {
+                    words = readVarint();
+                    // words are separated by at least one char
+                    if (words < 0 || words > (length + 1) / 2) {
+                        throw new IOException("paragraph of " + length + " chars with " + words + " words");
+                    }
+                }
+                builder.addParagraph(chars, 0, length, words);
+            } else if (tag == BinaryFormat.SECTION) {
+                int length = readText();
+                if (wordCounts) {
+                    readVarint();
+                }
+                if (hashes) {
+                    readLong();
+                }
+                if (sizes) {
+                    readVarint();
+                }
+                sectionSeen[depth] = true;
+                sectionSeen[depth + 1] = false;
+                builder.startSection(chars, 0, length);
+            } else if (tag == BinaryFormat.END_SECTION) {
+                if (depth == 0) {
+                    throw new IOException("end of a section that was not started");
+                }
+                builder.endSection();
+            } else if (tag == BinaryFormat.END) {
+                if (depth > 0) {
+                    throw new IOException("end of document inside a section");
+                }
+                FlatDocument document = builder.build();
+                if (hashes && readLong() != document.fingerprint()) {
+                    throw new IOException("document does not match its fingerprint");
+                }
+                return document;
+            } else {
+                throw new IOException("unknown tag " + tag);
+            }
+        }
+    }
+
+    /**
+     * Closes the stream
+     * @throws IOException if the stream throws
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void readHeader() throws IOException {
+        for (byte b : BinaryFormat.MAGIC) {
+            if (!fill(1) || readByte() != b) {
+                throw new IOException("not a document stream");
+            }
+        }
+        int version = readByte();
+        if (version != BinaryFormat.VERSION) {
+            throw new IOException("unsupported version " + version);
+        }
+        flags = readByte();
+        if ((flags & ~BinaryFormat.ALL) != 0) {
+            throw new IOException("unknown flags " + flags);
+        }
+    }
+
+    /**
+     * Makes sure that count bytes are buffered. The buffer only grows as
+     * the bytes arrive, so a corrupt count ends in EOFException rather
+     * than in allocating count bytes up front.
+     * @return false if the stream ends before the first of them
+     * @throws EOFException if the stream ends after the first of them
+     */
+    private boolean fill(int count) throws IOException {
+        if (limit - position >= count) {
+            return true;
+        }
+        System.arraycopy(buffer, position, buffer, 0, limit - position);
+        limit -= position;
+        position = 0;
+        while (limit < count) {
+            if (limit == buffer.length) {
+                buffer = Arrays.copyOf(buffer, (int) Math.min(count, 2L * buffer.length));
+            }
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                if (limit == 0) {
+                    return false;
+                }
+                throw new EOFException("stream ends in the middle of a document");
+            }
+            limit += read;
+        }
+        return true;
+    }
+
+    private int readByte() throws IOException {
+        if (!fill(1)) {
+            throw new EOFException("stream ends in the middle of a document");
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    /**
+     * @return the next varint, as the 32 bits DocumentWriter wrote
+     * @throws IOException if it has more than 5 bytes, or more than 32 bits
+     */
+    private int readVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            if (shift == 28 && (b & 0x70) != 0) {
+                throw new IOException("varint overflows 32 bits");
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("varint is too long");
+    }
+
+    private long readLong() throws IOException {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | readByte();
+        }
+        return value;
+    }
+
+    /**
+     * Reads a text and decodes it into chars
+     * @return the number of chars of the text
+     */
+    private int readText() throws IOException {
+        int bytes = readVarint();
+        if (bytes < 0) {
+            throw new IOException("text is too long");
+        }
+        if (!fill(bytes) && bytes > 0) {
+            throw new EOFException("stream ends in the middle of a document");
+        }
+        if (chars.length < bytes) {
+            chars = new char[Math.max(bytes, 2 * chars.length)];
+        }
+        int end = position + bytes;
+        int length = 0;
+        // most text is ASCII, decoded here without touching the fields
+        byte[] source = buffer;
+        char[] target = chars;
+        int ascii = position;
+        while (ascii < end && source[ascii] >= 0) {
+            target[length++] = (char) source[ascii++];
+        }
+        position = ascii;
+        while (position < end) {
+            int b = buffer[position++];
+            if (b >= 0) {
+                chars[length++] = (char) b;
+            } else if ((b & 0xE0) == 0xC0) {
+                chars[length++] = (char) (((b & 0x1F) << 6) | continuation(end));
+            } else if ((b & 0xF0) == 0xE0) {
+                int high = continuation(end);
+                chars[length++] = (char) (((b & 0x0F) << 12) | (high << 6) | continuation(end));
+            } else if ((b & 0xF8) == 0xF0) {
+                int codePoint = ((b & 0x07) << 18) | (continuation(end) << 12);
+                codePoint |= (continuation(end) << 6) | continuation(end);
+                if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT || codePoint > Character.MAX_CODE_POINT) {
+                    throw new IOException("malformed UTF-8");
+                }
+                chars[length++] = Character.highSurrogate(codePoint);
+                chars[length++] = Character.lowSurrogate(codePoint);
+            } else {
+                throw new IOException("malformed UTF-8");
+            }
+        }
+        return length;
+    }
+
+    /**
+     * @return the 6 bits of the next continuation byte of a UTF-8 sequence
+     *         that ends before end
+     */
+    private int continuation(int end) throws IOException {
+        if (position == end || (buffer[position] & 0xC0) != 0x80) {
+            throw new IOException("malformed UTF-8");
+        }
+        return buffer[position++] & 0x3F;
+    }
+}
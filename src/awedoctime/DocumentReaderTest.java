@@ -0,0 +1,190 @@
+package awedoctime;
+
+import static awedoctime.Document.empty;
+import static awedoctime.Document.paragraph;
+import static awedoctime.Document.section;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class DocumentReaderTest {
+
+    // Methods: DocumentWriter.write, DocumentReader.read
+    // Partition:
+    // Document empty, paragraphs only, nested sections, non-ASCII text
+    //          (2, 3 and 4 byte UTF-8), long text
+    // Flags none, word counts, hashes, both
+    // Stream of no documents, one, several; truncated, corrupted, not a
+    //          document stream, over-long or overflowing varint, text longer
+    //          than the stream, word count out of range
+    //
+    // Every document read back must equal the document written
+
+    private static final Document DOCUMENT = paragraph("intro \u00e9\u00e8 \u4e2d\u6587")
+            .append(section("s1 \ud83d\ude00", paragraph("p1 one").append(section("s2", paragraph("p2")))))
+            .append(section("s3", empty()));
+
+    private static byte[] write(boolean wordCounts, boolean hashes, Document... documents) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DocumentWriter writer = new DocumentWriter(bytes, wordCounts, hashes)) {
+            for (Document document : documents) {
+                writer.write(document);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static DocumentReader reader(byte[] bytes) {
+        return new DocumentReader(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * @return a reader of the header of a stream with or without word
+     *         counts, followed by bytes
+     */
+    private static DocumentReader reader(boolean wordCounts, int... bytes) throws IOException {
+        byte[] header = write(wordCounts, false);
+        byte[] stream = Arrays.copyOf(header, header.length + bytes.length);
+        for (int i = 0; i < bytes.length; i++) {
+            stream[header.length + i] = (byte) bytes[i];
+        }
+        return reader(stream);
+    }
+
+    //*************************************round trip Tests*************************************\\
+
+    @Test public void testRoundTripEveryFlag() throws IOException {
+        for (boolean wordCounts : new boolean[] { false, true }) {
+            for (boolean hashes : new boolean[] { false, true }) {
+                DocumentReader reader = reader(write(wordCounts, hashes, DOCUMENT, empty(), paragraph("last")));
+                FlatDocument first = reader.read();
+
+                assertEquals(DOCUMENT, first);
+                assertEquals(DOCUMENT.bodyWordCount(), first.bodyWordCount());
+                assertEquals(DOCUMENT.tableOfContents(), first.tableOfContents());
+                assertEquals(empty(), reader.read());
+                assertEquals(paragraph("last"), reader.read());
+                assertNull(reader.read());
+                assertNull(reader.read());
+            }
+        }
+    }
+
+    @Test public void testNoDocuments() throws IOException {
+        assertNull(reader(write(false, false)).read());
+    }
+
+    @Test public void testEveryImplementation() throws IOException {
+        byte[] bytes = write(true, true, RopeDocument.of(DOCUMENT), FlatDocument.of(DOCUMENT),
+                new Paragraph("a", RopeDocument.section("s", FlatDocument.of(paragraph("b")))));
+        DocumentReader reader = reader(bytes);
+
+        assertEquals(DOCUMENT, reader.read());
+        assertEquals(DOCUMENT, reader.read());
+        assertEquals(paragraph("a").append(section("s", paragraph("b"))), reader.read());
+    }
+
+    @Test public void testLongTextAcrossBuffers() throws IOException {
+        char[] text = new char[100000];
+        for (int i = 0; i < text.length; i++) {
+            text[i] = i % 3 == 0 ? '\u00e9' : (char) ('a' + i % 26);
+        }
+        Document document = new DocumentBuilder()
+                .addParagraph(new String(text)).beginSection(new String(text, 0, 9000)).endSection().build();
+
+        assertEquals(document, reader(write(false, true, document, document)).read());
+    }
+
+    @Test public void testUnpairedSurrogate() throws IOException {
+        assertEquals(paragraph("a?b"), reader(write(false, false, paragraph("a\ud800b"))).read());
+    }
+
+    @Test public void testHundredThousandParagraphs() throws IOException {
+        DocumentBuilder builder = new DocumentBuilder().beginSection("s");
+        for (int i = 0; i < 100000; i++) {
+            builder.addParagraph("paragraph number " + i);
+        }
+        Document document = builder.endSection().build();
+
+        FlatDocument read = reader(write(true, true, document)).read();
+        assertEquals(document, read);
+        assertEquals(300000, read.bodyWordCount());
+    }
+
+    //*************************************error Tests*************************************\\
+
+    @Test(expected = IOException.class)
+    public void testNotADocumentStream() throws IOException {
+        reader("not a stream".getBytes("UTF-8")).read();
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnknownVersion() throws IOException {
+        byte[] bytes = write(false, false, DOCUMENT);
+        bytes[4] = 99;
+        reader(bytes).read();
+    }
+
+    @Test(expected = EOFException.class)
+    public void testTruncated() throws IOException {
+        byte[] bytes = write(false, false, DOCUMENT);
+        reader(Arrays.copyOf(bytes, bytes.length - 3)).read();
+    }
+
+    @Test(expected = IOException.class)
+    public void testCorruptedText() throws IOException {
+        byte[] bytes = write(false, true, paragraph("abc"));
+        bytes[bytes.length - 10] = 'x';
+        reader(bytes).read();
+    }
+
+    @Test(expected = EOFException.class)
+    public void testLengthBeyondStream() throws IOException {
+        // a text of 0x7EFFFFFF bytes, in a stream that ends right after its length
+        reader(false, BinaryFormat.PARAGRAPH, 0xFF, 0xFF, 0xFF, 0xF7, 0x07).read();
+    }
+
+    @Test public void testMalformedVarints() throws IOException {
+        int[][] streams = {
+                { BinaryFormat.PARAGRAPH, 0x80, 0x80, 0x80, 0x80, 0x80, 0x00 },
+                { BinaryFormat.PARAGRAPH, 0xFF, 0xFF, 0xFF, 0xFF, 0x1F },
+                { BinaryFormat.PARAGRAPH, 0xFF, 0xFF, 0xFF, 0xFF, 0x0F } };
+        for (int[] stream : streams) {
+            try {
+                reader(false, stream).read();
+                fail("expected IOException for " + Arrays.toString(stream));
+            } catch (EOFException eofe) {
+                fail("expected a malformed varint for " + Arrays.toString(stream));
+            } catch (IOException ioe) {
+                // expected
+            }
+        }
+    }
+
+    @Test public void testWordCountOutOfRange() throws IOException {
+        // "a b" has at most 2 words
+        int[] prefix = { BinaryFormat.PARAGRAPH, 3, 'a', ' ', 'b' };
+        assertEquals(paragraph("a b"), reader(false, append(prefix, BinaryFormat.END)).read());
+        assertEquals(2, reader(true, append(prefix, 2, BinaryFormat.END)).read().bodyWordCount());
+        for (int[] words : new int[][] { { 3 }, { 0xFF, 0xFF, 0xFF, 0xFF, 0x0F } }) {
+            try {
+                reader(true, append(append(prefix, words), BinaryFormat.END)).read();
+                fail("expected IOException for " + Arrays.toString(words));
+            } catch (IOException ioe) {
+                // expected
+            }
+        }
+    }
+
+    private static int[] append(int[] first, int... second) {
+        int[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+}
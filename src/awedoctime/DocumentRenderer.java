@@ -0,0 +1,440 @@
+package awedoctime;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import awedoctime.Document.ConversionException;
+
+/**
+ * Renders documents into a caller-supplied Appendable (a Writer, a
+ * StringBuilder, ...), emitting output incrementally instead of building
+ * and concatenating a String for every node. The toLaTeX, toMarkdown,
+ * toHTML and toString methods of Paragraph, Section, Empty and
+ * RopeDocument are implemented on top of it.
+ */
+public class DocumentRenderer {
+    static final String LATEXSTART = "\\documentclass{article}"
+            + "\n" + "\\begin{document}";
+    static final String LATEXEND = "\n" + "\\end{document}";
+    static final String HTMLSTART = "<html lang = \"en\">"
+            + "\n" + "<head>"
+            + "\n" + "<title>The Title</title>"
+            + "\n" + "</head>"
+            + "\n" + "<body>";
+    static final String HTMLEND = "\n" + "</body>" + "\n" + "</html>";
+
+    static final int MAXLATEXLEVELS = 3;
+    static final int MAXMARKDOWNLEVELS = 6;
+    static final int MAXHTMLLEVELS = 6;
+
+    private DocumentRenderer() {
+    }
+
+    /**
+     * Writes the LaTeX representation of document (see Document.toLaTeX)
+     * to out.
+     * @param document document to render
+     * @param out destination of the rendered text
+     * @throws ConversionException if the document cannot be converted,
+     *         which is found before anything is written to out
+     * @throws IOException if out throws
+     */
+    public static void renderLaTeX(Document document, Appendable out) throws ConversionException, IOException {
+        checkDepth(document, OutputFormat.LATEX, 1);
+        out.append(LATEXSTART);
+        renderLaTeX(document, 1, out);
+        out.append(LATEXEND);
+    }
+
+    /**
+     * Writes the Markdown representation of document (see
+     * Document.toMarkdown) to out.
+     * @param document document to render
+     * @param out destination of the rendered text
+     * @throws ConversionException if the document cannot be converted,
+     *         which is found before anything is written to out
+     * @throws IOException if out throws
+     */
+    public static void renderMarkdown(Document document, Appendable out) throws ConversionException, IOException {
+        renderMarkdown(document, 1, out);
+    }
+
+    /**
+     * Writes the HTML representation of document (see Document.toHTML)
+     * to out.
+     * @param document document to render
+     * @param out destination of the rendered text
+     * @throws ConversionException if the document cannot be converted,
+     *         which is found before anything is written to out
+     * @throws IOException if out throws
+     */
+    public static void renderHTML(Document document, Appendable out) throws ConversionException, IOException {
+        checkDepth(document, OutputFormat.HTML, 1);
+        out.append(HTMLSTART);
+        renderHTML(document, 1, out);
+        out.append(HTMLEND);
+    }
+
+    /**
+     * Writes the concise Markdown-like representation of document (see
+     * Document.toString) to out.
+     * @param document document to render
+     * @param out destination of the rendered text
+     * @throws IOException if out throws
+     */
+    public static void renderString(Document document, Appendable out) throws IOException {
+        printDocument(document, 1, out);
+    }
+
+    /**
+     * @return the LaTeX representation of document, as returned by
+     *         Document.toLaTeX
+     */
+    static String toLaTeX(Document document) throws ConversionException {
+        return render(RenderedSize.of(document).length(OutputFormat.LATEX), out -> renderLaTeX(document, out));
+    }
+
+    /**
+     * @return the HTML representation of document, as returned by
+     *         Document.toHTML
+     */
+    static String toHTML(Document document) throws ConversionException {
+        return render(RenderedSize.of(document).length(OutputFormat.HTML), out -> renderHTML(document, out));
+    }
+
+    /**
+     * @return the LaTeX body of document rendered at level, as returned by
+     *         Document.toLaTexHelper
+     */
+    static String toLaTeX(Document document, int level) throws ConversionException {
+        return render(RenderedSize.of(document).bodyLength(OutputFormat.LATEX, level),
+                out -> renderLaTeX(document, level, out));
+    }
+
+    /**
+     * @return the Markdown of document rendered at level, as returned by
+     *         Document.toMarkdownHelper
+     */
+    static String toMarkdown(Document document, int level) throws ConversionException {
+        return render(RenderedSize.of(document).bodyLength(OutputFormat.MARKDOWN, level),
+                out -> renderMarkdown(document, level, out));
+    }
+
+    /**
+     * @return the HTML body of document rendered at level, as returned by
+     *         Document.toHTMLHelper
+     */
+    static String toHTML(Document document, int level) throws ConversionException {
+        return render(RenderedSize.of(document).bodyLength(OutputFormat.HTML, level),
+                out -> renderHTML(document, level, out));
+    }
+
+    /**
+     * @return the representation of document printed at level, as returned
+     *         by Document.printDocument
+     */
+    static String toString(Document document, int level) {
+        try {
+            return render(16, out -> printDocument(document, level, out));
+        } catch (ConversionException ce) {
+            throw new AssertionError("printDocument does not throw ConversionException", ce);
+        }
+    }
+
+    /**
+     * A rendering into an Appendable
+     */
+    private interface Rendering {
+        void renderTo(Appendable out) throws ConversionException, IOException;
+    }
+
+    /**
+     * @param capacity the number of chars rendering writes, if known
+     * @return the text written by rendering
+     */
+    private static String render(long capacity, Rendering rendering) throws ConversionException {
+        // a String cannot be longer than this anyway
+        StringBuilder sb = new StringBuilder((int) Math.min(capacity, Integer.MAX_VALUE - 8));
+        try {
+            rendering.renderTo(sb);
+        } catch (IOException ioe) {
+            throw new AssertionError("StringBuilder does not throw IOException", ioe);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the LaTeX body of document, without preamble, to out
+     * @param level the document level at which document sits, where
+     *        the top level = 1
+     */
+    static void renderLaTeX(Document document, int level, Appendable out) throws ConversionException, IOException {
+        checkDepth(document, OutputFormat.LATEX, level);
+        DocumentCursor cursor = new DocumentCursor(document);
+        for (int event = cursor.next(); event != DocumentCursor.END; event = cursor.next()) {
+            if (event == DocumentCursor.PARAGRAPH) {
+                out.append("\n\n");
+                Escaper.LATEX.escape(cursor.text(), out);
+            } else if (event == DocumentCursor.START_SECTION) {
+                renderSectionStart(OutputFormat.LATEX, cursor.text(), level + cursor.depth(), out);
+            }
+        }
+    }
+
+    /**
+     * Writes the Markdown of document to out
+     * @param level the document level at which document sits, where
+     *        the top level = 1
+     */
+    static void renderMarkdown(Document document, int level, Appendable out) throws ConversionException, IOException {
+        checkDepth(document, OutputFormat.MARKDOWN, level);
+        DocumentCursor cursor = new DocumentCursor(document);
+        for (int event = cursor.next(); event != DocumentCursor.END; event = cursor.next()) {
+            if (event == DocumentCursor.PARAGRAPH) {
+                out.append("\n\n");
+                Escaper.MARKDOWN.escape(cursor.text(), out);
+            } else if (event == DocumentCursor.START_SECTION) {
+                renderSectionStart(OutputFormat.MARKDOWN, cursor.text(), level + cursor.depth(), out);
+            }
+        }
+    }
+
+    /**
+     * Writes the HTML body of document, without header, to out. As it always
+     * has, whatever follows a paragraph is rendered one level deeper.
+     * @param level the document level at which document sits, where
+     *        the top level = 1
+     */
+    static void renderHTML(Document document, int level, Appendable out) throws ConversionException, IOException {
+        checkDepth(document, OutputFormat.HTML, level);
+        // levels[d] is the level of the next item at depth d
+        int[] levels = new int[8];
+        levels[0] = level;
+        DocumentCursor cursor = new DocumentCursor(document);
+        for (int event = cursor.next(); event != DocumentCursor.END; event = cursor.next()) {
+            int depth = cursor.depth();
+            if (event == DocumentCursor.PARAGRAPH) {
+                out.append("\n").append("<p>");
+                Escaper.HTML.escape(cursor.text(), out);
+                out.append("</p>");
+                levels[depth]++;
+            } else if (event == DocumentCursor.START_SECTION) {
+                int sectionLevel = levels[depth];
+                renderSectionStart(OutputFormat.HTML, cursor.text(), sectionLevel, out);
+                if (depth + 1 == levels.length) {
+                    levels = Arrays.copyOf(levels, 2 * levels.length);
+                }
+                levels[depth + 1] = sectionLevel + 1;
+            } else {
+                renderSectionEnd(OutputFormat.HTML, levels[depth], out);
+            }
+        }
+    }
+
+    /**
+     * Writes the body of document in format to out, without the preamble
+     * or header of the format
+     * @param level the document level at which document sits, where
+     *        the top level = 1
+     */
+    static void render(Document document, OutputFormat format, int level, Appendable out)
+            throws ConversionException, IOException {
+        switch (format) {
+        case LATEX:
+            renderLaTeX(document, level, out);
+            break;
+        case MARKDOWN:
+            renderMarkdown(document, level, out);
+            break;
+        default:
+            renderHTML(document, level, out);
+        }
+    }
+
+    /**
+     * Writes what comes before the body of every document in format to out
+     */
+    static void renderStart(OutputFormat format, Appendable out) throws IOException {
+        if (format == OutputFormat.LATEX) {
+            out.append(LATEXSTART);
+        } else if (format == OutputFormat.HTML) {
+            out.append(HTMLSTART);
+        }
+    }
+
+    /**
+     * Writes what comes after the body of every document in format to out
+     */
+    static void renderEnd(OutputFormat format, Appendable out) throws IOException {
+        if (format == OutputFormat.LATEX) {
+            out.append(LATEXEND);
+        } else if (format == OutputFormat.HTML) {
+            out.append(HTMLEND);
+        }
+    }
+
+    /**
+     * Writes a paragraph in format to out
+     * @param text text of the paragraph
+     */
+    static void renderParagraph(OutputFormat format, CharSequence text, Appendable out) throws IOException {
+        renderParagraph(format, text, escaper(format).firstEscaped(text, 0), out);
+    }
+
+    /**
+     * Writes a paragraph in format to out
+     * @param text text of the paragraph
+     * @param firstEscaped the index of the first char of text that format
+     *        escapes, or text.length() if there is none
+     */
+    static void renderParagraph(OutputFormat format, CharSequence text, int firstEscaped, Appendable out)
+            throws IOException {
+        if (format == OutputFormat.HTML) {
+            out.append("\n").append("<p>");
+            Escaper.HTML.escape(text, firstEscaped, out);
+            out.append("</p>");
+        } else {
+            out.append("\n\n");
+            escaper(format).escape(text, firstEscaped, out);
+        }
+    }
+
+    /**
+     * Writes what comes before the contents of a section in format to out
+     * @param heading heading of the section
+     * @param level the level of the section, where the top level = 1
+     * @throws ConversionException if format cannot have a section at level
+     */
+    static void renderSectionStart(OutputFormat format, CharSequence heading, int level, Appendable out)
+            throws ConversionException, IOException {
+        renderSectionStart(format, heading, escaper(format).firstEscaped(heading, 0), level, out);
+    }
+
+    /**
+     * Writes what comes before the contents of a section in format to out
+     * @param heading heading of the section
+     * @param firstEscaped the index of the first char of heading that
+     *        format escapes, or heading.length() if there is none
+     * @param level the level of the section, where the top level = 1
+     * @throws ConversionException if format cannot have a section at level
+     */
+    static void renderSectionStart(OutputFormat format, CharSequence heading, int firstEscaped, int level,
+            Appendable out) throws ConversionException, IOException {
+        if (level > format.maxLevels()) {
+            throw tooDeep(format);
+        }
+        if (format == OutputFormat.LATEX) {
+            out.append("\n").append(sectionLaTeXHeading(level));
+            Escaper.LATEX.escape(heading, firstEscaped, out);
+            out.append("}");
+        } else if (format == OutputFormat.MARKDOWN) {
+            out.append("\n");
+            sectionHeading(level, out);
+            out.append(" ");
+            Escaper.MARKDOWN.escape(heading, firstEscaped, out);
+        } else {
+            out.append("\n").append("<h").append(Integer.toString(level)).append(">");
+            Escaper.HTML.escape(heading, firstEscaped, out);
+        }
+    }
+
+    /**
+     * @return the Escaper of format
+     */
+    static Escaper escaper(OutputFormat format) {
+        if (format == OutputFormat.LATEX) {
+            return Escaper.LATEX;
+        } else if (format == OutputFormat.MARKDOWN) {
+            return Escaper.MARKDOWN;
+        }
+        return Escaper.HTML;
+    }
+
+    /**
+     * Checks, before anything is rendered, that document can be rendered in
+     * format at level, in constant time for the documents Depth measures in
+     * constant time
+     * @param level the document level at which document sits, where
+     *        the top level = 1
+     * @throws ConversionException if rendering document would reach a
+     *         section level format cannot have, with the message rendering
+     *         would throw
+     */
+    static void checkDepth(Document document, OutputFormat format, int level) throws ConversionException {
+        int levels = Depth.levels(document, format);
+        if (levels > 0 && level - 1 + levels > format.maxLevels()) {
+            throw tooDeep(format);
+        }
+    }
+
+    /**
+     * @return the exception for a section nested deeper than format allows
+     */
+    private static ConversionException tooDeep(OutputFormat format) {
+        if (format == OutputFormat.LATEX) {
+            return new ConversionException("Cannot create a LaTeX with more than 3 nested levels");
+        } else if (format == OutputFormat.MARKDOWN) {
+            return new ConversionException("Cannot create a Markdown with more than 6 nested levels");
+        }
+        return new ConversionException("Cannot create a HTML with more than 6 nested levels");
+    }
+
+    /**
+     * Writes what comes after the contents of a section in format to out
+     * @param level the level of the section, where the top level = 1
+     */
+    static void renderSectionEnd(OutputFormat format, int level, Appendable out) throws IOException {
+        if (format == OutputFormat.HTML) {
+            out.append("</h").append(Integer.toString(level)).append(">");
+        }
+    }
+
+    /**
+     * Writes the toString representation of document to out: one line per
+     * paragraph and section, and an "Empty" line closing the contents of
+     * every section and the document itself
+     * @param level the level at which document sits, where
+     *        the top level = 1
+     */
+    static void printDocument(Document document, int level, Appendable out) throws IOException {
+        DocumentCursor cursor = new DocumentCursor(document);
+        for (int event = cursor.next(); event != DocumentCursor.END; event = cursor.next()) {
+            if (event == DocumentCursor.PARAGRAPH) {
+                out.append(cursor.text()).append("\n");
+            } else if (event == DocumentCursor.START_SECTION) {
+                sectionHeading(level + cursor.depth(), out);
+                out.append(" ").append(cursor.text()).append("\n");
+            } else {
+                out.append("Empty\n");
+            }
+        }
+        out.append("Empty\n");
+    }
+
+    /**
+     * @param level the level at which sectionLaTeXHeading is called, where
+     *        the top level = 1
+     * @return a string that corresponds to the level at which a section is nested
+     *         in LaTex syntax
+     */
+    private static String sectionLaTeXHeading(int level) {
+        if (level == 1) {
+            return "\\section{";
+        } else if (level == 2) {
+            return "\\subsection{";
+        } else if (level == 3) {
+            return "\\subsubsection{";
+        }
+        return "";
+    }
+
+    /**
+     * Writes a string of #'s, where the number of #'s correspond to the
+     * level at which a section belongs, as per Markdown syntax
+     */
+    private static void sectionHeading(int level, Appendable out) throws IOException {
+        for (int i = 0; i < level; i++) {
+            out.append('#');
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package awedoctime;
+
+import static awedoctime.Document.empty;
+import static awedoctime.Document.paragraph;
+import static awedoctime.Document.section;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import awedoctime.Document.ConversionException;
+
+public class DocumentRendererTest {
+
+    // Methods: renderLaTeX, renderMarkdown, renderHTML, renderString
+    // Partition:
+    // Document empty
+    // Document paragraphs and nested sections with escaped characters
+    // Document with a section nested too deeply for the format
+    // Appendable: StringBuilder, Writer, non-empty destination
+
+    private Document document;
+    private Document tooDeepForLaTeX;
+
+    @Before public void setupDocuments() {
+        document = paragraph("Opening & \"quoted\" {text}")
+                .append(section("Chapter #1", paragraph("Some_text").append(
+                        section("Part <1>", paragraph("Nested - paragraph.")))))
+                .append(section("Chapter 2", empty()));
+        tooDeepForLaTeX = section("1", section("2", section("3", section("4", paragraph("deep")))));
+    }
+
+    @Test public void testRenderEmpty() throws ConversionException, IOException {
+        StringBuilder latex = new StringBuilder();
+        StringBuilder markdown = new StringBuilder();
+        StringBuilder html = new StringBuilder();
+        StringBuilder string = new StringBuilder();
+        DocumentRenderer.renderLaTeX(empty(), latex);
+        DocumentRenderer.renderMarkdown(empty(), markdown);
+        DocumentRenderer.renderHTML(empty(), html);
+        DocumentRenderer.renderString(empty(), string);
+
+        assertEquals(empty().toLaTeX(), latex.toString());
+        assertEquals(empty().toMarkdown(), markdown.toString());
+        assertEquals(empty().toHTML(), html.toString());
+        assertEquals(empty().toString(), string.toString());
+    }
+
+    @Test public void testRenderMatchesConversions() throws ConversionException, IOException {
+        StringBuilder latex = new StringBuilder();
+        StringBuilder markdown = new StringBuilder();
+        StringBuilder html = new StringBuilder();
+        StringBuilder string = new StringBuilder();
+        DocumentRenderer.renderLaTeX(document, latex);
+        DocumentRenderer.renderMarkdown(document, markdown);
+        DocumentRenderer.renderHTML(document, html);
+        DocumentRenderer.renderString(document, string);
+
+        assertEquals(document.toLaTeX(), latex.toString());
+        assertEquals(document.toMarkdown(), markdown.toString());
+        assertEquals(document.toHTML(), html.toString());
+        assertEquals(document.toString(), string.toString());
+    }
+
+    @Test public void testRenderToWriter() throws ConversionException, IOException {
+        StringWriter writer = new StringWriter();
+        DocumentRenderer.renderMarkdown(document, writer);
+
+        String expected = "\n\n" + "Opening & \"quoted\" \\{text\\}"
+                + "\n" + "#" + " " + "Chapter \\#1"
+                + "\n\n" + "Some\\_text"
+                + "\n" + "##" + " " + "Part <1>"
+                + "\n\n" + "Nested \\- paragraph\\."
+                + "\n" + "#" + " " + "Chapter 2";
+        assertEquals(expected, writer.toString());
+    }
+
+    @Test public void testRenderAppendsToExistingOutput() throws ConversionException, IOException {
+        StringBuilder sb = new StringBuilder("prefix");
+        DocumentRenderer.renderMarkdown(paragraph("text"), sb);
+
+        assertEquals("prefix" + "\n\n" + "text", sb.toString());
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testRenderTooDeep() throws ConversionException, IOException {
+        DocumentRenderer.renderLaTeX(tooDeepForLaTeX, new StringBuilder());
+    }
+}
@@ -0,0 +1,294 @@
+package awedoctime;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A read-only collection of documents in a file, memory-mapped rather than
+ * read onto the heap. The file is a stream in the binary format of
+ * BinaryFormat with every flag set, followed by an index of the documents,
+ * so opening a store only reads its header and the end of its index,
+ * whatever the size of the file.
+ * <p>
+ * The documents of a store are StoredDocuments, which decode text from the
+ * mapped file only when it is asked for: the memory a store uses grows with
+ * what is read from it, not with the size of the file. A store and its
+ * documents are safe to share between threads. The file is unmapped when
+ * they are all garbage collected, and must not change while they are used.
+ */
+public final class DocumentStore {
+    // mapped in segments because a ByteBuffer holds at most 2^31 - 1 bytes
+    private static final int SEGMENTBITS = 30;
+    private static final long SEGMENTSIZE = 1L << SEGMENTBITS;
+    private static final int HEADERSIZE = BinaryFormat.MAGIC.length + 2;
+    private static final int TRAILERSIZE = 8 + BinaryFormat.MAGIC.length;
+    // a document ends with END and its fingerprint
+    private static final int DOCUMENTEND = 1 + 8;
+
+    private final ByteBuffer[] segments;
+    private final long index;
+    private final int count;
+
+    // Rep invariant:
+    //      segments[i] maps the bytes [i * SEGMENTSIZE, (i + 1) * SEGMENTSIZE)
+    //      of the file, or up to its end for the last one
+    //      the file holds a header with every flag of BinaryFormat, count
+    //      documents and an index that starts with its INDEX tag at index
+    //      only absolute gets are made on segments, so they are never changed
+    // Abstraction function:
+    //      represents the documents of the file, the i-th starting at the
+    //      offset that is the i-th entry of the index
+
+    private DocumentStore(ByteBuffer[] segments, long index, int count) {
+        this.segments = segments;
+        this.index = index;
+        this.count = count;
+    }
+
+    /**
+     * Writes documents to file, replacing it if it exists, as a store that
+     * open can map
+     * @param file file to write
+     * @param documents documents to write, in order; each one a Paragraph,
+     *        Section, Empty, RopeDocument, FlatDocument or StoredDocument,
+     *        possibly nesting any of these
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path file, Iterable<? extends Document> documents) throws IOException {
+        OutputStream out = Files.newOutputStream(file);
+        try (DocumentWriter writer = new DocumentWriter(out, BinaryFormat.ALL)) {
+            long[] offsets = new long[16];
+            int written = 0;
+            for (Document document : documents) {
+                if (written == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, 2 * written);
+                }
+                offsets[written++] = writer.position();
+                writer.write(document);
+            }
+            writer.writeIndex(offsets, written);
+        }
+    }
+
+    /**
+     * Maps a store written by write, reading nothing but its header and the
+     * end of its index
+     * @param file file to open
+     * @return the store
+     * @throws IOException if the file cannot be read or is not a store
+     */
+    public static DocumentStore open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADERSIZE + 1 + TRAILERSIZE) {
+                throw new IOException("not a document store");
+            }
+            ByteBuffer[] segments = new ByteBuffer[(int) ((size + SEGMENTSIZE - 1) >>> SEGMENTBITS)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = (long) i << SEGMENTBITS;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENTSIZE, size - start));
+            }
+            DocumentStore store = new DocumentStore(segments, 0, 0);
+            for (int i = 0; i < BinaryFormat.MAGIC.length; i++) {
+                if (store.byteAt(i) != BinaryFormat.MAGIC[i]
+                        || store.byteAt(size - BinaryFormat.MAGIC.length + i) != BinaryFormat.MAGIC[i]) {
+                    throw new IOException("not a document store");
+                }
+            }
+            int version = store.byteAt(BinaryFormat.MAGIC.length) & 0xFF;
+            if (version != BinaryFormat.VERSION) {
+                throw new IOException("unsupported version " + version);
+            }
+            if (store.byteAt(BinaryFormat.MAGIC.length + 1) != BinaryFormat.ALL) {
+                throw new IOException("not a document store");
+            }
+            long count = store.getLong(size - TRAILERSIZE);
+            long index = size - TRAILERSIZE - 8 * count - 1;
+            if (count < 0 || count > Integer.MAX_VALUE || index < HEADERSIZE
+                    || store.byteAt(index) != BinaryFormat.INDEX) {
+                throw new IOException("not a document store");
+            }
+            return new DocumentStore(segments, index, (int) count);
+        }
+    }
+
+    /**
+     * @return the number of documents in this store
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @param i index of a document, from 0
+     * @return the i-th document written to this store, in constant time
+     * @throws IndexOutOfBoundsException if i is not the index of a document
+     */
+    public StoredDocument get(int i) {
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException("document " + i + " of " + count);
+        }
+        long start = offset(i);
+        long next = i + 1 < count ? offset(i + 1) : index;
+        return new StoredDocument(this, start, next - DOCUMENTEND);
+    }
+
+    private long offset(int i) {
+        return getLong(index + 1 + 8L * i);
+    }
+
+    // Decoding of items, for StoredDocument. An item is a PARAGRAPH or
+    // SECTION tag and what follows it, up to the next item or END_SECTION
+    // for a paragraph, and up to and including its END_SECTION for a section.
+
+    /**
+     * @param item position of an item
+     * @return whether or not the item is a paragraph
+     */
+    boolean isParagraph(long item) {
+        return byteAt(item) == BinaryFormat.PARAGRAPH;
+    }
+
+    /**
+     * @param item position of an item
+     * @return the text of the paragraph or the heading of the section
+     */
+    String text(long item) {
+        long position = item + 1;
+        int length = (int) getVarint(position);
+        position += varintLength(position);
+        byte[] bytes = new byte[length];
+        int copied = 0;
+        while (copied < length) {
+            ByteBuffer segment = segments[(int) (position >>> SEGMENTBITS)];
+            int offset = (int) (position & (SEGMENTSIZE - 1));
+            int chunk = Math.min(length - copied, segment.limit() - offset);
+            segment.get(offset, bytes, copied, chunk);
+            copied += chunk;
+            position += chunk;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes the text of the paragraph or the heading of the section at
+     * item into view, without allocating once view is large enough
+     * @param item position of an item
+     * @return view, showing that text
+     */
+    TextView text(long item, TextView view) {
+        long position = item + 1;
+        int length = (int) getVarint(position);
+        position += varintLength(position);
+        byte[] bytes = view.bytes(length);
+        int copied = 0;
+        while (copied < length) {
+            ByteBuffer segment = segments[(int) (position >>> SEGMENTBITS)];
+            int offset = (int) (position & (SEGMENTSIZE - 1));
+            int chunk = Math.min(length - copied, segment.limit() - offset);
+            segment.get(offset, bytes, copied, chunk);
+            copied += chunk;
+            position += chunk;
+        }
+        return view.decode(length);
+    }
+
+    /**
+     * @param item position of an item
+     * @return the word count of the paragraph or of the contents of the
+     *         section
+     */
+    int words(long item) {
+        return (int) getVarint(afterText(item));
+    }
+
+    /**
+     * @param item position of a section
+     * @return the fingerprint of the contents of the section
+     */
+    long contentsFingerprint(long item) {
+        long position = afterText(item);
+        return getLong(position + varintLength(position));
+    }
+
+    /**
+     * @param item position of a section
+     * @return the position of the first item of the contents of the section
+     */
+    long contentsStart(long item) {
+        long position = afterText(item);
+        position += varintLength(position) + 8;
+        return position + varintLength(position);
+    }
+
+    /**
+     * @param item position of a section
+     * @return the position of the END_SECTION of the section
+     */
+    long contentsEnd(long item) {
+        long position = afterText(item);
+        position += varintLength(position) + 8;
+        return position + varintLength(position) + getVarint(position);
+    }
+
+    /**
+     * @param item position of an item
+     * @return the position just after the item
+     */
+    long skip(long item) {
+        if (isParagraph(item)) {
+            long position = afterText(item);
+            return position + varintLength(position);
+        }
+        return contentsEnd(item) + 1;
+    }
+
+    /**
+     * @return the position just after the tag and text of item
+     */
+    private long afterText(long item) {
+        long position = item + 1;
+        return position + varintLength(position) + getVarint(position);
+    }
+
+    private byte byteAt(long position) {
+        return segments[(int) (position >>> SEGMENTBITS)].get((int) (position & (SEGMENTSIZE - 1)));
+    }
+
+    private long getLong(long position) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (byteAt(position + i) & 0xFF);
+        }
+        return value;
+    }
+
+    private long getVarint(long position) {
+        long value = 0;
+        for (int shift = 0;; shift += 7) {
+            int b = byteAt(position++);
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * @return the number of bytes of the varint at position
+     */
+    private int varintLength(long position) {
+        int length = 1;
+        while (byteAt(position++) < 0) {
+            length++;
+        }
+        return length;
+    }
+}
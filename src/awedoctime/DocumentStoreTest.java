@@ -0,0 +1,163 @@
+package awedoctime;
+
+import static awedoctime.Document.empty;
+import static awedoctime.Document.paragraph;
+import static awedoctime.Document.section;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import awedoctime.Document.ConversionException;
+
+public class DocumentStoreTest {
+
+    // Methods: DocumentStore.write, open, size, get; every observer of
+    //          StoredDocument
+    // Partition:
+    // Store of no documents, one, several
+    // Document empty, paragraphs only, nested sections, non-ASCII text,
+    //          any implementation when written
+    // File a store, a stream without an index, not a document stream
+    //
+    // Every observer of a StoredDocument must give the same result as on
+    // the chain that was written
+
+    private static final Document CHAIN = paragraph("intro & more \u00e9")
+            .append(section("s1 \ud83d\ude00", paragraph("p1 one").append(section("s2", paragraph("p2 #2")))))
+            .append(section("s3", empty()));
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private DocumentStore store(Document... documents) throws IOException {
+        Path file = folder.newFile().toPath();
+        DocumentStore.write(file, Arrays.asList(documents));
+        return DocumentStore.open(file);
+    }
+
+    //*************************************get Tests*************************************\\
+
+    @Test public void testRoundTrip() throws IOException {
+        DocumentStore store = store(CHAIN, empty(), paragraph("last"), RopeDocument.of(CHAIN),
+                FlatDocument.of(CHAIN));
+
+        assertEquals(5, store.size());
+        assertEquals(CHAIN, store.get(0));
+        assertEquals(store.get(0), CHAIN);
+        assertEquals(empty(), store.get(1));
+        assertEquals(store.get(1), empty());
+        assertEquals(paragraph("last"), store.get(2));
+        assertEquals(CHAIN, store.get(3));
+        assertEquals(store.get(0), store.get(4));
+        assertNotEquals(store.get(0), store.get(2));
+    }
+
+    @Test public void testNoDocuments() throws IOException {
+        assertEquals(0, store().size());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfBounds() throws IOException {
+        store(CHAIN).get(1);
+    }
+
+    //*************************************observer Tests*************************************\\
+
+    @Test public void testStructure() throws IOException {
+        StoredDocument stored = store(CHAIN).get(0);
+
+        assertEquals("intro & more \u00e9", stored.getText());
+        assertTrue(stored.startsWithParagraph());
+        assertEquals(CHAIN.getLeadingParagraphs(), stored.getLeadingParagraphs());
+        assertEquals(CHAIN.getBody(), stored.getBody());
+        assertEquals(CHAIN.getNextItemOfSameHeirarchy(), stored.getNextItemOfSameHeirarchy());
+        assertEquals("s1 \ud83d\ude00", stored.getBody().getText());
+        assertEquals(CHAIN.getBody().getNextItemOfSameHeirarchy(),
+                stored.getBody().getNextItemOfSameHeirarchy());
+    }
+
+    @Test public void testSameResultsAsChain() throws IOException, ConversionException {
+        StoredDocument stored = store(CHAIN).get(0);
+
+        assertEquals(CHAIN.bodyWordCount(), stored.bodyWordCount());
+        assertEquals(CHAIN.getBody().bodyWordCount(), stored.getBody().bodyWordCount());
+        assertEquals(CHAIN.hashCode(), stored.hashCode());
+        assertEquals(CHAIN.getBody().hashCode(), stored.getBody().hashCode());
+        assertEquals(Fingerprint.of(CHAIN), stored.fingerprint());
+        assertEquals(CHAIN.tableOfContents(), stored.tableOfContents());
+        assertEquals(CHAIN.toLaTeX(), stored.toLaTeX());
+        assertEquals(CHAIN.toMarkdown(), stored.toMarkdown());
+        assertEquals(CHAIN.toHTML(), stored.toHTML());
+        assertEquals(CHAIN.toString(), stored.toString());
+    }
+
+    @Test public void testAppendSameAsChain() throws IOException {
+        DocumentStore store = store(CHAIN, paragraph("a").append(section("t", paragraph("c"))));
+
+        assertEquals(CHAIN.append(store.get(1)), store.get(0).append(store.get(1)));
+        assertEquals(CHAIN.append(CHAIN), store.get(0).append(CHAIN));
+        assertEquals(paragraph("x").append(CHAIN), paragraph("x").append(store.get(0)));
+        assertEquals(RopeDocument.of(paragraph("x")).append(CHAIN),
+                RopeDocument.of(paragraph("x")).append(store.get(0)));
+        assertSame(store.get(0).getClass(), store.get(0).append(empty()).getClass());
+    }
+
+    @Test public void testThousandDocuments() throws IOException {
+        DocumentStore store = store(Collections.nCopies(1000, CHAIN).toArray(new Document[0]));
+
+        assertEquals(1000, store.size());
+        assertEquals(CHAIN, store.get(999));
+        assertEquals(CHAIN.bodyWordCount(), store.get(500).bodyWordCount());
+    }
+
+    @Test public void testHundredThousandParagraphs() throws IOException {
+        DocumentBuilder builder = new DocumentBuilder().beginSection("s");
+        for (int i = 0; i < 100000; i++) {
+            builder.addParagraph("paragraph number " + i);
+        }
+        Document document = builder.endSection().build();
+        StoredDocument stored = store(document).get(0);
+
+        assertEquals(300000, stored.bodyWordCount());
+        assertEquals(document.hashCode(), stored.hashCode());
+        assertEquals(document, stored);
+    }
+
+    //*************************************file Tests*************************************\\
+
+    @Test public void testReadAsStream() throws IOException {
+        Path file = folder.newFile().toPath();
+        DocumentStore.write(file, Arrays.asList(CHAIN, paragraph("last")));
+
+        try (InputStream in = Files.newInputStream(file)) {
+            DocumentReader reader = new DocumentReader(in);
+            assertEquals(CHAIN, reader.read());
+            assertEquals(paragraph("last"), reader.read());
+            assertNull(reader.read());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testStreamWithoutIndex() throws IOException {
+        Path file = folder.newFile().toPath();
+        try (DocumentWriter writer = new DocumentWriter(Files.newOutputStream(file), true, true)) {
+            writer.write(CHAIN);
+        }
+        DocumentStore.open(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotADocumentStore() throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, "not a document store at all".getBytes("UTF-8"));
+        DocumentStore.open(file);
+    }
+}
@@ -0,0 +1,116 @@
+package awedoctime;
+
+/**
+ * Views of part of a document that share its nodes instead of copying
+ * them: slice(document, from, to) is a run of consecutive top-level items,
+ * and sectionAt(document, number) is one section of any depth, alone, by
+ * its number in the outline of the document (see Outline).
+ * <p>
+ * A view is a Document of the same kind as the document it is taken from
+ * wherever that kind can show part of itself: a slice of a RopeDocument is
+ * a RopeDocument split out of its tree in O(log n), a slice of a
+ * FlatDocument or of a StoredDocument is a range of the same arrays or of
+ * the same file, and a slice of a chain of Paragraphs and Sections is a
+ * SliceDocument, which points at the first item of the run and its length.
+ * Nothing is copied, so rendering a view, counting its words or building
+ * its table of contents costs what it does for the items of the view
+ * alone.
+ */
+public final class DocumentViews {
+
+    private DocumentViews() {
+    }
+
+    /**
+     * @param document any document
+     * @param from index of the first top-level item of the view, from 0
+     * @param to index just after the last top-level item of the view
+     * @return the top-level items [from, to) of document, sharing its nodes
+     * @throws IndexOutOfBoundsException if from is negative, to is less
+     *         than from or document has fewer than to top-level items
+     * @throws IllegalArgumentException if the view would end before the
+     *         last item of a document of another implementation of
+     *         Document, which cannot be cut short without copying it
+     */
+    public static Document slice(Document document, int from, int to) {
+        if (document instanceof Aggregated) {
+            return ((Aggregated) document).slice(from, to);
+        }
+        checkRange(from, to);
+        Document start = document;
+        for (int index = 0; index < from; index++) {
+            if (start.isEmpty()) {
+                throw outOfBounds(from, to);
+            }
+            start = start.getNextItemOfSameHeirarchy();
+            if (start instanceof Aggregated) {
+                return ((Aggregated) start).slice(from - index - 1, to - index - 1);
+            }
+        }
+        if (from == to) {
+            return new Empty();
+        }
+        Document end = start;
+        for (int index = from; index < to; index++) {
+            if (end.isEmpty()) {
+                throw outOfBounds(from, to);
+            }
+            end = end.getNextItemOfSameHeirarchy();
+        }
+        if (!end.isEmpty()) {
+            throw new IllegalArgumentException("cannot end a slice of " + start.getClass().getName()
+                    + " before its last item");
+        }
+        return start;
+    }
+
+    /**
+     * @param document as for slice
+     * @param number the number of a section as Outline numbers it, such
+     *        as "3.2.1" or "3.2.1."
+     * @return that section alone, sharing the nodes of document, in O(depth)
+     *         time once the outline of document is built; a Paragraph or
+     *         Section chain builds it on every call, so to look up many of
+     *         its sections, keep Outline.of(document); see Outline
+     * @throws IllegalArgumentException if number is not such a number, or
+     *         if a section of document is of another implementation of
+     *         Document; see Outline.of
+     * @throws IndexOutOfBoundsException if document has no section of that
+     *         number
+     */
+    public static Document sectionAt(Document document, String number) {
+        return Outline.of(document).section(number);
+    }
+
+    /**
+     * @param document as for slice
+     * @param path the number of each section on the path from the top level
+     *        to a section, from 1, such as 3, 2, 1 for "3.2.1"
+     * @return that section alone, as for sectionAt(Document, String)
+     * @throws IndexOutOfBoundsException if path is empty or document has no
+     *         section of that number
+     * @throws IllegalArgumentException if a section of document is of
+     *         another implementation of Document; see Outline.of
+     */
+    public static Document sectionAt(Document document, int... path) {
+        return Outline.of(document).section(path);
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if [from, to) is not a range of
+     *         indexes
+     */
+    static void checkRange(int from, int to) {
+        if (from < 0 || to < from) {
+            throw outOfBounds(from, to);
+        }
+    }
+
+    /**
+     * @return the exception for slicing items [from, to) of a document that
+     *         does not have them
+     */
+    static IndexOutOfBoundsException outOfBounds(int from, int to) {
+        return new IndexOutOfBoundsException("no top-level items [" + from + ", " + to + ")");
+    }
+}
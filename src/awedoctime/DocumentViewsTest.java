@@ -0,0 +1,207 @@
+package awedoctime;
+
+import static awedoctime.Document.empty;
+import static awedoctime.Document.paragraph;
+import static awedoctime.Document.section;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import awedoctime.Document.ConversionException;
+
+public class DocumentViewsTest {
+
+    // Methods: slice, sectionAt, and the observers of SliceDocument
+    // Partition:
+    // Range empty, one item, paragraphs only, sections only, across the
+    //          paragraphs and sections, whole document, out of bounds
+    // Implementation Paragraph/Section chain, chain going on into a
+    //          RopeDocument, RopeDocument, FlatDocument and its views,
+    //          StoredDocument and its views, Empty, slice of a slice
+    // Observer renderers, bodyWordCount, tableOfContents, equals,
+    //          hashCode, fingerprint, depth, rendered size, leading
+    //          paragraphs, body, next item
+    //
+    // A slice must be equal in every observer to the document built from
+    // the same items, and must share the nodes it is taken from
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final Document[] ITEMS = {
+            paragraph("intro"),
+            paragraph("caf\u00e9 & <more> intro"),
+            section("s1", paragraph("one")),
+            section("s2", paragraph("two words")
+                    .append(section("s2.1", section("s2.1.1", paragraph("deep words here"))))),
+            section("s3", empty()) };
+
+    private static final Document CHAIN = items(0, ITEMS.length);
+
+    /**
+     * @return ITEMS[from, to) appended to one another
+     */
+    private static Document items(int from, int to) {
+        Document document = empty();
+        for (int i = from; i < to; i++) {
+            document = document.append(ITEMS[i]);
+        }
+        return document;
+    }
+
+    // a chain whose first items are Paragraphs and the rest a RopeDocument
+    private static final Document INTO_ROPE = new Paragraph(ITEMS[0].getText(),
+            new Paragraph(ITEMS[1].getText(), RopeDocument.of(items(2, ITEMS.length))));
+
+    /**
+     * @return CHAIN as every implementation of Document, and INTO_ROPE
+     */
+    private List<Document> implementations() throws IOException {
+        List<Document> implementations = new ArrayList<>(DocumentFixtures.implementations(CHAIN, folder));
+        implementations.add(INTO_ROPE);
+        return implementations;
+    }
+
+    /**
+     * Asserts that actual is equal to expected in every observer
+     */
+    private static void assertSameDocument(String message, Document expected, Document actual)
+            throws ConversionException {
+        assertEquals(message, expected, actual);
+        assertEquals(message, actual, expected);
+        assertEquals(message, expected.hashCode(), actual.hashCode());
+        assertEquals(message, Fingerprint.of(expected), Fingerprint.of(actual));
+        assertEquals(message, expected.bodyWordCount(), actual.bodyWordCount());
+        assertEquals(message, expected.tableOfContents(), actual.tableOfContents());
+        assertEquals(message, expected.toLaTeX(), actual.toLaTeX());
+        assertEquals(message, expected.toMarkdown(), actual.toMarkdown());
+        assertEquals(message, expected.toHTML(), actual.toHTML());
+        assertEquals(message, expected.toString(), actual.toString());
+        assertEquals(message, Depth.of(expected), Depth.of(actual));
+        assertEquals(message, Depth.levels(expected, OutputFormat.HTML), Depth.levels(actual, OutputFormat.HTML));
+        for (OutputFormat format : OutputFormat.values()) {
+            assertEquals(message, RenderedSize.of(expected).length(format), RenderedSize.of(actual).length(format));
+        }
+        assertEquals(message, expected.startsWithParagraph(), actual.startsWithParagraph());
+        assertEquals(message, expected.getLeadingParagraphs(), actual.getLeadingParagraphs());
+        assertEquals(message, expected.getBody(), actual.getBody());
+        assertEquals(message, expected.getNextItemOfSameHeirarchy(), actual.getNextItemOfSameHeirarchy());
+    }
+
+    //*************************************slice Tests*************************************\\
+
+    @Test public void testEveryRange() throws IOException, ConversionException {
+        for (Document document : implementations()) {
+            for (int from = 0; from <= ITEMS.length; from++) {
+                for (int to = from; to <= ITEMS.length; to++) {
+                    String message = document.getClass().getSimpleName() + " [" + from + ", " + to + ")";
+                    assertSameDocument(message, items(from, to), DocumentViews.slice(document, from, to));
+                }
+            }
+        }
+    }
+
+    @Test public void testSliceOfSlice() throws IOException, ConversionException {
+        for (Document document : implementations()) {
+            Document middle = DocumentViews.slice(document, 1, 4);
+            assertSameDocument(document.getClass().getSimpleName(), items(2, 4), DocumentViews.slice(middle, 1, 3));
+            assertTrue(DocumentViews.slice(middle, 3, 3).isEmpty());
+        }
+    }
+
+    @Test public void testViewKinds() throws IOException {
+        List<Document> documents = implementations();
+        assertTrue(DocumentViews.slice(CHAIN, 1, 3) instanceof SliceDocument);
+        assertTrue(DocumentViews.slice(documents.get(1), 1, 3) instanceof RopeDocument);
+        assertTrue(DocumentViews.slice(documents.get(2), 1, 3) instanceof FlatDocument);
+        assertTrue(DocumentViews.slice(documents.get(4), 1, 3) instanceof StoredDocument);
+        assertTrue(DocumentViews.slice(documents.get(6), 1, 3) instanceof SliceDocument);
+        // past the paragraphs of INTO_ROPE, the slice is one of the RopeDocument
+        assertTrue(DocumentViews.slice(INTO_ROPE, 2, 4) instanceof RopeDocument);
+    }
+
+    @Test public void testSharesNodes() {
+        SliceDocument slice = (SliceDocument) DocumentViews.slice(CHAIN, 1, 3);
+        Document second = CHAIN.getNextItemOfSameHeirarchy();
+        Section third = (Section) second.getNextItemOfSameHeirarchy();
+        assertSame(second, slice.first());
+        assertSame(third.getContents(), ((Section) DocumentViews.sectionAt(slice, "1")).getContents());
+    }
+
+    @Test public void testEmpty() {
+        assertTrue(DocumentViews.slice(empty(), 0, 0).isEmpty());
+        assertTrue(DocumentViews.slice(CHAIN, 2, 2).isEmpty());
+        assertTrue(DocumentViews.slice(CHAIN, ITEMS.length, ITEMS.length).isEmpty());
+    }
+
+    @Test public void testOutOfBounds() throws IOException {
+        int[][] ranges = { { -1, 0 }, { 2, 1 }, { 0, ITEMS.length + 1 }, { ITEMS.length + 1, ITEMS.length + 1 } };
+        for (Document document : implementations()) {
+            for (int[] range : ranges) {
+                try {
+                    DocumentViews.slice(document, range[0], range[1]);
+                    fail(document.getClass().getSimpleName() + " " + Arrays.toString(range));
+                } catch (IndexOutOfBoundsException ioobe) {
+                    // expected
+                }
+            }
+        }
+        try {
+            DocumentViews.slice(empty(), 0, 1);
+            fail("expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException ioobe) {
+            // expected
+        }
+    }
+
+    @Test public void testAppendAndRope() throws ConversionException {
+        Document slice = DocumentViews.slice(CHAIN, 1, 3);
+        Document more = section("s4", paragraph("four"));
+        assertSameDocument("append", items(1, 3).append(more), slice.append(more));
+        assertSame(slice, slice.append(empty()));
+        assertSameDocument("rope", items(1, 3), RopeDocument.of(slice));
+        assertSameDocument("flat", items(1, 3), FlatDocument.of(slice));
+    }
+
+    @Test public void testEventCursor() {
+        Document slice = DocumentViews.slice(CHAIN, 1, 4);
+        EventCursor mine = new EventCursor(slice);
+        EventCursor theirs = new EventCursor(items(1, 4));
+        for (int event = mine.next(); event != EventCursor.END; event = mine.next()) {
+            assertEquals(theirs.next(), event);
+            assertEquals(theirs.depth(), mine.depth());
+            assertEquals(theirs.text().toString(), mine.text().toString());
+        }
+        assertEquals(EventCursor.END, theirs.next());
+    }
+
+    //*************************************sectionAt Tests*************************************\\
+
+    @Test public void testSectionAt() throws IOException, ConversionException {
+        for (Document document : implementations()) {
+            String name = document.getClass().getSimpleName();
+            assertSameDocument(name, ITEMS[3], DocumentViews.sectionAt(document, "2"));
+            assertSameDocument(name, section("s2.1.1", paragraph("deep words here")),
+                    DocumentViews.sectionAt(document, 2, 1, 1));
+            Document slice = DocumentViews.slice(document, 3, 5);
+            assertSameDocument(name, ITEMS[4], DocumentViews.sectionAt(slice, "2."));
+            assertFalse(Outline.of(slice).contains("3"));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testSectionAtAbsent() {
+        DocumentViews.sectionAt(CHAIN, "4");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSectionAtMalformed() {
+        DocumentViews.sectionAt(CHAIN, "1..2");
+    }
+}
@@ -0,0 +1,43 @@
+package awedoctime;
+
+/**
+ * Receives the paragraphs and sections of a document in order, as
+ * EventCursor.visit walks it. The methods that are not overridden do
+ * nothing, so an analysis only needs to override the events it counts.
+ * <p>
+ * The text passed to each method is valid only until it returns: it may be
+ * a view the walk reuses for the next event, so a visitor that keeps it
+ * must copy it, e.g. with toString().
+ *
+ * @param <X> the checked exception the visitor may throw, such as the
+ *            IOException of an Appendable, or RuntimeException if none
+ */
+public interface DocumentVisitor<X extends Exception> {
+
+    /**
+     * Visits a paragraph
+     * @param text text of the paragraph
+     * @param depth number of sections enclosing it, 0 at the top level
+     * @throws X if the visitor fails, which ends the walk
+     */
+    default void paragraph(CharSequence text, int depth) throws X {
+    }
+
+    /**
+     * Visits the start of a section, before its contents
+     * @param heading heading of the section
+     * @param depth number of sections enclosing it, 0 at the top level
+     * @throws X if the visitor fails, which ends the walk
+     */
+    default void startSection(CharSequence heading, int depth) throws X {
+    }
+
+    /**
+     * Visits the end of a section, after its contents
+     * @param heading heading of the section
+     * @param depth number of sections enclosing it, as for startSection
+     * @throws X if the visitor fails, which ends the walk
+     */
+    default void endSection(CharSequence heading, int depth) throws X {
+    }
+}
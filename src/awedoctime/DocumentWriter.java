@@ -0,0 +1,348 @@
+package awedoctime;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes documents to a stream in the binary format of BinaryFormat, one
+ * after the other, as they are walked. Text is encoded to UTF-8 straight
+ * into an internal buffer, so writing does not allocate per paragraph
+ * (except for texts longer than the buffer).
+ * DocumentReader reads the documents back.
+ */
+public final class DocumentWriter implements Closeable, Flushable {
+    private static final int BUFFERSIZE = 8192;
+
+    private final OutputStream out;
+    private final int flags;
+    private final byte[] buffer = new byte[BUFFERSIZE];
+    private int length = 0;
+    private long written = 0;
+    private boolean started = false;
+    // sizes and word counts of the sections of the document being written,
+    // when flags has SIZES
+    private int[] sectionSizes = new int[0];
+    private int[] sectionWords = new int[0];
+
+    // Rep invariant:
+    //      0 <= length <= buffer.length
+    //      flags only has bits of BinaryFormat.ALL
+    //      written is the number of bytes written to out
+    // Abstraction function:
+    //      represents the stream written to out followed by buffer[0, length),
+    //      whose header has been written once started is true
+
+    /**
+     * Make a writer that writes documents without word counts nor
+     * fingerprints
+     * @param out stream to write to
+     */
+    public DocumentWriter(OutputStream out) {
+        this(out, false, false);
+    }
+
+    /**
+     * Make a writer
+     * @param out stream to write to
+     * @param wordCounts whether or not to write the word count of every
+     *        paragraph and section, so that reading does not count them again
+     * @param hashes whether or not to write the fingerprint of every section
+     *        and document, so that reading checks the document it reads
+     */
+    public DocumentWriter(OutputStream out, boolean wordCounts, boolean hashes) {
+        this(out, (wordCounts ? BinaryFormat.WORDCOUNTS : 0) | (hashes ? BinaryFormat.HASHES : 0));
+    }
+
+    /**
+     * Make a writer
+     * @param out stream to write to
+     * @param flags the BinaryFormat flags of the stream
+     */
+    DocumentWriter(OutputStream out, int flags) {
+        this.out = out;
+        this.flags = flags;
+    }
+
+    /**
+     * Writes document after the documents written before
+     * @param document a Paragraph, Section, Empty, RopeDocument,
+     *                 FlatDocument or StoredDocument, possibly nesting any
+     *                 of these
+     * @throws IOException if the stream throws
+     */
+    public void write(Document document) throws IOException {
+        if (!started) {
+            writeHeader();
+        }
+        boolean wordCounts = (flags & BinaryFormat.WORDCOUNTS) != 0;
+        boolean hashes = (flags & BinaryFormat.HASHES) != 0;
+        boolean sizes = (flags & BinaryFormat.SIZES) != 0;
+        if (sizes) {
+            measure(document, wordCounts, hashes);
+        }
+        int section = 0;
+        DocumentCursor cursor = new DocumentCursor(document);
+        for (int event = cursor.next(); event != DocumentCursor.END; event = cursor.next()) {
+            if (event == DocumentCursor.PARAGRAPH) {
+                String text = cursor.text();
+                writeByte(BinaryFormat.PARAGRAPH);
+                writeText(text);
+                if (wordCounts) {
+                    writeVarint(Paragraph.getWordCountInLIne(text));
+                }
+            } else if (event == DocumentCursor.START_SECTION) {
+                writeByte(BinaryFormat.SECTION);
+                writeText(cursor.text());
+                if (wordCounts || hashes) {
+                    Document contents = cursor.contents();
+                    if (wordCounts) {
+                        writeVarint(sizes ? sectionWords[section] : contents.bodyWordCount());
+                    }
+                    if (hashes) {
+                        writeLong(Fingerprint.of(contents));
+                    }
+                }
+                if (sizes) {
+                    writeVarint(sectionSizes[section]);
+                }
+                section++;
+            } else {
+                writeByte(BinaryFormat.END_SECTION);
+            }
+        }
+        writeByte(BinaryFormat.END);
+        if (hashes) {
+            writeLong(Fingerprint.of(document));
+        }
+    }
+
+    /**
+     * @return the offset in the stream at which the next document written
+     *         starts
+     */
+    long position() {
+        return written + length + (started ? 0 : BinaryFormat.MAGIC.length + 2);
+    }
+
+    /**
+     * Ends the stream with an index of the documents written
+     * @param offsets the positions at which documents were written
+     * @param count the number of documents written
+     * @throws IOException if the stream throws
+     */
+    void writeIndex(long[] offsets, int count) throws IOException {
+        if (!started) {
+            writeHeader();
+        }
+        writeByte(BinaryFormat.INDEX);
+        for (int i = 0; i < count; i++) {
+            writeLong(offsets[i]);
+        }
+        writeLong(count);
+        for (byte b : BinaryFormat.MAGIC) {
+            writeByte(b);
+        }
+    }
+
+    /**
+     * Fills sectionSizes and sectionWords with the size in bytes of the
+     * items and the word count of every section of document, in the order
+     * in which write meets them, in one walk of document
+     */
+    private void measure(Document document, boolean wordCounts, boolean hashes) throws IOException {
+        int sections = 0;
+        // bytes[d] is the size of the items written so far at depth d;
+        // open[d] is the section at depth d that contains them and
+        // headers[d] the size of its header without its size
+        long[] bytes = new long[8];
+        int[] open = new int[8];
+        long[] headers = new long[8];
+        int[] words = new int[8];
+        DocumentCursor cursor = new DocumentCursor(document);
+        for (int event = cursor.next(); event != DocumentCursor.END; event = cursor.next()) {
+            int depth = cursor.depth();
+            if (depth + 1 >= bytes.length) {
+                bytes = Arrays.copyOf(bytes, 2 * (depth + 1));
+                open = Arrays.copyOf(open, bytes.length);
+                headers = Arrays.copyOf(headers, bytes.length);
+                words = Arrays.copyOf(words, bytes.length);
+            }
+            if (event == DocumentCursor.PARAGRAPH) {
+                String text = cursor.text();
+                int paragraphWords = Paragraph.getWordCountInLIne(text);
+                words[depth] += paragraphWords;
+                bytes[depth] += 1 + textLength(text) + (wordCounts ? varintLength(paragraphWords) : 0);
+            } else if (event == DocumentCursor.START_SECTION) {
+                if (sections == sectionSizes.length) {
+                    sectionSizes = Arrays.copyOf(sectionSizes, Math.max(16, 2 * sections));
+                    sectionWords = Arrays.copyOf(sectionWords, sectionSizes.length);
+                }
+                open[depth] = sections++;
+                headers[depth] = 1 + textLength(cursor.text()) + (hashes ? 8 : 0);
+                bytes[depth + 1] = 0;
+                words[depth + 1] = 0;
+            } else {
+                long size = bytes[depth + 1];
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException("section is too large");
+                }
+                int section = open[depth];
+                sectionSizes[section] = (int) size;
+                sectionWords[section] = words[depth + 1];
+                words[depth] += words[depth + 1];
+                bytes[depth] += headers[depth] + (wordCounts ? varintLength(words[depth + 1]) : 0)
+                        + varintLength((int) size) + size + 1;
+            }
+        }
+    }
+
+    /**
+     * Writes what is buffered to the stream and flushes it
+     * @throws IOException if the stream throws
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    /**
+     * Writes what is buffered to the stream and closes it. A stream closed
+     * before any document was written still gets its header, so it reads as
+     * a stream of no documents.
+     * @throws IOException if the stream throws
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!started) {
+                writeHeader();
+            }
+            drain();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        started = true;
+        for (byte b : BinaryFormat.MAGIC) {
+            writeByte(b);
+        }
+        writeByte(BinaryFormat.VERSION);
+        writeByte(flags);
+    }
+
+    private void writeByte(int b) throws IOException {
+        if (length == buffer.length) {
+            drain();
+        }
+        buffer[length++] = (byte) b;
+    }
+
+    private void writeVarint(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        writeByte(value);
+    }
+
+    private void writeLong(long value) throws IOException {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            writeByte((int) (value >>> shift));
+        }
+    }
+
+    /**
+     * Writes the UTF-8 length of text and then text as UTF-8. As
+     * String.getBytes does, an unpaired surrogate is written as '?'.
+     */
+    private void writeText(String text) throws IOException {
+        int bytes = utf8Length(text);
+        writeVarint(bytes);
+        if (bytes > buffer.length - length) {
+            drain();
+        }
+        if (bytes > buffer.length) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+            written += bytes;
+            return;
+        }
+        int end = length;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                buffer[end++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[end++] = (byte) (0xC0 | (c >> 6));
+                buffer[end++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                buffer[end++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[end++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[end++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[end++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer[end++] = '?';
+            } else {
+                buffer[end++] = (byte) (0xE0 | (c >> 12));
+                buffer[end++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[end++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        length = end;
+    }
+
+    /**
+     * @return the number of bytes writeText writes for text, without its length
+     */
+    private static int utf8Length(String text) {
+        int bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                bytes += 1;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the number of bytes writeText writes for text, with its length
+     */
+    private static int textLength(String text) {
+        int bytes = utf8Length(text);
+        return varintLength(bytes) + bytes;
+    }
+
+    private static int varintLength(int value) {
+        int bytes = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            bytes++;
+        }
+        return bytes;
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer, 0, length);
+        written += length;
+        length = 0;
+    }
+}
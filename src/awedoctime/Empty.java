@@ -1,10 +1,8 @@
 package awedoctime;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
-public class Empty implements Document {
+public class Empty implements Aggregated {
     // Rep invariant:
     //      cannot contain another document
     // Abstraction function: 
@@ -81,9 +79,7 @@ public class Empty implements Document {
      */
     @Override
     public Document tableOfContents() {
-        Integer[] levelArray = new Integer[] { 1 };
-        List<Integer> level = new ArrayList<Integer>(Arrays.asList(levelArray));
-        return createDocumentLevel(level);
+        return TableOfContentsBuilder.build(this);
     }
     
     /**
@@ -96,7 +92,7 @@ public class Empty implements Document {
      */
     @Override
     public Document createDocumentLevel(List<Integer> contentLevel) {
-        return new Empty();
+        return TableOfContentsBuilder.build(this, contentLevel);
     }
     
     /**
@@ -113,11 +109,7 @@ public class Empty implements Document {
      */
     @Override
     public String toLaTeX() throws ConversionException {
-        String start = "\\documentclass{article}" 
-                     + "\n" + "\\begin{document}";
-        String end   = "\n" + "\\end{document}";
-        int firstLevel = 1;
-        return start + toLaTexHelper(firstLevel) + end;
+        return DocumentRenderer.toLaTeX(this);
     }
     
     /** 
@@ -166,15 +158,7 @@ public class Empty implements Document {
      * @throws ConversionException if the document cannot be converted
      */
     public String toHTML() throws ConversionException{
-        String header ="<html lang = \"en\">"
-                + "\n" + "<head>" 
-                + "\n" + "<title>The Title</title>"
-                + "\n" + "</head>"
-                + "\n" + "<body>";
-        
-        String closer = "\n"+ "</body>" + "\n" + "</html>";
-        int firstLevel = 1;
-        return header + toHTMLHelper(firstLevel) + closer;
+        return DocumentRenderer.toHTML(this);
     }
     
     @Override
@@ -214,13 +198,70 @@ public class Empty implements Document {
     public int hashCode() {
         return 0;
     }
-    
+
+    /**
+     * @return the structural fingerprint of empty, see Fingerprint
+     */
+    public long fingerprint() {
+        return Fingerprint.EMPTY;
+    }
+
+    /**
+     * @return 0, as empty has no section; see Depth
+     */
+    public int maxDepth() {
+        return 0;
+    }
+
+    /**
+     * @return 0, as empty has no section; see Depth
+     */
+    public int htmlLevels() {
+        return 0;
+    }
+
+    /**
+     * @return the size of empty rendered in every format, see RenderedSize
+     */
+    public RenderedSize renderedSize() {
+        return RenderedSize.EMPTY;
+    }
+
+    /**
+     * @return the outline of empty, which has no section; see Outline
+     */
+    public Outline outline() {
+        return Outline.EMPTY;
+    }
+
+    /**
+     * @param from 0
+     * @param to 0
+     * @return empty, the only slice of empty
+     * @throws IndexOutOfBoundsException unless from and to are 0
+     */
+    public Empty slice(int from, int to) {
+        if (from != 0 || to != 0) {
+            throw DocumentViews.outOfBounds(from, to);
+        }
+        return this;
+    }
+
+    /**
+     * @param format format to convert empty to
+     * @return true, as empty can be converted to every format
+     */
+    public boolean canConvert(OutputFormat format) {
+        return true;
+    }
+
     /**
-     * @return if other is an Empty
+     * @return if other is an Empty or an empty RopeDocument, FlatDocument
+     *         or StoredDocument
      */
     @Override
     public boolean equals(Object other) {
-        return (other instanceof Empty);               
+        return other instanceof Aggregated && ((Document) other).isEmpty();
     }
 
     @Override
@@ -0,0 +1,161 @@
+package awedoctime;
+
+import java.io.IOException;
+
+/**
+ * Escapes text for one output format using a lookup table precomputed per
+ * format, so escaping never allocates per character. Text is scanned
+ * first: when nothing needs escaping it is returned or appended untouched,
+ * and otherwise unescaped runs are appended in bulk between replacements.
+ */
+public final class Escaper {
+    static final String ESCAPELATEX = "&%$#~_^\\{}";
+    static final String ESCAPEMARKDOWN = "\\`*_{}[]()#+-.!";
+    static final String ESCAPEHTML = "<>&\"";
+
+    /** Backslash before every character of ESCAPELATEX */
+    public static final Escaper LATEX = backslash(ESCAPELATEX);
+    /** Backslash before every character of ESCAPEMARKDOWN */
+    public static final Escaper MARKDOWN = backslash(ESCAPEMARKDOWN);
+    /** Entities for the characters of ESCAPEHTML */
+    public static final Escaper HTML = new Escaper(ESCAPEHTML,
+            new String[] { "&lt", "&gt", "&amp", "&quot" });
+
+    // every escaped character is ASCII, so the table only covers ASCII
+    private static final int TABLESIZE = 128;
+
+    // Rep invariant:
+    //      replacements.length == TABLESIZE
+    // Abstraction function:
+    //      represents the escaping that replaces every character c with
+    //      replacements[c] when c < TABLESIZE and replacements[c] != null,
+    //      and leaves every other character as it is
+    private final String[] replacements;
+
+    /**
+     * @param characters the characters to escape
+     * @param escapes escapes[i] replaces characters.charAt(i)
+     */
+    private Escaper(String characters, String[] escapes) {
+        this.replacements = new String[TABLESIZE];
+        for (int i = 0; i < characters.length(); i++) {
+            replacements[characters.charAt(i)] = escapes[i];
+        }
+    }
+
+    /**
+     * @param escapeString a string of characters that need to be escaped
+     * in a specific document format
+     * @return an Escaper that puts a backslash before those characters
+     */
+    private static Escaper backslash(String escapeString) {
+        String[] escapes = new String[escapeString.length()];
+        for (int i = 0; i < escapeString.length(); i++) {
+            escapes[i] = "\\" + escapeString.charAt(i);
+        }
+        return new Escaper(escapeString, escapes);
+    }
+
+    /**
+     * @param text any text
+     * @param from index of text to start scanning at
+     * @return the index of the first character of text at or after from that
+     *         needs escaping, or text.length() if there is none
+     */
+    int firstEscaped(CharSequence text, int from) {
+        for (int i = from; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < TABLESIZE && replacements[c] != null) {
+                return i;
+            }
+        }
+        return text.length();
+    }
+
+    /**
+     * @param text any text
+     * @return text escaped for this format; text itself when nothing in it
+     *         needs escaping
+     */
+    public String escape(String text) {
+        int first = firstEscaped(text, 0);
+        if (first == text.length()) {
+            return text;
+        }
+        StringBuilder sb = new StringBuilder(text.length() + 16);
+        try {
+            escape(text, first, sb);
+        } catch (IOException ioe) {
+            throw new AssertionError("StringBuilder does not throw IOException", ioe);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Appends text escaped for this format to out
+     * @param text any text
+     * @param out destination of the escaped text
+     * @throws IOException if out throws
+     */
+    public void escape(CharSequence text, Appendable out) throws IOException {
+        int first = firstEscaped(text, 0);
+        if (first == text.length()) {
+            out.append(text);
+            return;
+        }
+        escape(text, first, out);
+    }
+
+    /**
+     * @param c any character
+     * @return the number of chars escaping adds for c: the length of its
+     *         replacement minus 1, or 0 when c is not escaped
+     */
+    int extraLength(char c) {
+        return c < TABLESIZE && replacements[c] != null ? replacements[c].length() - 1 : 0;
+    }
+
+    /**
+     * Undoes escape in place for an Escaper that puts a backslash before
+     * characters, such as LATEX and MARKDOWN: a backslash followed by a
+     * character this escapes becomes that character, and any other
+     * backslash stays as it is.
+     * @param chars buffer holding the escaped text at [start, end), which is
+     *        replaced by the unescaped text at [start, returned end)
+     * @return the end of the unescaped text
+     * @throws UnsupportedOperationException if this does not escape with
+     *         backslashes
+     */
+    int unescape(char[] chars, int start, int end) {
+        if (replacements['\\'] == null || !replacements['\\'].equals("\\\\")) {
+            throw new UnsupportedOperationException("not a backslash escaper");
+        }
+        int to = start;
+        for (int from = start; from < end; from++) {
+            char c = chars[from];
+            if (c == '\\' && from + 1 < end && chars[from + 1] < TABLESIZE
+                    && replacements[chars[from + 1]] != null) {
+                c = chars[++from];
+            }
+            chars[to++] = c;
+        }
+        return to;
+    }
+
+    /**
+     * Appends text escaped for this format to out, knowing that first is
+     * the index of its first character that needs escaping, or
+     * text.length() if none does
+     */
+    void escape(CharSequence text, int first, Appendable out) throws IOException {
+        int start = 0;
+        int escaped = first;
+        while (escaped < text.length()) {
+            out.append(text, start, escaped);
+            out.append(replacements[text.charAt(escaped)]);
+            start = escaped + 1;
+            escaped = firstEscaped(text, start);
+        }
+        out.append(text, start, text.length());
+    }
+}
@@ -0,0 +1,50 @@
+package awedoctime;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class EscaperTest {
+
+    // Methods: escape(String), escape(CharSequence, Appendable)
+    // Partition:
+    // text: empty, nothing to escape, only escaped characters,
+    //       escaped characters at start/middle/end, non-ASCII characters
+    // Escaper: LATEX, MARKDOWN, HTML
+
+    @Test public void testNothingToEscapeReturnsSameString() {
+        String text = "Nothing to see here, \u00e9\u00fc";
+        assertSame(text, Escaper.LATEX.escape(text));
+        assertSame(text, Escaper.MARKDOWN.escape(text));
+        assertSame(text, Escaper.HTML.escape(text));
+        assertEquals("", Escaper.HTML.escape(""));
+    }
+
+    @Test public void testEscapeLaTeX() {
+        assertEquals("\\& \\% \\$ \\# \\~ \\_ \\^ \\\\ \\{ \\}",
+                Escaper.LATEX.escape("& % $ # ~ _ ^ \\ { }"));
+        assertEquals("a \\& b", Escaper.LATEX.escape("a & b"));
+    }
+
+    @Test public void testEscapeMarkdown() {
+        assertEquals("\\\\ \\` \\* \\_ \\{ \\} \\[ \\] \\( \\) \\# \\+ \\- \\. \\!",
+                Escaper.MARKDOWN.escape("\\ ` * _ { } [ ] ( ) # + - . !"));
+        assertEquals("\\#\\#", Escaper.MARKDOWN.escape("##"));
+    }
+
+    @Test public void testEscapeHTML() {
+        assertEquals("&amp &lt &gt &quot", Escaper.HTML.escape("& < > \""));
+        assertEquals("&ltb&gtbold&lt/b&gt", Escaper.HTML.escape("<b>bold</b>"));
+        assertEquals("#1 \u00e9", Escaper.HTML.escape("#1 \u00e9"));
+    }
+
+    @Test public void testEscapeToAppendable() throws IOException {
+        StringBuilder sb = new StringBuilder("start:");
+        Escaper.LATEX.escape("50% of {x}", sb);
+        Escaper.LATEX.escape(new StringBuilder("plain"), sb);
+
+        assertEquals("start:50\\% of \\{x\\}plain", sb.toString());
+    }
+}
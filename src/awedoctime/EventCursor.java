@@ -0,0 +1,121 @@
+package awedoctime;
+
+/**
+ * A public, pull-style walk of a document as a sequence of events, for
+ * single-pass analyses and exporters over large documents: the start of
+ * each section, each paragraph, and the end of each section, in document
+ * order, each with its depth and its text.
+ * <p>
+ * Moving to the next event allocates nothing: the walk keeps its pending
+ * work on an explicit stack, and text() is the String of a Paragraph or
+ * Section, or, for a FlatDocument or StoredDocument, a view of the text in
+ * place that the cursor reuses for every event. That view is valid only
+ * until the next call to next(); copy it with toString() to keep it.
+ * <p>
+ * visit(Document, DocumentVisitor) is the same walk pushed to a visitor.
+ */
+public final class EventCursor {
+    /** No more events */
+    public static final int END = DocumentCursor.END;
+    /** A paragraph; text() is its text */
+    public static final int PARAGRAPH = DocumentCursor.PARAGRAPH;
+    /** The start of a section, before its contents; text() is its heading */
+    public static final int START_SECTION = DocumentCursor.START_SECTION;
+    /** The end of a section, after its contents; text() is its heading */
+    public static final int END_SECTION = DocumentCursor.END_SECTION;
+
+    private final DocumentCursor cursor;
+    private boolean started = false;
+
+    // Rep invariant:
+    //      cursor is not null
+    //      started is true once next() has been called
+    // Abstraction function:
+    //      represents the position of cursor in the walk of a document,
+    //      before its first event when started is false
+
+    /**
+     * Make a cursor positioned before the first event of document
+     * @param document a Paragraph, Section, Empty, RopeDocument,
+     *                 FlatDocument, StoredDocument or SliceDocument,
+     *                 possibly nesting any of these
+     * @throws IllegalArgumentException if document is another implementation
+     *         of Document
+     */
+    public EventCursor(Document document) {
+        if (!(document instanceof Aggregated)) {
+            throw new IllegalArgumentException("cannot walk " + document.getClass().getName());
+        }
+        this.cursor = new DocumentCursor(document);
+    }
+
+    /**
+     * Moves to the next event
+     * @return the new event: PARAGRAPH, START_SECTION, END_SECTION, or END
+     *         once the whole document has been visited, and from then on
+     */
+    public int next() {
+        started = true;
+        return cursor.next();
+    }
+
+    /**
+     * @return the current event, END before the first call to next()
+     */
+    public int event() {
+        return cursor.event();
+    }
+
+    /**
+     * @return the number of sections enclosing the current event; the
+     *         START_SECTION and END_SECTION events of a top-level section
+     *         are at depth 0 and its contents at depth 1
+     */
+    public int depth() {
+        return cursor.depth();
+    }
+
+    /**
+     * @return the text of the current paragraph or the heading of the
+     *         section of the current START_SECTION or END_SECTION event,
+     *         valid until the next call to next()
+     * @throws IllegalStateException if the current event is END
+     */
+    public CharSequence text() {
+        if (cursor.event() == END) {
+            throw new IllegalStateException(started ? "after the last event" : "before the first event");
+        }
+        return cursor.textView();
+    }
+
+    /**
+     * Skips the contents of the section of the current START_SECTION event,
+     * so that the next event is its END_SECTION
+     * @throws IllegalStateException if the current event is not
+     *         START_SECTION
+     */
+    public void skipContents() {
+        cursor.skipContents();
+    }
+
+    /**
+     * Walks document once, passing each of its events to visitor in order
+     * @param document as for EventCursor(Document)
+     * @param visitor visitor of the paragraphs and sections of document
+     * @throws IllegalArgumentException if document is another implementation
+     *         of Document
+     * @throws X if visitor throws, which ends the walk
+     */
+    public static <X extends Exception> void visit(Document document, DocumentVisitor<X> visitor) throws X {
+        EventCursor cursor = new EventCursor(document);
+        for (int event = cursor.next(); event != END; event = cursor.next()) {
+            if (event == PARAGRAPH) {
+                visitor.paragraph(cursor.text(), cursor.depth());
+            } else if (event == START_SECTION) {
+                visitor.startSection(cursor.text(), cursor.depth());
+            } else {
+                visitor.endSection(cursor.text(), cursor.depth());
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package awedoctime;
+
+import static awedoctime.Document.empty;
+import static awedoctime.Document.paragraph;
+import static awedoctime.Document.section;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class EventCursorTest {
+
+    // Methods: next, event, depth, text, skipContents, visit
+    // Partition:
+    // Document empty, paragraphs only, nested sections, empty sections
+    // Implementation Paragraph/Section chain, RopeDocument, FlatDocument
+    //          and its views, StoredDocument and its views, SliceDocument
+    // Text ASCII, non-ASCII of 2, 3 and 4 bytes in UTF-8
+    //
+    // Every implementation must give the same events, depths and texts
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final Document CHAIN = paragraph("p0 caf\u00e9")
+            .append(section("s1 \u20ac", paragraph("p1").append(section("s2", paragraph("p2 \ud83d\ude00")))))
+            .append(section("s3", empty()))
+            .append(paragraph("p4"));
+
+    private static final int[] EVENTS = { EventCursor.PARAGRAPH, EventCursor.START_SECTION,
+            EventCursor.PARAGRAPH, EventCursor.START_SECTION, EventCursor.PARAGRAPH, EventCursor.END_SECTION,
+            EventCursor.END_SECTION, EventCursor.START_SECTION, EventCursor.PARAGRAPH,
+            EventCursor.END_SECTION };
+    private static final int[] DEPTHS = { 0, 0, 1, 1, 2, 1, 0, 0, 1, 0 };
+    private static final String[] TEXTS = { "p0 caf\u00e9", "s1 \u20ac", "p1", "s2", "p2 \ud83d\ude00", "s2",
+            "s1 \u20ac", "s3", "p4", "s3" };
+
+    /**
+     * @return CHAIN as every implementation of Document
+     */
+    private List<Document> implementations() throws IOException {
+        return DocumentFixtures.implementations(CHAIN, folder);
+    }
+
+    /**
+     * A visitor that records every event as a String
+     */
+    private static final class Recorder implements DocumentVisitor<RuntimeException> {
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void paragraph(CharSequence text, int depth) {
+            events.add("p " + depth + " " + text);
+        }
+
+        @Override
+        public void startSection(CharSequence heading, int depth) {
+            events.add("start " + depth + " " + heading);
+        }
+
+        @Override
+        public void endSection(CharSequence heading, int depth) {
+            events.add("end " + depth + " " + heading);
+        }
+    }
+
+    //*************************************next Tests*************************************\\
+
+    @Test public void testEmpty() {
+        EventCursor cursor = new EventCursor(empty());
+        assertEquals(EventCursor.END, cursor.event());
+        assertEquals(EventCursor.END, cursor.next());
+        assertEquals(EventCursor.END, cursor.next());
+    }
+
+    @Test public void testEveryImplementation() throws IOException {
+        for (Document document : implementations()) {
+            String name = document.getClass().getSimpleName();
+            EventCursor cursor = new EventCursor(document);
+            for (int i = 0; i < EVENTS.length; i++) {
+                assertEquals(name + " " + i, EVENTS[i], cursor.next());
+                assertEquals(name + " " + i, EVENTS[i], cursor.event());
+                assertEquals(name + " " + i, DEPTHS[i], cursor.depth());
+                CharSequence text = cursor.text();
+                assertEquals(name + " " + i, TEXTS[i], text.toString());
+                assertEquals(name + " " + i, TEXTS[i].length(), text.length());
+                assertEquals(name + " " + i, TEXTS[i].charAt(0), text.charAt(0));
+            }
+            assertEquals(name, EventCursor.END, cursor.next());
+        }
+    }
+
+    //*************************************text Tests*************************************\\
+
+    @Test public void testFlatTextIsReusedView() {
+        EventCursor cursor = new EventCursor(FlatDocument.of(CHAIN));
+        cursor.next();
+        CharSequence first = cursor.text();
+        String copy = first.toString();
+        cursor.next();
+        CharSequence second = cursor.text();
+
+        assertSame(first, second);
+        assertEquals("s1 \u20ac", second.toString());
+        assertEquals("p0 caf\u00e9", copy);
+    }
+
+    @Test public void testStoredTextIsReusedView() throws IOException {
+        EventCursor cursor = new EventCursor(implementations().get(4));
+        cursor.next();
+        CharSequence first = cursor.text();
+        cursor.next();
+
+        assertSame(first, cursor.text());
+        assertEquals("s1 \u20ac", cursor.text().toString());
+        assertEquals("\u20ac", cursor.text().subSequence(3, 4).toString());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testViewBounds() {
+        EventCursor cursor = new EventCursor(FlatDocument.of(CHAIN));
+        cursor.next();
+        cursor.text().charAt("p0 caf\u00e9".length());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testTextBeforeFirstEvent() {
+        new EventCursor(CHAIN).text();
+    }
+
+    //*************************************skipContents Tests*************************************\\
+
+    @Test public void testSkipContents() throws IOException {
+        for (Document document : implementations()) {
+            String name = document.getClass().getSimpleName();
+            EventCursor cursor = new EventCursor(document);
+            assertEquals(name, EventCursor.PARAGRAPH, cursor.next());
+            assertEquals(name, EventCursor.START_SECTION, cursor.next());
+            cursor.skipContents();
+            assertEquals(name, EventCursor.END_SECTION, cursor.next());
+            assertEquals(name, "s1 \u20ac", cursor.text().toString());
+            assertEquals(name, EventCursor.START_SECTION, cursor.next());
+            assertEquals(name, "s3", cursor.text().toString());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSkipContentsOfParagraph() {
+        EventCursor cursor = new EventCursor(CHAIN);
+        cursor.next();
+        cursor.skipContents();
+    }
+
+    //*************************************visit Tests*************************************\\
+
+    @Test public void testVisit() throws IOException {
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < EVENTS.length; i++) {
+            String kind = EVENTS[i] == EventCursor.PARAGRAPH ? "p"
+                    : EVENTS[i] == EventCursor.START_SECTION ? "start" : "end";
+            expected.add(kind + " " + DEPTHS[i] + " " + TEXTS[i]);
+        }
+        for (Document document : implementations()) {
+            Recorder recorder = new Recorder();
+            EventCursor.visit(document, recorder);
+            assertEquals(document.getClass().getSimpleName(), expected, recorder.events);
+        }
+    }
+
+    @Test public void testVisitDefaultsAndChecked() {
+        StringBuilder out = new StringBuilder();
+        EventCursor.visit(CHAIN, new DocumentVisitor<RuntimeException>() {
+            @Override
+            public void paragraph(CharSequence text, int depth) {
+                out.append(text).append(';');
+            }
+        });
+        assertEquals("p0 caf\u00e9;p1;p2 \ud83d\ude00;p4;", out.toString());
+
+        try {
+            EventCursor.visit(CHAIN, new DocumentVisitor<IOException>() {
+                @Override
+                public void startSection(CharSequence heading, int depth) throws IOException {
+                    throw new IOException(heading.toString());
+                }
+            });
+            fail("expected IOException");
+        } catch (IOException ioe) {
+            assertEquals("s1 \u20ac", ioe.getMessage());
+        }
+    }
+}
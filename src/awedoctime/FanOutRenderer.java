@@ -0,0 +1,157 @@
+package awedoctime;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+import awedoctime.Document.ConversionException;
+
+/**
+ * Renders a document into several output formats at once, in one walk of
+ * the document instead of one per format. Each text is scanned once for
+ * the characters any of the formats escapes, and a format in which none
+ * of them needs escaping gets the text appended as it is.
+ * <p>
+ * A format the document cannot be converted to, such as LaTeX for sections
+ * nested 4 deep, is reported with its ConversionException while the other
+ * formats are rendered as usual. That failure is found before the walk,
+ * so nothing is written to the destination of a failing format.
+ */
+public final class FanOutRenderer {
+
+    // the formats that escape each ASCII character, one bit per ordinal
+    private static final int[] ESCAPEDIN = new int[128];
+    static {
+        for (char c = 0; c < ESCAPEDIN.length; c++) {
+            for (OutputFormat format : OutputFormat.values()) {
+                if (DocumentRenderer.escaper(format).extraLength(c) > 0) {
+                    ESCAPEDIN[c] |= 1 << format.ordinal();
+                }
+            }
+        }
+    }
+
+    private FanOutRenderer() {
+    }
+
+    /**
+     * Writes document in each format of outs to the Appendable of that
+     * format, with the same text as document.toLaTeX(), toMarkdown() or
+     * toHTML() returns, walking document once
+     * @param document document to render
+     * @param outs the destination of the rendered text of each format to
+     *        render document in
+     * @return the ConversionException of each format of outs document cannot
+     *         be converted to, whose destination is left untouched; empty
+     *         when every format was rendered
+     * @throws IOException if one of outs throws, which ends the rendering
+     *         in every format
+     */
+    public static Map<OutputFormat, ConversionException> render(Document document,
+            Map<OutputFormat, ? extends Appendable> outs) throws IOException {
+        Map<OutputFormat, ConversionException> failures = new EnumMap<OutputFormat, ConversionException>(
+                OutputFormat.class);
+        Appendable[] sinks = new Appendable[OutputFormat.values().length];
+        for (Map.Entry<OutputFormat, ? extends Appendable> out : outs.entrySet()) {
+            try {
+                DocumentRenderer.checkDepth(document, out.getKey(), 1);
+                sinks[out.getKey().ordinal()] = out.getValue();
+            } catch (ConversionException ce) {
+                failures.put(out.getKey(), ce);
+            }
+        }
+        try {
+            render(document, sinks);
+        } catch (ConversionException ce) {
+            throw new AssertionError("checkDepth finds every ConversionException first", ce);
+        }
+        return failures;
+    }
+
+    /**
+     * Writes document in every format whose ordinal has a non-null sink to
+     * that sink, with its preamble or header
+     * @throws ConversionException if a section is too deep for a format,
+     *         which checkDepth has ruled out
+     */
+    private static void render(Document document, Appendable[] sinks) throws ConversionException, IOException {
+        OutputFormat[] formats = OutputFormat.values();
+        int[] firstEscaped = new int[formats.length];
+        // levels[d] is the HTML level of the next item at depth d, as in
+        // DocumentRenderer.renderHTML
+        int[] levels = new int[8];
+        levels[0] = 1;
+        Appendable html = sinks[OutputFormat.HTML.ordinal()];
+
+        for (OutputFormat format : formats) {
+            if (sinks[format.ordinal()] != null) {
+                DocumentRenderer.renderStart(format, sinks[format.ordinal()]);
+            }
+        }
+        DocumentCursor cursor = new DocumentCursor(document);
+        for (int event = cursor.next(); event != DocumentCursor.END; event = cursor.next()) {
+            int depth = cursor.depth();
+            if (event == DocumentCursor.END_SECTION) {
+                if (html != null) {
+                    DocumentRenderer.renderSectionEnd(OutputFormat.HTML, levels[depth], html);
+                }
+                continue;
+            }
+            CharSequence text = cursor.textView();
+            scan(text, firstEscaped);
+            for (OutputFormat format : formats) {
+                Appendable out = sinks[format.ordinal()];
+                if (out == null) {
+                    continue;
+                }
+                int first = firstEscaped[format.ordinal()];
+                if (event == DocumentCursor.PARAGRAPH) {
+                    DocumentRenderer.renderParagraph(format, text, first, out);
+                } else {
+                    int level = format == OutputFormat.HTML ? levels[depth] : 1 + depth;
+                    DocumentRenderer.renderSectionStart(format, text, first, level, out);
+                }
+            }
+            if (event == DocumentCursor.PARAGRAPH) {
+                levels[depth]++;
+            } else {
+                if (depth + 1 == levels.length) {
+                    levels = Arrays.copyOf(levels, 2 * levels.length);
+                }
+                levels[depth + 1] = levels[depth] + 1;
+            }
+        }
+        for (OutputFormat format : formats) {
+            if (sinks[format.ordinal()] != null) {
+                DocumentRenderer.renderEnd(format, sinks[format.ordinal()]);
+            }
+        }
+    }
+
+    /**
+     * Sets firstEscaped[f] to the index of the first char of text the
+     * format of ordinal f escapes, or text.length() if there is none, in
+     * one pass over text
+     */
+    private static void scan(CharSequence text, int[] firstEscaped) {
+        int length = text.length();
+        Arrays.fill(firstEscaped, length);
+        int all = (1 << firstEscaped.length) - 1;
+        int found = 0;
+        for (int i = 0; i < length && found != all; i++) {
+            char c = text.charAt(i);
+            if (c < ESCAPEDIN.length) {
+                int formats = ESCAPEDIN[c] & ~found;
+                if (formats != 0) {
+                    found |= formats;
+                    for (int f = 0; f < firstEscaped.length; f++) {
+                        if ((formats & 1 << f) != 0) {
+                            firstEscaped[f] = i;
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
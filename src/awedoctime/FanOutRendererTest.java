@@ -0,0 +1,132 @@
+package awedoctime;
+
+import static awedoctime.Document.empty;
+import static awedoctime.Document.paragraph;
+import static awedoctime.Document.section;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import awedoctime.Document.ConversionException;
+
+public class FanOutRendererTest {
+
+    // Methods: render
+    // Partition:
+    // Document empty, paragraphs only, nested sections, sections after
+    //          paragraphs, too deep for LaTeX, too deep for every format
+    // Text plain, escaped in one, two or all formats
+    // Formats none, one, all
+    // Implementation Paragraph/Section chain, RopeDocument, FlatDocument,
+    //          StoredDocument
+    //
+    // The text of each format must be that of toLaTeX, toMarkdown or toHTML
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final Document CHAIN = paragraph("plain")
+            .append(paragraph("a & b \\ *c* <d> \"e\" #f caf\u00e9"))
+            .append(section("s1 _x_", paragraph("p1").append(section("s2 <y>", paragraph("p2 $5")))))
+            .append(section("s3", empty()))
+            .append(paragraph("p4 [z]"));
+
+    private static final Document FOURDEEP = paragraph("p")
+            .append(section("1", section("2", section("3", section("4", paragraph("deep"))))));
+
+    /**
+     * @return an Appendable for every format
+     */
+    private static Map<OutputFormat, StringBuilder> allFormats() {
+        Map<OutputFormat, StringBuilder> outs = new EnumMap<OutputFormat, StringBuilder>(OutputFormat.class);
+        for (OutputFormat format : OutputFormat.values()) {
+            outs.put(format, new StringBuilder());
+        }
+        return outs;
+    }
+
+    /**
+     * @return document rendered in format by toLaTeX, toMarkdown or toHTML
+     */
+    private static String expected(Document document, OutputFormat format) throws ConversionException {
+        return format == OutputFormat.LATEX ? document.toLaTeX()
+                : format == OutputFormat.MARKDOWN ? document.toMarkdown() : document.toHTML();
+    }
+
+    /**
+     * Asserts that document renders in every format as expected, with no
+     * failure
+     */
+    private static void assertRenders(Document document) throws ConversionException, IOException {
+        Map<OutputFormat, StringBuilder> outs = allFormats();
+        assertTrue(FanOutRenderer.render(document, outs).isEmpty());
+        for (OutputFormat format : OutputFormat.values()) {
+            assertEquals(format.toString(), expected(document, format), outs.get(format).toString());
+        }
+    }
+
+    //*************************************render Tests*************************************\\
+
+    @Test public void testEmpty() throws ConversionException, IOException {
+        assertRenders(empty());
+        assertTrue(FanOutRenderer.render(CHAIN, new EnumMap<OutputFormat, StringBuilder>(OutputFormat.class))
+                .isEmpty());
+    }
+
+    @Test public void testAllFormats() throws ConversionException, IOException {
+        assertRenders(paragraph("one"));
+        assertRenders(CHAIN);
+        assertRenders(section("1", section("2", section("3", paragraph("deepest")))).append(section("1b", empty())));
+    }
+
+    @Test public void testImplementations() throws ConversionException, IOException {
+        Path file = folder.newFile().toPath();
+        DocumentStore.write(file, Arrays.asList(CHAIN));
+        assertRenders(RopeDocument.of(CHAIN).append(RopeDocument.of(section("more", paragraph("x & y")))));
+        assertRenders(FlatDocument.of(CHAIN));
+        assertRenders(DocumentStore.open(file).get(0));
+    }
+
+    @Test public void testOneFormat() throws ConversionException, IOException {
+        StringWriter markdown = new StringWriter();
+        Map<OutputFormat, StringWriter> outs = new EnumMap<OutputFormat, StringWriter>(OutputFormat.class);
+        outs.put(OutputFormat.MARKDOWN, markdown);
+
+        assertTrue(FanOutRenderer.render(CHAIN, outs).isEmpty());
+        assertEquals(CHAIN.toMarkdown(), markdown.toString());
+    }
+
+    @Test public void testFailingFormatDoesNotStopOthers() throws ConversionException, IOException {
+        Map<OutputFormat, StringBuilder> outs = allFormats();
+        Map<OutputFormat, ConversionException> failures = FanOutRenderer.render(FOURDEEP, outs);
+
+        assertEquals(1, failures.size());
+        assertEquals("Cannot create a LaTeX with more than 3 nested levels",
+                failures.get(OutputFormat.LATEX).getMessage());
+        assertEquals("", outs.get(OutputFormat.LATEX).toString());
+        assertEquals(FOURDEEP.toMarkdown(), outs.get(OutputFormat.MARKDOWN).toString());
+        assertEquals(FOURDEEP.toHTML(), outs.get(OutputFormat.HTML).toString());
+    }
+
+    @Test public void testEveryFormatFails() throws IOException {
+        Document deep = empty();
+        for (int i = 7; i >= 1; i--) {
+            deep = section(Integer.toString(i), deep);
+        }
+        Map<OutputFormat, StringBuilder> outs = allFormats();
+        Map<OutputFormat, ConversionException> failures = FanOutRenderer.render(deep, outs);
+
+        assertEquals(OutputFormat.values().length, failures.size());
+        for (StringBuilder out : outs.values()) {
+            assertEquals("", out.toString());
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package awedoctime;
+
+/**
+ * 64-bit structural fingerprints of documents, for content addressing.
+ * Documents with the same paragraphs and sections in the same structure
+ * have the same fingerprint whatever their implementation in this package,
+ * and documents
+ * that differ have different fingerprints except with probability about
+ * 2^-64.
+ * <p>
+ * Like a Merkle tree, the fingerprint of a section covers the fingerprint
+ * of its contents, and the fingerprint of a sequence of items is the right
+ * fold fingerprint = item + MULTIPLIER * fingerprint(rest). Paragraph,
+ * Section and RopeDocument cache it when they are built, so it is always
+ * available in constant time; FlatDocument computes it once, when first
+ * needed.
+ */
+public final class Fingerprint {
+    /** Fingerprint of every empty document */
+    public static final long EMPTY = 0L;
+
+    // odd, so MULTIPLIER^n is never 0 modulo 2^64
+    static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private static final long PARAGRAPH_SEED = 0x3C6EF372FE94F82BL;
+    private static final long SECTION_SEED = 0xA54FF53A5F1D36F1L;
+    private static final long OPAQUE_SEED = 0x510E527FADE682D1L;
+    private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private Fingerprint() {
+    }
+
+    /**
+     * @param document any document
+     * @return the structural fingerprint of document, in constant time
+     *         except the first time it is taken of a FlatDocument or
+     *         SliceDocument, and in
+     *         time linear in the top-level items of a StoredDocument. The
+     *         fingerprint of another implementation of Document is taken
+     *         from its hashCode, as only its own equals knows which
+     *         documents are equal to it.
+     */
+    public static long of(Document document) {
+        if (document instanceof Aggregated) {
+            return ((Aggregated) document).fingerprint();
+        }
+        return mix(document.hashCode() ^ OPAQUE_SEED);
+    }
+
+    /**
+     * @param text text of a paragraph
+     * @return the fingerprint of that paragraph as one item of a document
+     */
+    static long paragraph(String text) {
+        return mix(string(text) ^ PARAGRAPH_SEED);
+    }
+
+    /**
+     * @param heading heading of a section
+     * @param contents fingerprint of the contents of that section
+     * @return the fingerprint of that section as one item of a document
+     */
+    static long section(String heading, long contents) {
+        return mix(mix(string(heading) ^ SECTION_SEED) ^ contents);
+    }
+
+    /**
+     * @return paragraph(new String(text, start, end - start)), without
+     *         building the String
+     */
+    static long paragraph(char[] text, int start, int end) {
+        return mix(string(text, start, end) ^ PARAGRAPH_SEED);
+    }
+
+    /**
+     * @return section(new String(heading, start, end - start), contents),
+     *         without building the String
+     */
+    static long section(char[] heading, int start, int end, long contents) {
+        return mix(mix(string(heading, start, end) ^ SECTION_SEED) ^ contents);
+    }
+
+    /**
+     * @param item fingerprint of an item, from paragraph or section
+     * @param rest fingerprint of the document that follows the item
+     * @return the fingerprint of the item followed by rest
+     */
+    static long link(long item, long rest) {
+        return item + MULTIPLIER * rest;
+    }
+
+    /**
+     * @return 64-bit FNV-1a hash of the characters of text
+     */
+    private static long string(String text) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * @return 64-bit FNV-1a hash of text[start, end)
+     */
+    private static long string(char[] text, int start, int end) {
+        long hash = FNV_OFFSET;
+        for (int i = start; i < end; i++) {
+            hash = (hash ^ text[i]) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * @return bits of the finalizer of MurmurHash3, a bijection that spreads
+     *         every bit of bits over the whole result
+     */
+    private static long mix(long bits) {
+        bits ^= bits >>> 33;
+        bits *= 0xFF51AFD7ED558CCDL;
+        bits ^= bits >>> 33;
+        bits *= 0xC4CEB9FE1A85EC53L;
+        bits ^= bits >>> 33;
+        return bits;
+    }
+}
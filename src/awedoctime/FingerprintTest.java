@@ -0,0 +1,174 @@
+package awedoctime;
+
+import static awedoctime.Document.empty;
+import static awedoctime.Document.paragraph;
+import static awedoctime.Document.section;
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Proxy;
+
+import org.junit.Test;
+
+import awedoctime.Document.ConversionException;
+
+public class FingerprintTest {
+
+    // Methods: of, fingerprint, equals, and the other aggregates of another
+    //          implementation of Document
+    // Partition:
+    // Document empty, paragraphs only, nested sections
+    // Implementation Paragraph/Section chain, RopeDocument, chain with a RopeDocument rest,
+    //          another implementation, chain with another implementation as rest or contents
+    // Difference in text, in item kind, in nesting, in order
+
+    /**
+     * @return a document of another implementation of Document, which
+     *         answers everything as delegate does but is equal to itself
+     *         alone
+     */
+    private static Document foreign(Document delegate) {
+        return (Document) Proxy.newProxyInstance(FingerprintTest.class.getClassLoader(),
+                new Class<?>[] { Document.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("equals")) {
+                        return proxy == args[0];
+                    }
+                    if (method.getName().equals("hashCode")) {
+                        return System.identityHashCode(proxy);
+                    }
+                    return method.invoke(delegate, args);
+                });
+    }
+
+    //*************************************of Tests*************************************\\
+
+    @Test public void testEmpty() {
+        assertEquals(Fingerprint.EMPTY, Fingerprint.of(empty()));
+        assertEquals(Fingerprint.EMPTY, Fingerprint.of(RopeDocument.empty()));
+        assertNotEquals(Fingerprint.EMPTY, Fingerprint.of(paragraph("")));
+        assertNotEquals(Fingerprint.EMPTY, Fingerprint.of(section("", empty())));
+    }
+
+    @Test public void testSameContentsDifferentImplementations() {
+        Document chain = paragraph("a").append(section("s", paragraph("b").append(section("t", empty()))))
+                .append(section("u", paragraph("c")));
+        Document rope = RopeDocument.of(chain);
+        Document appended = RopeDocument.paragraph("a")
+                .append(RopeDocument.section("s", paragraph("b").append(section("t", empty()))))
+                .append(section("u", paragraph("c")));
+        Document mixed = new Paragraph("a", RopeDocument.section("s", paragraph("b").append(section("t", empty())))
+                .append(section("u", paragraph("c"))));
+
+        long expected = Fingerprint.of(chain);
+        assertEquals(expected, Fingerprint.of(rope));
+        assertEquals(expected, Fingerprint.of(appended));
+        assertEquals(expected, Fingerprint.of(mixed));
+        assertEquals(expected, ((Paragraph) chain).fingerprint());
+        assertEquals(expected, ((RopeDocument) rope).fingerprint());
+    }
+
+    @Test public void testDifferentContents() {
+        Document base = paragraph("a").append(section("s", section("t", empty())));
+
+        assertNotEquals(Fingerprint.of(base), Fingerprint.of(paragraph("b").append(section("s", section("t", empty())))));
+        assertNotEquals(Fingerprint.of(base), Fingerprint.of(section("a", empty()).append(section("s", section("t", empty())))));
+        assertNotEquals(Fingerprint.of(base), Fingerprint.of(paragraph("a").append(section("s", empty())).append(section("t", empty()))));
+        assertNotEquals(Fingerprint.of(paragraph("a").append(paragraph("b"))), Fingerprint.of(paragraph("b").append(paragraph("a"))));
+        assertNotEquals(Fingerprint.of(section("s", paragraph("a"))), Fingerprint.of(section("s", empty()).append(paragraph("b"))));
+    }
+
+    @Test public void testOtherImplementation() {
+        Document other = foreign(paragraph("a"));
+        assertEquals(Fingerprint.of(other), Fingerprint.of(other));
+        assertNotEquals(Fingerprint.of(paragraph("a")), Fingerprint.of(other));
+        assertNotEquals(Fingerprint.of(foreign(paragraph("a"))), Fingerprint.of(other));
+    }
+
+    //*************************************equals Tests*************************************\\
+
+    @Test public void testOtherImplementationInside() {
+        Document other = foreign(paragraph("b").append(section("s", paragraph("c"))));
+        Document first = new Paragraph("a", other);
+        Document second = new Section("h", other);
+        Document otherSection = foreign(section("s", paragraph("c")));
+        Document third = new Section("h", paragraph("x"), otherSection);
+
+        assertEquals(first, new Paragraph("a", other));
+        assertEquals(first.hashCode(), new Paragraph("a", other).hashCode());
+        assertEquals(second, new Section("h", other));
+        assertEquals(third, new Section("h", paragraph("x"), otherSection));
+        assertEquals(third, DocumentViews.slice(third, 0, 2));
+        assertNotEquals(third, section("h", paragraph("x")).append(section("s", paragraph("c"))));
+        assertNotEquals(first, new Paragraph("a", foreign(paragraph("b").append(section("s", paragraph("c"))))));
+        assertNotEquals(first, paragraph("a").append(paragraph("b")).append(section("s", paragraph("c"))));
+        assertNotEquals(first, other);
+        assertNotEquals(other, first);
+        assertNotEquals(new Empty(), foreign(empty()));
+    }
+
+    @Test public void testEqualsAgreesWithFingerprint() {
+        Document first = section("s", paragraph("a").append(paragraph("b")));
+        Document same = RopeDocument.of(section("s", paragraph("a"))).append(paragraph("b"));
+        Document different = section("s", paragraph("a").append(paragraph("c")));
+
+        assertEquals(first, same);
+        assertEquals(same, first);
+        assertEquals(first.hashCode(), same.hashCode());
+        assertNotEquals(first, different);
+        assertNotEquals(same, different);
+    }
+
+    @Test public void testLongChainInConstantTime() {
+        Document first = new Empty();
+        Document second = new Empty();
+        for (int i = 0; i < 1000000; i++) {
+            first = new Paragraph("paragraph " + i, first);
+            second = new Paragraph("paragraph " + i, second);
+        }
+        Document third = new Paragraph("different", ((Paragraph) second).getNextItemOfSameHeirarchy());
+
+        assertEquals(Fingerprint.of(first), Fingerprint.of(second));
+        assertEquals(first.hashCode(), second.hashCode());
+        assertNotEquals(first, third);
+    }
+
+    //*************************************other implementation Tests*************************************\\
+
+    @Test public void testOtherImplementationAggregates() throws ConversionException {
+        Document chain = paragraph("a").append(paragraph("b & c")).append(section("s", section("t", empty())));
+        Document other = foreign(chain);
+
+        assertEquals(2, Depth.of(other));
+        assertEquals(Depth.levels(chain, OutputFormat.HTML), Depth.levels(other, OutputFormat.HTML));
+        for (OutputFormat format : OutputFormat.values()) {
+            assertEquals(RenderedSize.of(chain).length(format), RenderedSize.of(other).length(format));
+        }
+        assertEquals(chain.getNextItemOfSameHeirarchy(), DocumentViews.slice(other, 1, 3));
+        assertTrue(DocumentViews.slice(other, 0, 0).isEmpty());
+        assertSame(other, DocumentViews.slice(other, 0, 3));
+        assertEquals(Outline.of(chain).sectionCount(), Outline.of(other).sectionCount());
+        assertEquals(new Paragraph("x", chain).toHTML(), new Paragraph("x", other).toHTML());
+    }
+
+    @Test public void testOtherImplementationSections() {
+        Document other = foreign(section("s", section("t", paragraph("c d"))).append(section("u", empty())));
+
+        // the contents of the section cannot be seen, so they count as empty
+        assertEquals(1, Depth.of(other));
+        assertEquals(RenderedSize.of(section("s", empty()).append(section("u", empty()))).length(OutputFormat.MARKDOWN),
+                RenderedSize.of(other).length(OutputFormat.MARKDOWN));
+        assertEquals(1, new Paragraph("x", other).maxDepth());
+        assertEquals(3, new Paragraph("x", other).bodyWordCount());
+        try {
+            DocumentViews.slice(other, 0, 1);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException iae) {
+            // expected
+        }
+        try {
+            Outline.of(other);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException iae) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,839 @@
+package awedoctime;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A compact immutable Document that stores its paragraphs and sections in
+ * pre-order in a few primitive arrays, with all of their text in one shared
+ * char array, instead of one object per paragraph and section.
+ * <p>
+ * Node i is a paragraph or a section at a given nesting depth; its subtree
+ * is the size[i] nodes starting at i, and its text is
+ * text[textOffsets[i], textOffsets[i + 1]). A cumulative count of the words
+ * of the paragraphs gives the word count of any subtree in constant time.
+ * Every part of a FlatDocument (its rest, the contents of a section, its
+ * leading paragraphs, its body) is a view over a range of the same arrays,
+ * so taking one does not copy anything.
+ */
+public class FlatDocument implements Aggregated {
+    private static final byte PARAGRAPH = 0;
+    private static final byte SECTION = 1;
+
+    /**
+     * The arrays shared by every view over the same nodes
+     */
+    private static final class Nodes {
+        private final byte[] kinds;
+        private final int[] depths;
+        private final int[] sizes;
+        private final int[] textOffsets;
+        private final char[] text;
+        private final int[] wordCounts;
+
+        // Rep invariant:
+        //      kinds, depths, sizes have the same length n, textOffsets and
+        //      wordCounts have length n + 1 and are non-decreasing from 0
+        //      sizes[i] == 1 for a paragraph, and for a section 1 plus the
+        //      number of following nodes deeper than depths[i], up to the
+        //      first node that is not
+        //      textOffsets[n] <= text.length
+        // Abstraction function:
+        //      represents n nodes in pre-order, node i being of kind
+        //      kinds[i] at depth depths[i], with text
+        //      text[textOffsets[i], textOffsets[i + 1]) and, when it is a
+        //      paragraph, wordCounts[i + 1] - wordCounts[i] words
+        private Nodes(byte[] kinds, int[] depths, int[] sizes, int[] textOffsets, char[] text, int[] wordCounts) {
+            this.kinds = kinds;
+            this.depths = depths;
+            this.sizes = sizes;
+            this.textOffsets = textOffsets;
+            this.text = text;
+            this.wordCounts = wordCounts;
+        }
+    }
+
+    private final Nodes nodes;
+    private final int from;
+    private final int to;
+    private final int depth;
+
+    private volatile boolean hashed;
+    private int hashCode;
+    private long fingerprint;
+    private volatile boolean measured;
+    private int maxDepth;
+    private int htmlLevels;
+    private volatile RenderedSize renderedSize;
+    private volatile Outline outline;
+
+    // Rep invariant:
+    //      0 <= from <= to <= number of nodes
+    //      the top-level nodes of [from, to) (those at depth) cover the whole
+    //      range with their subtrees, and no top-level paragraph follows a
+    //      top-level section
+    //      hashCode and fingerprint are those of this once hashed is true
+    //      maxDepth and htmlLevels are those of this (see Depth) once
+    //      measured is true
+    //      renderedSize is null or the RenderedSize of this
+    //      outline is null or the Outline of this
+    // Abstraction function:
+    //      represents the document made of the nodes [from, to) of nodes,
+    //      the top-level items being those at depth
+
+    private FlatDocument(Nodes nodes, int from, int to, int depth) {
+        this.nodes = nodes;
+        this.from = from;
+        this.to = to;
+        this.depth = depth;
+    }
+
+    /**
+     * Make a new empty FlatDocument
+     */
+    public FlatDocument() {
+        this(new Builder().nodes(), 0, 0, 0);
+    }
+
+    /**
+     * Returns a FlatDocument with the same contents as document
+     * @param document a Paragraph, Section, Empty, RopeDocument or
+     *                 FlatDocument, possibly nesting any of these
+     * @return document as a FlatDocument, in time linear in its size
+     */
+    public static FlatDocument of(Document document) {
+        if (document instanceof FlatDocument) {
+            return (FlatDocument) document;
+        }
+        Builder builder = new Builder();
+        builder.add(document);
+        return builder.build();
+    }
+
+    /**
+     * @return a chain of Paragraph, Section and Empty with the same contents
+     *         as this, built in time linear in the size of this
+     */
+    public Document toLinked() {
+        Document empty = new Empty();
+        // tails[d] is the document that follows the node being built at depth d
+        Document[] tails = new Document[8];
+        Arrays.fill(tails, empty);
+        for (int i = to - 1; i >= from; i--) {
+            int level = nodes.depths[i] - depth;
+            if (level + 1 >= tails.length) {
+                int length = tails.length;
+                tails = Arrays.copyOf(tails, 2 * (level + 1));
+                Arrays.fill(tails, length, tails.length, empty);
+            }
+            if (nodes.kinds[i] == PARAGRAPH) {
+                tails[level] = new Paragraph(text(i), tails[level]);
+            } else {
+                tails[level] = new Section(text(i), tails[level + 1], tails[level]);
+                tails[level + 1] = empty;
+            }
+        }
+        return tails[0];
+    }
+
+    /**
+     * @return the text contained in the top level of
+     * the Document
+     */
+    @Override
+    public String getText() {
+        if (from == to) {
+            return "";
+        }
+        return text(from);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return from == to;
+    }
+
+    /**
+     * @return whether or not this can always be appended to
+     *          the top level of any other document object
+     */
+    @Override
+    public boolean startsWithParagraph() {
+        return from < to && nodes.kinds[from] == PARAGRAPH;
+    }
+
+    @Override
+    public Document getLeadingParagraphs() {
+        return view(from, leadingEnd());
+    }
+
+    /**
+     * @return every level of the document other than
+     * the leading paragraphs
+     */
+    @Override
+    public Document getBody() {
+        return view(leadingEnd(), to);
+    }
+
+    @Override
+    public Document getNextItemOfSameHeirarchy() {
+        if (from == to) {
+            return this;
+        }
+        return view(from + nodes.sizes[from], to);
+    }
+
+    /**
+     * @return the contents of the section this starts with
+     */
+    Document contents() {
+        return contents(from);
+    }
+
+    /**
+     * @param i a section of this
+     * @return the contents of section i
+     */
+    Document contents(int i) {
+        return new FlatDocument(nodes, i + 1, i + nodes.sizes[i], nodes.depths[i] + 1);
+    }
+
+    /**
+     * @return the document made of node i and its subtree alone, sharing
+     *         the arrays of this
+     */
+    FlatDocument item(int i) {
+        return new FlatDocument(nodes, i, i + nodes.sizes[i], nodes.depths[i]);
+    }
+
+    /**
+     * @return the first node of this
+     */
+    int start() {
+        return from;
+    }
+
+    /**
+     * @return the end of the nodes of this
+     */
+    int end() {
+        return to;
+    }
+
+    /**
+     * @param start a top-level node of this, or end()
+     * @param end a top-level node of this, or end(), at least start
+     * @return the document made of the top-level nodes of this from start
+     *         up to end, sharing the arrays of this
+     */
+    FlatDocument range(int start, int end) {
+        return view(start, end);
+    }
+
+    /**
+     * @return the number of chars of text in nodes [start, end)
+     */
+    int textLength(int start, int end) {
+        return nodes.textOffsets[end] - nodes.textOffsets[start];
+    }
+
+    /**
+     * @param i a node of this
+     * @return the number of nodes in the subtree of node i
+     */
+    int size(int i) {
+        return nodes.sizes[i];
+    }
+
+    /**
+     * @param i a node of this
+     * @return whether or not node i is a paragraph
+     */
+    boolean isParagraph(int i) {
+        return nodes.kinds[i] == PARAGRAPH;
+    }
+
+    /**
+     * Returns a document which has the contents of this followed by the
+     * contents of other. As Section.append does, the leading paragraphs of
+     * other go to the contents of the last section of this, and of the last
+     * section nested in it. Takes time linear in the size of both documents.
+     * @param other document to append
+     * @return concatenation of this and other
+     */
+    @Override
+    public Document append(Document other) {
+        FlatDocument flat = of(other);
+        if (flat.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return flat;
+        }
+        int last = to - 1;
+        int lastLevel = nodes.depths[last] - depth;
+        int leadingLevel = nodes.kinds[last] == PARAGRAPH ? lastLevel : lastLevel + 1;
+        int leading = flat.leadingEnd() - flat.from;
+
+        Builder builder = new Builder();
+        for (int i = from; i < to; i++) {
+            int size = nodes.sizes[i];
+            if (nodes.kinds[i] == SECTION && i + size == to) {
+                // on the spine that ends with the last node, so gets the leading paragraphs
+                size += leading;
+            }
+            builder.copy(this, i, nodes.depths[i] - depth, size);
+        }
+        for (int i = flat.from; i < flat.to; i++) {
+            int level = flat.nodes.depths[i] - flat.depth;
+            builder.copy(flat, i, i < flat.from + leading ? leadingLevel : level, flat.nodes.sizes[i]);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the number of words in the paragraphs of this document. Words
+     * are delimited by one or more spaces and by the beginnings and ends of
+     * paragraphs.
+     * @return body word count, in constant time
+     */
+    @Override
+    public int bodyWordCount() {
+        return nodes.wordCounts[to] - nodes.wordCounts[from];
+    }
+
+    /**
+     * Returns a document containing one paragraph for every section heading in
+     * this document. Each paragraph contains:
+     * <br> - the section number (starting from 1), written as a sequence of
+     *        parent section numbers separated by periods, ending with the
+     *        position of this section under its parent (or under the top level,
+     *        if none)
+     * <br> - the section heading
+     * <br> - the word count of paragraphs in this section and its sub-sections,
+     *        written as "1 word", or "N words" for N != 1
+     * <br> For an example, see the problem set handout.
+     * @return table of contents
+     */
+    @Override
+    public Document tableOfContents() {
+        return TableOfContentsBuilder.build(this);
+    }
+
+    /**
+     * creates a document preceded by the level representation
+     * of where the document is within a document
+     * @param level the top level of the document represented in
+     * List format
+     * @return a document preceded by the level representation
+     * relative to level
+     */
+    @Override
+    public Document createDocumentLevel(List<Integer> level) {
+        return TableOfContentsBuilder.build(this, level);
+    }
+
+    /**
+     * Returns a LaTeX representation of the document that:
+     * <br> - contains a preamble with document class "article" and no other
+     *        options or packages; uses \section, \subsection, & \subsubsection
+     *        to indicate sections; uses ordinary paragraphs
+     * <br> - renders all the section headings and paragraphs of the document
+     *        using appropriate LaTeX syntax and character escaping, with no
+     *        additional formatting
+     * <br> For an example, see the problem set handout.
+     * @return LaTeX conversion
+     * @throws ConversionException if the document cannot be converted
+     */
+    @Override
+    public String toLaTeX() throws ConversionException {
+        return DocumentRenderer.toLaTeX(this);
+    }
+
+    /**
+     * Returns a LaTeX-readable string of text
+     * @param level the document level at which toLaTexHelper is called
+     * @return a string of LaTex-escaped text if text can be converted to LaTex
+     * @throws ConversionException if the document cannot be converted
+     */
+    @Override
+    public String toLaTexHelper(int level) throws ConversionException {
+        return DocumentRenderer.toLaTeX(this, level);
+    }
+
+    /**
+     * Returns a Markdown representation of the document that:
+     * <br> - renders all the section headings and paragraphs of the document
+     *        using appropriate Markdown syntax and character escaping, with no
+     *        additional formatting
+     * <br> For an example, see the problem set handout.
+     * @return Markdown conversion
+     * @throws ConversionException if the document cannot be converted
+     */
+    @Override
+    public String toMarkdown() throws ConversionException {
+        int firstLevel = 1;
+        return toMarkdownHelper(firstLevel);
+    }
+
+    /**
+     * Returns a Markdown-readable string of text
+     * @param level the document level at which toMarkdownHelper is called
+     * @return a string of Markdown-escaped text if text can be converted to markdown
+     * @throws ConversionException if the document cannot be converted
+     */
+    @Override
+    public String toMarkdownHelper(int level) throws ConversionException {
+        return DocumentRenderer.toMarkdown(this, level);
+    }
+
+    /**
+     * Returns a HTML representation of the document that:
+     * <br> - renders all the section headings and paragraphs of the document
+     *        using appropriate HTML syntax and character escaping, with no
+     *        additional formatting
+     * @return HTML conversion
+     * @throws ConversionException if the document cannot be converted
+     */
+    @Override
+    public String toHTML() throws ConversionException {
+        return DocumentRenderer.toHTML(this);
+    }
+
+    /**
+     * Returns a HTML-readable string of text
+     * @param level the document level at which toHTMLHelper is called
+     * @return a string of HTML-escaped text if text can be converted to HTML
+     * @throws ConversionException if the document cannot be converted
+     */
+    @Override
+    public String toHTMLHelper(int level) throws ConversionException {
+        return DocumentRenderer.toHTML(this, level);
+    }
+
+    /**
+     * Returns a concise String representation of the document
+     * in Markdown syntax
+     */
+    @Override
+    public String toString() {
+        return printDocument(1);
+    }
+
+    /**
+     * @param level the level at which printDocument is called, where
+     *         the top level = 1
+     * @return a string representation of the document
+     */
+    @Override
+    public String printDocument(int level) {
+        return DocumentRenderer.toString(this, level);
+    }
+
+    /**
+     * @return the structural fingerprint of this document, the same as the
+     *         Paragraph/Section/Empty chain with the same contents; see
+     *         Fingerprint
+     */
+    public long fingerprint() {
+        hash();
+        return fingerprint;
+    }
+
+    /**
+     * @return the same hashCode as the Paragraph/Section/Empty chain with
+     *         the same contents
+     */
+    @Override
+    public int hashCode() {
+        hash();
+        return hashCode;
+    }
+
+    /**
+     * @return whether or not this is observationally equivalent to obj,
+     *         which may be any Document that DocumentCursor can walk
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof Document))
+            return false;
+        Document other = (Document) obj;
+        if (fingerprint() != Fingerprint.of(other))
+            return false;
+        if (other instanceof FlatDocument)
+            return sameNodes((FlatDocument) other);
+        return DocumentCursor.sameContents(this, other);
+    }
+
+    /**
+     * @return whether or not other has the same kinds, relative depths and
+     *         texts of nodes as this, compared in one scan of both arrays
+     */
+    private boolean sameNodes(FlatDocument other) {
+        if (to - from != other.to - other.from) {
+            return false;
+        }
+        for (int i = from, j = other.from; i < to; i++, j++) {
+            if (nodes.kinds[i] != other.nodes.kinds[j]
+                    || nodes.depths[i] - depth != other.nodes.depths[j] - other.depth
+                    || !Arrays.equals(nodes.text, nodes.textOffsets[i], nodes.textOffsets[i + 1],
+                            other.nodes.text, other.nodes.textOffsets[j], other.nodes.textOffsets[j + 1])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes hashCode and fingerprint the first time they are needed, in
+     * one scan from the last node to the first, folding every node into the
+     * values of its depth as Paragraph and Section do with their rest
+     */
+    private void hash() {
+        if (hashed) {
+            return;
+        }
+        int[] hashes = new int[8];
+        long[] fingerprints = new long[8];
+        for (int i = to - 1; i >= from; i--) {
+            int level = nodes.depths[i] - depth;
+            if (level + 1 >= hashes.length) {
+                hashes = Arrays.copyOf(hashes, 2 * (level + 1));
+                fingerprints = Arrays.copyOf(fingerprints, 2 * (level + 1));
+            }
+            int start = nodes.textOffsets[i];
+            int end = nodes.textOffsets[i + 1];
+            int textHash = 0;
+            for (int c = start; c < end; c++) {
+                textHash = 31 * textHash + nodes.text[c];
+            }
+            if (nodes.kinds[i] == PARAGRAPH) {
+                hashes[level] = 31 * (31 + hashes[level]) + textHash;
+                fingerprints[level] = Fingerprint.link(Fingerprint.paragraph(nodes.text, start, end),
+                        fingerprints[level]);
+            } else {
+                hashes[level] = 31 * (31 * (31 + hashes[level + 1]) + textHash) + hashes[level];
+                fingerprints[level] = Fingerprint.link(
+                        Fingerprint.section(nodes.text, start, end, fingerprints[level + 1]),
+                        fingerprints[level]);
+                hashes[level + 1] = 0;
+                fingerprints[level + 1] = Fingerprint.EMPTY;
+            }
+        }
+        hashCode = hashes[0];
+        fingerprint = fingerprints[0];
+        hashed = true;
+    }
+
+    /**
+     * @return the greatest number of sections nested in one another in this
+     *         document, computed once, when first needed; see Depth
+     */
+    public int maxDepth() {
+        measure();
+        return maxDepth;
+    }
+
+    /**
+     * @return the exact length of this document rendered in every format,
+     *         computed once, when first needed; see RenderedSize
+     */
+    public RenderedSize renderedSize() {
+        RenderedSize size = renderedSize;
+        if (size == null) {
+            RenderedSize.Counter counter = new RenderedSize.Counter();
+            CharSequence text = CharBuffer.wrap(nodes.text);
+            for (int i = from; i < to; i++) {
+                int start = nodes.textOffsets[i];
+                int end = nodes.textOffsets[i + 1];
+                if (nodes.kinds[i] == PARAGRAPH) {
+                    counter.paragraph(text, start, end);
+                } else {
+                    counter.section(text, start, end, nodes.depths[i] - depth);
+                }
+            }
+            size = counter.build();
+            renderedSize = size;
+        }
+        return size;
+    }
+
+    /**
+     * @return the outline of the sections of this document, built by
+     *         walking it once, when first needed; see Outline
+     */
+    public Outline outline() {
+        Outline result = outline;
+        if (result == null) {
+            result = Outline.build(this);
+            outline = result;
+        }
+        return result;
+    }
+
+    /**
+     * @param from index of the first top-level item of the slice, from 0
+     * @param to index just after the last top-level item of the slice
+     * @return the top-level items [from, to) of this, sharing the arrays of
+     *         this, found by skipping whole items by their size
+     * @throws IndexOutOfBoundsException if from is negative, to is less
+     *         than from or this has fewer than to top-level items
+     */
+    public FlatDocument slice(int from, int to) {
+        DocumentViews.checkRange(from, to);
+        int start = this.from;
+        int index = 0;
+        while (index < from && start < this.to) {
+            start += nodes.sizes[start];
+            index++;
+        }
+        int end = start;
+        while (index < to && end < this.to) {
+            end += nodes.sizes[end];
+            index++;
+        }
+        if (index < to) {
+            throw DocumentViews.outOfBounds(from, to);
+        }
+        return view(start, end);
+    }
+
+    /**
+     * @return the HTML levels of this document, see Depth
+     */
+    public int htmlLevels() {
+        measure();
+        return htmlLevels;
+    }
+
+    /**
+     * @param format format to convert this document to
+     * @return whether or not this document can be converted to format
+     */
+    public boolean canConvert(OutputFormat format) {
+        return Depth.canConvert(this, format);
+    }
+
+    /**
+     * Computes maxDepth and htmlLevels in one pass over the depths of the
+     * nodes, from the last one, as the right folds of Depth
+     */
+    private void measure() {
+        if (measured) {
+            return;
+        }
+        int deepest = 0;
+        // levels[l] is the HTML levels of what follows the node being measured at level l
+        int[] levels = new int[8];
+        for (int i = to - 1; i >= from; i--) {
+            int level = nodes.depths[i] - depth;
+            if (level + 1 >= levels.length) {
+                levels = Arrays.copyOf(levels, 2 * (level + 1));
+            }
+            if (nodes.kinds[i] == PARAGRAPH) {
+                levels[level] = Depth.paragraphHTMLLevels(levels[level]);
+            } else {
+                deepest = Math.max(deepest, level + 1);
+                levels[level] = Depth.sectionLevels(levels[level + 1], levels[level]);
+                levels[level + 1] = 0;
+            }
+        }
+        maxDepth = deepest;
+        htmlLevels = levels[0];
+        measured = true;
+    }
+
+    /**
+     * @return the end of the leading paragraphs of this, which are the only
+     *         top-level paragraphs
+     */
+    private int leadingEnd() {
+        int end = from;
+        while (end < to && nodes.kinds[end] == PARAGRAPH) {
+            end++;
+        }
+        return end;
+    }
+
+    private FlatDocument view(int start, int end) {
+        return new FlatDocument(nodes, start, end, depth);
+    }
+
+    /**
+     * @param i a node of this
+     * @return the text of paragraph i or the heading of section i
+     */
+    String text(int i) {
+        return new String(nodes.text, nodes.textOffsets[i], nodes.textOffsets[i + 1] - nodes.textOffsets[i]);
+    }
+
+    /**
+     * @return view, showing the text of node i in place, without copying it
+     */
+    TextView text(int i, TextView view) {
+        return view.set(nodes.text, nodes.textOffsets[i], nodes.textOffsets[i + 1]);
+    }
+
+    /**
+     * Accumulates nodes in growable arrays, from the events of a walk of a
+     * document, and freezes them into a FlatDocument
+     */
+    static final class Builder {
+        private byte[] kinds = new byte[16];
+        private int[] depths = new int[16];
+        private int[] sizes = new int[16];
+        private int[] textOffsets = new int[17];
+        private int[] wordCounts = new int[17];
+        private char[] text = new char[256];
+        private int count = 0;
+        // sections whose size is not known yet, innermost last
+        private int[] open = new int[8];
+        private int openCount = 0;
+
+        /**
+         * Adds the nodes of document inside the sections that are open
+         */
+        void add(Document document) {
+            DocumentCursor cursor = new DocumentCursor(document);
+            for (int event = cursor.next(); event != DocumentCursor.END; event = cursor.next()) {
+                if (event == DocumentCursor.PARAGRAPH) {
+                    addParagraph(cursor.text());
+                } else if (event == DocumentCursor.START_SECTION) {
+                    startSection(cursor.text());
+                } else {
+                    endSection();
+                }
+            }
+        }
+
+        /**
+         * Adds a paragraph inside the sections that are open
+         */
+        void addParagraph(String paragraph) {
+            add(PARAGRAPH, openCount, 1, paragraph, Paragraph.getWordCountInLIne(paragraph));
+        }
+
+        /**
+         * Adds a paragraph with text chars[start, end) inside the sections
+         * that are open
+         * @param words the number of words of the paragraph, or -1 to count them
+         */
+        void addParagraph(char[] chars, int start, int end, int words) {
+            if (words < 0) {
+                words = Paragraph.getWordCountInLIne(chars, start, end);
+            }
+            reserve(end - start);
+            System.arraycopy(chars, start, text, textOffsets[count], end - start);
+            addNode(PARAGRAPH, openCount, 1, end - start, words);
+        }
+
+        /**
+         * Opens a section inside the sections that are open
+         */
+        void startSection(String heading) {
+            open();
+            add(SECTION, openCount - 1, 0, heading, 0);
+        }
+
+        /**
+         * Opens a section with heading chars[start, end) inside the sections
+         * that are open
+         */
+        void startSection(char[] chars, int start, int end) {
+            open();
+            reserve(end - start);
+            System.arraycopy(chars, start, text, textOffsets[count], end - start);
+            addNode(SECTION, openCount - 1, 0, end - start, 0);
+        }
+
+        /**
+         * Closes the innermost open section
+         * @throws IllegalStateException if there is none
+         */
+        void endSection() {
+            if (openCount == 0) {
+                throw new IllegalStateException("no section to end");
+            }
+            int section = open[--openCount];
+            sizes[section] = count - section;
+        }
+
+        /**
+         * @return the number of sections that are open
+         */
+        int openSections() {
+            return openCount;
+        }
+
+        /**
+         * @return the nodes added so far as a FlatDocument
+         * @throws IllegalStateException if a section is still open
+         */
+        FlatDocument build() {
+            if (openCount > 0) {
+                throw new IllegalStateException(openCount + " sections have not been ended");
+            }
+            Nodes built = nodes();
+            return new FlatDocument(built, 0, count, 0);
+        }
+
+        private void open() {
+            if (openCount == open.length) {
+                open = Arrays.copyOf(open, 2 * openCount);
+            }
+            open[openCount++] = count;
+        }
+
+        /**
+         * Adds node i of document at the given depth, with the given size
+         */
+        private void copy(FlatDocument document, int i, int level, int size) {
+            Nodes source = document.nodes;
+            int start = source.textOffsets[i];
+            int length = source.textOffsets[i + 1] - start;
+            reserve(length);
+            System.arraycopy(source.text, start, text, textOffsets[count], length);
+            addNode(source.kinds[i], level, size, length, source.wordCounts[i + 1] - source.wordCounts[i]);
+        }
+
+        private void add(byte kind, int level, int size, String nodeText, int words) {
+            reserve(nodeText.length());
+            nodeText.getChars(0, nodeText.length(), text, textOffsets[count]);
+            addNode(kind, level, size, nodeText.length(), words);
+        }
+
+        private void reserve(int length) {
+            if (count == kinds.length) {
+                kinds = Arrays.copyOf(kinds, 2 * count);
+                depths = Arrays.copyOf(depths, 2 * count);
+                sizes = Arrays.copyOf(sizes, 2 * count);
+                textOffsets = Arrays.copyOf(textOffsets, 2 * count + 1);
+                wordCounts = Arrays.copyOf(wordCounts, 2 * count + 1);
+            }
+            int needed = textOffsets[count] + length;
+            if (needed > text.length) {
+                text = Arrays.copyOf(text, Math.max(needed, 2 * text.length));
+            }
+        }
+
+        private void addNode(byte kind, int level, int size, int length, int words) {
+            kinds[count] = kind;
+            depths[count] = level;
+            sizes[count] = size;
+            textOffsets[count + 1] = textOffsets[count] + length;
+            wordCounts[count + 1] = wordCounts[count] + words;
+            count++;
+        }
+
+        private Nodes nodes() {
+            return new Nodes(Arrays.copyOf(kinds, count), Arrays.copyOf(depths, count),
+                    Arrays.copyOf(sizes, count), Arrays.copyOf(textOffsets, count + 1),
+                    Arrays.copyOf(text, textOffsets[count]), Arrays.copyOf(wordCounts, count + 1));
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package awedoctime;
+
+import static awedoctime.Document.empty;
+import static awedoctime.Document.paragraph;
+import static awedoctime.Document.section;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import awedoctime.Document.ConversionException;
+
+public class FlatDocumentTest {
+
+    // Methods: of, toLinked, getText, getLeadingParagraphs, getBody,
+    //          getNextItemOfSameHeirarchy, append, bodyWordCount,
+    //          tableOfContents, toLaTeX, toMarkdown, toHTML, equals, hashCode
+    // Partition:
+    // Document empty, paragraphs only, nested sections, leading paragraphs
+    //          followed by sections
+    // Compared with the same document as a Paragraph/Section chain and as a
+    //          RopeDocument
+    //
+    // Every observer must give the same result as on the chain it came from
+
+    private static final Document CHAIN = paragraph("intro & more")
+            .append(section("s1", paragraph("p1 one").append(section("s2", paragraph("p2 #2")))))
+            .append(section("s3", empty()));
+
+    //*************************************of Tests*************************************\\
+
+    @Test public void testRoundTrip() {
+        FlatDocument flat = FlatDocument.of(CHAIN);
+
+        assertEquals(CHAIN, flat);
+        assertEquals(flat, CHAIN);
+        assertEquals(CHAIN, flat.toLinked());
+        assertTrue(flat.toLinked() instanceof Paragraph);
+        assertSame(flat, FlatDocument.of(flat));
+        assertEquals(RopeDocument.of(CHAIN), flat);
+    }
+
+    @Test public void testEmpty() {
+        FlatDocument flat = new FlatDocument();
+
+        assertTrue(flat.isEmpty());
+        assertEquals(empty(), flat);
+        assertEquals(flat, empty());
+        assertEquals(empty(), flat.toLinked());
+        assertEquals(0, flat.hashCode());
+        assertEquals("", flat.getText());
+    }
+
+    //*************************************observer Tests*************************************\\
+
+    @Test public void testStructure() {
+        FlatDocument flat = FlatDocument.of(CHAIN);
+
+        assertEquals("intro & more", flat.getText());
+        assertTrue(flat.startsWithParagraph());
+        assertEquals(CHAIN.getLeadingParagraphs(), flat.getLeadingParagraphs());
+        assertEquals(CHAIN.getBody(), flat.getBody());
+        assertEquals(CHAIN.getNextItemOfSameHeirarchy(), flat.getNextItemOfSameHeirarchy());
+        assertEquals("s1", flat.getBody().getText());
+        assertFalse(flat.getBody().startsWithParagraph());
+    }
+
+    @Test public void testSameResultsAsChain() throws ConversionException {
+        FlatDocument flat = FlatDocument.of(CHAIN);
+
+        assertEquals(CHAIN.bodyWordCount(), flat.bodyWordCount());
+        assertEquals(CHAIN.hashCode(), flat.hashCode());
+        assertEquals(Fingerprint.of(CHAIN), flat.fingerprint());
+        assertEquals(CHAIN.tableOfContents(), flat.tableOfContents());
+        assertEquals(CHAIN.toLaTeX(), flat.toLaTeX());
+        assertEquals(CHAIN.toMarkdown(), flat.toMarkdown());
+        assertEquals(CHAIN.toHTML(), flat.toHTML());
+        assertEquals(CHAIN.toString(), flat.toString());
+        assertEquals(CHAIN.getBody().hashCode(), flat.getBody().hashCode());
+    }
+
+    @Test public void testNotEqual() {
+        FlatDocument flat = FlatDocument.of(CHAIN);
+
+        assertNotEquals(flat, FlatDocument.of(CHAIN.append(paragraph("x"))));
+        assertNotEquals(flat, FlatDocument.of(paragraph("intro & more").append(section("s1", empty()))));
+        assertNotEquals(flat, CHAIN.getBody());
+        assertNotEquals(flat.getBody(), flat);
+    }
+
+    @Test(expected = ConversionException.class)
+    public void testTooDeepForLaTeX() throws ConversionException {
+        FlatDocument.of(section("1", section("2", section("3", section("4", empty()))))).toLaTeX();
+    }
+
+    //*************************************append Tests*************************************\\
+
+    @Test public void testAppendSameAsChain() {
+        Document[] others = { empty(), paragraph("a"), paragraph("a").append(paragraph("b")),
+                section("t", paragraph("c")), paragraph("d").append(section("u", section("v", empty()))) };
+        Document[] firsts = { empty(), paragraph("x"), CHAIN, section("s", section("n", paragraph("y"))),
+                section("s", section("n", empty())) };
+        for (Document first : firsts) {
+            for (Document other : others) {
+                Document expected = first.append(other);
+                Document appended = FlatDocument.of(first).append(other);
+                assertEquals(expected, appended);
+                assertEquals(expected.toString(), appended.toString());
+                assertEquals(expected.bodyWordCount(), appended.bodyWordCount());
+                assertEquals(expected, FlatDocument.of(first).append(FlatDocument.of(other)));
+            }
+        }
+    }
+
+    @Test public void testChainAppendsFlat() {
+        Document flat = FlatDocument.of(paragraph("a").append(section("t", paragraph("c"))));
+
+        assertEquals(paragraph("x").append(paragraph("a").append(section("t", paragraph("c")))),
+                paragraph("x").append(flat));
+        assertEquals(section("s", paragraph("a")).append(section("t", paragraph("c"))),
+                section("s", empty()).append(flat));
+        assertEquals(RopeDocument.section("s", empty()).append(section("t", paragraph("c"))),
+                RopeDocument.section("s", empty()).append(flat.getBody()));
+    }
+
+    //*************************************stress Tests*************************************\\
+
+    @Test public void testMillionParagraphs() throws ConversionException {
+        DocumentBuilder builder = new DocumentBuilder();
+        for (int i = 0; i < 1000000; i++) {
+            builder.addParagraph("word number " + i);
+        }
+        Document chain = builder.build();
+        FlatDocument flat = FlatDocument.of(chain);
+
+        assertEquals(3000000, flat.bodyWordCount());
+        assertEquals(chain.hashCode(), flat.hashCode());
+        assertEquals(flat, FlatDocument.of(chain));
+        assertEquals(chain, flat.toLinked());
+        assertTrue(flat.toMarkdown().endsWith("\n\nword number 999999"));
+    }
+}
@@ -5,18 +5,26 @@ package awedoctime;
 
 import static awedoctime.Document.*;
 
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 import awedoctime.Document.ConversionException;
 
 public class Main {
     
     /**
-     * Use the Awesome Document Time system to create a document.
+     * Use the Awesome Document Time system to create a document, or, given
+     * arguments, to convert a directory of documents:
+     * <br> input-directory output-directory latex|markdown|html [concurrency]
+     * <br> see BatchConverter.
      * @param args command-line arguments
      */
     public static void main(String[] args) {
+        if (args.length > 0) {
+            System.exit(convert(args));
+        }
         // Construct a document with a few sentences from _Structure_and_
         // _Interpretation_of_Computer_Programs_ by Abelson, Sussman, & Sussman
         Document sicp = empty();
@@ -28,16 +36,50 @@ public class Main {
                 paragraph("We are about to study the idea of a computational process.")));
         
         // Write LaTeX source into awesome-doc-sicp.tex
-        try {
-            PrintWriter writer = new PrintWriter("awesome-doc-sicp.tex");
-            writer.print(sicp.toLaTeX());
-            writer.close();
-        } catch (FileNotFoundException fnfe) {
-            System.err.println("Could not create file");
-            fnfe.printStackTrace();
+        try (FileChannel channel = FileChannel.open(Paths.get("awesome-doc-sicp.tex"),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            new ChannelRenderer().render(sicp, OutputFormat.LATEX, channel);
+        } catch (IOException ioe) {
+            System.err.println("Could not write file");
+            ioe.printStackTrace();
         } catch (ConversionException ce) {
             System.err.println("Could not convert document");
             ce.printStackTrace();
         }
     }
+    
+    /**
+     * Converts the directory of documents named by args and prints a summary
+     * @param args input directory, output directory, format, and optionally
+     *             the number of documents to convert at a time
+     * @return the exit status: 0 if every document was converted
+     */
+    private static int convert(String[] args) {
+        if (args.length < 3 || args.length > 4) {
+            System.err.println("usage: input-directory output-directory latex|markdown|html [concurrency]");
+            return 2;
+        }
+        try {
+            OutputFormat format = OutputFormat.valueOf(args[2].toUpperCase());
+            int concurrency = args.length == 4 ? Integer.parseInt(args[3])
+                    : 4 * Runtime.getRuntime().availableProcessors();
+            BatchConverter.Summary summary = new BatchConverter(format, concurrency)
+                    .convert(Paths.get(args[0]), Paths.get(args[1]));
+            for (String failure : summary.failures()) {
+                System.err.println(failure);
+            }
+            System.out.println(summary);
+            return summary.failures().isEmpty() ? 0 : 1;
+        } catch (IllegalArgumentException iae) {
+            System.err.println(iae.getMessage());
+            return 2;
+        } catch (IOException ioe) {
+            System.err.println("Could not convert directory");
+            ioe.printStackTrace();
+            return 2;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return 2;
+        }
+    }
 }
@@ -0,0 +1,181 @@
+package awedoctime;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Reads documents back from the Markdown that Document.toMarkdown writes,
+ * in one streaming pass over the input. The input is read a buffer at a
+ * time and every line is handled as soon as it ends, so apart from the
+ * document being built the parser only holds the current line and the
+ * current paragraph. Paragraphs and sections go straight into the arrays
+ * of a FlatDocument, so parsing takes time linear in the size of the input.
+ * <p>
+ * A line that starts with 1 to 6 '#' followed by a space, or by the end of
+ * the line, is a section heading. It closes every open section whose
+ * heading had at least as many '#', and opens a section inside the ones
+ * still open. Other non-blank lines are paragraphs, one paragraph running
+ * until a blank line or a heading, its lines joined by single spaces since
+ * paragraphs cannot contain newlines. The escaping of Escaper.MARKDOWN is
+ * undone in both.
+ * <p>
+ * For every document without empty paragraphs, whose texts do not
+ * start or end with a newline nor hold a blank line, parsing what toMarkdown
+ * writes gives back an equal document.
+ */
+public final class MarkdownParser {
+    private static final int BUFFERSIZE = 8192;
+    private static final int MAXHEADINGLEVEL = 6;
+
+    private final FlatDocument.Builder builder = new FlatDocument.Builder();
+    private char[] line = new char[256];
+    private int lineLength = 0;
+    private char[] paragraph = new char[256];
+    private int paragraphLength = -1;
+    // number of '#' of the heading of every open section, innermost last
+    private int[] headingLevels = new int[8];
+
+    // Rep invariant:
+    //      0 <= lineLength <= line.length
+    //      -1 <= paragraphLength <= paragraph.length
+    //      headingLevels[0, builder.openSections()) are between 1 and
+    //      MAXHEADINGLEVEL
+    // Abstraction function:
+    //      represents the document parsed so far: what builder holds, then
+    //      paragraph[0, paragraphLength) as a last paragraph unless
+    //      paragraphLength is -1, then the line line[0, lineLength) that has
+    //      not ended yet
+
+    private MarkdownParser() {
+    }
+
+    /**
+     * Parses Markdown into a document
+     * @param in Markdown, such as a Reader or a CharBuffer; it is read to
+     *        its end, and not closed
+     * @return the document, as a FlatDocument (see FlatDocument.toLinked
+     *         for Paragraph/Section chains)
+     * @throws IOException if in throws
+     */
+    public static FlatDocument parse(Readable in) throws IOException {
+        MarkdownParser parser = new MarkdownParser();
+        char[] chars = new char[BUFFERSIZE];
+        CharBuffer buffer = CharBuffer.wrap(chars);
+        for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+            parser.accept(chars, 0, buffer.position());
+            buffer.clear();
+        }
+        return parser.finish();
+    }
+
+    /**
+     * Handles chars[start, end), the next characters of the input
+     */
+    private void accept(char[] chars, int start, int end) {
+        int lineStart = start;
+        for (int i = start; i < end; i++) {
+            if (chars[i] == '\n') {
+                appendToLine(chars, lineStart, i);
+                endLine();
+                lineStart = i + 1;
+            }
+        }
+        appendToLine(chars, lineStart, end);
+    }
+
+    /**
+     * Handles the end of the input
+     * @return the document parsed
+     */
+    private FlatDocument finish() {
+        if (lineLength > 0) {
+            endLine();
+        }
+        endParagraph();
+        while (builder.openSections() > 0) {
+            builder.endSection();
+        }
+        return builder.build();
+    }
+
+    private void appendToLine(char[] chars, int start, int end) {
+        int length = end - start;
+        if (lineLength + length > line.length) {
+            line = Arrays.copyOf(line, Math.max(lineLength + length, 2 * line.length));
+        }
+        System.arraycopy(chars, start, line, lineLength, length);
+        lineLength += length;
+    }
+
+    /**
+     * Handles the line held in line, which has just ended
+     */
+    private void endLine() {
+        int end = lineLength;
+        if (end > 0 && line[end - 1] == '\r') {
+            end--;
+        }
+        lineLength = 0;
+        if (end == 0) {
+            endParagraph();
+            return;
+        }
+        int level = 0;
+        while (level < end && level <= MAXHEADINGLEVEL && line[level] == '#') {
+            level++;
+        }
+        if (level > 0 && level <= MAXHEADINGLEVEL && (level == end || line[level] == ' ')) {
+            endParagraph();
+            startSection(level, Math.min(level + 1, end), end);
+            return;
+        }
+        if (paragraphLength < 0) {
+            paragraphLength = 0;
+        } else {
+            appendToParagraph(' ');
+        }
+        if (paragraphLength + end > paragraph.length) {
+            paragraph = Arrays.copyOf(paragraph, Math.max(paragraphLength + end, 2 * paragraph.length));
+        }
+        System.arraycopy(line, 0, paragraph, paragraphLength, end);
+        paragraphLength += end;
+    }
+
+    /**
+     * Closes the open sections whose heading has at least level '#', and
+     * opens a section with heading line[start, end)
+     */
+    private void startSection(int level, int start, int end) {
+        int open = builder.openSections();
+        while (open > 0 && headingLevels[open - 1] >= level) {
+            builder.endSection();
+            open--;
+        }
+        if (open == headingLevels.length) {
+            headingLevels = Arrays.copyOf(headingLevels, 2 * open);
+        }
+        headingLevels[open] = level;
+        end = Escaper.MARKDOWN.unescape(line, start, end);
+        builder.startSection(line, start, end);
+    }
+
+    private void appendToParagraph(char c) {
+        if (paragraphLength == paragraph.length) {
+            paragraph = Arrays.copyOf(paragraph, 2 * paragraph.length);
+        }
+        paragraph[paragraphLength++] = c;
+    }
+
+    /**
+     * Adds the paragraph being read, if any, to the innermost open section
+     */
+    private void endParagraph() {
+        if (paragraphLength < 0) {
+            return;
+        }
+        int end = Escaper.MARKDOWN.unescape(paragraph, 0, paragraphLength);
+        builder.addParagraph(paragraph, 0, end, -1);
+        paragraphLength = -1;
+    }
+}
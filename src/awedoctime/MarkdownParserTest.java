@@ -0,0 +1,113 @@
+package awedoctime;
+
+import static awedoctime.Document.empty;
+import static awedoctime.Document.paragraph;
+import static awedoctime.Document.section;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+
+import org.junit.Test;
+
+import awedoctime.Document.ConversionException;
+
+public class MarkdownParserTest {
+
+    // Methods: MarkdownParser.parse, Escaper.unescape
+    // Partition:
+    // Input empty, paragraphs only, nested headings, headings skipping
+    //          levels or going back up, paragraphs over several lines,
+    //          \r\n line ends, lines longer than the read buffer
+    // Text escaped characters, backslashes before characters that are
+    //          not escaped, '#' that do not start a heading, non-ASCII
+    // Source Reader, CharBuffer
+    //
+    // parse(toMarkdown(d)) must equal d
+
+    private static final Document CHAIN = paragraph("intro & more \\ *bold* [x](y) \u00e9")
+            .append(section("s1 #1.", paragraph("p1 one").append(section("s2 _a_", paragraph("p2 #2")))))
+            .append(section("s3", empty()));
+
+    private static Document parse(String markdown) throws IOException {
+        return MarkdownParser.parse(new StringReader(markdown));
+    }
+
+    //*************************************round trip Tests*************************************\\
+
+    @Test public void testRoundTrip() throws IOException, ConversionException {
+        assertEquals(CHAIN, parse(CHAIN.toMarkdown()));
+        assertEquals(CHAIN, MarkdownParser.parse(CharBuffer.wrap(CHAIN.toMarkdown())));
+        assertEquals(empty(), parse(empty().toMarkdown()));
+        assertEquals(empty(), parse(""));
+    }
+
+    @Test public void testRoundTripSixLevels() throws IOException, ConversionException {
+        Document document = section("1", section("2", section("3", section("4", section("5",
+                section("6", paragraph("deep")))))).append(section("2b", empty())))
+                .append(section("1b", paragraph("last")));
+
+        assertEquals(document, parse(document.toMarkdown()));
+    }
+
+    @Test public void testRoundTripManyParagraphs() throws IOException, ConversionException {
+        DocumentBuilder builder = new DocumentBuilder();
+        for (int i = 0; i < 100000; i++) {
+            if (i % 1000 == 0) {
+                builder.beginSection("section " + i);
+            }
+            builder.addParagraph("paragraph number " + i + ".");
+            if (i % 1000 == 999) {
+                builder.endSection();
+            }
+        }
+        Document document = builder.build();
+        Document parsed = parse(document.toMarkdown());
+
+        assertEquals(document, parsed);
+        assertEquals(300000, parsed.bodyWordCount());
+    }
+
+    @Test public void testLongLine() throws IOException, ConversionException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            sb.append("word#").append(i).append(' ');
+        }
+        Document document = section(sb.toString(), paragraph(sb.toString()));
+
+        assertEquals(document, parse(document.toMarkdown()));
+    }
+
+    //*************************************syntax Tests*************************************\\
+
+    @Test public void testHeadingLevels() throws IOException {
+        assertEquals(section("a", section("b", empty())).append(section("c", empty())),
+                parse("# a\n### b\n# c"));
+        assertEquals(section("a", empty()).append(section("b", empty())), parse("## a\n# b\n"));
+        assertEquals(section("", paragraph("p")), parse("#\n\np"));
+    }
+
+    @Test public void testParagraphs() throws IOException {
+        assertEquals(paragraph("one two").append(paragraph("three")), parse("one\ntwo\n\n\nthree\n"));
+        assertEquals(paragraph("a").append(section("h", paragraph("b"))), parse("a\n# h\nb"));
+        assertEquals(paragraph("a b"), parse("a\r\nb\r\n"));
+    }
+
+    @Test public void testNotHeadings() throws IOException {
+        assertEquals(paragraph("#tag ####### seven"), parse("#tag\n####### seven"));
+    }
+
+    @Test public void testUnescape() throws IOException {
+        assertEquals(paragraph("\\a #b \\"), parse("\\a \\#b \\"));
+        char[] chars = "x\\*\\\\\\z".toCharArray();
+
+        assertEquals(5, Escaper.MARKDOWN.unescape(chars, 1, chars.length));
+        assertEquals("x*\\\\z", new String(chars, 0, 5));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testUnescapeHTML() {
+        Escaper.HTML.unescape(new char[0], 0, 0);
+    }
+}
@@ -0,0 +1,212 @@
+package awedoctime;
+
+import java.util.Arrays;
+
+/**
+ * The sections of a document by their number, such as "3.2.1" for the
+ * first subsection of the second subsection of the third top-level
+ * section, so that one section can be rendered or counted without walking
+ * the whole document. A number is the path of the section from the top
+ * level, so it is the number tableOfContents writes for the section unless
+ * a paragraph comes before the section in its parent, where the table of
+ * contents numbers the sections afresh from 1.
+ * <p>
+ * An outline is built in one walk of its document and holds, for every
+ * section, that section alone as a Document sharing the nodes of the
+ * original (the Section node itself, a view of a FlatDocument or of a
+ * StoredDocument), and the sections under every section in an int array.
+ * Finding a section then takes one array lookup per number of its path,
+ * O(depth), and rendering it or counting its words costs what it does for
+ * a document of that one section. RopeDocument, FlatDocument,
+ * StoredDocument and SliceDocument build their outline when first asked
+ * for it and keep it; Paragraphs and Sections, every node of a chain, do
+ * not have room for one and build it afresh each time, so whoever looks
+ * up many sections of a chain keeps the outline Outline.of returns. An
+ * outline is immutable and safe to share between threads.
+ */
+public final class Outline {
+    /** Outline of every document without sections */
+    static final Outline EMPTY = new Outline(new Document[1], new int[] { 0, 0 }, new int[0]);
+
+    private final Document[] sections;
+    private final int[] childStarts;
+    private final int[] children;
+
+    // Rep invariant:
+    //      sections[0] is null, and there are n = sections.length - 1
+    //      sections, 1 to n in document order
+    //      childStarts has n + 2 entries, is non-decreasing from 0 and ends
+    //      with n == children.length
+    // Abstraction function:
+    //      represents the outline in which 0 stands for the document, the
+    //      sections directly under s are children[childStarts[s],
+    //      childStarts[s + 1]) in order, and section s is sections[s]
+
+    private Outline(Document[] sections, int[] childStarts, int[] children) {
+        this.sections = sections;
+        this.childStarts = childStarts;
+        this.children = children;
+    }
+
+    /**
+     * @param document any document
+     * @return the outline of document, built in time linear in its size the
+     *         first time it is asked for, and every time for a Paragraph
+     *         or Section chain
+     * @throws IllegalArgumentException if a section of document is of
+     *         another implementation of Document, whose contents cannot be
+     *         seen
+     */
+    public static Outline of(Document document) {
+        // paragraphs take no number, so only the sections of another implementation are out of reach
+        Document item = document;
+        while (!(item instanceof Aggregated) && !item.isEmpty()) {
+            if (!item.startsWithParagraph()) {
+                throw new IllegalArgumentException("cannot outline the sections of " + item.getClass().getName());
+            }
+            item = item.getNextItemOfSameHeirarchy();
+        }
+        return item instanceof Aggregated ? ((Aggregated) item).outline() : EMPTY;
+    }
+
+    /**
+     * Walks document once to find its sections
+     * @param document a document DocumentCursor can walk
+     */
+    static Outline build(Document document) {
+        Document[] sections = new Document[16];
+        int[] parents = new int[16];
+        // open[d] is the section open at depth d
+        int[] open = new int[8];
+        int count = 0;
+        DocumentCursor cursor = new DocumentCursor(document);
+        for (int event = cursor.next(); event != DocumentCursor.END; event = cursor.next()) {
+            if (event != DocumentCursor.START_SECTION) {
+                continue;
+            }
+            int depth = cursor.depth();
+            count++;
+            if (count == sections.length) {
+                sections = Arrays.copyOf(sections, 2 * count);
+                parents = Arrays.copyOf(parents, 2 * count);
+            }
+            if (depth == open.length) {
+                open = Arrays.copyOf(open, 2 * depth);
+            }
+            sections[count] = cursor.section();
+            parents[count] = depth == 0 ? 0 : open[depth - 1];
+            open[depth] = count;
+        }
+        if (count == 0) {
+            return EMPTY;
+        }
+
+        // group the sections by parent, keeping them in document order
+        int[] childStarts = new int[count + 2];
+        for (int s = 1; s <= count; s++) {
+            childStarts[parents[s] + 1]++;
+        }
+        for (int s = 0; s <= count; s++) {
+            childStarts[s + 1] += childStarts[s];
+        }
+        int[] children = new int[count];
+        int[] next = Arrays.copyOf(childStarts, count + 1);
+        for (int s = 1; s <= count; s++) {
+            children[next[parents[s]]++] = s;
+        }
+        return new Outline(Arrays.copyOf(sections, count + 1), childStarts, children);
+    }
+
+    /**
+     * @return the number of sections of the document, at every depth
+     */
+    public int sectionCount() {
+        return sections.length - 1;
+    }
+
+    /**
+     * @param number the number of a section, positive integers separated by dots, with or without a final
+     *        dot, such as "3.2.1" or "3.2.1."
+     * @return whether or not the document has a section of that number
+     * @throws IllegalArgumentException if number is not such a number
+     */
+    public boolean contains(String number) {
+        return find(parse(number)) > 0;
+    }
+
+    /**
+     * @param number the number of a section, as for contains(String)
+     * @return that section alone, without the sections that follow it,
+     *         sharing the nodes of the document, in O(depth) time
+     * @throws IllegalArgumentException if number is not such a number
+     * @throws IndexOutOfBoundsException if the document has no section of
+     *         that number
+     */
+    public Document section(String number) {
+        int s = find(parse(number));
+        if (s <= 0) {
+            throw new IndexOutOfBoundsException("no section " + number);
+        }
+        return sections[s];
+    }
+
+    /**
+     * @param path the number of each section on the path from the top
+     *        level to a section, from 1, such as 3, 2, 1 for "3.2.1"
+     * @return that section alone, as for section(String)
+     * @throws IndexOutOfBoundsException if path is empty or the document has
+     *         no section of that number
+     */
+    public Document section(int... path) {
+        int s = find(path);
+        if (s <= 0) {
+            throw new IndexOutOfBoundsException("no section " + Arrays.toString(path));
+        }
+        return sections[s];
+    }
+
+    /**
+     * @return the section at path, or 0 if there is none
+     */
+    private int find(int[] path) {
+        int s = 0;
+        for (int number : path) {
+            int start = childStarts[s];
+            if (number < 1 || number > childStarts[s + 1] - start) {
+                return 0;
+            }
+            s = children[start + number - 1];
+        }
+        return s;
+    }
+
+    /**
+     * @return the numbers of the path written in number
+     * @throws IllegalArgumentException if number is not positive integers
+     *         separated by dots, with or without a final dot
+     */
+    private static int[] parse(String number) {
+        int length = number.endsWith(".") ? number.length() - 1 : number.length();
+        int[] path = new int[8];
+        int count = 0;
+        int value = 0;
+        int digits = 0;
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? number.charAt(i) : '.';
+            if (c >= '0' && c <= '9' && digits < 9) {
+                value = 10 * value + (c - '0');
+                digits++;
+            } else if (c == '.' && value > 0) {
+                if (count == path.length) {
+                    path = Arrays.copyOf(path, 2 * count);
+                }
+                path[count++] = value;
+                value = 0;
+                digits = 0;
+            } else {
+                throw new IllegalArgumentException("not a section number: \"" + number + "\"");
+            }
+        }
+        return Arrays.copyOf(path, count);
+    }
+}
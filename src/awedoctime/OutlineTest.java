@@ -0,0 +1,143 @@
+package awedoctime;
+
+import static awedoctime.Document.empty;
+import static awedoctime.Document.paragraph;
+import static awedoctime.Document.section;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import awedoctime.Document.ConversionException;
+
+public class OutlineTest {
+
+    // Methods: Outline.of, sectionCount, contains, section(String),
+    //          section(int...), and outline of every implementation
+    // Partition:
+    // Document empty, paragraphs only, nested sections, sections after
+    //          paragraphs
+    // Implementation Paragraph/Section chain, RopeDocument, FlatDocument
+    //          and its views, StoredDocument and its views, SliceDocument
+    // Number top-level, nested, with and without final dot, absent,
+    //          malformed
+    //
+    // The section found must be the section on that path from the top
+    // level, alone, with its contents; it is the section of that number in
+    // the table of contents unless a paragraph comes before it
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final Document S212 = section("s2.1.2", paragraph("deep words here"));
+    private static final Document MANUAL = paragraph("intro")
+            .append(section("s1", paragraph("one")))
+            .append(section("s2", paragraph("two")
+                    .append(section("s2.1", section("s2.1.1", empty()).append(S212)))
+                    .append(section("s2.2", paragraph("two two")))))
+            .append(section("s3", empty()));
+
+    /**
+     * @return MANUAL as every implementation of Document
+     */
+    private List<Document> implementations() throws IOException {
+        return DocumentFixtures.implementations(MANUAL, folder);
+    }
+
+    //*************************************of Tests*************************************\\
+
+    @Test public void testNoSections() {
+        assertEquals(0, Outline.of(empty()).sectionCount());
+        assertSame(Outline.EMPTY, Outline.of(new Empty()));
+        assertEquals(0, Outline.of(paragraph("a").append(paragraph("b"))).sectionCount());
+        assertFalse(Outline.of(paragraph("a")).contains("1"));
+    }
+
+    @Test public void testCached() throws IOException {
+        List<Document> documents = implementations();
+        // a chain keeps no outline, the caller keeps the one it is given
+        assertNotSame(Outline.of(MANUAL), Outline.of(MANUAL));
+        for (Document document : documents.subList(1, documents.size())) {
+            assertSame(document.getClass().getSimpleName(), Outline.of(document), Outline.of(document));
+        }
+    }
+
+    //*************************************section Tests*************************************\\
+
+    @Test public void testSections() throws IOException, ConversionException {
+        String[] numbers = { "1", "2", "2.1", "2.1.1", "2.1.2", "2.2", "3" };
+        String[] headings = { "s1", "s2", "s2.1", "s2.1.1", "s2.1.2", "s2.2", "s3" };
+        int[] wordCounts = { 1, 6, 3, 0, 3, 2, 0 };
+        for (Document document : implementations()) {
+            String name = document.getClass().getSimpleName();
+            Outline outline = Outline.of(document);
+            assertEquals(name, 7, outline.sectionCount());
+            for (int i = 0; i < numbers.length; i++) {
+                Document section = outline.section(numbers[i]);
+                assertEquals(name + " " + numbers[i], headings[i], section.getText());
+                assertTrue(name + " " + numbers[i], section.getNextItemOfSameHeirarchy().isEmpty());
+                assertEquals(name + " " + numbers[i], wordCounts[i], section.bodyWordCount());
+                assertSame(section, outline.section(numbers[i] + "."));
+            }
+            assertEquals(name, S212.toHTML(), outline.section(2, 1, 2).toHTML());
+            assertEquals(name, S212.toMarkdown(), outline.section("2.1.2").toMarkdown());
+            assertEquals(name, S212, outline.section("2.1.2"));
+        }
+    }
+
+    @Test public void testMatchesTableOfContents() {
+        Document document = section("s1", section("s1.1", paragraph("one")))
+                .append(section("s2", section("s2.1", empty()).append(S212)))
+                .append(section("s3", empty()));
+        Document contents = document.tableOfContents();
+        Outline outline = Outline.of(document);
+        for (Document line = contents; !line.isEmpty(); line = line.getNextItemOfSameHeirarchy()) {
+            String text = line.getText();
+            String number = text.substring(0, text.indexOf(' '));
+            String heading = text.substring(text.indexOf(' ') + 1, text.lastIndexOf(" ("));
+            assertEquals(heading, outline.section(number).getText());
+        }
+    }
+
+    @Test public void testSectionsAfterParagraph() {
+        // "two" comes before s2.1, so the table of contents numbers it 1.
+        assertEquals("1. s2.1 (3 words)", MANUAL.tableOfContents()
+                .getNextItemOfSameHeirarchy().getNextItemOfSameHeirarchy().getText());
+        assertEquals("s2.1", Outline.of(MANUAL).section("2.1").getText());
+    }
+
+    @Test public void testContains() {
+        Outline outline = Outline.of(MANUAL);
+        assertTrue(outline.contains("2.1.2"));
+        assertTrue(outline.contains("3."));
+        assertFalse(outline.contains("4"));
+        assertFalse(outline.contains("2.3"));
+        assertFalse(outline.contains("1.1"));
+        assertFalse(outline.contains("2.1.2.1"));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testAbsent() {
+        Outline.of(MANUAL).section("2.3");
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testEmptyPath() {
+        Outline.of(MANUAL).section(new int[0]);
+    }
+
+    @Test public void testMalformed() {
+        for (String number : new String[] { "", ".", "0", "1..2", "a", "1.a", "-1", "1,2", "2.1.2..",
+                "99999999999" }) {
+            try {
+                Outline.of(MANUAL).section(number);
+                fail("expected IllegalArgumentException for \"" + number + "\"");
+            } catch (IllegalArgumentException iae) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package awedoctime;
+
+/**
+ * The formats a document can be converted to, as by Document.toLaTeX,
+ * toMarkdown and toHTML
+ */
+public enum OutputFormat {
+    LATEX(DocumentRenderer.MAXLATEXLEVELS),
+    MARKDOWN(DocumentRenderer.MAXMARKDOWNLEVELS),
+    HTML(DocumentRenderer.MAXHTMLLEVELS);
+
+    private final int maxLevels;
+
+    private OutputFormat(int maxLevels) {
+        this.maxLevels = maxLevels;
+    }
+
+    /**
+     * @return the deepest level of sections the format can express, where
+     *         the top level = 1
+     */
+    public int maxLevels() {
+        return maxLevels;
+    }
+}
@@ -1,41 +1,26 @@
 package awedoctime;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
-public class Paragraph implements Document {
+public class Paragraph implements Aggregated {
     private String text;
     private Document rest;
-    private static final String ESCAPELATEX= "&%$#~_^\\{}";
-    private static final String ESCAPEMARKDOWN = "\\`*_{}[]()#+-.!";
-    private static final String ESCAPEHTML = "<>&\"";
-
-
-    private static final Map<String, String> HTMLMap;
-    static {
-        Map<String, String> aMap = new HashMap<String, String>();
-        aMap.put("&", "&amp");
-        aMap.put("<", "&lt");
-        aMap.put(">", "&gt");
-        aMap.put("\"", "&quot");
-
-        HTMLMap = Collections.unmodifiableMap(aMap);
-    }
-
-
-
+    private final int wordCount;
+    private final int hashCode;
+    private final long fingerprint;
+    private final int maxDepth;
+    private final int htmlLevels;
+    private volatile RenderedSize renderedSize;
 
     // Rep Invariant:
     // 
     //      text - containing English-language characters
     //             and punctuation, may not contain newlines
     //      rest - can be a Document, Paragraph, Section or Empty
+    //      wordCount - the number of words in text and rest
+    //      hashCode, fingerprint - hash code and Fingerprint of this
+    //      maxDepth, htmlLevels - depth and HTML levels of this, see Depth
+    //      renderedSize - null or the RenderedSize of this
     // Abstract Function:
     //      represents a paragraph in a document with a specific 
     //      textual and representation
@@ -47,6 +32,11 @@ public class Paragraph implements Document {
     public Paragraph(String text) {
         this.text = text;
         this.rest = new Empty();
+        this.wordCount = getWordCountInLIne(text);
+        this.hashCode = 31 * (31 + rest.hashCode()) + text.hashCode();
+        this.fingerprint = Fingerprint.link(Fingerprint.paragraph(text), Fingerprint.EMPTY);
+        this.maxDepth = 0;
+        this.htmlLevels = 0;
     }
 
     /**
@@ -58,6 +48,11 @@ public class Paragraph implements Document {
     public Paragraph(String text, Document rest) {
         this.text = text;
         this.rest = rest;
+        this.wordCount = getWordCountInLIne(text) + rest.bodyWordCount();
+        this.hashCode = 31 * (31 + rest.hashCode()) + text.hashCode();
+        this.fingerprint = Fingerprint.link(Fingerprint.paragraph(text), Fingerprint.of(rest));
+        this.maxDepth = Depth.of(rest);
+        this.htmlLevels = Depth.paragraphHTMLLevels(Depth.levels(rest, OutputFormat.HTML));
     }
 
 
@@ -81,9 +76,7 @@ public class Paragraph implements Document {
      */
     @Override
     public Document getBody() {
-
-        return rest.getBody();
-
+        return Chains.body(this);
     }
 
     /**
@@ -91,7 +84,7 @@ public class Paragraph implements Document {
      */
     @Override
     public Document append(Document other) {
-        return new Paragraph(text, rest.append(other));
+        return Chains.append(this, other);
     }
 
 
@@ -106,7 +99,7 @@ public class Paragraph implements Document {
 
     @Override
     public Document getLeadingParagraphs() {
-        return new Paragraph(text, rest.getLeadingParagraphs());
+        return Chains.leadingParagraphs(this);
     }
     
     @Override
@@ -118,12 +111,12 @@ public class Paragraph implements Document {
     /**
      * Returns the number of words in the paragraphs of this document. Words
      * are delimited by one or more spaces and by the beginnings and ends of
-     * paragraphs.
+     * paragraphs. The count is computed once, when this is constructed.
      * @return body word count
      */
     @Override
     public int bodyWordCount() {
-        return getWordCountInLIne(text) + rest.bodyWordCount();
+        return wordCount;
     }
 
     /**
@@ -131,16 +124,46 @@ public class Paragraph implements Document {
      * @param textToMatch the string of words to count
      * @return the number of words in textToMatch
      */
-    private int getWordCountInLIne(String textToMatch) {
-        Pattern pattern = Pattern.compile("[^\\s]+");
-        Matcher matcher = pattern.matcher(textToMatch);
+    static int getWordCountInLIne(String textToMatch) {
+        // a word is a run of characters matching [^\s]+
         int count = 0;
-        while (matcher.find()) {
-            count++;
+        boolean inWord = false;
+        for (int i = 0; i < textToMatch.length(); i++) {
+            boolean space = isSpace(textToMatch.charAt(i));
+            if (!space && !inWord) {
+                count++;
+            }
+            inWord = !space;
+        }
+        return count;
+    }
+
+    /**
+     * counts the number of words in text[start, end), with the same rule
+     * as getWordCountInLIne(String)
+     */
+    static int getWordCountInLIne(char[] text, int start, int end) {
+        int count = 0;
+        boolean inWord = false;
+        for (int i = start; i < end; i++) {
+            boolean space = isSpace(text[i]);
+            if (!space && !inWord) {
+                count++;
+            }
+            inWord = !space;
         }
         return count;
     }
 
+    /**
+     * @param c any character
+     * @return whether or not c is matched by \\s in a regular expression
+     */
+    static boolean isSpace(char c) {
+        // \t, \n, \u000B, \f and \r are the consecutive characters 9 to 13
+        return c <= ' ' && (c == ' ' || (c >= '\t' && c <= '\r'));
+    }
+
     /**
      * Returns a document containing one paragraph for every section heading in
      * this document. Each paragraph contains:
@@ -156,9 +179,7 @@ public class Paragraph implements Document {
      */
     @Override
     public Document tableOfContents() {
-        Integer[] levelArray = new Integer[] { 1 };
-        List<Integer> level = new ArrayList<Integer>(Arrays.asList(levelArray));
-        return createDocumentLevel(level);
+        return TableOfContentsBuilder.build(this);
     }
 
     /**
@@ -171,7 +192,7 @@ public class Paragraph implements Document {
      */
     @Override
     public Document createDocumentLevel(List<Integer> contentLevel) {
-        return rest.tableOfContents();
+        return TableOfContentsBuilder.build(this, contentLevel);
     }
 
     /**
@@ -188,11 +209,7 @@ public class Paragraph implements Document {
      */
     @Override
     public String toLaTeX() throws ConversionException {
-        int firstLevel = 1;
-        String start = "\\documentclass{article}" 
-                + "\n" + "\\begin{document}";
-        String end   = "\n" + "\\end{document}";
-        return start + toLaTexHelper(firstLevel) + end;    
+        return DocumentRenderer.toLaTeX(this);
     }
 
     /** 
@@ -202,8 +219,7 @@ public class Paragraph implements Document {
      */
     @Override
     public String toLaTexHelper(int level) throws ConversionException {
-        String txt = escapeText(ESCAPELATEX);
-        return "\n\n" + txt + rest.toLaTexHelper(level); 
+        return DocumentRenderer.toLaTeX(this, level);
     }
 
     /**
@@ -226,29 +242,7 @@ public class Paragraph implements Document {
      * @return a string of Markdown-escaped text
      */
     public String toMarkdownHelper(int level) throws ConversionException{
-        String txt = escapeText(ESCAPEMARKDOWN);
-        return "\n\n" + txt + rest.toMarkdownHelper(level);
-    }
-
-    /**
-     * 
-     * @param escapeString a string of characters that need to be escaped
-     * in a specific document format
-     * @return 
-     */
-    private String escapeText(String escapeString) {
-        StringBuilder sb = new StringBuilder("");
-        for (int i = 0; i < text.length(); i++){
-            String c = Character.toString(text.charAt(i));        
-            if (escapeString.indexOf(c) == -1) {
-                //index does not occur
-                sb.append(c);
-            } else {
-                sb.append("\\");
-                sb.append(c);
-            }
-        }
-        return sb.toString();
+        return DocumentRenderer.toMarkdown(this, level);
     }
 
     @Override
@@ -261,14 +255,7 @@ public class Paragraph implements Document {
      * @throws ConversionException if the document cannot be converted
      */
     public String toHTML() throws ConversionException{
-        String header ="<html lang = \"en\">"
-                + "\n" + "<head>" 
-                + "\n" + "<title>The Title</title>"
-                + "\n" + "</head>"
-                + "\n" + "<body>";
-        int firstLevel = 1;
-        String closer = "\n"+ "</body>" + "\n" + "</html>";
-        return header + toHTMLHelper(firstLevel) + closer; 
+        return DocumentRenderer.toHTML(this);
     }
 
     @Override
@@ -278,24 +265,7 @@ public class Paragraph implements Document {
      * @return a string of HTML-escaped text if text can be converted to HTML
      */
     public String toHTMLHelper(int level) throws ConversionException{
-
-        String txt = escapeTextToHTML(ESCAPEHTML);
-        return "\n" + "<p>" + txt + "</p>" + rest.toHTMLHelper(level+1);
-    }
-
-    private String escapeTextToHTML(String escapeString) {
-        StringBuilder sb = new StringBuilder("");
-        for (int i = 0; i < text.length(); i++){
-            String c = Character.toString(text.charAt(i));        
-            if (escapeString.indexOf(c) == -1) {
-                //index does not occur
-                sb.append(c);
-            } else {
-                String escape = HTMLMap.get(c);
-                sb.append(escape);
-            }
-        }
-        return sb.toString();
+        return DocumentRenderer.toHTML(this, level);
     }
 
     /**
@@ -314,19 +284,80 @@ public class Paragraph implements Document {
      */
     @Override
     public String printDocument(int level) {
-        return text + "\n" + rest.printDocument(level);
+        return DocumentRenderer.toString(this, level);
+    }
+
+    /**
+     * @return the structural fingerprint of this document, see Fingerprint
+     */
+    public long fingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return the greatest number of sections nested in one another in this
+     *         document, computed when this was built; see Depth
+     */
+    public int maxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return the exact length of this document rendered in every format,
+     *         computed once, when first needed; see RenderedSize
+     */
+    public RenderedSize renderedSize() {
+        RenderedSize size = renderedSize;
+        if (size == null) {
+            size = RenderedSize.measure(this);
+            renderedSize = size;
+        }
+        return size;
+    }
+
+    /**
+     * @return the outline of the sections of this document, built by
+     *         walking it once each time it is asked for, as a node of a
+     *         chain does not keep it; see Outline
+     */
+    public Outline outline() {
+        return Outline.build(this);
     }
 
     /**
-     * @return the hashCode
+     * @param from index of the first top-level item of the slice, from 0
+     * @param to index just after the last top-level item of the slice
+     * @return the top-level items [from, to) of this, sharing its nodes; see
+     *         DocumentViews
+     * @throws IndexOutOfBoundsException if from is negative, to is less
+     *         than from or this has fewer than to top-level items
+     */
+    public Document slice(int from, int to) {
+        return SliceDocument.slice(this, Integer.MAX_VALUE, null, from, to);
+    }
+
+    /**
+     * @return the HTML levels of this document, see Depth
+     */
+    public int htmlLevels() {
+        return htmlLevels;
+    }
+
+    /**
+     * @param format format to convert this document to
+     * @return whether or not this document can be converted to format,
+     *         in constant time
+     */
+    public boolean canConvert(OutputFormat format) {
+        return Depth.canConvert(this, format);
+    }
+
+    /**
+     * @return the hashCode, computed when this was built
      */
     @Override
     public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + rest.hashCode();
-        result = prime * result + text.hashCode();
-        return result;
+        return hashCode;
     }
 
     /**
@@ -336,24 +367,11 @@ public class Paragraph implements Document {
     public boolean equals(Object obj) {
         if (this == obj)
             return true;
-        if (obj == null)
-            return false;
-        if (getClass() != obj.getClass())
+        if (!(obj instanceof Document))
             return false;
-        Paragraph other = (Paragraph) obj;
-        if (text == null) {
-            if (other.getText() != null)
-                return false;
-        } else if (!text.equals(other.getText()))
+        if (fingerprint != Fingerprint.of((Document) obj))
             return false;
-        if (rest == null) {
-            if (other.getNextItemOfSameHeirarchy() != null)
-                return false;
-        } else if (!rest.equals(other.getNextItemOfSameHeirarchy())) {
-            return false;
-        }
-
-        return true;
+        return DocumentCursor.sameContents(this, (Document) obj);
     }
 
 }
@@ -103,6 +103,16 @@ public class ParagraphTest {
         assertNotEquals(firstParagraph.hashCode(), empty.hashCode());
     }
 
+    @Test public void testHashCodeOfLinkedForm() {
+        Document rest = section("s", paragraph("b"));
+        int expectedSection = 31 * (31 * (31 + (31 * 31 + "b".hashCode())) + "s".hashCode());
+        int expectedParagraph = 31 * (31 + expectedSection) + "a".hashCode();
+
+        assertEquals(expectedSection, rest.hashCode());
+        assertEquals(expectedParagraph, new Paragraph("a", rest).hashCode());
+        assertEquals(expectedParagraph, RopeDocument.of(new Paragraph("a", rest)).hashCode());
+    }
+
 
     //*************************************append Tests*************************************\\
 
@@ -138,6 +148,20 @@ public class ParagraphTest {
         assertEquals(9, twoParagraphInOrder.bodyWordCount());
     }
 
+    @Test public void testBodyWordCountOtherWhitespace() {
+        assertEquals(0, paragraph("").bodyWordCount());
+        assertEquals(0, paragraph(" \t ").bodyWordCount());
+        assertEquals(4, paragraph("\tone\ttwo\u000Bthree\ffour\r").bodyWordCount());
+        assertEquals(2, paragraph("\u00a0non-breaking\u00a0 space").bodyWordCount());
+    }
+
+    @Test public void testBodyWordCountAfterAppend() {
+        Document appended = twoParagraphInOrder.append(section("Section", paragraph("one more word")));
+
+        assertEquals(12, appended.bodyWordCount());
+        assertEquals(9, twoParagraphInOrder.bodyWordCount());
+    }
+
     //*************************************toMarkdown Tests*************************************\\
 
     @Test
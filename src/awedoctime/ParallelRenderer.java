@@ -0,0 +1,248 @@
+package awedoctime;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReference;
+
+import awedoctime.Document.ConversionException;
+
+/**
+ * Renders large documents on several threads of a ForkJoinPool. The
+ * document is split at the boundaries of its sections: a run of sibling
+ * items is cut in two halves of about the same amount of text, and a
+ * section that is too big by itself is rendered as its heading, its
+ * contents split in turn, and its end. Parts with less text than a
+ * threshold are rendered by DocumentRenderer into separate buffers, which
+ * are written out in document order at the end, so the output is the same,
+ * char for char, as that of DocumentRenderer.
+ * <p>
+ * Documents that are not FlatDocuments are copied into one first, which
+ * takes a sequential pass over them. A ParallelRenderer is immutable and
+ * safe to share between threads.
+ */
+public final class ParallelRenderer {
+    /** The default number of chars of text below which a part is rendered on one thread */
+    public static final int DEFAULT_THRESHOLD = 1 << 16;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    // Rep invariant:
+    //      threshold > 0
+    // Abstraction function:
+    //      represents rendering on the threads of pool, in parts of at most
+    //      about threshold chars of text when the document can be split so
+
+    /**
+     * Make a renderer that uses the common ForkJoinPool and the default
+     * threshold
+     */
+    public ParallelRenderer() {
+        this(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Make a renderer
+     * @param pool pool whose threads render
+     * @param threshold number of chars of text below which a part of a
+     *        document is rendered on one thread, at least 1
+     * @throws IllegalArgumentException if threshold < 1
+     */
+    public ParallelRenderer(ForkJoinPool pool, int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("threshold must be at least 1: " + threshold);
+        }
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * @param document document to render
+     * @return the same as document.toLaTeX()
+     * @throws ConversionException if the document cannot be converted
+     */
+    public String toLaTeX(Document document) throws ConversionException {
+        return render(document, OutputFormat.LATEX);
+    }
+
+    /**
+     * @param document document to render
+     * @return the same as document.toMarkdown()
+     * @throws ConversionException if the document cannot be converted
+     */
+    public String toMarkdown(Document document) throws ConversionException {
+        return render(document, OutputFormat.MARKDOWN);
+    }
+
+    /**
+     * @param document document to render
+     * @return the same as document.toHTML()
+     * @throws ConversionException if the document cannot be converted
+     */
+    public String toHTML(Document document) throws ConversionException {
+        return render(document, OutputFormat.HTML);
+    }
+
+    /**
+     * @param document document to render
+     * @param format format to render document in
+     * @return document in format, the same as rendered by DocumentRenderer
+     * @throws ConversionException if the document cannot be converted
+     */
+    public String render(Document document, OutputFormat format) throws ConversionException {
+        List<CharSequence> parts = parts(document, format);
+        int length = 0;
+        for (CharSequence part : parts) {
+            length += part.length();
+        }
+        StringBuilder sb = new StringBuilder(length + 128);
+        try {
+            write(parts, format, sb);
+        } catch (IOException ioe) {
+            throw new AssertionError("StringBuilder does not throw IOException", ioe);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes document in format to out, the same as DocumentRenderer does.
+     * Unlike DocumentRenderer, nothing is written when the document cannot
+     * be converted.
+     * @param document document to render
+     * @param format format to render document in
+     * @param out destination of the rendered text
+     * @throws ConversionException if the document cannot be converted
+     * @throws IOException if out throws
+     */
+    public void render(Document document, OutputFormat format, Appendable out)
+            throws ConversionException, IOException {
+        write(parts(document, format), format, out);
+    }
+
+    /**
+     * @return the body of document in format, in parts rendered in the pool
+     * @throws ConversionException if the document cannot be converted
+     */
+    private List<CharSequence> parts(Document document, OutputFormat format) throws ConversionException {
+        FlatDocument flat = FlatDocument.of(document);
+        DocumentRenderer.checkDepth(flat, format, 1);
+        AtomicReference<ConversionException> failure = new AtomicReference<ConversionException>();
+        List<CharSequence> parts = pool.invoke(new Part(format, failure, flat, flat.start(), flat.end(), 1));
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return parts;
+    }
+
+    /**
+     * Writes the body parts between what format puts before and after it
+     */
+    private static void write(List<CharSequence> parts, OutputFormat format, Appendable out) throws IOException {
+        DocumentRenderer.renderStart(format, out);
+        for (CharSequence part : parts) {
+            out.append(part);
+        }
+        DocumentRenderer.renderEnd(format, out);
+    }
+
+    /**
+     * Renders the top-level nodes [from, to) of a FlatDocument, which start
+     * at a given level, into a list of parts in document order
+     */
+    private final class Part extends RecursiveTask<List<CharSequence>> {
+        private static final long serialVersionUID = 1L;
+
+        private final OutputFormat format;
+        private final AtomicReference<ConversionException> failure;
+        private final FlatDocument document;
+        private final int from;
+        private final int to;
+        private final int level;
+
+        private Part(OutputFormat format, AtomicReference<ConversionException> failure,
+                FlatDocument document, int from, int to, int level) {
+            this.format = format;
+            this.failure = failure;
+            this.document = document;
+            this.from = from;
+            this.to = to;
+            this.level = level;
+        }
+
+        @Override
+        protected List<CharSequence> compute() {
+            List<CharSequence> parts = new ArrayList<CharSequence>();
+            if (failure.get() != null || from == to) {
+                return parts;
+            }
+            try {
+                if (document.textLength(from, to) <= threshold
+                        || (document.isParagraph(from) && from + 1 == to)) {
+                    StringBuilder sb = new StringBuilder();
+                    DocumentRenderer.render(document.range(from, to), format, level, sb);
+                    parts.add(sb);
+                } else if (from + document.size(from) == to) {
+                    renderSection(parts);
+                } else {
+                    renderHalves(parts);
+                }
+            } catch (ConversionException ce) {
+                failure.compareAndSet(null, ce);
+            } catch (IOException ioe) {
+                throw new AssertionError("StringBuilder does not throw IOException", ioe);
+            }
+            return parts;
+        }
+
+        /**
+         * Renders the one section of [from, to) as its start, its contents
+         * in parts, and its end
+         */
+        private void renderSection(List<CharSequence> parts) throws ConversionException, IOException {
+            StringBuilder start = new StringBuilder();
+            DocumentRenderer.renderSectionStart(format, document.text(from), level, start);
+            parts.add(start);
+            FlatDocument contents = (FlatDocument) document.contents(from);
+            parts.addAll(new Part(format, failure, contents, contents.start(), contents.end(), level + 1).compute());
+            StringBuilder end = new StringBuilder();
+            DocumentRenderer.renderSectionEnd(format, level, end);
+            parts.add(end);
+        }
+
+        /**
+         * Renders [from, to), which has more than one top-level node, as two
+         * halves with about the same amount of text, the second one forked
+         */
+        private void renderHalves(List<CharSequence> parts) {
+            int half = document.textLength(from, to) / 2;
+            int middle = from;
+            int paragraphs = 0;
+            do {
+                if (document.isParagraph(middle)) {
+                    paragraphs++;
+                }
+                middle += document.size(middle);
+            } while (middle < to && document.textLength(from, middle) < half);
+            if (middle == to) {
+                // the last node holds most of the text: split it off
+                middle = from;
+                paragraphs = 0;
+                while (middle + document.size(middle) < to) {
+                    if (document.isParagraph(middle)) {
+                        paragraphs++;
+                    }
+                    middle += document.size(middle);
+                }
+            }
+            // as DocumentRenderer.renderHTML does, every paragraph moves what follows it one level down
+            int secondLevel = format == OutputFormat.HTML ? level + paragraphs : level;
+            Part second = new Part(format, failure, document, middle, to, secondLevel);
+            second.fork();
+            parts.addAll(new Part(format, failure, document, from, middle, level).compute());
+            parts.addAll(second.join());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package awedoctime;
+
+import static awedoctime.Document.empty;
+import static awedoctime.Document.paragraph;
+import static awedoctime.Document.section;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import awedoctime.Document.ConversionException;
+
+public class ParallelRendererTest {
+
+    // Methods: toLaTeX, toMarkdown, toHTML, render
+    // Partition:
+    // Document empty, one paragraph, paragraphs then nested sections,
+    //          many sections, one section holding most of the text,
+    //          nested too deeply for some formats, not a FlatDocument
+    // Threshold 1 (split as much as possible), default
+    //
+    // The output must be the same as the sequential renderers'
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+    private static final ParallelRenderer FINEST = new ParallelRenderer(POOL, 1);
+
+    private static final Document CHAIN = paragraph("intro & more").append(paragraph("#2 <p>"))
+            .append(section("s1", paragraph("p1 one").append(section("s2", paragraph("p2 _2_")))
+                    .append(section("s2b", paragraph("a").append(paragraph("b"))))))
+            .append(section("s3", empty()));
+
+    @AfterClass public static void shutDown() {
+        POOL.shutdown();
+    }
+
+    /**
+     * Asserts that renderer gives the same output as the sequential
+     * renderers in every format, or fails with the same message
+     */
+    private static void assertSameAsSequential(Document document, ParallelRenderer renderer) {
+        for (OutputFormat format : OutputFormat.values()) {
+            String expected;
+            try {
+                expected = format == OutputFormat.LATEX ? document.toLaTeX()
+                        : format == OutputFormat.MARKDOWN ? document.toMarkdown() : document.toHTML();
+            } catch (ConversionException ce) {
+                expected = ce.getMessage();
+            }
+            String actual;
+            try {
+                actual = renderer.render(document, format);
+            } catch (ConversionException ce) {
+                actual = ce.getMessage();
+            }
+            assertEquals(format.toString(), expected, actual);
+        }
+    }
+
+    //*************************************output Tests*************************************\\
+
+    @Test public void testSmallDocuments() {
+        for (Document document : new Document[] { empty(), paragraph("only"), CHAIN,
+                section("s", section("n", empty())), RopeDocument.of(CHAIN) }) {
+            assertSameAsSequential(document, FINEST);
+            assertSameAsSequential(document, new ParallelRenderer());
+        }
+    }
+
+    @Test public void testManySections() {
+        DocumentBuilder builder = new DocumentBuilder();
+        for (int i = 0; i < 3; i++) {
+            builder.addParagraph("leading " + i);
+        }
+        for (int i = 0; i < 2000; i++) {
+            builder.beginSection("section & " + i).addParagraph("paragraph " + i);
+            if (i % 3 == 0) {
+                builder.addParagraph("second").beginSection("nested " + i).addParagraph("deep").endSection();
+            }
+            builder.endSection();
+        }
+        Document document = builder.build();
+
+        assertSameAsSequential(document, FINEST);
+        assertSameAsSequential(document, new ParallelRenderer(POOL, 1000));
+    }
+
+    @Test public void testOneBigSection() {
+        Document contents = empty();
+        for (int i = 0; i < 50; i++) {
+            contents = contents.append(paragraph("paragraph {" + i + "}"));
+        }
+        Document document = paragraph("small").append(section("big", contents.append(section("inner", contents))));
+
+        assertSameAsSequential(document, new ParallelRenderer(POOL, 200));
+        assertSameAsSequential(paragraph("small").append(section("big", contents)), new ParallelRenderer(POOL, 200));
+    }
+
+    //*************************************error Tests*************************************\\
+
+    @Test(expected = ConversionException.class)
+    public void testTooDeepForLaTeX() throws ConversionException {
+        FINEST.toLaTeX(CHAIN.append(section("1", section("2", section("3", section("4", empty()))))));
+    }
+
+    @Test public void testTooDeepForHTMLOnlyAfterParagraphs() throws ConversionException {
+        Document document = section("1", section("2", section("3", section("4", paragraph("5")))));
+        assertEquals(document.toHTML(), FINEST.toHTML(document));
+        try {
+            FINEST.toHTML(paragraph("a").append(paragraph("b")).append(paragraph("c")).append(document));
+            fail("expected ConversionException");
+        } catch (ConversionException ce) {
+            // the paragraphs move the sections below level 6
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadThreshold() {
+        new ParallelRenderer(POOL, 0);
+    }
+}
@@ -0,0 +1,275 @@
+package awedoctime;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import awedoctime.Document.ConversionException;
+
+/**
+ * Renders documents like DocumentRenderer, but keeps what it rendered of
+ * the contents of every section, keyed by the contents node itself, the
+ * format and the level the contents were rendered at (a section renders
+ * differently at different levels). Documents are immutable and share the
+ * contents of their sections with the documents they were built from, so
+ * after a paragraph or section is appended to a document, rendering the
+ * new document only renders the new and changed nodes and copies the rest
+ * from the cache.
+ * <p>
+ * Nodes are compared by identity, not with equals, which would walk them.
+ * The sections of FlatDocuments and StoredDocuments hand out their
+ * contents as views made afresh every time, so contents of these kinds are
+ * rendered without the cache; only the whole of such a document can hit.
+ * <p>
+ * The cache holds at most a given number of chars of rendered text and
+ * evicts the least recently used fragments beyond it. It keeps the nodes
+ * of its fragments reachable until they are evicted. A RenderCache is safe
+ * to share between threads.
+ */
+public final class RenderCache {
+    private final long capacity;
+    private final LinkedHashMap<Key, String> fragments = new LinkedHashMap<Key, String>(16, 0.75f, true);
+    private long chars;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    // Rep invariant:
+    //      capacity > 0
+    //      chars is the sum of the lengths of the values of fragments,
+    //      chars <= capacity
+    //      fragments.get(new Key(node, format, level)) is node rendered
+    //      by DocumentRenderer.render(node, format, level, ...)
+    //      hits, misses, evictions >= 0
+    // Abstraction function:
+    //      represents a cache of rendered nodes, least recently used first
+    //      in fragments, which has been found hits times, missed misses
+    //      times and had evictions fragments evicted
+    // Thread safety:
+    //      every field but capacity is only accessed with the lock of this
+    //      held; rendering happens without it
+
+    /**
+     * Make an empty cache
+     * @param capacity the greatest number of chars of rendered text the
+     *        cache holds, at least 1
+     * @throws IllegalArgumentException if capacity < 1
+     */
+    public RenderCache(long capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * @param document document to render
+     * @return the same as document.toLaTeX()
+     * @throws ConversionException if the document cannot be converted
+     */
+    public String toLaTeX(Document document) throws ConversionException {
+        return render(document, OutputFormat.LATEX);
+    }
+
+    /**
+     * @param document document to render
+     * @return the same as document.toMarkdown()
+     * @throws ConversionException if the document cannot be converted
+     */
+    public String toMarkdown(Document document) throws ConversionException {
+        return render(document, OutputFormat.MARKDOWN);
+    }
+
+    /**
+     * @param document document to render
+     * @return the same as document.toHTML()
+     * @throws ConversionException if the document cannot be converted
+     */
+    public String toHTML(Document document) throws ConversionException {
+        return render(document, OutputFormat.HTML);
+    }
+
+    /**
+     * @param document document to render
+     * @param format format to render document in
+     * @return document in format, the same as rendered by DocumentRenderer
+     * @throws ConversionException if the document cannot be converted
+     */
+    public String render(Document document, OutputFormat format) throws ConversionException {
+        StringBuilder sb = new StringBuilder();
+        try {
+            render(document, format, sb);
+        } catch (IOException ioe) {
+            throw new AssertionError("StringBuilder does not throw IOException", ioe);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes document in format to out, the same as DocumentRenderer does
+     * @param document document to render
+     * @param format format to render document in
+     * @param out destination of the rendered text
+     * @throws ConversionException if the document cannot be converted,
+     *         which is found before anything is written to out
+     * @throws IOException if out throws
+     */
+    public void render(Document document, OutputFormat format, Appendable out)
+            throws ConversionException, IOException {
+        DocumentRenderer.checkDepth(document, format, 1);
+        DocumentRenderer.renderStart(format, out);
+        out.append(fragment(document, format, 1));
+        DocumentRenderer.renderEnd(format, out);
+    }
+
+    /**
+     * @return the number of times a node was found in the cache
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of times a node was not found in the cache and
+     *         was rendered
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of fragments evicted to stay within the capacity
+     */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of fragments in the cache
+     */
+    public synchronized int size() {
+        return fragments.size();
+    }
+
+    /**
+     * @return the number of chars of rendered text in the cache
+     */
+    public synchronized long chars() {
+        return chars;
+    }
+
+    /**
+     * Removes every fragment from the cache, without counting evictions
+     */
+    public synchronized void clear() {
+        fragments.clear();
+        chars = 0;
+    }
+
+    /**
+     * @return node rendered in format at level, from the cache if it is
+     *         there, and otherwise rendered and put in the cache
+     */
+    private String fragment(Document node, OutputFormat format, int level) throws ConversionException {
+        if (node instanceof Empty) {
+            return "";
+        }
+        Key key = new Key(node, format, level);
+        synchronized (this) {
+            String fragment = fragments.get(key);
+            if (fragment != null) {
+                hits++;
+                return fragment;
+            }
+            misses++;
+        }
+        StringBuilder sb = new StringBuilder();
+        try {
+            renderBody(node, format, level, sb);
+        } catch (IOException ioe) {
+            throw new AssertionError("StringBuilder does not throw IOException", ioe);
+        }
+        String fragment = sb.toString();
+        put(key, fragment);
+        return fragment;
+    }
+
+    /**
+     * Puts fragment in the cache, evicting the least recently used
+     * fragments beyond the capacity; a fragment larger than the capacity
+     * is not kept
+     */
+    private synchronized void put(Key key, String fragment) {
+        if (fragment.length() > capacity) {
+            return;
+        }
+        String old = fragments.put(key, fragment);
+        chars += fragment.length() - (old == null ? 0 : old.length());
+        Iterator<String> eldest = fragments.values().iterator();
+        while (chars > capacity) {
+            chars -= eldest.next().length();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Writes the body of document in format at level to out as
+     * DocumentRenderer.render does, taking the contents of its top-level
+     * sections from the cache
+     */
+    private void renderBody(Document document, OutputFormat format, int level, Appendable out)
+            throws ConversionException, IOException {
+        // as DocumentRenderer.renderHTML does, every paragraph moves what follows it one level down
+        int itemLevel = level;
+        DocumentCursor cursor = new DocumentCursor(document);
+        for (int event = cursor.next(); event != DocumentCursor.END; event = cursor.next()) {
+            if (event == DocumentCursor.PARAGRAPH) {
+                DocumentRenderer.renderParagraph(format, cursor.text(), out);
+                if (format == OutputFormat.HTML) {
+                    itemLevel++;
+                }
+            } else if (event == DocumentCursor.START_SECTION) {
+                DocumentRenderer.renderSectionStart(format, cursor.text(), itemLevel, out);
+                Document contents = cursor.contents();
+                if (!cursor.sharesContents()) {
+                    DocumentRenderer.render(contents, format, itemLevel + 1, out);
+                } else {
+                    out.append(fragment(contents, format, itemLevel + 1));
+                }
+                cursor.skipContents();
+            } else {
+                DocumentRenderer.renderSectionEnd(format, itemLevel, out);
+            }
+        }
+    }
+
+    /**
+     * A node, by identity, rendered in a format at a level
+     */
+    private static final class Key {
+        private final Document node;
+        private final OutputFormat format;
+        private final int level;
+
+        private Key(Document node, OutputFormat format, int level) {
+            this.node = node;
+            this.format = format;
+            this.level = level;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) other;
+            return node == that.node && format == that.format && level == that.level;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(node) + format.hashCode()) + level;
+        }
+    }
+}
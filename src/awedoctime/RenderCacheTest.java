@@ -0,0 +1,148 @@
+package awedoctime;
+
+import static awedoctime.Document.empty;
+import static awedoctime.Document.paragraph;
+import static awedoctime.Document.section;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import awedoctime.Document.ConversionException;
+
+public class RenderCacheTest {
+
+    // Methods: toLaTeX, toMarkdown, toHTML, render, hits, misses, evictions,
+    //          size, chars, clear
+    // Partition:
+    // Document empty, paragraphs only, nested sections, sections after
+    //          paragraphs (HTML levels), nested too deeply for some formats,
+    //          RopeDocument, FlatDocument
+    // Rendering first, again, after an append
+    // Capacity larger than everything, smaller than one fragment, 1
+    //
+    // The output must be the same as the uncached renderers'
+
+    private static final Document CHAIN = paragraph("intro & more").append(paragraph("#2 <p>"))
+            .append(section("s1", paragraph("p1 one").append(section("s2", paragraph("p2 _2_")))
+                    .append(section("s2b", paragraph("a").append(paragraph("b"))))))
+            .append(section("s3", empty()));
+
+    /**
+     * Asserts that cache gives the same output as the uncached renderers in
+     * every format, or fails with the same message
+     */
+    private static void assertSameAsUncached(Document document, RenderCache cache) {
+        for (OutputFormat format : OutputFormat.values()) {
+            String expected;
+            try {
+                expected = format == OutputFormat.LATEX ? document.toLaTeX()
+                        : format == OutputFormat.MARKDOWN ? document.toMarkdown() : document.toHTML();
+            } catch (ConversionException ce) {
+                expected = ce.getMessage();
+            }
+            String actual;
+            try {
+                actual = cache.render(document, format);
+            } catch (ConversionException ce) {
+                actual = ce.getMessage();
+            }
+            assertEquals(format.toString(), expected, actual);
+        }
+    }
+
+    //*************************************render Tests*************************************\\
+
+    @Test public void testSameOutput() throws ConversionException {
+        RenderCache cache = new RenderCache(1 << 20);
+        assertSameAsUncached(empty(), cache);
+        assertSameAsUncached(paragraph("only"), cache);
+        assertSameAsUncached(CHAIN, cache);
+        assertSameAsUncached(CHAIN, cache);
+        assertSameAsUncached(RopeDocument.of(CHAIN).append(CHAIN), cache);
+        assertSameAsUncached(FlatDocument.of(CHAIN), cache);
+        assertSameAsUncached(section("1", section("2", section("3", section("4", paragraph("deep"))))), cache);
+        assertSameAsUncached(paragraph("a").append(paragraph("b")).append(paragraph("c"))
+                .append(paragraph("d")).append(paragraph("e")).append(section("s", paragraph("p"))), cache);
+        assertEquals(CHAIN.toHTML(), cache.toHTML(CHAIN));
+        assertEquals(CHAIN.toLaTeX(), cache.toLaTeX(CHAIN));
+        assertEquals(CHAIN.toMarkdown(), cache.toMarkdown(CHAIN));
+    }
+
+    @Test public void testAppend() throws ConversionException {
+        RenderCache cache = new RenderCache(1 << 20);
+        Document before = CHAIN.append(section("s4", paragraph("p4")));
+        cache.toHTML(before);
+        long misses = cache.misses();
+        Document after = before.append(paragraph("new"));
+
+        assertEquals(after.toHTML(), cache.toHTML(after));
+        // the document and its last section are new, s1 and s3 are found
+        assertEquals(misses + 2, cache.misses());
+        assertTrue(cache.hits() >= 1);
+    }
+
+    @Test public void testRenderAgain() throws ConversionException {
+        RenderCache cache = new RenderCache(1 << 20);
+        cache.toMarkdown(CHAIN);
+        long misses = cache.misses();
+
+        assertEquals(CHAIN.toMarkdown(), cache.toMarkdown(CHAIN));
+        assertEquals(misses, cache.misses());
+        assertEquals(1, cache.hits());
+        // the same contents at another level is another fragment
+        cache.toMarkdown(section("top", CHAIN));
+        assertTrue(cache.misses() > misses);
+    }
+
+    @Test public void testConversionFailureNotCached() {
+        RenderCache cache = new RenderCache(1 << 20);
+        Document deep = section("1", section("2", section("3", section("4", paragraph("deep")))));
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.toLaTeX(deep);
+                fail("expected ConversionException");
+            } catch (ConversionException ce) {
+                // expected
+            }
+        }
+        assertEquals(0, cache.hits());
+    }
+
+    //*************************************capacity Tests*************************************\\
+
+    @Test public void testEviction() throws ConversionException {
+        RenderCache cache = new RenderCache(60);
+        for (int i = 0; i < 10; i++) {
+            Document document = section("s" + i, paragraph("some text " + i));
+            assertEquals(document.toHTML(), cache.toHTML(document));
+            assertTrue(cache.chars() <= 60);
+        }
+        assertTrue(cache.evictions() > 0);
+        assertEquals(20, cache.misses());
+    }
+
+    @Test public void testFragmentsLargerThanCapacity() throws ConversionException {
+        RenderCache cache = new RenderCache(1);
+
+        assertEquals(CHAIN.toLaTeX(), cache.toLaTeX(CHAIN));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.chars());
+        assertEquals(0, cache.evictions());
+    }
+
+    @Test public void testClear() throws ConversionException {
+        RenderCache cache = new RenderCache(1 << 20);
+        cache.toHTML(CHAIN);
+        assertTrue(cache.size() > 0);
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.chars());
+        assertEquals(CHAIN.toHTML(), cache.toHTML(CHAIN));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoCapacity() {
+        new RenderCache(0);
+    }
+}
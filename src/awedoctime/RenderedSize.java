@@ -0,0 +1,307 @@
+package awedoctime;
+
+/**
+ * The exact length of a document rendered in every output format, in chars
+ * and in bytes of UTF-8, known before it is rendered: a renderer can then
+ * allocate its buffer once, and a server can send the length of a response
+ * before its body.
+ * <p>
+ * A RenderedSize does not hold lengths per format and level, but the
+ * counts they are computed from: the number of paragraphs and sections,
+ * the sum of the depths of the sections, the length of all of the text,
+ * and how much escaping for each format and encoding in UTF-8 add to it.
+ * Rendering a section adds a number of chars that depends only on its
+ * level, so these are enough to compute the length at any level, in
+ * constant time. Every implementation in this package computes its
+ * RenderedSize once, when first needed: RopeDocument from its tree, the
+ * others in one walk.
+ */
+public final class RenderedSize {
+    /** RenderedSize of every empty document */
+    static final RenderedSize EMPTY = new RenderedSize(new Counter());
+
+    // the chars escaping adds for each ASCII character, 3 bits per format:
+    // LaTeX in bits 0-2, Markdown in bits 3-5 and HTML in bits 6-8
+    private static final int[] ASCIIEXTRAS = new int[128];
+    static {
+        for (char c = 0; c < ASCIIEXTRAS.length; c++) {
+            ASCIIEXTRAS[c] = Escaper.LATEX.extraLength(c)
+                    | Escaper.MARKDOWN.extraLength(c) << 3
+                    | Escaper.HTML.extraLength(c) << 6;
+        }
+    }
+
+    // chars rendered around the text of a paragraph, and around the
+    // heading of a section at level 1 together with the chars every
+    // further level adds, as written by DocumentRenderer
+    private static final int LATEXPARAGRAPH = "\n\n".length();
+    private static final int LATEXSECTION = "\n".length() + "\\section{".length() + "}".length();
+    private static final int LATEXSECTIONPERLEVEL = "sub".length();
+    private static final int MARKDOWNPARAGRAPH = "\n\n".length();
+    private static final int MARKDOWNSECTION = "\n".length() + "#".length() + " ".length();
+    private static final int MARKDOWNSECTIONPERLEVEL = "#".length();
+    private static final int HTMLPARAGRAPH = "\n<p></p>".length();
+    private static final int HTMLSECTION = "\n<h1></h1>".length();
+
+    private final int paragraphs;
+    private final int sections;
+    private final long sectionDepths;
+    private final long chars;
+    private final long latexExtra;
+    private final long markdownExtra;
+    private final long htmlExtra;
+    private final long utf8Extra;
+
+    // Rep invariant:
+    //      every field >= 0
+    // Abstraction function:
+    //      represents the size of a document of paragraphs paragraphs and
+    //      sections sections, whose sections are nested sectionDepths
+    //      times in all (0 for a top-level section, 1 in one section, ...),
+    //      whose paragraph texts and headings have chars chars in all, to
+    //      which escaping adds latexExtra, markdownExtra and htmlExtra
+    //      chars, and whose UTF-8 encoding has utf8Extra more bytes than
+    //      they have chars
+    private RenderedSize(Counter counter) {
+        this.paragraphs = counter.paragraphs;
+        this.sections = counter.sections;
+        this.sectionDepths = counter.sectionDepths;
+        this.chars = counter.chars;
+        this.latexExtra = counter.latexExtra;
+        this.markdownExtra = counter.markdownExtra;
+        this.htmlExtra = counter.htmlExtra;
+        this.utf8Extra = counter.utf8Extra;
+    }
+
+    /**
+     * @param document any document
+     * @return the rendered size of document, in constant time except the
+     *         first time it is taken of a document of this package; for
+     *         another implementation of Document, only
+     *         a lower bound, as the contents of its sections cannot be seen
+     */
+    public static RenderedSize of(Document document) {
+        if (document instanceof Aggregated) {
+            return ((Aggregated) document).renderedSize();
+        }
+        return walk(document);
+    }
+
+    /**
+     * @param format an output format
+     * @return the number of chars of the document rendered in format, the
+     *         length of the String its toLaTeX, toMarkdown or toHTML
+     *         returns, provided it can be converted (see Depth)
+     */
+    public long length(OutputFormat format) {
+        if (format == OutputFormat.LATEX) {
+            return DocumentRenderer.LATEXSTART.length() + bodyLength(format, 1) + DocumentRenderer.LATEXEND.length();
+        }
+        if (format == OutputFormat.HTML) {
+            return DocumentRenderer.HTMLSTART.length() + bodyLength(format, 1) + DocumentRenderer.HTMLEND.length();
+        }
+        return bodyLength(format, 1);
+    }
+
+    /**
+     * @param format an output format
+     * @return the number of bytes of the document rendered in format and
+     *         encoded in UTF-8, provided it can be converted; an unpaired
+     *         surrogate counts as the one byte it is replaced with
+     */
+    public long utf8Length(OutputFormat format) {
+        // everything but the text is ASCII
+        return length(format) + utf8Extra;
+    }
+
+    /**
+     * @param format an output format
+     * @param level the level at which the document is rendered, where the
+     *        top level = 1
+     * @return the number of chars DocumentRenderer.render writes for the
+     *         document in format at level, provided it can be converted
+     */
+    long bodyLength(OutputFormat format, int level) {
+        if (format == OutputFormat.LATEX) {
+            return chars + latexExtra + (long) LATEXPARAGRAPH * paragraphs
+                    + (long) (LATEXSECTION + LATEXSECTIONPERLEVEL * (level - 1)) * sections
+                    + LATEXSECTIONPERLEVEL * sectionDepths;
+        }
+        if (format == OutputFormat.MARKDOWN) {
+            return chars + markdownExtra + (long) MARKDOWNPARAGRAPH * paragraphs
+                    + (long) (MARKDOWNSECTION + MARKDOWNSECTIONPERLEVEL * (level - 1)) * sections
+                    + MARKDOWNSECTIONPERLEVEL * sectionDepths;
+        }
+        // a level below 10 has one digit whatever it is
+        return chars + htmlExtra + (long) HTMLPARAGRAPH * paragraphs + (long) HTMLSECTION * sections;
+    }
+
+    /**
+     * @param text text of a paragraph
+     * @param rest size of the document that follows it
+     * @return the size of the paragraph followed by rest
+     */
+    static RenderedSize paragraph(String text, RenderedSize rest) {
+        Counter counter = new Counter();
+        counter.paragraph(text);
+        counter.add(rest, 0);
+        return new RenderedSize(counter);
+    }
+
+    /**
+     * @param heading heading of a section
+     * @param contents size of its contents
+     * @param rest size of the document that follows it
+     * @return the size of the section followed by rest
+     */
+    static RenderedSize section(String heading, RenderedSize contents, RenderedSize rest) {
+        Counter counter = new Counter();
+        counter.section(heading, 0);
+        counter.add(contents, 1);
+        counter.add(rest, 0);
+        return new RenderedSize(counter);
+    }
+
+    /**
+     * @return the size of the document made of the items of first followed
+     *         by those of second, at the same level
+     */
+    static RenderedSize concat(RenderedSize first, RenderedSize second) {
+        Counter counter = new Counter();
+        counter.add(first, 0);
+        counter.add(second, 0);
+        return new RenderedSize(counter);
+    }
+
+    /**
+     * Finds the size of a document of another implementation of Document
+     * from its top-level items, up to the first one of this package, and
+     * counts the contents of its sections, which cannot be seen through
+     * Document, as empty
+     */
+    private static RenderedSize walk(Document document) {
+        Counter counter = new Counter();
+        Document item = document;
+        while (!(item instanceof Aggregated) && !item.isEmpty()) {
+            if (item.startsWithParagraph()) {
+                counter.paragraph(item.getText());
+            } else {
+                counter.section(item.getText(), 0);
+            }
+            item = item.getNextItemOfSameHeirarchy();
+        }
+        if (item instanceof Aggregated) {
+            counter.add(((Aggregated) item).renderedSize(), 0);
+        }
+        return new RenderedSize(counter);
+    }
+
+    /**
+     * Walks document once to find its size
+     * @param document a document DocumentCursor can walk
+     */
+    static RenderedSize measure(Document document) {
+        Counter counter = new Counter();
+        DocumentCursor cursor = new DocumentCursor(document);
+        for (int event = cursor.next(); event != DocumentCursor.END; event = cursor.next()) {
+            if (event == DocumentCursor.PARAGRAPH) {
+                counter.paragraph(cursor.text());
+            } else if (event == DocumentCursor.START_SECTION) {
+                counter.section(cursor.text(), cursor.depth());
+            }
+        }
+        return new RenderedSize(counter);
+    }
+
+    /**
+     * Adds up the counts of a RenderedSize, one paragraph or section or one
+     * other size at a time
+     */
+    static final class Counter {
+        private int paragraphs;
+        private int sections;
+        private long sectionDepths;
+        private long chars;
+        private long latexExtra;
+        private long markdownExtra;
+        private long htmlExtra;
+        private long utf8Extra;
+
+        /**
+         * Counts a paragraph of text
+         */
+        void paragraph(CharSequence text) {
+            paragraph(text, 0, text.length());
+        }
+
+        /**
+         * Counts the paragraph text[start, end)
+         */
+        void paragraph(CharSequence text, int start, int end) {
+            paragraphs++;
+            text(text, start, end);
+        }
+
+        /**
+         * Counts a section with heading at depth, without its contents
+         */
+        void section(CharSequence heading, int depth) {
+            section(heading, 0, heading.length(), depth);
+        }
+
+        /**
+         * Counts the section with heading[start, end) at depth, without its
+         * contents
+         */
+        void section(CharSequence heading, int start, int end, int depth) {
+            sections++;
+            sectionDepths += depth;
+            text(heading, start, end);
+        }
+
+        /**
+         * Counts a document of size at depth
+         */
+        void add(RenderedSize size, int depth) {
+            paragraphs += size.paragraphs;
+            sections += size.sections;
+            sectionDepths += size.sectionDepths + (long) depth * size.sections;
+            chars += size.chars;
+            latexExtra += size.latexExtra;
+            markdownExtra += size.markdownExtra;
+            htmlExtra += size.htmlExtra;
+            utf8Extra += size.utf8Extra;
+        }
+
+        private void text(CharSequence text, int start, int end) {
+            chars += end - start;
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                if (c < ASCIIEXTRAS.length) {
+                    int extras = ASCIIEXTRAS[c];
+                    if (extras != 0) {
+                        latexExtra += extras & 7;
+                        markdownExtra += extras >>> 3 & 7;
+                        htmlExtra += extras >>> 6;
+                    }
+                } else if (c < 0x800) {
+                    utf8Extra += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < end
+                        && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    // 4 bytes for the 2 chars of the pair
+                    utf8Extra += 2;
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    utf8Extra += 2;
+                }
+            }
+        }
+
+        /**
+         * @return the size counted so far
+         */
+        RenderedSize build() {
+            return new RenderedSize(this);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package awedoctime;
+
+import static awedoctime.Document.empty;
+import static awedoctime.Document.paragraph;
+import static awedoctime.Document.section;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import awedoctime.Document.ConversionException;
+
+public class RenderedSizeTest {
+
+    // Methods: RenderedSize.of, length, utf8Length, bodyLength, and
+    //          renderedSize of every implementation
+    // Partition:
+    // Document empty, paragraphs only, nested sections, sections after
+    //          paragraphs
+    // Text plain, escaped in some formats, non-ASCII of 2 and 3 bytes,
+    //          surrogate pairs, unpaired surrogates
+    // Implementation Paragraph/Section chain, RopeDocument, FlatDocument
+    //          and its views, StoredDocument and its views, SliceDocument
+    // Level 1, deeper
+    //
+    // Lengths must be those of the rendered Strings
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final Document CHAIN = paragraph("intro & more \\ *bold* [x](y) <p> \"q\" $5 ~ ^ {}")
+            .append(paragraph("caf\u00e9 \u20ac \ud83d\ude00 lone \ud83d end \ude00"))
+            .append(section("s1 #1. _a_", paragraph("p1 one").append(section("s2 %", paragraph("p2 #2")))))
+            .append(section("s3", empty()));
+
+    /**
+     * Asserts that every implementation of document has the lengths of its
+     * renderings in every format
+     */
+    private void assertLengths(Document document) throws IOException, ConversionException {
+        String[] renderings = { document.toLaTeX(), document.toMarkdown(), document.toHTML() };
+        for (Document implementation : DocumentFixtures.implementations(document, folder)) {
+            RenderedSize size = RenderedSize.of(implementation);
+            String name = implementation.getClass().getSimpleName();
+            for (OutputFormat format : OutputFormat.values()) {
+                String rendering = renderings[format.ordinal()];
+                assertEquals(name + " " + format, rendering.length(), size.length(format));
+                assertEquals(name + " " + format, rendering.getBytes(StandardCharsets.UTF_8).length,
+                        size.utf8Length(format));
+            }
+        }
+    }
+
+    //*************************************length Tests*************************************\\
+
+    @Test public void testEmpty() throws IOException, ConversionException {
+        assertLengths(empty());
+        assertEquals(0, RenderedSize.of(empty()).length(OutputFormat.MARKDOWN));
+        assertSame(RenderedSize.EMPTY, new Empty().renderedSize());
+    }
+
+    @Test public void testParagraphs() throws IOException, ConversionException {
+        assertLengths(paragraph("one"));
+        assertLengths(paragraph("a & b").append(paragraph("<c>")).append(paragraph("")));
+    }
+
+    @Test public void testSections() throws IOException, ConversionException {
+        assertLengths(CHAIN);
+        assertLengths(section("1", section("2", section("3", paragraph("deepest")))).append(section("1b", empty())));
+        assertLengths(paragraph("a").append(paragraph("b")).append(section("x", paragraph("c")
+                .append(section("y", empty())))));
+    }
+
+    @Test public void testRope() throws IOException, ConversionException {
+        Document rope = RopeDocument.of(CHAIN).append(RopeDocument.of(section("more", paragraph("x \u00e9"))));
+        assertLengths(rope);
+        assertEquals(rope.toHTML().length(), ((RopeDocument) rope).renderedSize().length(OutputFormat.HTML));
+    }
+
+    //*************************************bodyLength Tests*************************************\\
+
+    @Test public void testBodyLengthAtLevel() throws ConversionException {
+        Document document = paragraph("p").append(section("a_", paragraph("q").append(section("b", empty()))));
+        RenderedSize size = RenderedSize.of(document);
+        for (int level = 1; level <= 2; level++) {
+            assertEquals(document.toLaTexHelper(level).length(), size.bodyLength(OutputFormat.LATEX, level));
+            assertEquals(document.toMarkdownHelper(level).length(), size.bodyLength(OutputFormat.MARKDOWN, level));
+            assertEquals(document.toHTMLHelper(level).length(), size.bodyLength(OutputFormat.HTML, level));
+        }
+        for (int level = 3; level <= 5; level++) {
+            assertEquals(document.toMarkdownHelper(level).length(), size.bodyLength(OutputFormat.MARKDOWN, level));
+        }
+    }
+}
@@ -0,0 +1,691 @@
+package awedoctime;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A persistent Document that keeps its top-level items in a height-balanced
+ * binary tree, so that append runs in O(log n) instead of rebuilding the
+ * whole paragraph chain the way Paragraph and Section do.
+ */
+public class RopeDocument implements Aggregated {
+    private final Node root;
+    private volatile Outline outline;
+    private volatile RenderedSize renderedSize;
+
+    // Rep invariant:
+    //      root - null for the empty document, otherwise a tree in which
+    //             every leaf holds one top-level item (a Paragraph or a
+    //             Section whose rest is Empty) and the heights of the two
+    //             children of every internal node differ by at most one
+    //      a Section item is never followed by a Paragraph item
+    //      outline - null or the Outline of this
+    //      renderedSize - null or the RenderedSize of this
+    // Abstraction function:
+    //      represents the document made of the leaf items of root read
+    //      from left to right, each followed by the next one at the same
+    //      hierarchy level
+
+    /**
+     * Nodes are immutable and shared between every RopeDocument built from
+     * them. Each node caches the aggregates of its subtree that append and
+     * the observers need in constant time.
+     */
+    static final class Node {
+        private final Document item;
+        private final Node left;
+        private final Node right;
+        private final int height;
+        private final int size;
+        private final int leadingParagraphs;
+        private final int wordCount;
+        // hashCode of the linked form is a right fold h' = hashMul*h + hashAdd,
+        // and affine maps compose, so every subtree caches its composed map
+        private final int hashMul;
+        private final int hashAdd;
+        // the fingerprint is a right fold of the same shape
+        private final long fingerprintMul;
+        private final long fingerprintAdd;
+        // depth and HTML levels of the items of the subtree, see Depth
+        private final int maxDepth;
+        private final int htmlLevels;
+
+        private Node(Document item) {
+            this.item = item;
+            this.left = null;
+            this.right = null;
+            this.height = 0;
+            this.size = 1;
+            this.wordCount = item.bodyWordCount();
+            if (item.startsWithParagraph()) {
+                this.leadingParagraphs = 1;
+                this.hashMul = 31;
+                this.hashAdd = 31 * 31 + item.getText().hashCode();
+                this.fingerprintAdd = Fingerprint.paragraph(item.getText());
+                this.maxDepth = 0;
+                this.htmlLevels = 0;
+            } else {
+                Section section = (Section) item;
+                this.leadingParagraphs = 0;
+                this.hashMul = 1;
+                this.hashAdd = 31 * (31 * (31 + section.getContents().hashCode()) + section.getText().hashCode());
+                this.fingerprintAdd = Fingerprint.section(section.getText(), Fingerprint.of(section.getContents()));
+                this.maxDepth = Depth.sectionLevels(Depth.of(section.getContents()), 0);
+                this.htmlLevels = Depth.sectionLevels(Depth.levels(section.getContents(), OutputFormat.HTML), 0);
+            }
+            this.fingerprintMul = Fingerprint.MULTIPLIER;
+        }
+
+        private Node(Node left, Node right) {
+            this.item = null;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(left.height, right.height) + 1;
+            this.size = left.size + right.size;
+            this.wordCount = left.wordCount + right.wordCount;
+            if (left.leadingParagraphs == left.size) {
+                this.leadingParagraphs = left.size + right.leadingParagraphs;
+            } else {
+                this.leadingParagraphs = left.leadingParagraphs;
+            }
+            this.hashMul = left.hashMul * right.hashMul;
+            this.hashAdd = left.hashMul * right.hashAdd + left.hashAdd;
+            this.fingerprintMul = left.fingerprintMul * right.fingerprintMul;
+            this.fingerprintAdd = left.fingerprintMul * right.fingerprintAdd + left.fingerprintAdd;
+            this.maxDepth = Math.max(left.maxDepth, right.maxDepth);
+            // every paragraph of left precedes right and moves it one HTML level down
+            this.htmlLevels = Math.max(left.htmlLevels,
+                    right.htmlLevels == 0 ? 0 : right.htmlLevels + left.leadingParagraphs);
+        }
+
+        boolean isLeaf() {
+            return item != null;
+        }
+
+        /**
+         * @return the item of a leaf
+         */
+        Document item() {
+            return item;
+        }
+
+        /**
+         * @return the first half of the items of an internal node
+         */
+        Node left() {
+            return left;
+        }
+
+        /**
+         * @return the second half of the items of an internal node
+         */
+        Node right() {
+            return right;
+        }
+    }
+
+    /**
+     * Make a new empty RopeDocument
+     */
+    public RopeDocument() {
+        this.root = null;
+    }
+
+    private RopeDocument(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * @return the tree of items of this, or null if this is empty
+     */
+    Node root() {
+        return root;
+    }
+
+    /**
+     * @return an empty RopeDocument
+     */
+    public static RopeDocument empty() {
+        return new RopeDocument();
+    }
+
+    /**
+     * @param text paragraph containing English-language characters
+     *              and punctuation, may not contain newlines
+     * @return a RopeDocument containing a single paragraph
+     */
+    public static RopeDocument paragraph(String text) {
+        return new RopeDocument(new Node(new Paragraph(text)));
+    }
+
+    /**
+     * @param heading heading containing English-language characters
+     *                and punctuation, may not contain newlines
+     * @param content contents of the section
+     * @return a RopeDocument containing a single section
+     */
+    public static RopeDocument section(String heading, Document content) {
+        return new RopeDocument(new Node(new Section(heading, content)));
+    }
+
+    /**
+     * Returns a RopeDocument with the same contents as document. Section
+     * contents are shared with document, not copied.
+     * @param document any Document
+     * @return document as a RopeDocument, in time linear in the number of
+     *         top-level items of document
+     */
+    public static RopeDocument of(Document document) {
+        if (document instanceof RopeDocument) {
+            return (RopeDocument) document;
+        }
+        return new RopeDocument(toTree(document));
+    }
+
+    /**
+     * @return the text contained in the top level of
+     * the Document
+     */
+    @Override
+    public String getText() {
+        if (root == null) {
+            return "";
+        }
+        return first(root).getText();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * @return whether or not this can always be appended to
+     *          the top level of any other document object
+     */
+    @Override
+    public boolean startsWithParagraph() {
+        return root != null && root.leadingParagraphs > 0;
+    }
+
+    @Override
+    public Document getLeadingParagraphs() {
+        if (root == null) {
+            return this;
+        }
+        return new RopeDocument(split(root, root.leadingParagraphs)[0]);
+    }
+
+    /**
+     * @return every level of the document other than
+     * the leading paragraphs
+     */
+    @Override
+    public Document getBody() {
+        if (root == null) {
+            return this;
+        }
+        return new RopeDocument(split(root, root.leadingParagraphs)[1]);
+    }
+
+    @Override
+    public Document getNextItemOfSameHeirarchy() {
+        if (root == null) {
+            return this;
+        }
+        return new RopeDocument(split(root, 1)[1]);
+    }
+
+    /**
+     * Returns a document which has the contents of this followed by the
+     * contents of other, in O(log n) time when other is a RopeDocument and
+     * in time linear in the number of top-level items of other otherwise.
+     * Leading paragraphs of other are added to the last section of this,
+     * exactly as Section.append does.
+     * @param other document to append
+     * @return concatenation of this and other
+     */
+    @Override
+    public Document append(Document other) {
+        Node otherRoot = toTree(other);
+        if (otherRoot == null) {
+            return this;
+        }
+        if (root == null) {
+            return new RopeDocument(otherRoot);
+        }
+        Document last = last(root);
+        if (last.startsWithParagraph() || otherRoot.leadingParagraphs == 0) {
+            return new RopeDocument(join(root, otherRoot));
+        }
+        Node[] parts = split(otherRoot, otherRoot.leadingParagraphs);
+        Section lastSection = (Section) last;
+        Document contents = RopeDocument.of(lastSection.getContents()).append(new RopeDocument(parts[0]));
+        Node absorbed = new Node(new Section(lastSection.getText(), contents));
+        Node[] init = split(root, root.size - 1);
+        return new RopeDocument(join(join(init[0], absorbed), parts[1]));
+    }
+
+    /**
+     * Returns the number of words in the paragraphs of this document. Words
+     * are delimited by one or more spaces and by the beginnings and ends of
+     * paragraphs.
+     * @return body word count
+     */
+    @Override
+    public int bodyWordCount() {
+        if (root == null) {
+            return 0;
+        }
+        return root.wordCount;
+    }
+
+    /**
+     * Returns a document containing one paragraph for every section heading in
+     * this document. Each paragraph contains:
+     * <br> - the section number (starting from 1), written as a sequence of
+     *        parent section numbers separated by periods, ending with the
+     *        position of this section under its parent (or under the top level,
+     *        if none)
+     * <br> - the section heading
+     * <br> - the word count of paragraphs in this section and its sub-sections,
+     *        written as "1 word", or "N words" for N != 1
+     * <br> For an example, see the problem set handout.
+     * @return table of contents
+     */
+    @Override
+    public Document tableOfContents() {
+        return TableOfContentsBuilder.build(this);
+    }
+
+    /**
+     * creates a document preceded by the level representation
+     * of where the document is within a document
+     * @param level the top level of the document represented in
+     * List format
+     * @return a document preceded by the level representation
+     * relative to level
+     */
+    @Override
+    public Document createDocumentLevel(List<Integer> level) {
+        return TableOfContentsBuilder.build(this, level);
+    }
+
+    /**
+     * Returns a LaTeX representation of the document that:
+     * <br> - contains a preamble with document class "article" and no other
+     *        options or packages; uses \section, \subsection, & \subsubsection
+     *        to indicate sections; uses ordinary paragraphs
+     * <br> - renders all the section headings and paragraphs of the document
+     *        using appropriate LaTeX syntax and character escaping, with no
+     *        additional formatting
+     * <br> For an example, see the problem set handout.
+     * @return LaTeX conversion
+     * @throws ConversionException if the document cannot be converted
+     */
+    @Override
+    public String toLaTeX() throws ConversionException {
+        return DocumentRenderer.toLaTeX(this);
+    }
+
+    /**
+     * Returns a LaTeX-readable string of text
+     * @param level the document level at which toLaTexHelper is called
+     * @return a string of LaTex-escaped text if text can be converted to LaTex
+     * @throws ConversionException if the document cannot be converted
+     */
+    @Override
+    public String toLaTexHelper(int level) throws ConversionException {
+        return DocumentRenderer.toLaTeX(this, level);
+    }
+
+    /**
+     * Returns a Markdown representation of the document that:
+     * <br> - renders all the section headings and paragraphs of the document
+     *        using appropriate Markdown syntax and character escaping, with no
+     *        additional formatting
+     * <br> For an example, see the problem set handout.
+     * @return Markdown conversion
+     * @throws ConversionException if the document cannot be converted
+     */
+    @Override
+    public String toMarkdown() throws ConversionException {
+        int firstLevel = 1;
+        return toMarkdownHelper(firstLevel);
+    }
+
+    /**
+     * Returns a Markdown-readable string of text
+     * @param level the document level at which toMarkdownHelper is called
+     * @return a string of Markdown-escaped text if text can be converted to markdown
+     * @throws ConversionException if the document cannot be converted
+     */
+    @Override
+    public String toMarkdownHelper(int level) throws ConversionException {
+        return DocumentRenderer.toMarkdown(this, level);
+    }
+
+    /**
+     * Returns a HTML representation of the document that:
+     * <br> - renders all the section headings and paragraphs of the document
+     *        using appropriate HTML syntax and character escaping, with no
+     *        additional formatting
+     * @return HTML conversion
+     * @throws ConversionException if the document cannot be converted
+     */
+    @Override
+    public String toHTML() throws ConversionException {
+        return DocumentRenderer.toHTML(this);
+    }
+
+    /**
+     * Returns a HTML-readable string of text
+     * @param level the document level at which toHTMLHelper is called
+     * @return a string of HTML-escaped text if text can be converted to HTML
+     * @throws ConversionException if the document cannot be converted
+     */
+    @Override
+    public String toHTMLHelper(int level) throws ConversionException {
+        return DocumentRenderer.toHTML(this, level);
+    }
+
+    /**
+     * Returns a concise String representation of the document
+     * in Markdown syntax
+     */
+    @Override
+    public String toString() {
+        return printDocument(1);
+    }
+
+    /**
+     * @param level the level at which printDocument is called, where
+     *         the top level = 1
+     * @return a string representation of the document
+     */
+    @Override
+    public String printDocument(int level) {
+        return DocumentRenderer.toString(this, level);
+    }
+
+    /**
+     * @return the structural fingerprint of this document, the same as the
+     *         Paragraph/Section/Empty chain with the same contents; see
+     *         Fingerprint
+     */
+    public long fingerprint() {
+        if (root == null) {
+            return Fingerprint.EMPTY;
+        }
+        return root.fingerprintAdd;
+    }
+
+    /**
+     * @return the greatest number of sections nested in one another in this
+     *         document, in constant time; see Depth
+     */
+    public int maxDepth() {
+        return root == null ? 0 : root.maxDepth;
+    }
+
+    /**
+     * @return the exact length of this document rendered in every format,
+     *         computed once, when first needed; see RenderedSize
+     */
+    public RenderedSize renderedSize() {
+        RenderedSize size = renderedSize;
+        if (size == null) {
+            size = root == null ? RenderedSize.EMPTY : renderedSize(root);
+            renderedSize = size;
+        }
+        return size;
+    }
+
+    /**
+     * @return the rendered size of the items of node
+     */
+    private static RenderedSize renderedSize(Node node) {
+        if (!node.isLeaf()) {
+            return RenderedSize.concat(renderedSize(node.left), renderedSize(node.right));
+        }
+        if (node.item.startsWithParagraph()) {
+            return RenderedSize.paragraph(node.item.getText(), RenderedSize.EMPTY);
+        }
+        Section section = (Section) node.item;
+        return RenderedSize.section(section.getText(), RenderedSize.of(section.getContents()), RenderedSize.EMPTY);
+    }
+
+    /**
+     * @return the outline of the sections of this document, built by
+     *         walking it once, when first needed; see Outline
+     */
+    public Outline outline() {
+        Outline result = outline;
+        if (result == null) {
+            result = Outline.build(this);
+            outline = result;
+        }
+        return result;
+    }
+
+    /**
+     * @param from index of the first top-level item of the slice, from 0
+     * @param to index just after the last top-level item of the slice
+     * @return the top-level items [from, to) of this, split out of the tree of
+     *         this in O(log n) time, sharing its nodes
+     * @throws IndexOutOfBoundsException if from is negative, to is less
+     *         than from or this has fewer than to top-level items
+     */
+    public RopeDocument slice(int from, int to) {
+        DocumentViews.checkRange(from, to);
+        if (to > (root == null ? 0 : root.size)) {
+            throw DocumentViews.outOfBounds(from, to);
+        }
+        return new RopeDocument(split(split(root, to)[0], from)[1]);
+    }
+
+    /**
+     * @return the HTML levels of this document, see Depth
+     */
+    public int htmlLevels() {
+        return root == null ? 0 : root.htmlLevels;
+    }
+
+    /**
+     * @param format format to convert this document to
+     * @return whether or not this document can be converted to format,
+     *         in constant time
+     */
+    public boolean canConvert(OutputFormat format) {
+        return Depth.canConvert(this, format);
+    }
+
+    /**
+     * @return the same hashCode as the Paragraph/Section/Empty chain with
+     *         the same contents, in constant time
+     */
+    @Override
+    public int hashCode() {
+        if (root == null) {
+            return new Empty().hashCode();
+        }
+        return root.hashAdd;
+    }
+
+    /**
+     * @return whether or not this is observationally equivalent to obj,
+     *         which may be a RopeDocument or any chain of Paragraph,
+     *         Section and Empty
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof Document))
+            return false;
+        Document other = (Document) obj;
+        if (fingerprint() != Fingerprint.of(other))
+            return false;
+        return DocumentCursor.sameContents(this, other);
+    }
+
+    /**
+     * @return the top-level items of this, in order
+     */
+    private Iterable<Document> items() {
+        return () -> new ItemIterator(this);
+    }
+
+    /**
+     * Iterates over the leaf items of a RopeDocument, in order
+     */
+    private static final class ItemIterator implements java.util.Iterator<Document> {
+        private final List<Node> pending = new ArrayList<Node>();
+
+        private ItemIterator(RopeDocument document) {
+            if (document.root != null) {
+                pending.add(document.root);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !pending.isEmpty();
+        }
+
+        @Override
+        public Document next() {
+            if (pending.isEmpty()) {
+                throw new java.util.NoSuchElementException();
+            }
+            Node node = pending.remove(pending.size() - 1);
+            while (!node.isLeaf()) {
+                pending.add(node.right);
+                node = node.left;
+            }
+            return node.item;
+        }
+    }
+
+    /**
+     * @param document any Document
+     * @return a balanced tree holding the top-level items of document, or
+     *         null if document is empty
+     * @throws IllegalArgumentException if a section of document is of
+     *         another implementation of Document
+     */
+    private static Node toTree(Document document) {
+        if (document instanceof RopeDocument) {
+            return ((RopeDocument) document).root;
+        }
+        List<Node> leaves = new ArrayList<Node>();
+        DocumentCursor cursor = new DocumentCursor(document);
+        for (int event = cursor.next(); event != DocumentCursor.END; event = cursor.next()) {
+            if (event == DocumentCursor.PARAGRAPH) {
+                leaves.add(new Node(new Paragraph(cursor.text())));
+            } else if (event == DocumentCursor.START_SECTION) {
+                leaves.add(new Node(new Section(cursor.text(), cursor.contents())));
+                cursor.skipContents();
+            }
+        }
+        return build(leaves, 0, leaves.size());
+    }
+
+    /**
+     * @return a perfectly balanced tree over leaves[from, to), or null if
+     *         the range is empty
+     */
+    private static Node build(List<Node> leaves, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        if (to - from == 1) {
+            return leaves.get(from);
+        }
+        int middle = (from + to) >>> 1;
+        return new Node(build(leaves, from, middle), build(leaves, middle, to));
+    }
+
+    private static Document first(Node node) {
+        while (!node.isLeaf()) {
+            node = node.left;
+        }
+        return node.item;
+    }
+
+    private static Document last(Node node) {
+        while (!node.isLeaf()) {
+            node = node.right;
+        }
+        return node.item;
+    }
+
+    private static int height(Node node) {
+        return node == null ? -1 : node.height;
+    }
+
+    /**
+     * Concatenates two trees, descending the spine of the taller one so the
+     * cost is proportional to the difference of their heights.
+     * @return a balanced tree with the items of left followed by those of right
+     */
+    private static Node join(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.height > right.height + 1) {
+            return balance(left.left, join(left.right, right));
+        }
+        if (right.height > left.height + 1) {
+            return balance(join(left, right.left), right.right);
+        }
+        return new Node(left, right);
+    }
+
+    /**
+     * @return a node over left and right, rotated if their heights differ
+     *         by two
+     */
+    private static Node balance(Node left, Node right) {
+        if (left.height > right.height + 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node(left.left, new Node(left.right, right));
+            }
+            return new Node(new Node(left.left, left.right.left),
+                    new Node(left.right.right, right));
+        }
+        if (right.height > left.height + 1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node(new Node(left, right.left), right.right);
+            }
+            return new Node(new Node(left, right.left.left),
+                    new Node(right.left.right, right.right));
+        }
+        return new Node(left, right);
+    }
+
+    /**
+     * @return the first count items of node and the remaining items, either
+     *         of which may be null
+     */
+    private static Node[] split(Node node, int count) {
+        if (node == null || count <= 0) {
+            return new Node[] { null, node };
+        }
+        if (count >= node.size) {
+            return new Node[] { node, null };
+        }
+        if (count < node.left.size) {
+            Node[] parts = split(node.left, count);
+            return new Node[] { parts[0], join(parts[1], node.right) };
+        }
+        if (count == node.left.size) {
+            return new Node[] { node.left, node.right };
+        }
+        Node[] parts = split(node.right, count - node.left.size);
+        return new Node[] { join(node.left, parts[0]), parts[1] };
+    }
+}
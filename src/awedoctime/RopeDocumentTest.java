@@ -0,0 +1,147 @@
+package awedoctime;
+
+import static awedoctime.Document.empty;
+import static awedoctime.Document.paragraph;
+import static awedoctime.Document.section;
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import awedoctime.Document.ConversionException;
+
+public class RopeDocumentTest {
+
+    // Methods: append, equals, hashCode, toString, bodyWordCount,
+    //          tableOfContents, toLaTeX, toMarkdown, toHTML,
+    //          getLeadingParagraphs, getBody, getNextItemOfSameHeirarchy
+    // Partition:
+    // Document empty rope
+    // Document rope of paragraphs only
+    // Document rope ending with a section followed by appended paragraphs
+    // Document rope ending with nested sections followed by appended paragraphs
+    // Document rope built from many single-item appends
+
+    private Document linked;
+    private Document rope;
+
+    @Before public void setupDocuments() {
+        linked = paragraph("Leading paragraph")
+                .append(section("Section 1", paragraph("First & only paragraph")))
+                .append(paragraph("Absorbed into section 1"))
+                .append(section("Section 2", section("Section 2.1", paragraph("Nested # paragraph"))))
+                .append(paragraph("Absorbed into section 2.1"));
+
+        rope = RopeDocument.empty()
+                .append(paragraph("Leading paragraph"))
+                .append(section("Section 1", paragraph("First & only paragraph")))
+                .append(paragraph("Absorbed into section 1"))
+                .append(section("Section 2", section("Section 2.1", paragraph("Nested # paragraph"))))
+                .append(paragraph("Absorbed into section 2.1"));
+    }
+
+    //*************************************equals Tests*************************************\\
+
+    @Test public void testEqualsEmpty() {
+        assertEquals(empty(), RopeDocument.empty());
+        assertEquals(RopeDocument.empty(), empty());
+        assertNotEquals(RopeDocument.empty(), paragraph("text"));
+    }
+
+    @Test public void testEqualsLinkedDocument() {
+        assertEquals(linked, rope);
+        assertEquals(rope, linked);
+        assertEquals(rope, RopeDocument.of(linked));
+        assertNotEquals(rope, linked.append(paragraph("one more")));
+        assertNotEquals(linked.append(paragraph("one more")), rope);
+    }
+
+    @Test public void testEqualsRopeAsSectionContents() {
+        Document withRope = section("Outer", RopeDocument.paragraph("a").append(paragraph("b")));
+        Document withChain = section("Outer", paragraph("a").append(paragraph("b")));
+
+        assertEquals(withChain, withRope);
+        assertEquals(withRope, withChain);
+        assertEquals(withChain.hashCode(), withRope.hashCode());
+    }
+
+    //*************************************hashCode Tests*************************************\\
+
+    @Test public void testHashCodeMatchesLinkedDocument() {
+        assertEquals(empty().hashCode(), RopeDocument.empty().hashCode());
+        assertEquals(linked.hashCode(), rope.hashCode());
+    }
+
+    //*************************************append Tests*************************************\\
+
+    @Test public void testAppendParagraphsAfterSectionAreNested() {
+        Document expected = section("Section", paragraph("one").append(paragraph("two")));
+        Document actual = RopeDocument.section("Section", empty())
+                .append(paragraph("one"))
+                .append(paragraph("two"));
+
+        assertEquals(expected, actual);
+    }
+
+    @Test public void testAppendRopeToRope() {
+        Document first = RopeDocument.of(paragraph("a").append(section("S", empty())));
+        Document second = RopeDocument.of(paragraph("b").append(section("T", empty())));
+
+        assertEquals(paragraph("a").append(section("S", empty())).append(paragraph("b").append(section("T", empty()))),
+                first.append(second));
+    }
+
+    @Test public void testAppendManyParagraphs() {
+        Document document = RopeDocument.empty();
+        Document expected = empty();
+        for (int i = 0; i < 2000; i++) {
+            document = document.append(paragraph("paragraph number " + i));
+            if (i < 200) {
+                expected = expected.append(paragraph("paragraph number " + i));
+            }
+        }
+        assertEquals(2000 * 3, document.bodyWordCount());
+        assertEquals("paragraph number 0", document.getText());
+
+        Document prefix = RopeDocument.empty();
+        for (int i = 0; i < 200; i++) {
+            prefix = prefix.append(paragraph("paragraph number " + i));
+        }
+        assertEquals(expected, prefix);
+        assertEquals(expected.hashCode(), prefix.hashCode());
+    }
+
+    //*************************************observer Tests*************************************\\
+
+    @Test public void testLeadingParagraphsAndBody() {
+        assertEquals(linked.getLeadingParagraphs(), rope.getLeadingParagraphs());
+        assertEquals(linked.getBody(), rope.getBody());
+        assertEquals(linked.getNextItemOfSameHeirarchy(), rope.getNextItemOfSameHeirarchy());
+        assertTrue(rope.startsWithParagraph());
+        assertFalse(rope.getBody().startsWithParagraph());
+    }
+
+    @Test public void testBodyWordCount() {
+        assertEquals(0, RopeDocument.empty().bodyWordCount());
+        assertEquals(linked.bodyWordCount(), rope.bodyWordCount());
+    }
+
+    @Test public void testTableOfContents() {
+        assertEquals(linked.tableOfContents(), rope.tableOfContents());
+        assertEquals(linked.tableOfContents().toString(), rope.tableOfContents().toString());
+    }
+
+    //*************************************conversion Tests*************************************\\
+
+    @Test public void testToString() {
+        assertEquals(empty().toString(), RopeDocument.empty().toString());
+        assertEquals(linked.toString(), rope.toString());
+    }
+
+    @Test public void testConversions() throws ConversionException {
+        assertEquals(linked.toLaTeX(), rope.toLaTeX());
+        assertEquals(linked.toMarkdown(), rope.toMarkdown());
+        assertEquals(linked.toHTML(), rope.toHTML());
+        assertEquals(empty().toMarkdown(), RopeDocument.empty().toMarkdown());
+    }
+}
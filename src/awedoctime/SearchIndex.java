@@ -0,0 +1,773 @@
+package awedoctime;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * An inverted index of the words of the paragraphs of a collection of
+ * documents, for term and phrase search. Words are split as bodyWordCount
+ * counts them, on runs of whitespace, and are matched exactly, case and
+ * punctuation included; section headings are not indexed.
+ * <p>
+ * Every paragraph of the collection has a number, in document order, and
+ * the postings of a term are, for each paragraph it occurs in, the gap
+ * from the previous such paragraph, the number of occurrences and the
+ * gaps between their word positions, all as varints in one byte array.
+ * The document, the ordinal of the paragraph in its document and the
+ * number of its innermost section, as Outline numbers it, are
+ * found from the paragraph number through int arrays.
+ * <p>
+ * An index is built once, on one thread or on the threads of a
+ * ForkJoinPool, one document per task, and is immutable from then on and
+ * safe to share between threads. It can be written to a file and mapped
+ * back with open, which reads nothing but its header; queries then read
+ * only the terms and postings they need from the mapped file. A file
+ * holds at most 2^31 - 1 bytes.
+ */
+public final class SearchIndex {
+    static final byte[] MAGIC = { 'A', 'D', 'I', 'X' };
+    static final int VERSION = 1;
+    // MAGIC, VERSION and the 7 counts written by write, as ints
+    private static final int HEADERSIZE = MAGIC.length + 4 * 8;
+
+    private final IntBuffer documentParagraphs;
+    private final IntBuffer paragraphSections;
+    private final IntBuffer sectionNumberStarts;
+    private final IntBuffer sectionNumbers;
+    private final IntBuffer termStarts;
+    private final ByteBuffer termBytes;
+    private final IntBuffer postingsStarts;
+    private final ByteBuffer postings;
+
+    // Rep invariant:
+    //      documentParagraphs has one entry per document and one more, is
+    //      non-decreasing from 0 and ends with the number of paragraphs
+    //      paragraphSections has one entry per paragraph, -1 or a section
+    //      sectionNumberStarts has one entry per section and one more, is
+    //      non-decreasing from 0 and ends with sectionNumbers.limit()
+    //      termStarts and postingsStarts have one entry per term and one
+    //      more, are increasing from 0 and end with termBytes.limit() and
+    //      postings.limit()
+    //      the terms are distinct and in increasing unsigned byte order
+    //      of their UTF-8 encodings
+    //      only absolute gets are made on the buffers, so they never change
+    // Abstraction function:
+    //      represents an index in which paragraph p (counting all of the
+    //      paragraphs of all of the documents in order from 0) is the
+    //      (p - documentParagraphs[d])-th paragraph of document d, for the
+    //      d such that documentParagraphs[d] <= p < documentParagraphs[d + 1],
+    //      and sits in section paragraphSections[p], or in none if -1;
+    //      section s is numbered sectionNumbers[sectionNumberStarts[s],
+    //      sectionNumberStarts[s + 1]); term t is the UTF-8 text
+    //      termBytes[termStarts[t], termStarts[t + 1]) and its postings are
+    //      postings[postingsStarts[t], postingsStarts[t + 1])
+
+    private SearchIndex(IntBuffer documentParagraphs, IntBuffer paragraphSections, IntBuffer sectionNumberStarts,
+            IntBuffer sectionNumbers, IntBuffer termStarts, ByteBuffer termBytes, IntBuffer postingsStarts,
+            ByteBuffer postings) {
+        this.documentParagraphs = documentParagraphs;
+        this.paragraphSections = paragraphSections;
+        this.sectionNumberStarts = sectionNumberStarts;
+        this.sectionNumbers = sectionNumbers;
+        this.termStarts = termStarts;
+        this.termBytes = termBytes;
+        this.postingsStarts = postingsStarts;
+        this.postings = postings;
+    }
+
+    /**
+     * A paragraph that matches a query
+     */
+    public static final class Hit {
+        private final int document;
+        private final int paragraph;
+        private final String section;
+
+        // Rep invariant:
+        //      document >= 0, paragraph >= 0, section is not null
+        // Abstraction function:
+        //      represents the paragraph-th paragraph of the document-th
+        //      document of an index, in the section numbered section
+
+        private Hit(int document, int paragraph, String section) {
+            this.document = document;
+            this.paragraph = paragraph;
+            this.section = section;
+        }
+
+        /**
+         * @return the index of the document of the paragraph, in the list
+         *         the index was built from
+         */
+        public int document() {
+            return document;
+        }
+
+        /**
+         * @return the ordinal of the paragraph among all of the paragraphs
+         *         of its document, in document order from 0
+         */
+        public int paragraph() {
+            return paragraph;
+        }
+
+        /**
+         * @return the number of the innermost section the paragraph is in,
+         *         as Outline numbers it (e.g. "3.2.1."), or "" when it is
+         *         in no section
+         */
+        public String section() {
+            return section;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Hit)) {
+                return false;
+            }
+            Hit that = (Hit) other;
+            return document == that.document && paragraph == that.paragraph && section.equals(that.section);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * document + paragraph) + section.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "document " + document + ", paragraph " + paragraph
+                    + (section.isEmpty() ? "" : ", section " + section);
+        }
+    }
+
+    /**
+     * Indexes documents on the calling thread
+     * @param documents documents to index, in order; each one a Paragraph,
+     *        Section, Empty, RopeDocument, FlatDocument or StoredDocument,
+     *        possibly nesting any of these
+     * @return the index of documents
+     * @throws IllegalArgumentException if a document is another
+     *         implementation of Document
+     */
+    public static SearchIndex build(List<? extends Document> documents) {
+        checkWalkable(documents);
+        DocumentPostings[] indexed = new DocumentPostings[documents.size()];
+        for (int i = 0; i < indexed.length; i++) {
+            indexed[i] = new DocumentPostings(documents.get(i));
+        }
+        return merge(indexed);
+    }
+
+    /**
+     * Indexes documents on the threads of pool, one document per task, and
+     * merges their postings on the calling thread
+     * @param documents as for build(List)
+     * @param pool pool whose threads index the documents
+     * @return the same index as build(documents)
+     * @throws IllegalArgumentException if a document is another
+     *         implementation of Document
+     */
+    public static SearchIndex build(List<? extends Document> documents, ForkJoinPool pool) {
+        checkWalkable(documents);
+        List<ForkJoinTask<DocumentPostings>> tasks = new ArrayList<ForkJoinTask<DocumentPostings>>();
+        for (Document document : documents) {
+            tasks.add(pool.submit(() -> new DocumentPostings(document)));
+        }
+        DocumentPostings[] indexed = new DocumentPostings[tasks.size()];
+        for (int i = 0; i < indexed.length; i++) {
+            indexed[i] = tasks.get(i).join();
+        }
+        return merge(indexed);
+    }
+
+    private static void checkWalkable(List<? extends Document> documents) {
+        for (Document document : documents) {
+            if (!(document instanceof Aggregated)) {
+                throw new IllegalArgumentException("cannot index " + document.getClass().getName());
+            }
+        }
+    }
+
+    /**
+     * @return the number of documents in this index
+     */
+    public int documentCount() {
+        return documentParagraphs.limit() - 1;
+    }
+
+    /**
+     * @return the number of distinct terms in this index
+     */
+    public int termCount() {
+        return termStarts.limit() - 1;
+    }
+
+    /**
+     * @param term a word, without whitespace
+     * @return every paragraph term occurs in, in document order
+     */
+    public List<Hit> term(String term) {
+        int t = find(term);
+        if (t < 0) {
+            return Collections.emptyList();
+        }
+        List<Hit> hits = new ArrayList<Hit>();
+        Postings postings = new Postings(t);
+        while (postings.next()) {
+            hits.add(hit(postings.paragraph));
+        }
+        return hits;
+    }
+
+    /**
+     * @param phrase words separated by whitespace, as it is split into
+     *        words for bodyWordCount
+     * @return every paragraph in which the words of phrase occur one after
+     *         the other, in document order; none if phrase has no words
+     */
+    public List<Hit> phrase(String phrase) {
+        List<String> words = words(phrase);
+        if (words.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Postings[] postings = new Postings[words.size()];
+        for (int i = 0; i < postings.length; i++) {
+            int t = find(words.get(i));
+            if (t < 0) {
+                return Collections.emptyList();
+            }
+            postings[i] = new Postings(t);
+        }
+        List<Hit> hits = new ArrayList<Hit>();
+        while (postings[0].next()) {
+            int paragraph = postings[0].paragraph;
+            boolean everyWord = true;
+            for (int i = 1; i < postings.length; i++) {
+                if (!postings[i].advanceTo(paragraph)) {
+                    return hits;
+                }
+                everyWord &= postings[i].paragraph == paragraph;
+            }
+            if (everyWord && consecutive(postings)) {
+                hits.add(hit(paragraph));
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * @return whether or not, in the paragraph all of postings are at, the
+     *         i-th of them occurs i positions after the first one, for some
+     *         occurrence of the first one
+     */
+    private static boolean consecutive(Postings[] postings) {
+        Postings first = postings[0];
+        for (int k = 0; k < first.count; k++) {
+            int position = first.positions[k];
+            boolean found = true;
+            for (int i = 1; i < postings.length && found; i++) {
+                found = Arrays.binarySearch(postings[i].positions, 0, postings[i].count, position + i) >= 0;
+            }
+            if (found) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param text any text
+     * @return the words of text, split as bodyWordCount counts them, with
+     *         any unpaired surrogate replaced as in the index
+     */
+    private static List<String> words(CharSequence text) {
+        List<String> words = new ArrayList<String>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean space = i == text.length() || Paragraph.isSpace(text.charAt(i));
+            if (!space && start < 0) {
+                start = i;
+            } else if (space && start >= 0) {
+                words.add(term(text, start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * @return text[start, end) as a term: the same String, unless it has a
+     *         surrogate, in which case it is round-tripped through UTF-8 so
+     *         that two words with the same encoding are the same term
+     */
+    private static String term(CharSequence text, int start, int end) {
+        String word = text.subSequence(start, end).toString();
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.isSurrogate(word.charAt(i))) {
+                return new String(word.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+            }
+        }
+        return word;
+    }
+
+    /**
+     * @return the number of term, or -1 if it is not in this index
+     */
+    private int find(String term) {
+        byte[] key = term.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = termCount() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compareTerm(middle, key);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return a negative number, 0 or a positive number as term t is before,
+     *         equal to or after key in unsigned byte order
+     */
+    private int compareTerm(int t, byte[] key) {
+        int start = termStarts.get(t);
+        int length = termStarts.get(t + 1) - start;
+        for (int i = 0; i < Math.min(length, key.length); i++) {
+            int comparison = Integer.compare(termBytes.get(start + i) & 0xFF, key[i] & 0xFF);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    /**
+     * @return the hit of paragraph number paragraph
+     */
+    private Hit hit(int paragraph) {
+        // the last document starting at or before paragraph; documents
+        // without paragraphs start where the next one does
+        int low = 0;
+        int high = documentCount() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (documentParagraphs.get(middle) <= paragraph) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        int section = paragraphSections.get(paragraph);
+        StringBuilder number = new StringBuilder();
+        if (section >= 0) {
+            for (int i = sectionNumberStarts.get(section); i < sectionNumberStarts.get(section + 1); i++) {
+                number.append(sectionNumbers.get(i)).append('.');
+            }
+        }
+        return new Hit(low, paragraph - documentParagraphs.get(low), number.toString());
+    }
+
+    /**
+     * Reads the postings of one term, a paragraph at a time
+     */
+    private final class Postings {
+        private int offset;
+        private final int end;
+        private int paragraph = -1;
+        private int[] positions = new int[8];
+        private int count = 0;
+
+        // Rep invariant:
+        //      postingsStarts[t] <= offset <= end == postingsStarts[t + 1]
+        //      positions[0, count) are increasing
+        // Abstraction function:
+        //      represents the postings of term t read up to offset, the
+        //      last of which is paragraph, where the term occurs at the
+        //      word positions positions[0, count); paragraph is -1 before
+        //      the first and Integer.MAX_VALUE after the last
+
+        private Postings(int t) {
+            this.offset = postingsStarts.get(t);
+            this.end = postingsStarts.get(t + 1);
+        }
+
+        /**
+         * Moves to the next paragraph the term occurs in
+         * @return false if there is none
+         */
+        private boolean next() {
+            if (offset >= end) {
+                paragraph = Integer.MAX_VALUE;
+                count = 0;
+                return false;
+            }
+            paragraph += 1 + readVarint();
+            count = readVarint();
+            if (count > positions.length) {
+                positions = new int[Math.max(count, 2 * positions.length)];
+            }
+            int position = 0;
+            for (int k = 0; k < count; k++) {
+                position += readVarint();
+                positions[k] = position;
+            }
+            return true;
+        }
+
+        /**
+         * Moves to the first paragraph at or after target the term occurs
+         * in, unless already there
+         * @return false if there is none
+         */
+        private boolean advanceTo(int target) {
+            while (paragraph < target) {
+                if (!next()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int readVarint() {
+            int value = 0;
+            for (int shift = 0;; shift += 7) {
+                byte b = postings.get(offset++);
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes this index to file, replacing it if it exists, as an index
+     * open can map
+     * @param file file to write
+     * @throws IOException if the file cannot be written or the index is too
+     *         large for one
+     */
+    public void write(Path file) throws IOException {
+        long size = HEADERSIZE + 4L * (documentParagraphs.limit() + paragraphSections.limit()
+                + sectionNumberStarts.limit() + sectionNumbers.limit() + termStarts.limit()
+                + postingsStarts.limit()) + termBytes.limit() + postings.limit();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("index of " + size + " bytes is too large for a file");
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.write(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(documentCount());
+            out.writeInt(paragraphSections.limit());
+            out.writeInt(sectionNumberStarts.limit() - 1);
+            out.writeInt(sectionNumbers.limit());
+            out.writeInt(termCount());
+            out.writeInt(termBytes.limit());
+            out.writeInt(postings.limit());
+            for (IntBuffer ints : new IntBuffer[] { documentParagraphs, paragraphSections, sectionNumberStarts,
+                    sectionNumbers, termStarts, postingsStarts }) {
+                for (int i = 0; i < ints.limit(); i++) {
+                    out.writeInt(ints.get(i));
+                }
+            }
+            byte[] chunk = new byte[8192];
+            for (ByteBuffer bytes : new ByteBuffer[] { termBytes, postings }) {
+                for (int i = 0; i < bytes.limit(); i += chunk.length) {
+                    int length = Math.min(chunk.length, bytes.limit() - i);
+                    bytes.get(i, chunk, 0, length);
+                    out.write(chunk, 0, length);
+                }
+            }
+        }
+    }
+
+    /**
+     * Maps an index written by write, reading nothing but its header
+     * @param file file to open
+     * @return the index
+     * @throws IOException if the file cannot be read or is not an index
+     */
+    public static SearchIndex open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADERSIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("not a search index");
+            }
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (mapped.get(i) != MAGIC[i]) {
+                    throw new IOException("not a search index");
+                }
+            }
+            int version = mapped.getInt(MAGIC.length);
+            if (version != VERSION) {
+                throw new IOException("unsupported version " + version);
+            }
+            int[] counts = new int[7];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = mapped.getInt(MAGIC.length + 4 * (i + 1));
+                if (counts[i] < 0) {
+                    throw new IOException("not a search index");
+                }
+            }
+            int documents = counts[0];
+            int paragraphs = counts[1];
+            int sections = counts[2];
+            int numbers = counts[3];
+            int terms = counts[4];
+            long expected = (long) HEADERSIZE + counts[5] + counts[6]
+                    + 4L * ((documents + 1L) + paragraphs + (sections + 1L) + numbers + 2 * (terms + 1L));
+            if (expected != size) {
+                throw new IOException("not a search index");
+            }
+            int[] offset = { HEADERSIZE };
+            IntBuffer documentParagraphs = ints(mapped, offset, documents + 1);
+            IntBuffer paragraphSections = ints(mapped, offset, paragraphs);
+            IntBuffer sectionNumberStarts = ints(mapped, offset, sections + 1);
+            IntBuffer sectionNumbers = ints(mapped, offset, numbers);
+            IntBuffer termStarts = ints(mapped, offset, terms + 1);
+            IntBuffer postingsStarts = ints(mapped, offset, terms + 1);
+            ByteBuffer termBytes = mapped.slice(offset[0], counts[5]);
+            ByteBuffer postings = mapped.slice(offset[0] + counts[5], counts[6]);
+            return new SearchIndex(documentParagraphs, paragraphSections, sectionNumberStarts, sectionNumbers,
+                    termStarts, termBytes, postingsStarts, postings);
+        }
+    }
+
+    /**
+     * @return the count ints of mapped at offset[0], which is moved past them
+     */
+    private static IntBuffer ints(ByteBuffer mapped, int[] offset, int count) {
+        IntBuffer ints = mapped.slice(offset[0], 4 * count).asIntBuffer();
+        offset[0] += 4 * count;
+        return ints;
+    }
+
+    /**
+     * Puts the postings of every document in one index, in document order
+     */
+    private static SearchIndex merge(DocumentPostings[] indexed) {
+        IntArray documentParagraphs = new IntArray();
+        IntArray paragraphSections = new IntArray();
+        IntArray sectionNumberStarts = new IntArray();
+        IntArray sectionNumbers = new IntArray();
+        Map<String, PostingsWriter> writers = new HashMap<String, PostingsWriter>();
+        documentParagraphs.add(0);
+        sectionNumberStarts.add(0);
+        int paragraphs = 0;
+        int sections = 0;
+        for (DocumentPostings document : indexed) {
+            for (int i = 0; i < document.paragraphSections.size; i++) {
+                int section = document.paragraphSections.values[i];
+                paragraphSections.add(section < 0 ? -1 : sections + section);
+            }
+            int numbers = sectionNumbers.size;
+            for (int i = 0; i < document.sectionNumbers.size; i++) {
+                sectionNumbers.add(document.sectionNumbers.values[i]);
+            }
+            for (int i = 1; i < document.sectionNumberStarts.size; i++) {
+                sectionNumberStarts.add(numbers + document.sectionNumberStarts.values[i]);
+            }
+            for (Map.Entry<String, IntArray> occurrences : document.occurrences.entrySet()) {
+                PostingsWriter writer = writers.get(occurrences.getKey());
+                if (writer == null) {
+                    writer = new PostingsWriter();
+                    writers.put(occurrences.getKey(), writer);
+                }
+                writer.add(paragraphs, occurrences.getValue());
+            }
+            paragraphs += document.paragraphSections.size;
+            sections += document.sectionNumberStarts.size - 1;
+            documentParagraphs.add(paragraphs);
+        }
+
+        byte[][] keys = new byte[writers.size()][];
+        PostingsWriter[] sorted = new PostingsWriter[keys.length];
+        Integer[] order = new Integer[keys.length];
+        int t = 0;
+        for (Map.Entry<String, PostingsWriter> writer : writers.entrySet()) {
+            keys[t] = writer.getKey().getBytes(StandardCharsets.UTF_8);
+            sorted[t] = writer.getValue();
+            order[t] = t;
+            t++;
+        }
+        Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(keys[a], keys[b]));
+
+        int[] termStarts = new int[keys.length + 1];
+        int[] postingsStarts = new int[keys.length + 1];
+        for (int i = 0; i < keys.length; i++) {
+            termStarts[i + 1] = termStarts[i] + keys[order[i]].length;
+            postingsStarts[i + 1] = Math.addExact(postingsStarts[i], sorted[order[i]].length);
+        }
+        byte[] termBytes = new byte[termStarts[keys.length]];
+        byte[] postings = new byte[postingsStarts[keys.length]];
+        for (int i = 0; i < keys.length; i++) {
+            System.arraycopy(keys[order[i]], 0, termBytes, termStarts[i], keys[order[i]].length);
+            System.arraycopy(sorted[order[i]].bytes, 0, postings, postingsStarts[i], sorted[order[i]].length);
+        }
+        return new SearchIndex(documentParagraphs.toBuffer(), paragraphSections.toBuffer(),
+                sectionNumberStarts.toBuffer(), sectionNumbers.toBuffer(), IntBuffer.wrap(termStarts),
+                ByteBuffer.wrap(termBytes), IntBuffer.wrap(postingsStarts), ByteBuffer.wrap(postings));
+    }
+
+    /**
+     * The words of one document, and where its paragraphs sit, found in one
+     * walk of it
+     */
+    private static final class DocumentPostings {
+        // for each term, its paragraph and word position, in pairs, in
+        // document order
+        private final Map<String, IntArray> occurrences = new HashMap<String, IntArray>();
+        private final IntArray paragraphSections = new IntArray();
+        private final IntArray sectionNumberStarts = new IntArray();
+        private final IntArray sectionNumbers = new IntArray();
+
+        // Rep invariant:
+        //      paragraphSections has an entry per paragraph, -1 or a section
+        //      sectionNumberStarts has an entry per section and one more,
+        //      starting at 0 and ending at sectionNumbers.size
+        // Abstraction function:
+        //      represents the postings of a document with
+        //      paragraphSections.size paragraphs, numbered from 0, and
+        //      sectionNumberStarts.size - 1 sections, as for SearchIndex
+
+        private DocumentPostings(Document document) {
+            sectionNumberStarts.add(0);
+            // numbers[d] is the number of the last section seen at depth d,
+            // and open[d] the section open at depth d
+            int[] numbers = new int[8];
+            int[] open = new int[8];
+            DocumentCursor cursor = new DocumentCursor(document);
+            for (int event = cursor.next(); event != DocumentCursor.END; event = cursor.next()) {
+                int depth = cursor.depth();
+                if (event == DocumentCursor.START_SECTION) {
+                    if (depth + 1 >= numbers.length) {
+                        numbers = Arrays.copyOf(numbers, 2 * numbers.length);
+                        open = Arrays.copyOf(open, 2 * open.length);
+                    }
+                    numbers[depth]++;
+                    numbers[depth + 1] = 0;
+                    open[depth] = sectionNumberStarts.size - 1;
+                    for (int i = 0; i <= depth; i++) {
+                        sectionNumbers.add(numbers[i]);
+                    }
+                    sectionNumberStarts.add(sectionNumbers.size);
+                } else if (event == DocumentCursor.PARAGRAPH) {
+                    addWords(cursor.textView(), paragraphSections.size);
+                    paragraphSections.add(depth == 0 ? -1 : open[depth - 1]);
+                }
+            }
+        }
+
+        private void addWords(CharSequence text, int paragraph) {
+            int position = 0;
+            int start = -1;
+            for (int i = 0; i <= text.length(); i++) {
+                boolean space = i == text.length() || Paragraph.isSpace(text.charAt(i));
+                if (!space && start < 0) {
+                    start = i;
+                } else if (space && start >= 0) {
+                    String term = term(text, start, i);
+                    IntArray termOccurrences = occurrences.get(term);
+                    if (termOccurrences == null) {
+                        termOccurrences = new IntArray();
+                        occurrences.put(term, termOccurrences);
+                    }
+                    termOccurrences.add(paragraph);
+                    termOccurrences.add(position++);
+                    start = -1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Encodes the postings of one term, document after document
+     */
+    private static final class PostingsWriter {
+        private byte[] bytes = new byte[16];
+        private int length = 0;
+        private int lastParagraph = -1;
+
+        /**
+         * Appends the occurrences of the term in a document
+         * @param firstParagraph number of the first paragraph of the
+         *        document, after every paragraph added so far
+         * @param occurrences pairs of the ordinal in the document of a
+         *        paragraph and a word position in it, in document order
+         */
+        private void add(int firstParagraph, IntArray occurrences) {
+            int i = 0;
+            while (i < occurrences.size) {
+                int paragraph = occurrences.values[i];
+                int next = i;
+                while (next < occurrences.size && occurrences.values[next] == paragraph) {
+                    next += 2;
+                }
+                int number = firstParagraph + paragraph;
+                writeVarint(number - lastParagraph - 1);
+                writeVarint((next - i) / 2);
+                int lastPosition = 0;
+                for (int k = i; k < next; k += 2) {
+                    writeVarint(occurrences.values[k + 1] - lastPosition);
+                    lastPosition = occurrences.values[k + 1];
+                }
+                lastParagraph = number;
+                i = next;
+            }
+        }
+
+        private void writeVarint(int value) {
+            if (length + 5 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, 2 * bytes.length);
+            }
+            while ((value & ~0x7F) != 0) {
+                bytes[length++] = (byte) (value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+    }
+
+    /**
+     * A growable array of ints
+     */
+    private static final class IntArray {
+        private int[] values = new int[8];
+        private int size = 0;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            values[size++] = value;
+        }
+
+        private IntBuffer toBuffer() {
+            return IntBuffer.wrap(Arrays.copyOf(values, size));
+        }
+    }
+}
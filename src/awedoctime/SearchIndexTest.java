@@ -0,0 +1,174 @@
+package awedoctime;
+
+import static awedoctime.Document.empty;
+import static awedoctime.Document.paragraph;
+import static awedoctime.Document.section;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import awedoctime.SearchIndex.Hit;
+
+public class SearchIndexTest {
+
+    // Methods: build (sequential and parallel), term, phrase, write, open,
+    //          documentCount, termCount
+    // Partition:
+    // Documents none, empty, paragraphs only, nested sections, many
+    // Implementation Paragraph/Section chain, RopeDocument, FlatDocument,
+    //          StoredDocument
+    // Term absent, once, several times in a paragraph, in several
+    //          documents, non-ASCII, with punctuation
+    // Phrase of no word, one word, several words in order, out of order,
+    //          split across paragraphs, with extra whitespace
+    // Index built, written and opened
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final Document MANUAL = paragraph("Read the manual first.")
+            .append(section("Install", paragraph("Run the installer.")
+                    .append(section("Linux", paragraph("run the script, then run   it again")))
+                    .append(section("Windows", paragraph("Run the installer as admin.")))))
+            .append(section("Use", paragraph("caf\u00e9 \ud83d\ude00 and the manual")));
+
+    private static final Document NOTES = section("Notes", empty())
+            .append(section("More", paragraph("the installer")));
+
+    private static final List<Document> DOCUMENTS = Arrays.asList(MANUAL, empty(), NOTES);
+
+    /**
+     * @return a hit
+     */
+    private static String hit(int document, int paragraph, String section) {
+        return "document " + document + ", paragraph " + paragraph + (section.isEmpty() ? "" : ", section " + section);
+    }
+
+    /**
+     * @return the Strings of hits
+     */
+    private static List<String> strings(List<Hit> hits) {
+        List<String> strings = new ArrayList<String>();
+        for (Hit hit : hits) {
+            strings.add(hit.toString());
+        }
+        return strings;
+    }
+
+    /**
+     * Asserts that index answers the queries on DOCUMENTS
+     */
+    private static void assertQueries(SearchIndex index) {
+        assertEquals(3, index.documentCount());
+        assertEquals(Arrays.asList(hit(0, 0, ""), hit(0, 4, "2.")), strings(index.term("manual")));
+        assertEquals(Arrays.asList(hit(0, 3, "1.2."), hit(2, 0, "2.")), strings(index.term("installer")));
+        assertEquals(Arrays.asList(hit(0, 1, "1.")), strings(index.term("installer.")));
+        assertEquals(Arrays.asList(hit(0, 2, "1.1.")), strings(index.term("run")));
+        assertEquals(Arrays.asList(hit(0, 4, "2.")), strings(index.term("caf\u00e9")));
+        assertEquals(Arrays.asList(hit(0, 4, "2.")), strings(index.term("\ud83d\ude00")));
+        assertEquals(Arrays.asList(hit(0, 0, "")), strings(index.term("first.")));
+        assertTrue(index.term("first").isEmpty());
+        assertTrue(index.term("Install").isEmpty());
+        assertTrue(index.term("absent").isEmpty());
+
+        assertEquals(Arrays.asList(hit(0, 3, "1.2.")), strings(index.phrase("Run the installer")));
+        assertEquals(Arrays.asList(hit(0, 2, "1.1.")), strings(index.phrase(" run  it\tagain ")));
+        assertEquals(Arrays.asList(hit(0, 3, "1.2."), hit(2, 0, "2.")), strings(index.phrase("the installer")));
+        assertEquals(Arrays.asList(hit(0, 1, "1.")), strings(index.phrase("Run the installer.")));
+        assertEquals(strings(index.term("manual")), strings(index.phrase("manual")));
+        assertTrue(index.phrase("installer the").isEmpty());
+        assertTrue(index.phrase("installer. run").isEmpty());
+        assertTrue(index.phrase("the absent").isEmpty());
+        assertTrue(index.phrase("   ").isEmpty());
+    }
+
+    //*************************************build Tests*************************************\\
+
+    @Test public void testNoDocuments() {
+        SearchIndex index = SearchIndex.build(new ArrayList<Document>());
+        assertEquals(0, index.documentCount());
+        assertEquals(0, index.termCount());
+        assertTrue(index.term("a").isEmpty());
+    }
+
+    @Test public void testQueries() {
+        assertQueries(SearchIndex.build(DOCUMENTS));
+    }
+
+    @Test public void testHit() {
+        Hit hit = SearchIndex.build(DOCUMENTS).term("script,").get(0);
+        assertEquals(0, hit.document());
+        assertEquals(2, hit.paragraph());
+        assertEquals("1.1.", hit.section());
+        assertEquals(hit, SearchIndex.build(DOCUMENTS).phrase("the script,").get(0));
+    }
+
+    @Test public void testImplementations() throws IOException {
+        Path file = folder.newFile().toPath();
+        DocumentStore.write(file, DOCUMENTS);
+        DocumentStore store = DocumentStore.open(file);
+        assertQueries(SearchIndex.build(Arrays.asList(RopeDocument.of(MANUAL), empty(), RopeDocument.of(NOTES))));
+        assertQueries(SearchIndex.build(Arrays.asList(FlatDocument.of(MANUAL), FlatDocument.of(empty()),
+                FlatDocument.of(NOTES))));
+        assertQueries(SearchIndex.build(Arrays.asList(store.get(0), store.get(1), store.get(2))));
+    }
+
+    @Test public void testParallel() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertQueries(SearchIndex.build(DOCUMENTS, pool));
+
+            List<Document> many = new ArrayList<Document>();
+            for (int i = 0; i < 200; i++) {
+                many.add(section("s", paragraph("word " + i + " common")).append(paragraph("common " + (i % 7))));
+            }
+            SearchIndex sequential = SearchIndex.build(many);
+            SearchIndex parallel = SearchIndex.build(many, pool);
+            assertEquals(sequential.termCount(), parallel.termCount());
+            assertEquals(400, parallel.term("common").size());
+            assertEquals(strings(sequential.phrase("common 3")), strings(parallel.phrase("common 3")));
+            assertEquals(Arrays.asList(hit(150, 0, "1.")), strings(parallel.phrase("word 150")));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    //*************************************write/open Tests*************************************\\
+
+    @Test public void testWriteAndOpen() throws IOException {
+        Path file = folder.newFile().toPath();
+        SearchIndex.build(DOCUMENTS).write(file);
+        SearchIndex opened = SearchIndex.open(file);
+        assertQueries(opened);
+        assertEquals(SearchIndex.build(DOCUMENTS).termCount(), opened.termCount());
+
+        Path again = folder.newFile().toPath();
+        opened.write(again);
+        assertArrayEquals(Files.readAllBytes(file), Files.readAllBytes(again));
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenNotAnIndex() throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, new byte[100]);
+        SearchIndex.open(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenTruncated() throws IOException {
+        Path file = folder.newFile().toPath();
+        SearchIndex.build(DOCUMENTS).write(file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        SearchIndex.open(file);
+    }
+}
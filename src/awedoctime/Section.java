@@ -1,39 +1,27 @@
 package awedoctime;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
-public class Section implements Document {
+public class Section implements Aggregated {
     private String heading;
     private Document contents;
     private Document rest;
-
-    private static final String ESCAPELATEX= "&%$#~_^\\{}";
-    private static final String ESCAPEMARKDOWN = "\\`*_{}[]()#+-.!";
-    private static final String ESCAPEHTML = "<>&\"";
-
-
-    private static final Map<String, String> HTMLMAP;
-    static {
-        Map<String, String> aMap = new HashMap<String, String>();
-        aMap.put("&", "&amp");
-        aMap.put("<", "&lt");
-        aMap.put(">", "&gt");
-        aMap.put("\"", "&quot");
-
-        HTMLMAP = Collections.unmodifiableMap(aMap);
-    }
-
+    private final int wordCount;
+    private final int hashCode;
+    private final long fingerprint;
+    private final int maxDepth;
+    private final int htmlLevels;
+    private volatile RenderedSize renderedSize;
 
     // Rep Invariant:
     //      heading - any string
     //      contents - any Document, Paragraph, Section or Empty
     //      rest - any Document, Section, Empty,
     //             CANNOT be a Paragraph
+    //      wordCount - the number of words in contents and rest
+    //      hashCode, fingerprint - hash code and Fingerprint of this
+    //      maxDepth, htmlLevels - depth and HTML levels of this, see Depth
+    //      renderedSize - null or the RenderedSize of this
     //
     // Abstract Function:
     //      represents a section in a document with a specific 
@@ -50,6 +38,12 @@ public class Section implements Document {
         this.heading = heading;
         this.contents = contents;
         this.rest = new Empty();
+        this.wordCount = contents.bodyWordCount();
+        this.hashCode = 31 * (31 * (31 + contents.hashCode()) + heading.hashCode()) + rest.hashCode();
+        this.fingerprint = Fingerprint.link(Fingerprint.section(heading, Fingerprint.of(contents)),
+                Fingerprint.EMPTY);
+        this.maxDepth = Depth.sectionLevels(Depth.of(contents), 0);
+        this.htmlLevels = Depth.sectionLevels(Depth.levels(contents, OutputFormat.HTML), 0);
         checkRep();
     }
 
@@ -65,6 +59,13 @@ public class Section implements Document {
         this.heading = heading;
         this.contents = contents;
         this.rest = rest;
+        this.wordCount = contents.bodyWordCount() + rest.bodyWordCount();
+        this.hashCode = 31 * (31 * (31 + contents.hashCode()) + heading.hashCode()) + rest.hashCode();
+        this.fingerprint = Fingerprint.link(Fingerprint.section(heading, Fingerprint.of(contents)),
+                Fingerprint.of(rest));
+        this.maxDepth = Depth.sectionLevels(Depth.of(contents), Depth.of(rest));
+        this.htmlLevels = Depth.sectionLevels(Depth.levels(contents, OutputFormat.HTML),
+                Depth.levels(rest, OutputFormat.HTML));
         checkRep();
     }
 
@@ -96,7 +97,7 @@ public class Section implements Document {
     /**
      * @return the contents of a section
      */
-    private Document getContents() {
+    Document getContents() {
         return contents;
     }
 
@@ -137,35 +138,18 @@ public class Section implements Document {
 
     @Override
     public Document append(Document other) {
-        Document newRest;
-        Document newContents;
-        
-        if (!rest.isEmpty() && !rest.startsWithParagraph()) {//if rest is a section, append to rest
-            newContents = contents;
-            newRest = rest.append(other);
-            }
-        else { //otherwise, check if other starts with a paragraph and append accordingly
-            if (other.startsWithParagraph()) { //then change the contents of section
-                newContents = contents.append(other.getLeadingParagraphs());
-                newRest = rest.append(other.getBody());
-            } 
-            else {
-                newContents = contents;
-                newRest = rest.append(other);
-            }
-        }
-        return new Section(heading, newContents, newRest);
+        return Chains.append(this, other);
     }
 
         /**
          * Returns the number of words in the paragraphs of this document. Words
          * are delimited by one or more spaces and by the beginnings and ends of
-         * paragraphs.
+         * paragraphs. The count is computed once, when this is constructed.
          * @return body word count
          */
         @Override
         public int bodyWordCount() {
-            return contents.bodyWordCount() + rest.bodyWordCount();
+            return wordCount;
         }
 
         /**
@@ -183,24 +167,7 @@ public class Section implements Document {
          */
         @Override
         public Document tableOfContents() {
-            Integer[] levelArray = new Integer[] { 1 };
-            List<Integer> level = new ArrayList<Integer>(Arrays.asList(levelArray));
-            return createDocumentLevel(level);
-        }
-
-        /**
-         * helper method that prints the outline level
-         * that precedes the document
-         * @param level an array that represents the level at which a 
-         *      document sits
-         * @return a string that represents the outline level in a table of contents
-         */
-        private String sectionOutline(List<Integer> level) {
-            StringBuilder sb = new StringBuilder("");
-            for (Integer integer : level) {
-                sb.append(integer + ".");
-            }
-            return sb.toString();
+            return TableOfContentsBuilder.build(this);
         }
 
         /**
@@ -213,49 +180,7 @@ public class Section implements Document {
          */
         @Override
         public Document createDocumentLevel(List<Integer> level) {
-            List<Integer> restLevel = getRestLevels(level);
-            List<Integer> contentLevel = getContentLevels(level);
-            int wordCount = contents.bodyWordCount();
-            String wordOrWords;
-            
-            if (wordCount == 1)  {
-                wordOrWords = " word)";
-            } else {
-                wordOrWords = " words)";
-            }
-            
-            Document paragraph = new Paragraph(sectionOutline(level) + " " + heading + " (" 
-                    + wordCount
-                    + wordOrWords);
-            return paragraph.append(contents.createDocumentLevel(contentLevel)).append(rest.createDocumentLevel(restLevel));
-        }
-
-        /**
-         * 
-         * @param level an array that represents the level at which a 
-         *      document sits
-         * @return a new array that represents the level at which a documents content
-         * sits at
-         */
-        private List<Integer>  getContentLevels(List<Integer> level) {
-            List<Integer> contentLevel = makeCopy(level);
-            contentLevel.add(1);
-            return contentLevel;
-
-        }
-
-        /**
-         * 
-         * @param level an array that represents the level at which a 
-         *      document sits
-         * @return a new array that represents the level at which a documents rest
-         * sits at
-         */
-        private List<Integer> getRestLevels(List<Integer> level) {
-            List<Integer> restLevel = makeCopy(level);
-            Integer lastElement = restLevel.remove(restLevel.size()-1);
-            restLevel.add(lastElement + 1);
-            return restLevel;
+            return TableOfContentsBuilder.build(this, level);
         }
 
         /**
@@ -272,11 +197,7 @@ public class Section implements Document {
          */
         @Override
         public String toLaTeX() throws ConversionException {
-            int firstLevel = 1;
-            String start = "\\documentclass{article}" 
-                    + "\n" + "\\begin{document}";
-            String end   = "\n" + "\\end{document}";
-            return start + toLaTexHelper(firstLevel) + end; 
+            return DocumentRenderer.toLaTeX(this);
         }
 
         /** 
@@ -286,33 +207,7 @@ public class Section implements Document {
          */
         @Override
         public String toLaTexHelper(int level) throws ConversionException {
-            int maxLaTeXLevels = 3;
-            if (level > maxLaTeXLevels) {
-                throw new ConversionException("Cannot create a LaTeX with more than 3 nested levels");
-            }
-            else{
-                String escapeString = ESCAPELATEX;
-                String txt = escapeText(escapeString);
-                return "\n" + sectionLaTeXHeading(level) + txt + "}" + contents.toLaTexHelper(level+1) + rest.toLaTexHelper(level);
-            }
-        }
-
-        /** 
-         * @param level the level at which sectionLaTeXHeading is called, where
-         *        the top level = 1
-         * @return a string that corresponds to the level at which a section is nested
-         *         in LaTex syntax
-         */
-        private String sectionLaTeXHeading(int level) {
-            String wrapper = "";
-            if (level == 1) {
-                wrapper+="\\section{";
-            } else if (level == 2) {
-                wrapper+="\\subsection{";
-            } else if (level == 3) {
-                wrapper+="\\subsubsection{";
-            }
-            return wrapper;
+            return DocumentRenderer.toLaTeX(this, level);
         }
 
         /**
@@ -336,15 +231,7 @@ public class Section implements Document {
          * @return a string of Markdown-escaped text if text cannot be converted to markdown
          */
         public String toMarkdownHelper(int level) throws ConversionException{
-            if (level > 6) {
-                throw new ConversionException("Cannot create a Markdown with more than 6 nested levels");
-
-            }
-            else{
-                String escapeString = ESCAPEMARKDOWN;
-                String txt = escapeText(escapeString);
-                return "\n" + sectionHeading(level) + " " + txt + contents.toMarkdownHelper(level+1) + rest.toMarkdownHelper(level);
-            }    
+            return DocumentRenderer.toMarkdown(this, level);
         }
 
         @Override
@@ -357,15 +244,7 @@ public class Section implements Document {
          * @throws ConversionException if the document cannot be converted
          */
         public String toHTML() throws ConversionException{
-            String header ="<html lang = \"en\">"
-                    + "\n" + "<head>" 
-                    + "\n" + "<title>The Title</title>"
-                    + "\n" + "</head>"
-                    + "\n" + "<body>";
-            int firstLevel = 1;
-
-            String closer = "\n"+ "</body>" + "\n" + "</html>";
-            return header + toHTMLHelper(firstLevel) + closer; 
+            return DocumentRenderer.toHTML(this);
         }
 
         @Override
@@ -375,57 +254,9 @@ public class Section implements Document {
          * @return a string of HTML-escaped text if text can be converted to HTML
          */
         public String toHTMLHelper(int level) throws ConversionException{
-            if (level > 6) {
-                throw new ConversionException("Cannot create a HTML with more than 6 nested levels");
-            }
-            else{
-                String txt = escapeTextToHTML(ESCAPEHTML);
-                List<String> headings = sectionHTMLHeading(level);
-                return "\n" + headings.get(0) + txt + contents.toHTMLHelper(level+1) + headings.get(1) + rest.toHTMLHelper(level);
-            }
-        }
-
-        private List<String> sectionHTMLHeading(int level) {
-            List<String> headings = new ArrayList<>();
-            headings.add("<h"+ level + ">");
-            headings.add("</h"+ level + ">");
-            return headings;
+            return DocumentRenderer.toHTML(this, level);
         }
 
-        private String escapeTextToHTML(String escapeString) {
-            StringBuilder sb = new StringBuilder("");
-            for (int i = 0; i < heading.length(); i++){
-                String c = Character.toString(heading.charAt(i));        
-                if (escapeString.indexOf(c) == -1) {
-                    //index does not occur
-                    sb.append(c);
-                } else {
-                    String escape = HTMLMAP.get(c);
-                    sb.append(escape);
-                }
-            }
-            return sb.toString();
-        }
-        /**
-         * 
-         * @param escapeString a string of characters that need to be escaped
-         * in a specific document format
-         * @return 
-         */
-        private String escapeText(String escapeString) {
-            StringBuilder sb = new StringBuilder("");
-            for (int i = 0; i < heading.length(); i++){
-                String c = Character.toString(heading.charAt(i));        
-                if (escapeString.indexOf(c) == -1) {
-                    //index does not occur
-                    sb.append(c);
-                } else {
-                    sb.append("\\");
-                    sb.append(c);
-                }
-            }
-            return sb.toString();
-        }
         /**
          * Returns a concise String representation of the document
          * in Markdown syntax
@@ -436,20 +267,6 @@ public class Section implements Document {
             return printDocument(firstLevel);
         }
 
-        /** 
-         * @param level the level at which sectionHeading is called, where
-         *        the top level = 1
-         * @return a string of #'s, where the number of #'s correspond to 
-         *         the level at which a section belongs, as per Markdown syntax
-         */
-        private String sectionHeading(int level) {
-            StringBuilder sb = new StringBuilder("");
-            for (int i=0; i<level; i++) {
-                sb.append("#");
-            }
-            return sb.toString();
-        }
-
         /**
          * @param level the level at which printDocument is called, where
          *        the top level = 1
@@ -457,34 +274,80 @@ public class Section implements Document {
          */
         @Override
         public String printDocument(int level) {
-            return sectionHeading(level) + " " + heading + "\n" + contents.printDocument(level+1) + rest.printDocument(level);
+            return DocumentRenderer.toString(this, level);
+        }
+
+        /**
+         * @return the structural fingerprint of this document, see Fingerprint
+         */
+        public long fingerprint() {
+            return fingerprint;
         }
 
         /**
-         * creates a deep copy of a list
-         * @param level an array of integers
-         * @return a new copy of level
+         * @return the greatest number of sections nested in one another in
+         *         this document, computed when this was built; see Depth
          */
-        private List<Integer> makeCopy(List<Integer> level) {
-            List<Integer> copy = new ArrayList<Integer>();
+        public int maxDepth() {
+            return maxDepth;
+        }
 
-            for (Integer i : level) {
-                copy.add(i);
+        /**
+         * @return the exact length of this document rendered in every format,
+         *         computed once, when first needed; see RenderedSize
+         */
+        public RenderedSize renderedSize() {
+            RenderedSize size = renderedSize;
+            if (size == null) {
+                size = RenderedSize.measure(this);
+                renderedSize = size;
             }
-            return copy;
+            return size;
+        }
+
+        /**
+         * @return the outline of the sections of this document, built by
+         *         walking it once each time it is asked for, as a node of a
+         *         chain does not keep it; see Outline
+         */
+        public Outline outline() {
+            return Outline.build(this);
+        }
+
+        /**
+         * @param from index of the first top-level item of the slice, from 0
+         * @param to index just after the last top-level item of the slice
+         * @return the top-level items [from, to) of this, sharing its nodes; see
+         *         DocumentViews
+         * @throws IndexOutOfBoundsException if from is negative, to is less
+         *         than from or this has fewer than to top-level items
+         */
+        public Document slice(int from, int to) {
+            return SliceDocument.slice(this, Integer.MAX_VALUE, null, from, to);
+        }
+
+        /**
+         * @return the HTML levels of this document, see Depth
+         */
+        public int htmlLevels() {
+            return htmlLevels;
+        }
+
+        /**
+         * @param format format to convert this document to
+         * @return whether or not this document can be converted to format,
+         *         in constant time
+         */
+        public boolean canConvert(OutputFormat format) {
+            return Depth.canConvert(this, format);
         }
 
         /**
-         * @return the hashCode of this
+         * @return the hashCode of this, computed when this was built
          */
         @Override
         public int hashCode() {
-            final int prime = 31;
-            int result = 1;
-            result = prime * result + contents.hashCode();
-            result = prime * result + heading.hashCode();
-            result = prime * result + rest.hashCode();
-            return result;
+            return hashCode;
         }
 
         /**
@@ -494,29 +357,11 @@ public class Section implements Document {
         public boolean equals(Object obj) {
             if (this == obj)
                 return true;
-            if (obj == null)
+            if (!(obj instanceof Document))
                 return false;
-            if (getClass() != obj.getClass())
+            if (fingerprint != Fingerprint.of((Document) obj))
                 return false;
-            Section other = (Section) obj;
-            if (heading == null) {
-                if (other.getText() != null)
-                    return false;
-            } else if (!heading.equals(other.getText()))
-                return false;
-            if (contents == null) {
-                if (other.getContents() != null)
-                    return false;
-            } else if (!contents.equals(other.getContents())) {
-                return false;
-            }
-            if (rest == null) {
-                if (other.getNextItemOfSameHeirarchy() != null)
-                    return false;
-            } else if (!rest.equals(other.getNextItemOfSameHeirarchy())) {
-                return false;
-            }
-            return true;
+            return DocumentCursor.sameContents(this, (Document) obj);
         }
     }
 
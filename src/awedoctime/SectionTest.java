@@ -301,6 +301,31 @@ public class SectionTest {
 
     }
 
+    @Test public void testTableOfContentsParagraphBeforeNestedSections() {
+        Document document = section("a", paragraph("intro text")
+                .append(section("b", paragraph("one")))
+                .append(section("c", section("d", empty()))))
+                .append(section("e", empty()));
+        Document expected = paragraph("1. a (3 words)")
+                .append(paragraph("1. b (1 word)"))
+                .append(paragraph("2. c (0 words)"))
+                .append(paragraph("2.1. d (0 words)"))
+                .append(paragraph("2. e (0 words)"));
+
+        assertEquals(expected, document.tableOfContents());
+    }
+
+    @Test public void testTableOfContentsManySections() {
+        Document document = new Empty();
+        for (int i = 99999; i >= 0; i--) {
+            document = new Section("s" + i, new Paragraph("body"), document);
+        }
+        Document toc = document.tableOfContents();
+
+        assertEquals("1. s0 (1 word)", toc.getText());
+        assertEquals(4 * 100000, toc.bodyWordCount());
+    }
+
     //*************************************toMarkdown Tests*************************************\\
 
     @Test public void testToMarkdownOneSectionNoContent() throws ConversionException {
@@ -0,0 +1,505 @@
+package awedoctime;
+
+import java.util.List;
+
+/**
+ * An immutable Document that is a run of consecutive top-level items of a
+ * chain of Paragraphs and Sections, made by DocumentViews.slice without
+ * copying any of them: it keeps the first item of the run and the number
+ * of items in it, and the items themselves still link on to the rest of
+ * their chain, which a walk of this document stops short of.
+ * <p>
+ * When the chain goes on into a RopeDocument, FlatDocument or
+ * StoredDocument before the run ends, the end of the run is a slice of
+ * that document, kept as the tail of this one.
+ * <p>
+ * The word count, fingerprint, hashCode and depth of a slice are worked
+ * out from its items and the aggregates their contents cache, so they
+ * cost O(number of top-level items) once, when first needed; the rendered
+ * size and the outline are found by walking the slice once, when first
+ * needed. The renderers and tableOfContents walk the slice alone.
+ */
+public final class SliceDocument implements Aggregated {
+    private final Document first;
+    private final int count;
+    private final Document tail;
+
+    private volatile boolean summed;
+    private int wordCount;
+    private int hashCode;
+    private long fingerprint;
+    private int maxDepth;
+    private int htmlLevels;
+    private volatile RenderedSize renderedSize;
+    private volatile Outline outline;
+
+    // Rep invariant:
+    //      count >= 1, and first and the count - 1 items that follow it
+    //      through getNextItemOfSameHeirarchy are Paragraphs and Sections
+    //      tail is any document
+    //      no paragraph follows a section in the items and then tail
+    //      wordCount, hashCode, fingerprint, maxDepth and htmlLevels are
+    //      those of this once summed is true
+    //      renderedSize is null or the RenderedSize of this
+    //      outline is null or the Outline of this
+    // Abstraction function:
+    //      represents the document whose top-level items are the count
+    //      items of the chain from first, followed by those of tail
+
+    SliceDocument(Document first, int count, Document tail) {
+        this.first = first;
+        this.count = count;
+        this.tail = tail;
+    }
+
+    /**
+     * @param first the first item of a sequence of top-level items, a
+     *        Paragraph or Section
+     * @param count the number of items of the chain from first in the
+     *        sequence, or Integer.MAX_VALUE for the whole chain
+     * @param tail the items of the sequence after those count items, or
+     *        null if count is Integer.MAX_VALUE
+     * @return the items [from, to) of the sequence, sharing its nodes
+     * @throws IndexOutOfBoundsException if from is negative, to is less
+     *         than from or the sequence has fewer than to items
+     */
+    static Document slice(Document first, int count, Document tail, int from, int to) {
+        DocumentViews.checkRange(from, to);
+        Document node = first;
+        int remaining = count;
+        int index = 0;
+        while (index < from) {
+            if (remaining == 0 || !isLinked(node)) {
+                return DocumentViews.slice(remaining == 0 ? tail : node, from - index, to - index);
+            }
+            node = node.getNextItemOfSameHeirarchy();
+            remaining--;
+            index++;
+        }
+        Document start = node;
+        int length = 0;
+        while (from + length < to && remaining > 0 && isLinked(node)) {
+            node = node.getNextItemOfSameHeirarchy();
+            remaining--;
+            length++;
+        }
+        Document rest = from + length == to ? new Empty()
+                : DocumentViews.slice(remaining == 0 ? tail : node, 0, to - from - length);
+        if (length == 0) {
+            return rest;
+        }
+        return new SliceDocument(start, length, rest);
+    }
+
+    /**
+     * @return whether or not node is an item of a linked chain
+     */
+    private static boolean isLinked(Document node) {
+        return node instanceof Paragraph || node instanceof Section;
+    }
+
+    /**
+     * @return the text contained in the top level of
+     * the Document
+     */
+    @Override
+    public String getText() {
+        return first.getText();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return false;
+    }
+
+    /**
+     * @return whether or not this can always be appended to
+     *          the top level of any other document object
+     */
+    @Override
+    public boolean startsWithParagraph() {
+        return first instanceof Paragraph;
+    }
+
+    @Override
+    public Document getLeadingParagraphs() {
+        int leading = leadingCount();
+        if (leading == 0) {
+            return new Empty();
+        }
+        if (leading == count) {
+            return new SliceDocument(first, count, tail.getLeadingParagraphs());
+        }
+        return new SliceDocument(first, leading, new Empty());
+    }
+
+    /**
+     * @return every level of the document other than
+     * the leading paragraphs
+     */
+    @Override
+    public Document getBody() {
+        int leading = leadingCount();
+        if (leading == count) {
+            return tail.getBody();
+        }
+        Document node = first;
+        for (int i = 0; i < leading; i++) {
+            node = node.getNextItemOfSameHeirarchy();
+        }
+        return new SliceDocument(node, count - leading, tail);
+    }
+
+    @Override
+    public Document getNextItemOfSameHeirarchy() {
+        if (count == 1) {
+            return tail;
+        }
+        return new SliceDocument(first.getNextItemOfSameHeirarchy(), count - 1, tail);
+    }
+
+    /**
+     * @return the first item of this, a Paragraph or Section that may be
+     *         followed by more than this shows
+     */
+    Document first() {
+        return first;
+    }
+
+    /**
+     * @return the number of items of the chain from first() in this
+     */
+    int count() {
+        return count;
+    }
+
+    /**
+     * @return the items of this after the count() items from first()
+     */
+    Document tail() {
+        return tail;
+    }
+
+    /**
+     * @return the contents of the section this starts with
+     */
+    Document contents() {
+        return ((Section) first).getContents();
+    }
+
+    /**
+     * @param from index of the first top-level item of the slice, from 0
+     * @param to index just after the last top-level item of the slice
+     * @return the top-level items [from, to) of this, sharing its nodes
+     * @throws IndexOutOfBoundsException if from is negative, to is less
+     *         than from or this has fewer than to top-level items
+     */
+    public Document slice(int from, int to) {
+        return slice(first, count, tail, from, to);
+    }
+
+    /**
+     * Returns a document which has the contents of this followed by the
+     * contents of other. The result is a FlatDocument, so the items of this
+     * are copied once.
+     * @param other document to append
+     * @return concatenation of this and other
+     */
+    @Override
+    public Document append(Document other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        return FlatDocument.of(this).append(other);
+    }
+
+    /**
+     * Returns the number of words in the paragraphs of this document. Words
+     * are delimited by one or more spaces and by the beginnings and ends of
+     * paragraphs.
+     * @return body word count, from the counts cached by the contents of
+     *         the top-level sections
+     */
+    @Override
+    public int bodyWordCount() {
+        sum();
+        return wordCount;
+    }
+
+    /**
+     * Returns a document containing one paragraph for every section heading in
+     * this document. Each paragraph contains:
+     * <br> - the section number (starting from 1), written as a sequence of
+     *        parent section numbers separated by periods, ending with the
+     *        position of this section under its parent (or under the top level,
+     *        if none)
+     * <br> - the section heading
+     * <br> - the word count of paragraphs in this section and its sub-sections,
+     *        written as "1 word", or "N words" for N != 1
+     * <br> For an example, see the problem set handout.
+     * @return table of contents
+     */
+    @Override
+    public Document tableOfContents() {
+        return TableOfContentsBuilder.build(this);
+    }
+
+    /**
+     * creates a document preceded by the level representation
+     * of where the document is within a document
+     * @param level the top level of the document represented in
+     * List format
+     * @return a document preceded by the level representation
+     * relative to level
+     */
+    @Override
+    public Document createDocumentLevel(List<Integer> level) {
+        return TableOfContentsBuilder.build(this, level);
+    }
+
+    /**
+     * Returns a LaTeX representation of the document that:
+     * <br> - contains a preamble with document class "article" and no other
+     *        options or packages; uses \section, \subsection, & \subsubsection
+     *        to indicate sections; uses ordinary paragraphs
+     * <br> - renders all the section headings and paragraphs of the document
+     *        using appropriate LaTeX syntax and character escaping, with no
+     *        additional formatting
+     * <br> For an example, see the problem set handout.
+     * @return LaTeX conversion
+     * @throws ConversionException if the document cannot be converted
+     */
+    @Override
+    public String toLaTeX() throws ConversionException {
+        return DocumentRenderer.toLaTeX(this);
+    }
+
+    /**
+     * Returns a LaTeX-readable string of text
+     * @param level the document level at which toLaTexHelper is called
+     * @return a string of LaTex-escaped text if text can be converted to LaTex
+     * @throws ConversionException if the document cannot be converted
+     */
+    @Override
+    public String toLaTexHelper(int level) throws ConversionException {
+        return DocumentRenderer.toLaTeX(this, level);
+    }
+
+    /**
+     * Returns a Markdown representation of the document that:
+     * <br> - renders all the section headings and paragraphs of the document
+     *        using appropriate Markdown syntax and character escaping, with no
+     *        additional formatting
+     * <br> For an example, see the problem set handout.
+     * @return Markdown conversion
+     * @throws ConversionException if the document cannot be converted
+     */
+    @Override
+    public String toMarkdown() throws ConversionException {
+        int firstLevel = 1;
+        return toMarkdownHelper(firstLevel);
+    }
+
+    /**
+     * Returns a Markdown-readable string of text
+     * @param level the document level at which toMarkdownHelper is called
+     * @return a string of Markdown-escaped text if text can be converted to markdown
+     * @throws ConversionException if the document cannot be converted
+     */
+    @Override
+    public String toMarkdownHelper(int level) throws ConversionException {
+        return DocumentRenderer.toMarkdown(this, level);
+    }
+
+    /**
+     * Returns a HTML representation of the document that:
+     * <br> - renders all the section headings and paragraphs of the document
+     *        using appropriate HTML syntax and character escaping, with no
+     *        additional formatting
+     * @return HTML conversion
+     * @throws ConversionException if the document cannot be converted
+     */
+    @Override
+    public String toHTML() throws ConversionException {
+        return DocumentRenderer.toHTML(this);
+    }
+
+    /**
+     * Returns a HTML-readable string of text
+     * @param level the document level at which toHTMLHelper is called
+     * @return a string of HTML-escaped text if text can be converted to HTML
+     * @throws ConversionException if the document cannot be converted
+     */
+    @Override
+    public String toHTMLHelper(int level) throws ConversionException {
+        return DocumentRenderer.toHTML(this, level);
+    }
+
+    /**
+     * Returns a concise String representation of the document
+     * in Markdown syntax
+     */
+    @Override
+    public String toString() {
+        return printDocument(1);
+    }
+
+    /**
+     * @param level the level at which printDocument is called, where
+     *         the top level = 1
+     * @return a string representation of the document
+     */
+    @Override
+    public String printDocument(int level) {
+        return DocumentRenderer.toString(this, level);
+    }
+
+    /**
+     * @return the structural fingerprint of this document, the same as the
+     *         Paragraph/Section/Empty chain with the same contents; see
+     *         Fingerprint
+     */
+    public long fingerprint() {
+        sum();
+        return fingerprint;
+    }
+
+    /**
+     * @return the same hashCode as the Paragraph/Section/Empty chain with
+     *         the same contents
+     */
+    @Override
+    public int hashCode() {
+        sum();
+        return hashCode;
+    }
+
+    /**
+     * @return the greatest number of sections nested in one another in this
+     *         document; see Depth
+     */
+    public int maxDepth() {
+        sum();
+        return maxDepth;
+    }
+
+    /**
+     * @return the exact length of this document rendered in every format,
+     *         found by walking it once, when first needed; see RenderedSize
+     */
+    public RenderedSize renderedSize() {
+        RenderedSize size = renderedSize;
+        if (size == null) {
+            size = RenderedSize.measure(this);
+            renderedSize = size;
+        }
+        return size;
+    }
+
+    /**
+     * @return the outline of the sections of this document, built by
+     *         walking it once, when first needed; see Outline
+     */
+    public Outline outline() {
+        Outline result = outline;
+        if (result == null) {
+            result = Outline.build(this);
+            outline = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return the HTML levels of this document, see Depth
+     */
+    public int htmlLevels() {
+        sum();
+        return htmlLevels;
+    }
+
+    /**
+     * @param format format to convert this document to
+     * @return whether or not this document can be converted to format
+     */
+    public boolean canConvert(OutputFormat format) {
+        return Depth.canConvert(this, format);
+    }
+
+    /**
+     * @return whether or not this is observationally equivalent to obj,
+     *         which may be any Document that DocumentCursor can walk
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof Document))
+            return false;
+        Document other = (Document) obj;
+        if (fingerprint() != Fingerprint.of(other))
+            return false;
+        return DocumentCursor.sameContents(this, other);
+    }
+
+    /**
+     * Works out the aggregates of this from its items, once. Every one of
+     * them is a right fold over the items, as in RopeDocument.Node, and
+     * each item only needs its own text and the aggregates its contents
+     * cache, never those of what follows it in its chain. Paragraphs come
+     * before sections, so the HTML levels are those of the sections and
+     * tail plus one per paragraph (see Depth.paragraphHTMLLevels).
+     */
+    private void sum() {
+        if (summed) {
+            return;
+        }
+        int words = tail.bodyWordCount();
+        int hash = 0;
+        int hashMul = 1;
+        long print = 0;
+        long printMul = 1;
+        int depth = Depth.of(tail);
+        int html = Depth.levels(tail, OutputFormat.HTML);
+        int paragraphs = 0;
+        Document node = first;
+        for (int i = 0; i < count; i++) {
+            String text = node.getText();
+            if (node instanceof Paragraph) {
+                words += Paragraph.getWordCountInLIne(text);
+                hash += hashMul * (961 + text.hashCode());
+                hashMul *= 31;
+                print += printMul * Fingerprint.paragraph(text);
+                paragraphs++;
+            } else {
+                Document contents = ((Section) node).getContents();
+                words += contents.bodyWordCount();
+                hash += hashMul * (29791 + 961 * contents.hashCode() + 31 * text.hashCode());
+                print += printMul * Fingerprint.section(text, Fingerprint.of(contents));
+                depth = Depth.sectionLevels(Depth.of(contents), depth);
+                html = Depth.sectionLevels(Depth.levels(contents, OutputFormat.HTML), html);
+            }
+            printMul *= Fingerprint.MULTIPLIER;
+            node = node.getNextItemOfSameHeirarchy();
+        }
+        wordCount = words;
+        hashCode = hash + hashMul * tail.hashCode();
+        fingerprint = print + printMul * Fingerprint.of(tail);
+        maxDepth = depth;
+        htmlLevels = html == 0 ? 0 : html + paragraphs;
+        summed = true;
+    }
+
+    /**
+     * @return the number of paragraphs at the start of the count items of
+     *         this
+     */
+    private int leadingCount() {
+        int leading = 0;
+        Document node = first;
+        while (leading < count && node instanceof Paragraph) {
+            node = node.getNextItemOfSameHeirarchy();
+            leading++;
+        }
+        return leading;
+    }
+}
@@ -0,0 +1,527 @@
+package awedoctime;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable Document that is a range of the memory-mapped file of a
+ * DocumentStore. Nothing of it is decoded when it is made: the text of a
+ * paragraph or heading is decoded from the file when getText (or a walk of
+ * the document) asks for it, and the contents of a section, its rest, its
+ * leading paragraphs and its body are more StoredDocuments over parts of
+ * the same range, found by skipping whole sections by their stored size.
+ * <p>
+ * bodyWordCount and the fingerprint read the word counts and fingerprints
+ * stored with the items, so they only look at the top-level items; the
+ * renderers, tableOfContents, hashCode and equals decode the text of the
+ * whole document, one paragraph at a time.
+ */
+public final class StoredDocument implements Aggregated {
+    private final DocumentStore store;
+    private final long start;
+    private final long end;
+
+    private volatile boolean hashed;
+    private int hashCode;
+    private volatile boolean measured;
+    private int maxDepth;
+    private int htmlLevels;
+    private volatile RenderedSize renderedSize;
+    private volatile Outline outline;
+
+    // Rep invariant:
+    //      start <= end, and [start, end) is a sequence of whole items of the
+    //      file of store, no paragraph following a section
+    //      hashCode is that of this once hashed is true
+    //      maxDepth and htmlLevels are those of this (see Depth) once
+    //      measured is true
+    //      renderedSize is null or the RenderedSize of this
+    //      outline is null or the Outline of this
+    // Abstraction function:
+    //      represents the document whose top-level items are those of
+    //      [start, end)
+
+    StoredDocument(DocumentStore store, long start, long end) {
+        this.store = store;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * @return the text contained in the top level of
+     * the Document, decoded from the file
+     */
+    @Override
+    public String getText() {
+        if (start == end) {
+            return "";
+        }
+        return store.text(start);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return start == end;
+    }
+
+    /**
+     * @return whether or not this can always be appended to
+     *          the top level of any other document object
+     */
+    @Override
+    public boolean startsWithParagraph() {
+        return start < end && store.isParagraph(start);
+    }
+
+    @Override
+    public Document getLeadingParagraphs() {
+        return new StoredDocument(store, start, leadingEnd());
+    }
+
+    /**
+     * @return every level of the document other than
+     * the leading paragraphs
+     */
+    @Override
+    public Document getBody() {
+        return new StoredDocument(store, leadingEnd(), end);
+    }
+
+    @Override
+    public Document getNextItemOfSameHeirarchy() {
+        if (start == end) {
+            return this;
+        }
+        return new StoredDocument(store, store.skip(start), end);
+    }
+
+    /**
+     * @return the contents of the section this starts with
+     */
+    Document contents() {
+        return contents(start);
+    }
+
+    /**
+     * @param item position of a section of this
+     * @return the contents of the section
+     */
+    Document contents(long item) {
+        return new StoredDocument(store, store.contentsStart(item), store.contentsEnd(item));
+    }
+
+    /**
+     * @param item position of an item of this
+     * @return the document made of that item alone
+     */
+    StoredDocument item(long item) {
+        return new StoredDocument(store, item, store.skip(item));
+    }
+
+    /**
+     * @return the position of the first item of this
+     */
+    long start() {
+        return start;
+    }
+
+    /**
+     * @return the end of the items of this
+     */
+    long end() {
+        return end;
+    }
+
+    /**
+     * @param item position of an item of this
+     * @return the position just after the item
+     */
+    long skip(long item) {
+        return store.skip(item);
+    }
+
+    /**
+     * @param item position of an item of this
+     * @return whether or not the item is a paragraph
+     */
+    boolean isParagraph(long item) {
+        return store.isParagraph(item);
+    }
+
+    /**
+     * @param item position of an item of this
+     * @return the text of the paragraph or the heading of the section
+     */
+    String text(long item) {
+        return store.text(item);
+    }
+
+    /**
+     * @return view, showing the text of the item at position item
+     */
+    TextView text(long item, TextView view) {
+        return store.text(item, view);
+    }
+
+    /**
+     * @return the position of the first item of the contents of the
+     *         section at position item
+     */
+    long contentsStart(long item) {
+        return store.contentsStart(item);
+    }
+
+    /**
+     * @return the position just after the last item of the contents of the
+     *         section at position item
+     */
+    long contentsEnd(long item) {
+        return store.contentsEnd(item);
+    }
+
+    /**
+     * Returns a document which has the contents of this followed by the
+     * contents of other. The result is a FlatDocument on the heap, so this
+     * is decoded as a whole.
+     * @param other document to append
+     * @return concatenation of this and other
+     */
+    @Override
+    public Document append(Document other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        return FlatDocument.of(this).append(other);
+    }
+
+    /**
+     * Returns the number of words in the paragraphs of this document. Words
+     * are delimited by one or more spaces and by the beginnings and ends of
+     * paragraphs.
+     * @return body word count, from the counts stored with the top-level
+     *         items
+     */
+    @Override
+    public int bodyWordCount() {
+        int words = 0;
+        for (long item = start; item < end; item = store.skip(item)) {
+            words += store.words(item);
+        }
+        return words;
+    }
+
+    /**
+     * Returns a document containing one paragraph for every section heading in
+     * this document. Each paragraph contains:
+     * <br> - the section number (starting from 1), written as a sequence of
+     *        parent section numbers separated by periods, ending with the
+     *        position of this section under its parent (or under the top level,
+     *        if none)
+     * <br> - the section heading
+     * <br> - the word count of paragraphs in this section and its sub-sections,
+     *        written as "1 word", or "N words" for N != 1
+     * <br> For an example, see the problem set handout.
+     * @return table of contents
+     */
+    @Override
+    public Document tableOfContents() {
+        return TableOfContentsBuilder.build(this);
+    }
+
+    /**
+     * creates a document preceded by the level representation
+     * of where the document is within a document
+     * @param level the top level of the document represented in
+     * List format
+     * @return a document preceded by the level representation
+     * relative to level
+     */
+    @Override
+    public Document createDocumentLevel(List<Integer> level) {
+        return TableOfContentsBuilder.build(this, level);
+    }
+
+    /**
+     * Returns a LaTeX representation of the document that:
+     * <br> - contains a preamble with document class "article" and no other
+     *        options or packages; uses \section, \subsection, & \subsubsection
+     *        to indicate sections; uses ordinary paragraphs
+     * <br> - renders all the section headings and paragraphs of the document
+     *        using appropriate LaTeX syntax and character escaping, with no
+     *        additional formatting
+     * <br> For an example, see the problem set handout.
+     * @return LaTeX conversion
+     * @throws ConversionException if the document cannot be converted
+     */
+    @Override
+    public String toLaTeX() throws ConversionException {
+        return DocumentRenderer.toLaTeX(this);
+    }
+
+    /**
+     * Returns a LaTeX-readable string of text
+     * @param level the document level at which toLaTexHelper is called
+     * @return a string of LaTex-escaped text if text can be converted to LaTex
+     * @throws ConversionException if the document cannot be converted
+     */
+    @Override
+    public String toLaTexHelper(int level) throws ConversionException {
+        return DocumentRenderer.toLaTeX(this, level);
+    }
+
+    /**
+     * Returns a Markdown representation of the document that:
+     * <br> - renders all the section headings and paragraphs of the document
+     *        using appropriate Markdown syntax and character escaping, with no
+     *        additional formatting
+     * <br> For an example, see the problem set handout.
+     * @return Markdown conversion
+     * @throws ConversionException if the document cannot be converted
+     */
+    @Override
+    public String toMarkdown() throws ConversionException {
+        int firstLevel = 1;
+        return toMarkdownHelper(firstLevel);
+    }
+
+    /**
+     * Returns a Markdown-readable string of text
+     * @param level the document level at which toMarkdownHelper is called
+     * @return a string of Markdown-escaped text if text can be converted to markdown
+     * @throws ConversionException if the document cannot be converted
+     */
+    @Override
+    public String toMarkdownHelper(int level) throws ConversionException {
+        return DocumentRenderer.toMarkdown(this, level);
+    }
+
+    /**
+     * Returns a HTML representation of the document that:
+     * <br> - renders all the section headings and paragraphs of the document
+     *        using appropriate HTML syntax and character escaping, with no
+     *        additional formatting
+     * @return HTML conversion
+     * @throws ConversionException if the document cannot be converted
+     */
+    @Override
+    public String toHTML() throws ConversionException {
+        return DocumentRenderer.toHTML(this);
+    }
+
+    /**
+     * Returns a HTML-readable string of text
+     * @param level the document level at which toHTMLHelper is called
+     * @return a string of HTML-escaped text if text can be converted to HTML
+     * @throws ConversionException if the document cannot be converted
+     */
+    @Override
+    public String toHTMLHelper(int level) throws ConversionException {
+        return DocumentRenderer.toHTML(this, level);
+    }
+
+    /**
+     * Returns a concise String representation of the document
+     * in Markdown syntax
+     */
+    @Override
+    public String toString() {
+        return printDocument(1);
+    }
+
+    /**
+     * @param level the level at which printDocument is called, where
+     *         the top level = 1
+     * @return a string representation of the document
+     */
+    @Override
+    public String printDocument(int level) {
+        return DocumentRenderer.toString(this, level);
+    }
+
+    /**
+     * @return the structural fingerprint of this document, the same as the
+     *         Paragraph/Section/Empty chain with the same contents; see
+     *         Fingerprint. Only the text of the top-level items is decoded.
+     */
+    public long fingerprint() {
+        // fingerprint = sum of item_k * MULTIPLIER^k, the right fold of Fingerprint.link
+        long fingerprint = Fingerprint.EMPTY;
+        long multiplier = 1;
+        for (long item = start; item < end; item = store.skip(item)) {
+            String text = store.text(item);
+            long itemFingerprint = store.isParagraph(item) ? Fingerprint.paragraph(text)
+                    : Fingerprint.section(text, store.contentsFingerprint(item));
+            fingerprint += multiplier * itemFingerprint;
+            multiplier *= Fingerprint.MULTIPLIER;
+        }
+        return fingerprint;
+    }
+
+    /**
+     * @return the same hashCode as the Paragraph/Section/Empty chain with
+     *         the same contents
+     */
+    @Override
+    public int hashCode() {
+        if (!hashed) {
+            hashCode = hash();
+            hashed = true;
+        }
+        return hashCode;
+    }
+
+    /**
+     * @return the greatest number of sections nested in one another in this
+     *         document, found by reading it once, when first needed; see
+     *         Depth
+     */
+    public int maxDepth() {
+        measure();
+        return maxDepth;
+    }
+
+    /**
+     * @return the exact length of this document rendered in every format,
+     *         found by reading it once, when first needed; see RenderedSize
+     */
+    public RenderedSize renderedSize() {
+        RenderedSize size = renderedSize;
+        if (size == null) {
+            size = RenderedSize.measure(this);
+            renderedSize = size;
+        }
+        return size;
+    }
+
+    /**
+     * @return the outline of the sections of this document, built by
+     *         walking it once, when first needed; see Outline
+     */
+    public Outline outline() {
+        Outline result = outline;
+        if (result == null) {
+            result = Outline.build(this);
+            outline = result;
+        }
+        return result;
+    }
+
+    /**
+     * @param from index of the first top-level item of the slice, from 0
+     * @param to index just after the last top-level item of the slice
+     * @return the top-level items [from, to) of this, a range of the same
+     *         file, found by skipping whole items by their stored size
+     * @throws IndexOutOfBoundsException if from is negative, to is less
+     *         than from or this has fewer than to top-level items
+     */
+    public StoredDocument slice(int from, int to) {
+        DocumentViews.checkRange(from, to);
+        long first = start;
+        int index = 0;
+        while (index < from && first < end) {
+            first = store.skip(first);
+            index++;
+        }
+        long last = first;
+        while (index < to && last < end) {
+            last = store.skip(last);
+            index++;
+        }
+        if (index < to) {
+            throw DocumentViews.outOfBounds(from, to);
+        }
+        return new StoredDocument(store, first, last);
+    }
+
+    /**
+     * @return the HTML levels of this document, see Depth
+     */
+    public int htmlLevels() {
+        measure();
+        return htmlLevels;
+    }
+
+    /**
+     * @param format format to convert this document to
+     * @return whether or not this document can be converted to format
+     */
+    public boolean canConvert(OutputFormat format) {
+        return Depth.canConvert(this, format);
+    }
+
+    private void measure() {
+        if (!measured) {
+            long measures = Depth.measure(this);
+            maxDepth = (int) (measures >>> 32);
+            htmlLevels = (int) measures;
+            measured = true;
+        }
+    }
+
+    /**
+     * @return whether or not this is observationally equivalent to obj,
+     *         which may be any Document that DocumentCursor can walk
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof Document))
+            return false;
+        if (obj instanceof StoredDocument) {
+            StoredDocument other = (StoredDocument) obj;
+            if (store == other.store && start == other.start && end == other.end)
+                return true;
+        }
+        Document other = (Document) obj;
+        if (fingerprint() != Fingerprint.of(other))
+            return false;
+        return DocumentCursor.sameContents(this, other);
+    }
+
+    /**
+     * Computes hashCode in one walk of this. Paragraph's hashCode is
+     * 961 + text + 31 * rest and Section's is 29791 + 961 * contents +
+     * 31 * heading + rest, so the hashCode of a sequence of items is the sum
+     * of the first of these terms of every item times the product of the
+     * multipliers of rest of the items before it.
+     */
+    private int hash() {
+        int[] hashes = new int[8];
+        int[] multipliers = new int[8];
+        int[] headings = new int[8];
+        multipliers[0] = 1;
+        DocumentCursor cursor = new DocumentCursor(this);
+        for (int event = cursor.next(); event != DocumentCursor.END; event = cursor.next()) {
+            int depth = cursor.depth();
+            if (event == DocumentCursor.PARAGRAPH) {
+                hashes[depth] += multipliers[depth] * (961 + cursor.text().hashCode());
+                multipliers[depth] *= 31;
+            } else if (event == DocumentCursor.START_SECTION) {
+                if (depth + 1 == hashes.length) {
+                    hashes = Arrays.copyOf(hashes, 2 * hashes.length);
+                    multipliers = Arrays.copyOf(multipliers, hashes.length);
+                    headings = Arrays.copyOf(headings, hashes.length);
+                }
+                headings[depth] = cursor.text().hashCode();
+                hashes[depth + 1] = 0;
+                multipliers[depth + 1] = 1;
+            } else {
+                hashes[depth] += multipliers[depth] * (29791 + 961 * hashes[depth + 1] + 31 * headings[depth]);
+            }
+        }
+        return hashes[0];
+    }
+
+    /**
+     * @return the end of the leading paragraphs of this, which are the only
+     *         top-level paragraphs
+     */
+    private long leadingEnd() {
+        long item = start;
+        while (item < end && store.isParagraph(item)) {
+            item = store.skip(item);
+        }
+        return item;
+    }
+}
@@ -0,0 +1,94 @@
+package awedoctime;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds the table of contents of a document (see Document.tableOfContents)
+ * in a single walk: section numbers are kept in a primitive int array
+ * indexed by depth, word counts are read from the counts cached in each
+ * Section, and the resulting paragraphs are linked from the last one to the
+ * first, so the whole build is linear in the size of the document.
+ */
+class TableOfContentsBuilder {
+
+    private TableOfContentsBuilder() {
+    }
+
+    /**
+     * @param document any document
+     * @return the table of contents of document, numbering its first
+     *         top-level section 1
+     */
+    static Document build(Document document) {
+        return build(document, new int[0], 1);
+    }
+
+    /**
+     * @param document any document
+     * @param level the section number of the first top-level section of
+     *        document, as a list of parent section numbers ending with the
+     *        position of that section under its parent
+     * @return the table of contents of document, numbered from level
+     */
+    static Document build(Document document, List<Integer> level) {
+        int[] parents = new int[level.size() - 1];
+        for (int i = 0; i < parents.length; i++) {
+            parents[i] = level.get(i);
+        }
+        return build(document, parents, level.get(level.size() - 1));
+    }
+
+    /**
+     * @param parents section numbers of the parents of the top level of document
+     * @param first the number of the first top-level section of document
+     */
+    private static Document build(Document document, int[] parents, int first) {
+        // numbers[d] is the number of the last section seen at depth d, and
+        // starts[d] the depth the number of a section at depth d starts at:
+        // as in Paragraph.createDocumentLevel, the sections that follow a
+        // paragraph are numbered afresh from 1, without their parents
+        int[] numbers = Arrays.copyOf(parents, parents.length + 8);
+        int[] starts = new int[numbers.length];
+        int offset = parents.length;
+        numbers[offset] = first - 1;
+        List<String> lines = new ArrayList<String>();
+        StringBuilder line = new StringBuilder();
+
+        DocumentCursor cursor = new DocumentCursor(document);
+        for (int event = cursor.next(); event != DocumentCursor.END; event = cursor.next()) {
+            int depth = offset + cursor.depth();
+            if (event == DocumentCursor.PARAGRAPH) {
+                numbers[depth] = 0;
+                starts[depth] = depth;
+                continue;
+            }
+            if (event != DocumentCursor.START_SECTION) {
+                continue;
+            }
+            if (depth + 1 >= numbers.length) {
+                numbers = Arrays.copyOf(numbers, 2 * numbers.length);
+                starts = Arrays.copyOf(starts, numbers.length);
+            }
+            numbers[depth]++;
+            numbers[depth + 1] = 0;
+            starts[depth + 1] = starts[depth];
+
+            line.setLength(0);
+            for (int i = starts[depth]; i <= depth; i++) {
+                line.append(numbers[i]).append('.');
+            }
+            int wordCount = cursor.contents().bodyWordCount();
+            line.append(' ').append(cursor.text()).append(" (").append(wordCount);
+            line.append(wordCount == 1 ? " word)" : " words)");
+            lines.add(line.toString());
+        }
+
+        Document result = new Empty();
+        for (int i = lines.size() - 1; i >= 0; i--) {
+            result = new Paragraph(lines.get(i), result);
+        }
+        return result;
+    }
+}
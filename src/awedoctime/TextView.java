@@ -0,0 +1,118 @@
+package awedoctime;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A reusable CharSequence over a range of a char array: the text arena of a
+ * FlatDocument, or a buffer into which the UTF-8 text of a StoredDocument
+ * is decoded. Pointing it at another range or decoding into it does not
+ * allocate once its buffers are large enough, so a walk can hand out the
+ * text of every paragraph and section without making a String for each.
+ * <p>
+ * A TextView is mutable: the text it shows changes when it is moved, and
+ * whoever needs the text after that must copy it, e.g. with toString().
+ */
+final class TextView implements CharSequence {
+    private char[] chars = new char[0];
+    private int start;
+    private int length;
+
+    // buffers for decode, made when first needed
+    private byte[] bytes;
+    private ByteBuffer byteBuffer;
+    private CharBuffer charBuffer;
+    private char[] decoded;
+    private CharsetDecoder decoder;
+
+    // Rep invariant:
+    //      0 <= start <= start + length <= chars.length
+    //      byteBuffer wraps bytes and charBuffer wraps decoded, when they
+    //      are not null
+    // Abstraction function:
+    //      represents the text chars[start, start + length)
+
+    /**
+     * Shows chars[start, end)
+     * @return this
+     */
+    TextView set(char[] chars, int start, int end) {
+        this.chars = chars;
+        this.start = start;
+        this.length = end - start;
+        return this;
+    }
+
+    /**
+     * @param length a number of bytes
+     * @return a buffer of at least length bytes, into which the caller puts
+     *         UTF-8 bytes before calling decode(length)
+     */
+    byte[] bytes(int length) {
+        if (bytes == null || bytes.length < length) {
+            bytes = new byte[Math.max(length, 64)];
+            byteBuffer = ByteBuffer.wrap(bytes);
+        }
+        return bytes;
+    }
+
+    /**
+     * Shows the first length bytes of bytes(length) decoded from UTF-8,
+     * with malformed input replaced as new String(bytes, UTF_8) does
+     * @return this
+     */
+    TextView decode(int length) {
+        // UTF-8 never has more chars than bytes
+        if (decoded == null || decoded.length < length) {
+            decoded = new char[Math.max(length, 64)];
+            charBuffer = CharBuffer.wrap(decoded);
+        }
+        if (decoder == null) {
+            decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+        byteBuffer.clear().limit(length);
+        charBuffer.clear();
+        decoder.reset();
+        decoder.decode(byteBuffer, charBuffer, true);
+        decoder.flush(charBuffer);
+        return set(decoded, 0, charBuffer.position());
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + " of length " + length);
+        }
+        return chars[start + index];
+    }
+
+    /**
+     * @return a copy of the chars [from, to) of this, which does not change
+     *         with this
+     */
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        if (from < 0 || from > to || to > length) {
+            throw new IndexOutOfBoundsException("range [" + from + ", " + to + ") of length " + length);
+        }
+        return new String(chars, start + from, to - from);
+    }
+
+    /**
+     * @return a copy of the text of this, which does not change with this
+     */
+    @Override
+    public String toString() {
+        return new String(chars, start, length);
+    }
+}